@@ -3,9 +3,12 @@ package org.deroesch.tna;
 import java.io.IOException;
 import java.util.List;
 
-import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.algos.MovingAverageUpdater;
 import org.deroesch.tna.db.DayDB;
-import org.deroesch.tna.models.Day;
+import org.deroesch.tna.signals.Rule;
+import org.deroesch.tna.signals.RuleSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
@@ -24,14 +27,27 @@ public class TnaApplication {
 
         // Load the data from disk
         DayDB.initialize(ctx, DayDB.DB_FILE);
-        final List<Day> days = DayDB.getDayList();
 
-        // Compute these moving averages and attach the values to each Day object.
-        MovingAverage.computeAll(days, 5);
-        MovingAverage.computeAll(days, 10);
-        MovingAverage.computeAll(days, 20);
-        MovingAverage.computeAll(days, 50);
-        MovingAverage.computeAll(days, 100);
+        // Make any other symbols available, loading each on first use.
+        DayDB.initializeUniverse(ctx);
+
+        // Compute these moving averages in one pass and attach the values to each Day
+        // object.
+        DayDB.computeMovingAverages(DayDB.DEFAULT_SYMBOL, 5, 10, 20, 50, 100);
+
+        // Keep them current as new days are appended.
+        MovingAverageUpdater.attach(DayDB.getSeries(), 5, 10, 20, 50, 100);
+
+        // And log when the slower ones cross as those days arrive.
+        final RuleSet crosses = new RuleSet(List.of(Rule.parse("golden cross", "SMA(50) crosses above SMA(100)"),
+                Rule.parse("death cross", "SMA(50) crosses below SMA(100)")));
+        crosses.attach(DayDB.getSeries(), DayDB.DEFAULT_SYMBOL, event -> logger.info(event.toString()));
 
     }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(TnaApplication.class);
+
 }
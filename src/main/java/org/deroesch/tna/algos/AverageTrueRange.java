@@ -0,0 +1,66 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Wilder's average true range. A bar's true range is the widest of high - low,
+ * |high - previous close| and |low - previous close|, so gaps count; the first
+ * bar has no previous close and uses high - low. The true ranges are smoothed
+ * with {@link ExponentialAverage#wilder}, so the first value comes at bar
+ * period.
+ */
+public class AverageTrueRange implements Smoother {
+
+    /**
+     * @param period Bars averaged, usually 14
+     */
+    public AverageTrueRange(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.average = ExponentialAverage.wilder(period);
+    }
+
+    @Override
+    public double add(final double value) {
+        return addBar(value, value, value, 0.0);
+    }
+
+    @Override
+    public double addBar(final double high, final double low, final double close, final double volume) {
+        double range = high - low;
+        if (started)
+            range = Math.max(range, Math.max(Math.abs(high - previous), Math.abs(low - previous)));
+        started = true;
+        previous = close;
+        return average.add(range);
+    }
+
+    @Override
+    public boolean isReady() {
+        return average.isReady();
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+        average.reset();
+    }
+
+    /**
+     * @return the number of bars averaged
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /*
+     * Fields
+     */
+    private final int period;
+    private final ExponentialAverage average;
+    private boolean started = false;
+    private double previous;
+
+}
@@ -0,0 +1,98 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Exponential smoothing: avg += alpha * (value - avg). The first average is the
+ * simple mean of the first period values, so output starts at the same bar as an
+ * SMA of the same period.
+ */
+public class ExponentialAverage implements Smoother {
+
+    /**
+     * The usual EMA, alpha = 2 / (period + 1).
+     *
+     * @param period
+     * @return the smoother
+     */
+    @NonNull
+    public static ExponentialAverage ema(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        return new ExponentialAverage(period, 2.0 / (period + 1));
+    }
+
+    /**
+     * Wilder's smoothing, as used by RSI and ATR: alpha = 1 / period.
+     *
+     * @param period
+     * @return the smoother
+     */
+    @NonNull
+    public static ExponentialAverage wilder(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        return new ExponentialAverage(period, 1.0 / period);
+    }
+
+    /**
+     * @param period Values averaged for the seed, > 0
+     * @param alpha  Weight of each new value, in (0, 1]
+     */
+    public ExponentialAverage(@Positive final int period, final double alpha) {
+        Preconditions.checkArgument(period > 0);
+        Preconditions.checkArgument(alpha > 0 && alpha <= 1, "Bad alpha %s", alpha);
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    @Override
+    public double add(final double value) {
+        if (count >= period) {
+            avg += alpha * (value - avg);
+            return avg;
+        }
+
+        // Still seeding
+        avg += value;
+        if (++count < period)
+            return Double.NaN;
+        avg /= period;
+        return avg;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        avg = 0.0;
+        count = 0;
+    }
+
+    /**
+     * @return the seed length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return the weight of each new value
+     */
+    public double getAlpha() {
+        return alpha;
+    }
+
+    /*
+     * Fields. While seeding, avg holds the running sum.
+     */
+    private final int period;
+    private final double alpha;
+    private int count = 0;
+    private double avg = 0.0;
+
+}
@@ -0,0 +1,51 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hull moving average: WMA(2 * WMA(n / 2) - WMA(n), sqrt(n)). Tracks price
+ * closely with little lag. Half and root periods round down, to at least 1.
+ */
+public class HullAverage implements Smoother {
+
+    /**
+     * @param period The full window length, > 0
+     */
+    public HullAverage(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        half = new WeightedAverage(Math.max(1, period / 2));
+        full = new WeightedAverage(period);
+        root = new WeightedAverage(Math.max(1, (int) Math.sqrt(period)));
+    }
+
+    @Override
+    public double add(final double value) {
+        final double h = half.add(value);
+        final double f = full.add(value);
+        if (!full.isReady())
+            return Double.NaN;
+        return root.add(2 * h - f);
+    }
+
+    @Override
+    public boolean isReady() {
+        return root.isReady();
+    }
+
+    @Override
+    public void reset() {
+        half.reset();
+        full.reset();
+        root.reset();
+    }
+
+    /*
+     * Stages
+     */
+    private final WeightedAverage half;
+    private final WeightedAverage full;
+    private final WeightedAverage root;
+
+}
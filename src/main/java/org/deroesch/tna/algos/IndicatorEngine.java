@@ -0,0 +1,166 @@
+package org.deroesch.tna.algos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Computes a set of indicators for many securities at once. Symbols are split
+ * across a fork-join pool; each task builds its own result map and the maps are
+ * merged as tasks join, so no results are shared between threads while they're
+ * being written.
+ */
+public class IndicatorEngine implements AutoCloseable {
+
+    /**
+     * Run on the common fork-join pool.
+     */
+    public IndicatorEngine() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Run on a private pool, shut down by close().
+     *
+     * @param parallelism Number of worker threads
+     */
+    public IndicatorEngine(@Positive final int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Run on the caller's pool. close() leaves it alone.
+     *
+     * @param pool
+     */
+    public IndicatorEngine(@NonNull final ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private IndicatorEngine(final ForkJoinPool pool, final boolean ownsPool) {
+        Preconditions.checkNotNull(pool);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Compute every spec for every series.
+     *
+     * @param universe Series by symbol
+     * @param specs    What to compute
+     * @return results by symbol (sorted), then by spec (in the order given)
+     */
+    @NonNull
+    public Map<String, Map<IndicatorSpec, double[]>> compute(@NonNull final Map<String, DaySeries> universe,
+            @NonNull final Collection<IndicatorSpec> specs) {
+        Preconditions.checkNotNull(universe);
+        Preconditions.checkNotNull(specs);
+
+        final List<Map.Entry<String, DaySeries>> entries = new ArrayList<>(universe.entrySet());
+        final List<IndicatorSpec> wanted = List.copyOf(new LinkedHashSet<>(specs));
+        if (entries.isEmpty())
+            return Collections.emptyMap();
+
+        final Map<String, Map<IndicatorSpec, double[]>> results = pool
+                .invoke(new Batch(entries, 0, entries.size(), wanted));
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Compute every spec for one series, on the calling thread. At most two passes
+     * over the closes whatever the mix of types: one for SMAs, one for the rest.
+     *
+     * @param series
+     * @param specs
+     * @return results in the order given
+     */
+    @NonNull
+    public static Map<IndicatorSpec, double[]> compute(@NonNull final DaySeries series,
+            @NonNull final Collection<IndicatorSpec> specs) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(specs);
+
+        final List<IndicatorSpec> wanted = List.copyOf(new LinkedHashSet<>(specs));
+        final double[][] out = IndicatorType.computeFused(series, 0, series.size(), wanted);
+
+        final Map<IndicatorSpec, double[]> columns = new LinkedHashMap<>();
+        for (int k = 0; k < out.length; k++)
+            columns.put(wanted.get(k), out[k]);
+        return columns;
+    }
+
+    /**
+     * @return the pool's parallelism
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Shut down the pool if this engine created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /*
+     * Halves its slice of symbols until one is left, then computes it.
+     */
+    private static class Batch extends RecursiveTask<Map<String, Map<IndicatorSpec, double[]>>> {
+
+        Batch(final List<Map.Entry<String, DaySeries>> entries, final int from, final int to,
+                final List<IndicatorSpec> specs) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.specs = specs;
+        }
+
+        @Override
+        protected Map<String, Map<IndicatorSpec, double[]>> compute() {
+            if (to - from == 1) {
+                final Map.Entry<String, DaySeries> e = entries.get(from);
+                final Map<String, Map<IndicatorSpec, double[]>> one = new TreeMap<>();
+                one.put(e.getKey(), Collections.unmodifiableMap(IndicatorEngine.compute(e.getValue(), specs)));
+                return one;
+            }
+
+            final int mid = (from + to) >>> 1;
+            final Batch left = new Batch(entries, from, mid, specs);
+            final Batch right = new Batch(entries, mid, to, specs);
+            left.fork();
+            final Map<String, Map<IndicatorSpec, double[]>> merged = right.compute();
+            merged.putAll(left.join());
+            return merged;
+        }
+
+        private final List<Map.Entry<String, DaySeries>> entries;
+        private final int from;
+        private final int to;
+        private final List<IndicatorSpec> specs;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /*
+     * Fields
+     */
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+}
@@ -0,0 +1,199 @@
+package org.deroesch.tna.algos;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.IndicatorKey;
+import org.deroesch.tna.models.SeriesSlice;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An indicator and its parameters, e.g. SMA(20). Immutable, and usable as a map
+ * key. The text form, as produced by toString(), can be read back with
+ * {@link #parse(String)}. Its results are stored under {@link #getKey()}.
+ */
+public final class IndicatorSpec {
+
+    /**
+     * @param type
+     * @param params Must match the type's parameter count and be in range for it:
+     *               whole periods up to {@link IndicatorType#MAX_PERIOD}, and for
+     *               MACD a slow period longer than the fast one
+     */
+    public IndicatorSpec(@NonNull final IndicatorType type, @NonNull final double... params) {
+        Preconditions.checkNotNull(type);
+        Preconditions.checkNotNull(params);
+        Preconditions.checkArgument(params.length == type.getParamCount(), "%s takes %s parameters", type,
+                type.getParamCount());
+        type.checkParams(params);
+
+        this.type = type;
+        this.params = params.clone();
+        this.key = new IndicatorKey(type.name(), this.params);
+    }
+
+    /*
+     * A spec for an existing key, so shared keys stay shared.
+     */
+    private IndicatorSpec(final IndicatorType type, final IndicatorKey key) {
+        this.type = type;
+        this.params = key.getParams();
+        this.key = key;
+        type.checkParams(params);
+    }
+
+    /**
+     * @param period
+     * @return a simple moving average spec
+     */
+    @NonNull
+    public static IndicatorSpec sma(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        if (period < SMA_CACHE.length)
+            return SMA_CACHE[period];
+        return new IndicatorSpec(IndicatorType.SMA, IndicatorKey.sma(period));
+    }
+
+    /**
+     * @param type   Any single-period type, such as EMA or HMA
+     * @param period
+     * @return the spec
+     */
+    @NonNull
+    public static IndicatorSpec of(@NonNull final IndicatorType type, @Positive final int period) {
+        Preconditions.checkNotNull(type);
+        Preconditions.checkArgument(period > 0);
+        return new IndicatorSpec(type, period);
+    }
+
+    /**
+     * Read the text form, e.g. "SMA(20)". Case insensitive.
+     *
+     * @param text
+     * @return the spec
+     */
+    @NonNull
+    public static IndicatorSpec parse(@NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        final Matcher m = SYNTAX.matcher(text.trim());
+        Preconditions.checkArgument(m.matches(), "Can't parse indicator %s", text);
+
+        final IndicatorType type = IndicatorType.valueOf(m.group(1).toUpperCase(Locale.ROOT));
+        final String args = m.group(2).trim();
+        final double[] params = args.isEmpty() ? new double[0]
+                : Arrays.stream(args.split(",")).mapToDouble(s -> Double.parseDouble(s.trim())).toArray();
+        return new IndicatorSpec(type, params);
+    }
+
+    /**
+     * @return the type
+     */
+    @NonNull
+    public IndicatorType getType() {
+        return type;
+    }
+
+    /**
+     * @return a copy of the parameters
+     */
+    @NonNull
+    public double[] getParams() {
+        return params.clone();
+    }
+
+    /**
+     * @return the key for this indicator's column in an
+     *         {@link org.deroesch.tna.models.IndicatorStore}
+     */
+    @NonNull
+    public IndicatorKey getKey() {
+        return key;
+    }
+
+    /**
+     * Compute this indicator over a series.
+     *
+     * @param series
+     * @return a column aligned with the series, NaN where there isn't enough
+     *         history
+     */
+    @NonNull
+    public double[] compute(@NonNull final DaySeries series) {
+        Preconditions.checkNotNull(series);
+        return type.compute(series, 0, series.size(), params);
+    }
+
+    /**
+     * @return a fresh streaming form of this indicator
+     */
+    @NonNull
+    public Smoother newSmoother() {
+        return type.newSmoother(params);
+    }
+
+    /**
+     * Compute this indicator over a slice, in place on the series' columns.
+     * Warm-up starts at the slice's first bar.
+     *
+     * @param slice
+     * @return a column aligned with the slice, NaN where there isn't enough
+     *         history
+     */
+    @NonNull
+    public double[] compute(@NonNull final SeriesSlice slice) {
+        Preconditions.checkNotNull(slice);
+        return type.compute(slice.getSeries(), slice.getFrom(), slice.getTo(), params);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IndicatorSpec)) {
+            return false;
+        }
+        final IndicatorSpec other = (IndicatorSpec) obj;
+        return type == other.type && key.equals(other.key);
+    }
+
+    @Override
+    public String toString() {
+        return key.toString();
+    }
+
+    /*
+     * Fields
+     */
+    private final IndicatorType type;
+    private final double[] params;
+    private final IndicatorKey key;
+
+    /*
+     * NAME(p1,p2,...)
+     */
+    private static final Pattern SYNTAX = Pattern.compile("([A-Za-z_]+)\\s*\\(([^)]*)\\)");
+
+    /*
+     * Shared SMA specs for the common periods, so computing and updating moving
+     * averages doesn't allocate. Each wraps IndicatorKey.sma()'s shared key, so
+     * there's one key per period. Index is the period; 0 is unused.
+     */
+    private static final IndicatorSpec[] SMA_CACHE = new IndicatorSpec[256];
+    static {
+        for (int p = 1; p < SMA_CACHE.length; p++)
+            SMA_CACHE[p] = new IndicatorSpec(IndicatorType.SMA, IndicatorKey.sma(p));
+    }
+
+}
@@ -0,0 +1,454 @@
+package org.deroesch.tna.algos;
+
+import java.util.List;
+
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The indicators we know how to compute: moving averages, rolling statistics,
+ * oscillators and volume indicators. Each produces one column aligned with the
+ * series, with NaN where there isn't enough history yet. Most read adjusted
+ * closes; those that {@link #readsBars()} take whole bars, adjusted the same
+ * way. All have a streaming {@link Smoother} form, so any mix of them can be
+ * computed together and kept current as bars arrive.
+ */
+public enum IndicatorType {
+
+    /**
+     * Simple moving average. Params: period.
+     */
+    SMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new RollingAverage(period(params));
+        }
+
+        @Override
+        double[] compute(final DaySeries series, final int from, final int to, final double[] params) {
+            // The dedicated kernel, same result without the ring buffer
+            final double[][] out = new double[1][to - from];
+            MovingAverage.compute(series.getAdjCloseColumn(), from, to, new int[] { period(params) }, out);
+            return out[0];
+        }
+    },
+
+    /**
+     * Exponential moving average, alpha = 2 / (period + 1). Params: period.
+     */
+    EMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return ExponentialAverage.ema(period(params));
+        }
+    },
+
+    /**
+     * Wilder's smoothing, alpha = 1 / period. Params: period.
+     */
+    WILDER(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return ExponentialAverage.wilder(period(params));
+        }
+    },
+
+    /**
+     * Linearly weighted moving average. Params: period.
+     */
+    WMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new WeightedAverage(period(params));
+        }
+    },
+
+    /**
+     * Double exponential moving average. Params: period.
+     */
+    DEMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return MultiExponentialAverage.dema(period(params));
+        }
+    },
+
+    /**
+     * Triple exponential moving average. Params: period.
+     */
+    TEMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return MultiExponentialAverage.tema(period(params));
+        }
+    },
+
+    /**
+     * Hull moving average. Params: period.
+     */
+    HMA(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new HullAverage(period(params));
+        }
+    },
+
+    /**
+     * Rolling population standard deviation. Params: period.
+     */
+    STDDEV(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingVariance.stdDev(period(params));
+        }
+    },
+
+    /**
+     * Rolling z-score: (close - mean) / standard deviation. Params: period.
+     */
+    ZSCORE(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingVariance.zScore(period(params));
+        }
+    },
+
+    /**
+     * Upper Bollinger band, mean + k standard deviations. Params: period, k.
+     */
+    BB_UPPER(2) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingVariance.band(period(params), params[1]);
+        }
+
+        @Override
+        void checkParams(final double[] params) {
+            checkBand(params);
+        }
+    },
+
+    /**
+     * Lower Bollinger band, mean - k standard deviations. Params: period, k.
+     */
+    BB_LOWER(2) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingVariance.band(period(params), -params[1]);
+        }
+
+        @Override
+        void checkParams(final double[] params) {
+            checkBand(params);
+        }
+    },
+
+    /**
+     * Rolling highest close. Params: period.
+     */
+    MAX(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingExtreme.max(period(params));
+        }
+    },
+
+    /**
+     * Rolling lowest close. Params: period.
+     */
+    MIN(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingExtreme.min(period(params));
+        }
+    },
+
+    /**
+     * Donchian channel top, the rolling highest high. Params: period.
+     */
+    DONCHIAN_UPPER(1, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingExtreme.highs(period(params));
+        }
+    },
+
+    /**
+     * Donchian channel bottom, the rolling lowest low. Params: period.
+     */
+    DONCHIAN_LOWER(1, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return RollingExtreme.lows(period(params));
+        }
+    },
+
+    /**
+     * Wilder's relative strength index, 0 to 100. Params: period.
+     */
+    RSI(1) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new RelativeStrength(period(params));
+        }
+    },
+
+    /**
+     * MACD line, EMA(fast) - EMA(slow). Params: fast, slow, signal.
+     */
+    MACD(3) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return Macd.line(period(params), period(params, 1), period(params, 2));
+        }
+
+        @Override
+        void checkParams(final double[] params) {
+            checkMacd(params);
+        }
+    },
+
+    /**
+     * MACD signal line, an EMA of the MACD line. Params: fast, slow, signal.
+     */
+    MACD_SIGNAL(3) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return Macd.signal(period(params), period(params, 1), period(params, 2));
+        }
+
+        @Override
+        void checkParams(final double[] params) {
+            checkMacd(params);
+        }
+    },
+
+    /**
+     * MACD histogram, the line minus the signal. Params: fast, slow, signal.
+     */
+    MACD_HIST(3) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return Macd.histogram(period(params), period(params, 1), period(params, 2));
+        }
+
+        @Override
+        void checkParams(final double[] params) {
+            checkMacd(params);
+        }
+    },
+
+    /**
+     * Stochastic %K, 0 to 100. Params: period.
+     */
+    STOCH_K(1, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return Stochastic.k(period(params));
+        }
+    },
+
+    /**
+     * Stochastic %D, an SMA of %K. Params: period, %D period.
+     */
+    STOCH_D(2, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return Stochastic.d(period(params), period(params, 1));
+        }
+    },
+
+    /**
+     * Wilder's average true range. Params: period.
+     */
+    ATR(1, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new AverageTrueRange(period(params));
+        }
+    },
+
+    /**
+     * On-balance volume, from 0 at the first bar. No params.
+     */
+    OBV(0, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new OnBalanceVolume();
+        }
+    },
+
+    /**
+     * Rolling volume-weighted average of the typical price. Params: period.
+     */
+    VWAP(1, true) {
+        @Override
+        Smoother newSmoother(final double[] params) {
+            return new VolumeWeightedAverage(period(params));
+        }
+    };
+
+    IndicatorType(final int paramCount) {
+        this(paramCount, false);
+    }
+
+    IndicatorType(final int paramCount, final boolean readsBars) {
+        this.paramCount = paramCount;
+        this.readsBars = readsBars;
+    }
+
+    /**
+     * @return how many parameters a spec of this type takes
+     */
+    public int getParamCount() {
+        return paramCount;
+    }
+
+    /**
+     * @return true if this indicator uses the high, low or volume, not just the
+     *         close, so it must be fed whole bars
+     */
+    public boolean readsBars() {
+        return readsBars;
+    }
+
+    /**
+     * Check a spec's parameters, so a bad one fails when the spec is made rather
+     * than when it's computed. By default every parameter is a period.
+     *
+     * @param params Already checked against getParamCount()
+     * @throws IllegalArgumentException if any is out of range
+     */
+    void checkParams(final double[] params) {
+        for (int i = 0; i < params.length; i++)
+            period(params, i);
+    }
+
+    /**
+     * A fresh streaming form of this indicator.
+     *
+     * @param params Already checked against getParamCount()
+     * @return the smoother, empty
+     */
+    abstract Smoother newSmoother(double[] params);
+
+    /**
+     * Compute one indicator over bars [from, to) of a series.
+     *
+     * @param series
+     * @param from   First bar, inclusive
+     * @param to     Last bar, exclusive
+     * @param params Already checked against getParamCount()
+     * @return the column, to - from long
+     */
+    double[] compute(final DaySeries series, final int from, final int to, final double[] params) {
+        final double[][] out = new double[1][to - from];
+        final Smoother[] smoothers = { newSmoother(params) };
+        if (readsBars)
+            MovingAverage.computeBars(series, from, to, smoothers, out);
+        else
+            MovingAverage.compute(series.getAdjCloseColumn(), from, to, smoothers, out);
+        return out[0];
+    }
+
+    /**
+     * Compute any mix of indicators over bars [from, to) of a series. SMAs share
+     * one pass of the dedicated kernel; everything else shares one pass of
+     * smoothers, over whole bars if any of them needs more than the close.
+     *
+     * @param series
+     * @param from   First bar, inclusive
+     * @param to     Last bar, exclusive
+     * @param specs
+     * @return one column per spec, in order
+     */
+    static double[][] computeFused(final DaySeries series, final int from, final int to,
+            final List<IndicatorSpec> specs) {
+        final int count = specs.size();
+        final int[] smaIndexes = new int[count];
+        final int[] otherIndexes = new int[count];
+        int smas = 0;
+        int others = 0;
+        boolean bars = false;
+        for (int k = 0; k < count; k++) {
+            final IndicatorType type = specs.get(k).getType();
+            if (SMA == type)
+                smaIndexes[smas++] = k;
+            else
+                otherIndexes[others++] = k;
+            bars |= type.readsBars();
+        }
+
+        final double[] closes = series.getAdjCloseColumn();
+        final double[][] out = new double[count][to - from];
+
+        if (smas > 0) {
+            final int[] periods = new int[smas];
+            final double[][] columns = new double[smas][];
+            for (int j = 0; j < smas; j++) {
+                periods[j] = period(specs.get(smaIndexes[j]).getParams());
+                columns[j] = out[smaIndexes[j]];
+            }
+            MovingAverage.compute(closes, from, to, periods, columns);
+        }
+
+        if (others > 0) {
+            final Smoother[] smoothers = new Smoother[others];
+            final double[][] columns = new double[others][];
+            for (int j = 0; j < others; j++) {
+                smoothers[j] = specs.get(otherIndexes[j]).newSmoother();
+                columns[j] = out[otherIndexes[j]];
+            }
+            if (bars)
+                MovingAverage.computeBars(series, from, to, smoothers, columns);
+            else
+                MovingAverage.compute(closes, from, to, smoothers, columns);
+        }
+        return out;
+    }
+
+    /*
+     * A parameter that must be a whole number of bars, from 1 to MAX_PERIOD.
+     */
+    static int period(final double[] params) {
+        return period(params, 0);
+    }
+
+    static int period(final double[] params, final int i) {
+        final double p = params[i];
+        Preconditions.checkArgument(p >= 1 && p == Math.rint(p), "Bad period %s", p);
+        Preconditions.checkArgument(p <= MAX_PERIOD, "Period %s is over the limit of " + MAX_PERIOD, p);
+        return (int) p;
+    }
+
+    /*
+     * Period, then a finite width in standard deviations.
+     */
+    static void checkBand(final double[] params) {
+        period(params);
+        Preconditions.checkArgument(Double.isFinite(params[1]), "Bad band width %s", params[1]);
+    }
+
+    /*
+     * Three periods, the slow one longer than the fast one.
+     */
+    static void checkMacd(final double[] params) {
+        final int fast = period(params);
+        final int slow = period(params, 1);
+        period(params, 2);
+        Preconditions.checkArgument(slow > fast, "Slow period %s must exceed fast %s", slow, fast);
+    }
+
+    private final int paramCount;
+    private final boolean readsBars;
+
+    /**
+     * The longest period a spec may have: about 400 years of daily bars. Windowed
+     * smoothers allocate their whole window up front, and specs are parsed from
+     * request parameters, so an unbounded period would let one request exhaust
+     * the heap.
+     */
+    public static final int MAX_PERIOD = 100_000;
+
+}
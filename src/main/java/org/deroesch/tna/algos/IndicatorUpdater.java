@@ -0,0 +1,137 @@
+package org.deroesch.tna.algos;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.IndicatorStore;
+import org.deroesch.tna.models.SeriesListener;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps several indicators current as bars are appended, in the series'
+ * {@link org.deroesch.tna.models.IndicatorStore}. Each spec has its own
+ * {@link Smoother}, so an append costs O(number of specs).
+ * <p>
+ * Exponential averages remember their whole history, so attaching (and any
+ * reset of the series) replays every bar once. After that the latest values
+ * match a batch computation of the same series.
+ */
+public class IndicatorUpdater implements SeriesListener {
+
+    /**
+     * Start tracking a series.
+     *
+     * @param series The series to watch
+     * @param specs  The indicators to maintain
+     * @return the registered updater
+     */
+    @NonNull
+    public static IndicatorUpdater attach(@NonNull final DaySeries series,
+            @NonNull final Collection<IndicatorSpec> specs) {
+        Preconditions.checkNotNull(series);
+        final IndicatorUpdater updater = new IndicatorUpdater(specs);
+        // Holding the writers' lock, so no append slips in between
+        synchronized (series) {
+            updater.prime(series);
+            series.addListener(updater);
+        }
+        return updater;
+    }
+
+    /**
+     * @param specs The indicators to maintain
+     */
+    public IndicatorUpdater(@NonNull final Collection<IndicatorSpec> specs) {
+        Preconditions.checkNotNull(specs);
+        this.specs = List.copyOf(new LinkedHashSet<>(specs));
+        this.smoothers = new Smoother[this.specs.size()];
+        this.latest = new double[this.specs.size()];
+        boolean wholeBars = false;
+        for (int k = 0; k < smoothers.length; k++) {
+            smoothers[k] = this.specs.get(k).newSmoother();
+            wholeBars |= this.specs.get(k).getType().readsBars();
+        }
+        this.bars = wholeBars;
+        Arrays.fill(latest, Double.NaN);
+    }
+
+    @Override
+    public void onAppend(final DaySeries series, final int index) {
+        final double close = series.getAdjClose(index);
+        final IndicatorStore store = series.getIndicators();
+        if (bars) {
+            // As MovingAverage.computeBars does it
+            final double factor = MovingAverage.adjustment(series.getClose(index), close);
+            final double high = series.getHigh(index) * factor;
+            final double low = series.getLow(index) * factor;
+            final double volume = series.getVolume(index);
+            for (int k = 0; k < smoothers.length; k++)
+                latest[k] = smoothers[k].addBar(high, low, close, volume);
+        } else {
+            for (int k = 0; k < smoothers.length; k++)
+                latest[k] = smoothers[k].add(close);
+        }
+        for (int k = 0; k < smoothers.length; k++)
+            store.set(specs.get(k).getKey(), index, latest[k]);
+    }
+
+    @Override
+    public void onReset(final DaySeries series) {
+        prime(series);
+    }
+
+    /**
+     * @param spec
+     * @return the indicator's value at the newest bar, or NaN if there isn't
+     *         enough history yet
+     */
+    public double getLatest(@NonNull final IndicatorSpec spec) {
+        Preconditions.checkNotNull(spec);
+        final int k = specs.indexOf(spec);
+        Preconditions.checkArgument(k >= 0, "Not tracking %s", spec);
+        return latest[k];
+    }
+
+    /**
+     * @return the tracked indicators, in order
+     */
+    @NonNull
+    public List<IndicatorSpec> getSpecs() {
+        return specs;
+    }
+
+    /*
+     * Replay the whole series, storing every column.
+     */
+    private void prime(final DaySeries series) {
+        final int size = series.size();
+        final double[][] out = new double[smoothers.length][size];
+        for (final Smoother smoother : smoothers)
+            smoother.reset();
+        if (bars)
+            MovingAverage.computeBars(series, 0, size, smoothers, out);
+        else
+            MovingAverage.compute(series.getAdjCloseColumn(), 0, size, smoothers, out);
+
+        final IndicatorStore store = series.getIndicators();
+        for (int k = 0; k < smoothers.length; k++) {
+            latest[k] = 0 == size ? Double.NaN : out[k][size - 1];
+            store.put(specs.get(k).getKey(), out[k]);
+        }
+    }
+
+    /*
+     * Fields. latest[k] is smoothers[k]'s last output. bars is true if any of
+     * them needs whole bars.
+     */
+    private final List<IndicatorSpec> specs;
+    private final Smoother[] smoothers;
+    private final double[] latest;
+    private final boolean bars;
+
+}
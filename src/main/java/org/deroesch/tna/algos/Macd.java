@@ -0,0 +1,102 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Moving average convergence/divergence. The MACD line is EMA(fast) -
+ * EMA(slow); the signal line is an EMA of the MACD line; the histogram is their
+ * difference. One instance gives one of the three, chosen by the factory. The
+ * line starts when the slow EMA does, the signal and histogram signal - 1 bars
+ * later.
+ */
+public class Macd implements Smoother {
+
+    /**
+     * @param fast   Fast EMA period, usually 12
+     * @param slow   Slow EMA period, usually 26; > fast
+     * @param signal Signal EMA period, usually 9
+     * @return a smoother giving the MACD line
+     */
+    @NonNull
+    public static Macd line(@Positive final int fast, @Positive final int slow, @Positive final int signal) {
+        return new Macd(fast, slow, signal, Output.LINE);
+    }
+
+    /**
+     * @param fast
+     * @param slow
+     * @param signal
+     * @return a smoother giving the signal line
+     */
+    @NonNull
+    public static Macd signal(@Positive final int fast, @Positive final int slow, @Positive final int signal) {
+        return new Macd(fast, slow, signal, Output.SIGNAL);
+    }
+
+    /**
+     * @param fast
+     * @param slow
+     * @param signal
+     * @return a smoother giving the MACD line minus the signal line
+     */
+    @NonNull
+    public static Macd histogram(@Positive final int fast, @Positive final int slow, @Positive final int signal) {
+        return new Macd(fast, slow, signal, Output.HISTOGRAM);
+    }
+
+    private Macd(final int fast, final int slow, final int signal, final Output output) {
+        Preconditions.checkArgument(fast > 0 && signal > 0);
+        Preconditions.checkArgument(slow > fast, "Slow period %s must exceed fast %s", slow, fast);
+        this.fast = ExponentialAverage.ema(fast);
+        this.slow = ExponentialAverage.ema(slow);
+        this.signal = ExponentialAverage.ema(signal);
+        this.output = output;
+    }
+
+    @Override
+    public double add(final double value) {
+        final double f = fast.add(value);
+        final double s = slow.add(value);
+        if (Double.isNaN(s))
+            return Double.NaN;
+
+        final double line = f - s;
+        final double sig = signal.add(line);
+        switch (output) {
+        case LINE:
+            return line;
+        case SIGNAL:
+            return sig;
+        default:
+            return line - sig;
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return Output.LINE == output ? slow.isReady() : signal.isReady();
+    }
+
+    @Override
+    public void reset() {
+        fast.reset();
+        slow.reset();
+        signal.reset();
+    }
+
+    private enum Output {
+        LINE, SIGNAL, HISTOGRAM
+    }
+
+    /*
+     * Fields
+     */
+    private final ExponentialAverage fast;
+    private final ExponentialAverage slow;
+    private final ExponentialAverage signal;
+    private final Output output;
+
+}
@@ -6,6 +6,8 @@ import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.deroesch.tna.db.DayDB;
 import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesSlice;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,7 +19,13 @@ import com.google.common.base.Preconditions;
 public class MovingAverage {
 
     /**
-     * Computes and saves moving averages for each day in the days list.
+     * Computes and saves moving averages for each day in the database. The days
+     * argument is only checked; the values come from the database's series.
+     * <p>
+     * Kept for old callers, and the one place this package reaches into db: it
+     * hands the work to {@link DayDB#computeMovingAverages(String, int...)}, which
+     * times it like the other db-level computations. New code should use
+     * {@link #computeAll(DaySeries, int...)}.
      *
      * @param days  The subject days
      * @param value The moving average value to find (i.e., 5, 10, 20, 50, 100)
@@ -27,39 +35,243 @@ public class MovingAverage {
         Preconditions.checkNotNull(value);
         Preconditions.checkArgument(value > 0);
 
-        Double sum = 0.0;
-        Double avg = 0.0;
-        Integer count = 0;
+        DayDB.computeMovingAverages(DayDB.DEFAULT_SYMBOL, value);
+    }
+
+    /**
+     * Computes and saves moving averages for each day in the series, for every
+     * period, in one pass over the adjusted close column (the price
+     * {@link Day#getClose()} reports). Each period is stored as one column in the
+     * series' {@link org.deroesch.tna.models.IndicatorStore}.
+     *
+     * @param series  The subject days
+     * @param periods The moving average values to find (i.e., 5, 10, 20, 50, 100)
+     */
+    public static void computeAll(@NonNull final DaySeries series, @Positive final int... periods) {
+        final double[][] averages = compute(series, periods);
+
+        for (int k = 0; k < periods.length; k++) {
+            final double[] avg = averages[k];
+            series.getIndicators().put(IndicatorSpec.sma(periods[k]).getKey(), avg);
+
+            if (VERBOSE)
+                for (int i = periods[k] - 1; i < avg.length; i++) {
+                    final String format = "Period: %s, Date: %s, Avg: %5.2f, Close: %5.2f";
+                    logger.info(String.format(format, periods[k], series.getDate(i), avg[i],
+                            series.getAdjClose(i)));
+                }
+        }
+    }
+
+    /**
+     * Computes moving averages over the series' adjusted closes without saving
+     * them anywhere.
+     *
+     * @param series  The subject days
+     * @param periods The moving average values to find
+     * @return one array per period, aligned with the series. Days too early for a
+     *         period hold NaN.
+     */
+    @NonNull
+    public static double[][] compute(@NonNull final DaySeries series, @Positive final int... periods) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(periods);
+
+        final int size = series.size();
+        final double[][] out = new double[periods.length][size];
+        compute(series.getAdjCloseColumn(), 0, size, periods, out);
+        return out;
+    }
 
-        for (final Day day : DayDB.getDayList()) {
-            count++;
+    /**
+     * Computes moving averages over a slice's adjusted closes, reading the series'
+     * columns in place. Warm-up starts at the slice's first bar.
+     *
+     * @param slice   The subject days
+     * @param periods The moving average values to find
+     * @return one array per period, aligned with the slice, NaN during warm-up
+     */
+    @NonNull
+    public static double[][] compute(@NonNull final SeriesSlice slice, @Positive final int... periods) {
+        Preconditions.checkNotNull(slice);
+        Preconditions.checkNotNull(periods);
 
-            // Add this day's value to the accumulator
-            sum += day.getClose();
+        final double[][] out = new double[periods.length][slice.size()];
+        compute(slice.getSeries().getAdjCloseColumn(), slice.getFrom(), slice.getTo(), periods, out);
+        return out;
+    }
+
+    /**
+     * Computes moving averages through a {@link PrefixSum} instead of a running
+     * sum. The prefix build and every period's fill run in parallel, so this suits
+     * very long series or many periods; results agree with {@link #compute} to
+     * within rounding, not bit for bit.
+     *
+     * @param series  The subject days
+     * @param periods The moving average values to find
+     * @return one array per period, aligned with the series, NaN during warm-up
+     */
+    @NonNull
+    public static double[][] computeParallel(@NonNull final DaySeries series, @Positive final int... periods) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(periods);
+        for (final int period : periods)
+            Preconditions.checkArgument(period > 0);
 
-            // We can't compute moving averages for days that are too early.
-            if (count < value)
-                continue;
+        final int size = series.size();
+        final PrefixSum prefix = PrefixSum.build(series.getAdjCloseColumn(), 0, size);
+        final double[][] out = new double[periods.length][size];
+        for (int k = 0; k < periods.length; k++)
+            prefix.movingAverage(periods[k], out[k]);
+        return out;
+    }
 
-            // Compute and save.
-            avg = sum / value;
-            day.setMovingAvg(value, avg);
+    /**
+     * The kernel: simple moving averages of values[from, to) for several periods,
+     * reading each value once. Each period keeps its own running sum, so results
+     * match a separate pass per period exactly.
+     *
+     * @param values  Input prices
+     * @param from    First index, inclusive
+     * @param to      Last index, exclusive
+     * @param periods Window lengths, each > 0
+     * @param out     One output array per period, at least to - from long.
+     *                out[k][i - from] is the average ending at values[i], or NaN.
+     */
+    public static void compute(@NonNull final double[] values, final int from, final int to,
+            @NonNull final int[] periods, @NonNull final double[][] out) {
+        Preconditions.checkNotNull(values);
+        Preconditions.checkNotNull(periods);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        Preconditions.checkArgument(out.length >= periods.length);
 
-            if (VERBOSE) {
-                final String format = "Count: %s, Date: %s, Sum: %5.2f, Avg: %5.2f, Close: %5.2f";
-                logger.info(String.format(format, count, day.getDate(), sum, avg, day.getClose()));
+        final int n = to - from;
+        final int count = periods.length;
+        for (int k = 0; k < count; k++) {
+            Preconditions.checkArgument(periods[k] > 0);
+            Preconditions.checkArgument(out[k].length >= n);
+        }
+
+        final double[] sums = new double[count];
+        for (int i = 0; i < n; i++) {
+            final double x = values[from + i];
+
+            for (int k = 0; k < count; k++) {
+                final int period = periods[k];
+
+                // Add this day's value to the accumulator
+                sums[k] += x;
+
+                // We can't compute moving averages for days that are too early.
+                if (i + 1 < period) {
+                    out[k][i] = Double.NaN;
+                    continue;
+                }
+
+                out[k][i] = sums[k] / period;
+
+                // Now remove the oldest day's value so we're ready for the next loop
+                sums[k] -= values[from + i + 1 - period];
             }
+        }
+    }
 
-            // Now remove the LAST day's value so we're ready for the next loop
-            sum -= DayDB.getDayList().get(count - value).getClose();
+    /**
+     * The fused kernel: feeds values[from, to) through several smoothers of any
+     * kind in one pass. Smoothers carry on from whatever state they are in, so a
+     * long column can be fed in pieces.
+     *
+     * @param values    Input prices
+     * @param from      First index, inclusive
+     * @param to        Last index, exclusive
+     * @param smoothers One per output
+     * @param out       One output array per smoother, at least to - from long.
+     *                  out[k][i - from] is smoother k's value after values[i], or
+     *                  NaN.
+     */
+    public static void compute(@NonNull final double[] values, final int from, final int to,
+            @NonNull final Smoother[] smoothers, @NonNull final double[][] out) {
+        Preconditions.checkNotNull(values);
+        Preconditions.checkNotNull(smoothers);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        Preconditions.checkArgument(out.length >= smoothers.length);
+
+        final int n = to - from;
+        final int count = smoothers.length;
+        for (int k = 0; k < count; k++) {
+            Preconditions.checkNotNull(smoothers[k]);
+            Preconditions.checkArgument(out[k].length >= n);
         }
 
+        for (int i = 0; i < n; i++) {
+            final double x = values[from + i];
+            for (int k = 0; k < count; k++)
+                out[k][i] = smoothers[k].add(x);
+        }
+    }
+
+    /**
+     * The fused bar kernel: feeds whole bars [from, to) of a series through
+     * several smoothers in one pass, reading each bar once. Prices are adjusted:
+     * the high and low are scaled by the bar's adjusted close / close, so splits
+     * don't show up as gaps. Volume is as traded.
+     *
+     * @param series
+     * @param from      First bar, inclusive
+     * @param to        Last bar, exclusive
+     * @param smoothers One per output
+     * @param out       One output array per smoother, at least to - from long.
+     *                  out[k][i - from] is smoother k's value after bar i, or NaN.
+     */
+    public static void computeBars(@NonNull final DaySeries series, final int from, final int to,
+            @NonNull final Smoother[] smoothers, @NonNull final double[][] out) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(smoothers);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkPositionIndexes(from, to, series.size());
+        Preconditions.checkArgument(out.length >= smoothers.length);
+
+        final int n = to - from;
+        final int count = smoothers.length;
+        for (int k = 0; k < count; k++) {
+            Preconditions.checkNotNull(smoothers[k]);
+            Preconditions.checkArgument(out[k].length >= n);
+        }
+
+        final double[] highs = series.getHighColumn();
+        final double[] lows = series.getLowColumn();
+        final double[] closes = series.getCloseColumn();
+        final double[] adjCloses = series.getAdjCloseColumn();
+        final long[] volumes = series.getVolumeColumn();
+        for (int i = 0; i < n; i++) {
+            final int j = from + i;
+            final double adjClose = adjCloses[j];
+            final double factor = adjustment(closes[j], adjClose);
+            final double high = highs[j] * factor;
+            final double low = lows[j] * factor;
+            final double volume = volumes[j];
+            for (int k = 0; k < count; k++)
+                out[k][i] = smoothers[k].addBar(high, low, adjClose, volume);
+        }
+    }
+
+    /**
+     * The factor that turns a bar's raw prices into adjusted ones.
+     *
+     * @param close    Raw close
+     * @param adjClose Adjusted close
+     * @return adjClose / close, or 1 if there's no raw close to scale by
+     */
+    public static double adjustment(final double close, final double adjClose) {
+        return close != 0 && Double.isFinite(close) ? adjClose / close : 1.0;
     }
 
     /*************************************************************
      * Miscellaneous
      */
-    private static final Logger logger = LoggerFactory.getLogger(DayDB.class);
+    private static final Logger logger = LoggerFactory.getLogger(MovingAverage.class);
 
     /*
      * Print all the averages while computing?
@@ -0,0 +1,97 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.IndicatorKey;
+import org.deroesch.tna.models.IndicatorStore;
+import org.deroesch.tna.models.SeriesListener;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps a series' moving averages current as bars are appended. Each period has a
+ * {@link RollingAverage}, so an append costs O(number of periods) instead of a
+ * rescan of the history. When the series is cleared or reordered, the columns
+ * are rebuilt from the whole history.
+ */
+public class MovingAverageUpdater implements SeriesListener {
+
+    /**
+     * Start tracking a series. Only the last few bars are read to catch up; the
+     * history's own averages should already be in place (see
+     * {@link MovingAverage#computeAll(DaySeries, int...)}).
+     *
+     * @param series  The series to watch
+     * @param periods The moving average values to maintain
+     * @return the registered updater
+     */
+    @NonNull
+    public static MovingAverageUpdater attach(@NonNull final DaySeries series, @Positive final int... periods) {
+        Preconditions.checkNotNull(series);
+        final MovingAverageUpdater updater = new MovingAverageUpdater(periods);
+        // Holding the writers' lock, so no append slips in between
+        synchronized (series) {
+            updater.prime(series);
+            series.addListener(updater);
+        }
+        return updater;
+    }
+
+    /**
+     * @param periods The moving average values to maintain
+     */
+    public MovingAverageUpdater(@Positive final int... periods) {
+        Preconditions.checkNotNull(periods);
+        this.periods = periods.clone();
+        averages = new RollingAverage[periods.length];
+        keys = new IndicatorKey[periods.length];
+        for (int k = 0; k < periods.length; k++) {
+            averages[k] = new RollingAverage(periods[k]);
+            keys[k] = IndicatorKey.sma(periods[k]);
+        }
+    }
+
+    @Override
+    public void onAppend(final DaySeries series, final int index) {
+        final double close = series.getAdjClose(index);
+        final IndicatorStore store = series.getIndicators();
+        for (int k = 0; k < averages.length; k++) {
+            final double value = averages[k].add(close);
+            if (averages[k].isReady())
+                store.set(keys[k], index, value);
+        }
+    }
+
+    /**
+     * The store was emptied along with the bars, so every column is recomputed
+     * before the averages catch up with the new tail.
+     */
+    @Override
+    public void onReset(final DaySeries series) {
+        MovingAverage.computeAll(series, periods);
+        prime(series);
+    }
+
+    /*
+     * Feed each average the tail of the series, so the next append continues
+     * where the history ends.
+     */
+    private void prime(final DaySeries series) {
+        final int size = series.size();
+        final double[] closes = series.getAdjCloseColumn();
+        for (final RollingAverage avg : averages) {
+            avg.reset();
+            for (int i = Math.max(0, size - avg.getPeriod()); i < size; i++)
+                avg.add(closes[i]);
+        }
+    }
+
+    /*
+     * One per period.
+     */
+    private final int[] periods;
+    private final RollingAverage[] averages;
+    private final IndicatorKey[] keys;
+
+}
@@ -0,0 +1,82 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * DEMA and TEMA: an EMA of an EMA (of an EMA), recombined to cancel most of the
+ * lag. DEMA = 2e1 - e2, TEMA = 3e1 - 3e2 + e3. Each stage starts once the one
+ * before it is ready, so a DEMA's first value comes 2 * (period - 1) bars in.
+ */
+public class MultiExponentialAverage implements Smoother {
+
+    /**
+     * @param period
+     * @return a double exponential moving average
+     */
+    @NonNull
+    public static MultiExponentialAverage dema(@Positive final int period) {
+        return new MultiExponentialAverage(period, 2);
+    }
+
+    /**
+     * @param period
+     * @return a triple exponential moving average
+     */
+    @NonNull
+    public static MultiExponentialAverage tema(@Positive final int period) {
+        return new MultiExponentialAverage(period, 3);
+    }
+
+    /**
+     * @param period Period of each EMA stage, > 0
+     * @param order  2 for DEMA, 3 for TEMA
+     */
+    public MultiExponentialAverage(@Positive final int period, final int order) {
+        Preconditions.checkArgument(2 == order || 3 == order, "Bad order %s", order);
+        e1 = ExponentialAverage.ema(period);
+        e2 = ExponentialAverage.ema(period);
+        e3 = 3 == order ? ExponentialAverage.ema(period) : null;
+    }
+
+    @Override
+    public double add(final double value) {
+        final double a = e1.add(value);
+        if (!e1.isReady())
+            return Double.NaN;
+
+        final double b = e2.add(a);
+        if (!e2.isReady())
+            return Double.NaN;
+        if (null == e3)
+            return 2 * a - b;
+
+        final double c = e3.add(b);
+        if (!e3.isReady())
+            return Double.NaN;
+        return 3 * a - 3 * b + c;
+    }
+
+    @Override
+    public boolean isReady() {
+        return (null == e3 ? e2 : e3).isReady();
+    }
+
+    @Override
+    public void reset() {
+        e1.reset();
+        e2.reset();
+        if (null != e3)
+            e3.reset();
+    }
+
+    /*
+     * Stages. e3 is null for a DEMA.
+     */
+    private final ExponentialAverage e1;
+    private final ExponentialAverage e2;
+    private final ExponentialAverage e3;
+
+}
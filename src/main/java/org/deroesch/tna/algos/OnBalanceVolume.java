@@ -0,0 +1,47 @@
+package org.deroesch.tna.algos;
+
+/**
+ * On-balance volume: a running total that adds a bar's volume when the close
+ * rises, subtracts it when the close falls, and leaves it alone otherwise. It
+ * starts at 0 on the first bar, so only its changes mean anything, and a
+ * series computed from a later start differs by a constant.
+ */
+public class OnBalanceVolume implements Smoother {
+
+    @Override
+    public double add(final double value) {
+        return addBar(value, value, value, 0.0);
+    }
+
+    @Override
+    public double addBar(final double high, final double low, final double close, final double volume) {
+        if (started) {
+            if (close > previous)
+                total += volume;
+            else if (close < previous)
+                total -= volume;
+        }
+        started = true;
+        previous = close;
+        return total;
+    }
+
+    @Override
+    public boolean isReady() {
+        return started;
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+        total = 0.0;
+    }
+
+    /*
+     * Fields
+     */
+    private boolean started = false;
+    private double previous;
+    private double total = 0.0;
+
+}
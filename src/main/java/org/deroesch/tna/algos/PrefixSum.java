@@ -0,0 +1,199 @@
+package org.deroesch.tna.algos;
+
+import java.util.stream.IntStream;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Running totals of a price column, so the sum or mean of any window is O(1)
+ * after one O(n) build.
+ * <p>
+ * Long series make the totals large, and subtracting two large doubles throws
+ * away most of the window's digits. To keep that in check each total is held as
+ * an unevaluated pair hi + lo, built with compensated (Neumaier) addition: lo
+ * carries the rounding error hi dropped. Window sums then come out accurate to
+ * a few ulps of the window sum itself rather than of the grand total.
+ * <p>
+ * The build is chunked: each chunk is scanned in parallel, the chunk totals are
+ * scanned in order, then each chunk adds its offset in parallel.
+ */
+public class PrefixSum {
+
+    /**
+     * Build the totals of values[from, to).
+     *
+     * @param values
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @return the prefix sums
+     */
+    @NonNull
+    public static PrefixSum build(@NonNull final double[] values, final int from, final int to) {
+        Preconditions.checkNotNull(values);
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        return new PrefixSum(values, from, to);
+    }
+
+    private PrefixSum(final double[] values, final int from, final int to) {
+        n = to - from;
+        hi = new double[n + 1];
+        lo = new double[n + 1];
+
+        final int chunks = (n + CHUNK - 1) / CHUNK;
+        final IntStream scans = IntStream.range(0, chunks);
+        (n >= PARALLEL_THRESHOLD ? scans.parallel() : scans).forEach(c -> scan(values, from, c));
+        if (chunks < 2)
+            return;
+
+        // Chunk c starts from the total of everything before it
+        final double[] baseHi = new double[chunks];
+        final double[] baseLo = new double[chunks];
+        double s = 0.0;
+        double comp = 0.0;
+        for (int c = 1; c < chunks; c++) {
+            final int end = c * CHUNK;
+            final double x = hi[end];
+            final double t = s + x;
+            comp += twoSumError(s, x, t) + lo[end];
+            s = t;
+            baseHi[c] = s;
+            baseLo[c] = comp;
+        }
+
+        final IntStream shifts = IntStream.range(1, chunks);
+        (n >= PARALLEL_THRESHOLD ? shifts.parallel() : shifts).forEach(c -> shift(c, baseHi[c], baseLo[c]));
+    }
+
+    /**
+     * @return the number of values covered
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Sum of a window.
+     *
+     * @param from First index, inclusive, relative to the build's from
+     * @param to   Last index, exclusive
+     * @return the sum
+     */
+    public double sum(final int from, final int to) {
+        Preconditions.checkPositionIndexes(from, to, n);
+        return (hi[to] - hi[from]) + (lo[to] - lo[from]);
+    }
+
+    /**
+     * Mean of a non-empty window.
+     *
+     * @param from First index, inclusive, relative to the build's from
+     * @param to   Last index, exclusive
+     * @return the mean
+     */
+    public double mean(final int from, final int to) {
+        Preconditions.checkArgument(to > from);
+        return sum(from, to) / (to - from);
+    }
+
+    /**
+     * Simple moving average of every window, filled in parallel.
+     *
+     * @param period Window length, > 0
+     * @param out    At least size() long. out[i] is the average ending at i, or NaN
+     *               if i is too early.
+     */
+    public void movingAverage(@Positive final int period, @NonNull final double[] out) {
+        Preconditions.checkArgument(period > 0);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkArgument(out.length >= n);
+
+        final IntStream indexes = IntStream.range(0, n);
+        (n >= PARALLEL_THRESHOLD ? indexes.parallel() : indexes).forEach(i -> out[i] = i + 1 < period
+                ? Double.NaN
+                : ((hi[i + 1] - hi[i + 1 - period]) + (lo[i + 1] - lo[i + 1 - period])) / period);
+    }
+
+    /**
+     * Sum of every window, with the best {@link PriceKernel}.
+     *
+     * @param period Window length, > 0
+     * @param out    At least size() long. out[i] is the sum of the window ending
+     *               at i, or NaN if i is too early.
+     */
+    public void windowSums(@Positive final int period, @NonNull final double[] out) {
+        windowSums(period, out, PriceKernel.best());
+    }
+
+    void windowSums(final int period, final double[] out, final PriceKernel kernel) {
+        Preconditions.checkArgument(period > 0);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkArgument(out.length >= n);
+        kernel.computeWindowSums(hi, lo, n, period, out);
+    }
+
+    /*
+     * Compensated running sum within one chunk, starting from zero.
+     */
+    private void scan(final double[] values, final int from, final int chunk) {
+        final int start = chunk * CHUNK;
+        final int end = Math.min(n, start + CHUNK);
+
+        double s = 0.0;
+        double comp = 0.0;
+        for (int i = start; i < end; i++) {
+            final double x = values[from + i];
+            final double t = s + x;
+            comp += twoSumError(s, x, t);
+            s = t;
+            hi[i + 1] = s;
+            lo[i + 1] = comp;
+        }
+    }
+
+    /*
+     * Add a chunk's starting total to each of its entries.
+     */
+    private void shift(final int chunk, final double baseHi, final double baseLo) {
+        final int start = chunk * CHUNK;
+        final int end = Math.min(n, start + CHUNK);
+
+        for (int i = start + 1; i <= end; i++) {
+            final double h = hi[i];
+            final double t = h + baseHi;
+            lo[i] += baseLo + twoSumError(h, baseHi, t);
+            hi[i] = t;
+        }
+    }
+
+    /*
+     * The rounding error of t = a + b, exactly.
+     */
+    private static double twoSumError(final double a, final double b, final double t) {
+        return Math.abs(a) >= Math.abs(b) ? (a - t) + b : (b - t) + a;
+    }
+
+    /*
+     * Fields. hi[i] + lo[i] is the sum of the first i values.
+     */
+    private final int n;
+    private final double[] hi;
+    private final double[] lo;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+
+    /*
+     * Values per chunk in the parallel build
+     */
+    private static final int CHUNK = 1 << 16;
+
+    /*
+     * Below this, threads cost more than they save
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+}
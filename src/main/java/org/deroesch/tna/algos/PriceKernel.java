@@ -0,0 +1,323 @@
+package org.deroesch.tna.algos;
+
+import java.util.Locale;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bulk element-wise arithmetic over price columns: returns, high-low ranges,
+ * typical prices, and windowed sums for many periods at once. There are two
+ * implementations with identical results, bit for bit: plain loops, and SIMD
+ * loops on the incubating Vector API. {@link #best()} picks one when the class
+ * loads.
+ * <p>
+ * The Vector API needs --add-modules jdk.incubator.vector on the JVM command
+ * line. The build passes it to the compiler, tests, benchmarks and
+ * spring-boot:run; a JVM started without it gets the scalar loops. Setting the
+ * system property tna.kernel=scalar forces them.
+ * <p>
+ * The column forms write out[i - from] for bar i. The series forms read a
+ * snapshot, so a writer appending meanwhile doesn't tear the columns, and work
+ * in adjusted prices: highs and lows are scaled by
+ * {@link MovingAverage#adjustment(double, double)}, and closes are the adjusted
+ * closes, so a split doesn't show up as a jump.
+ */
+public enum PriceKernel {
+
+    /**
+     * Plain loops. Always available.
+     */
+    SCALAR {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        void computeReturns(final double[] values, final int from, final int n, final double[] out) {
+            if (n == 0)
+                return;
+            out[0] = Double.NaN;
+            for (int i = 1; i < n; i++)
+                out[i] = values[from + i] / values[from + i - 1] - 1.0;
+        }
+
+        @Override
+        void computeRange(final double[] highs, final double[] lows, final int from, final int n, final double[] out) {
+            for (int i = 0; i < n; i++)
+                out[i] = highs[from + i] - lows[from + i];
+        }
+
+        @Override
+        void computeTypicalPrice(final double[] highs, final double[] lows, final double[] closes, final int from,
+                final int n, final double[] out) {
+            for (int i = 0; i < n; i++)
+                out[i] = (highs[from + i] + lows[from + i] + closes[from + i]) / 3.0;
+        }
+
+        @Override
+        void computeWindowSums(final double[] hi, final double[] lo, final int n, final int period,
+                final double[] out) {
+            for (int i = 0; i < n; i++)
+                out[i] = i + 1 < period ? Double.NaN
+                        : (hi[i + 1] - hi[i + 1 - period]) + (lo[i + 1] - lo[i + 1 - period]);
+        }
+    },
+
+    /**
+     * SIMD loops, as wide as the machine's preferred vector: four doubles with
+     * AVX2, eight with AVX-512. Only usable when {@link #isAvailable()}.
+     */
+    VECTOR {
+        @Override
+        public boolean isAvailable() {
+            return VECTOR_LANES > 1;
+        }
+
+        @Override
+        void computeReturns(final double[] values, final int from, final int n, final double[] out) {
+            VectorKernels.returns(values, from, n, out);
+        }
+
+        @Override
+        void computeRange(final double[] highs, final double[] lows, final int from, final int n, final double[] out) {
+            VectorKernels.range(highs, lows, from, n, out);
+        }
+
+        @Override
+        void computeTypicalPrice(final double[] highs, final double[] lows, final double[] closes, final int from,
+                final int n, final double[] out) {
+            VectorKernels.typicalPrice(highs, lows, closes, from, n, out);
+        }
+
+        @Override
+        void computeWindowSums(final double[] hi, final double[] lo, final int n, final int period,
+                final double[] out) {
+            VectorKernels.windowSums(hi, lo, n, period, out);
+        }
+    };
+
+    /**
+     * @return VECTOR if it's available and not turned off, else SCALAR
+     */
+    @NonNull
+    public static PriceKernel best() {
+        return BEST;
+    }
+
+    /**
+     * @return true if this kernel can run in this JVM
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Simple returns: out[i] = values[i] / values[i - 1] - 1. The first has no
+     * previous value and is NaN.
+     *
+     * @param values Prices
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @param out    At least to - from long
+     */
+    public void returns(@NonNull final double[] values, final int from, final int to, @NonNull final double[] out) {
+        Preconditions.checkNotNull(values);
+        checkRange(values.length, from, to, out);
+        computeReturns(values, from, to - from, out);
+    }
+
+    /**
+     * High-low ranges: out[i] = highs[i] - lows[i].
+     *
+     * @param highs
+     * @param lows
+     * @param from  First index, inclusive
+     * @param to    Last index, exclusive
+     * @param out   At least to - from long
+     */
+    public void range(@NonNull final double[] highs, @NonNull final double[] lows, final int from, final int to,
+            @NonNull final double[] out) {
+        Preconditions.checkNotNull(highs);
+        Preconditions.checkNotNull(lows);
+        checkRange(Math.min(highs.length, lows.length), from, to, out);
+        computeRange(highs, lows, from, to - from, out);
+    }
+
+    /**
+     * Typical prices: out[i] = (highs[i] + lows[i] + closes[i]) / 3.
+     *
+     * @param highs
+     * @param lows
+     * @param closes
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @param out    At least to - from long
+     */
+    public void typicalPrice(@NonNull final double[] highs, @NonNull final double[] lows,
+            @NonNull final double[] closes, final int from, final int to, @NonNull final double[] out) {
+        Preconditions.checkNotNull(highs);
+        Preconditions.checkNotNull(lows);
+        Preconditions.checkNotNull(closes);
+        checkRange(Math.min(highs.length, Math.min(lows.length, closes.length)), from, to, out);
+        computeTypicalPrice(highs, lows, closes, from, to - from, out);
+    }
+
+    /**
+     * Windowed sums of values[from, to) for several periods. One compensated
+     * {@link PrefixSum} is built, then every window of every period is a
+     * difference of two of its totals, which is the part that vectorizes.
+     *
+     * @param values
+     * @param from    First index, inclusive
+     * @param to      Last index, exclusive
+     * @param periods Window lengths, each > 0
+     * @param out     One array per period, at least to - from long. out[k][i -
+     *                from] is the sum of the window ending at values[i], or NaN if
+     *                i is too early.
+     */
+    public void windowSums(@NonNull final double[] values, final int from, final int to,
+            @NonNull final int[] periods, @NonNull final double[][] out) {
+        Preconditions.checkNotNull(periods);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkArgument(out.length >= periods.length);
+
+        final PrefixSum prefix = PrefixSum.build(values, from, to);
+        for (int k = 0; k < periods.length; k++)
+            prefix.windowSums(periods[k], out[k], this);
+    }
+
+    /**
+     * Simple returns on a series' adjusted closes.
+     *
+     * @param series
+     * @return one per bar, the first NaN
+     */
+    @NonNull
+    public double[] returns(@NonNull final DaySeries series) {
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[] out = new double[n];
+        returns(s.getAdjCloseColumn(), 0, n, out);
+        return out;
+    }
+
+    /**
+     * Adjusted high-low ranges of a series.
+     *
+     * @param series
+     * @return one per bar
+     */
+    @NonNull
+    public double[] range(@NonNull final DaySeries series) {
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[] out = new double[n];
+        range(adjusted(s, s.getHighColumn()), adjusted(s, s.getLowColumn()), 0, n, out);
+        return out;
+    }
+
+    /**
+     * Typical prices of a series, from its adjusted highs, lows and closes.
+     *
+     * @param series
+     * @return one per bar
+     */
+    @NonNull
+    public double[] typicalPrice(@NonNull final DaySeries series) {
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[] out = new double[n];
+        typicalPrice(adjusted(s, s.getHighColumn()), adjusted(s, s.getLowColumn()), s.getAdjCloseColumn(), 0, n, out);
+        return out;
+    }
+
+    /**
+     * Windowed sums of a series' adjusted closes for several periods.
+     *
+     * @param series
+     * @param periods Window lengths, each > 0
+     * @return one column per period, one value per bar
+     */
+    @NonNull
+    public double[][] windowSums(@NonNull final DaySeries series, @Positive final int... periods) {
+        Preconditions.checkNotNull(periods);
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[][] out = new double[periods.length][n];
+        windowSums(s.getAdjCloseColumn(), 0, n, periods, out);
+        return out;
+    }
+
+    /*
+     * The kernels proper. Arguments are checked; they write out[0, n).
+     */
+    abstract void computeReturns(double[] values, int from, int n, double[] out);
+
+    abstract void computeRange(double[] highs, double[] lows, int from, int n, double[] out);
+
+    abstract void computeTypicalPrice(double[] highs, double[] lows, double[] closes, int from, int n, double[] out);
+
+    /*
+     * hi[i] + lo[i] is the sum of the first i values, as in PrefixSum.
+     */
+    abstract void computeWindowSums(double[] hi, double[] lo, int n, int period, double[] out);
+
+    /*
+     * A raw price column of a snapshot, scaled bar by bar to adjusted prices.
+     */
+    private static double[] adjusted(final DaySeries snapshot, final double[] raw) {
+        final double[] closes = snapshot.getCloseColumn();
+        final double[] adjCloses = snapshot.getAdjCloseColumn();
+        final double[] out = new double[snapshot.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = raw[i] * MovingAverage.adjustment(closes[i], adjCloses[i]);
+        return out;
+    }
+
+    private static void checkRange(final int length, final int from, final int to, final double[] out) {
+        Preconditions.checkNotNull(out);
+        Preconditions.checkPositionIndexes(from, to, length);
+        Preconditions.checkArgument(out.length >= to - from, "Output too short");
+    }
+
+    /*
+     * Doubles per vector, or 0 if the Vector API can't be used.
+     */
+    private static int vectorLanes() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+            return 0;
+        try {
+            return VectorKernels.lanes();
+        } catch (final LinkageError e) {
+            return 0;
+        }
+    }
+
+    /*
+     * VECTOR unless it's unavailable or tna.kernel=scalar.
+     */
+    private static PriceKernel choose() {
+        final String wanted = System.getProperty(KERNEL_PROPERTY, "").trim().toLowerCase(Locale.ROOT);
+        final PriceKernel kernel = !"scalar".equals(wanted) && VECTOR.isAvailable() ? VECTOR : SCALAR;
+        logger.info(String.format("Price kernel: %s, %d lanes", kernel, VECTOR == kernel ? VECTOR_LANES : 1));
+        return kernel;
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PriceKernel.class);
+
+    private static final String KERNEL_PROPERTY = "tna.kernel";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final int VECTOR_LANES = vectorLanes();
+
+    private static final PriceKernel BEST = choose();
+
+}
@@ -0,0 +1,73 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Wilder's relative strength index: 100 * avgGain / (avgGain + avgLoss), where
+ * the gains and losses are the closes' moves up and down, each smoothed with
+ * {@link ExponentialAverage#wilder}. That equals the textbook 100 - 100 / (1 +
+ * RS) without dividing by a zero loss. The first value comes after period
+ * moves, that is period + 1 closes; a window with no moves at all reads 50.
+ */
+public class RelativeStrength implements Smoother {
+
+    /**
+     * @param period Moves averaged, > 0; usually 14
+     */
+    public RelativeStrength(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.gains = ExponentialAverage.wilder(period);
+        this.losses = ExponentialAverage.wilder(period);
+    }
+
+    @Override
+    public double add(final double value) {
+        if (!started) {
+            started = true;
+            previous = value;
+            return Double.NaN;
+        }
+
+        final double change = value - previous;
+        previous = value;
+        final double gain = gains.add(Math.max(change, 0.0));
+        final double loss = losses.add(Math.max(-change, 0.0));
+        if (Double.isNaN(gain))
+            return Double.NaN;
+
+        final double total = gain + loss;
+        return total > 0 ? 100.0 * gain / total : 50.0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return gains.isReady();
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+        gains.reset();
+        losses.reset();
+    }
+
+    /**
+     * @return the number of moves averaged
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /*
+     * Fields
+     */
+    private final int period;
+    private final ExponentialAverage gains;
+    private final ExponentialAverage losses;
+    private boolean started = false;
+    private double previous;
+
+}
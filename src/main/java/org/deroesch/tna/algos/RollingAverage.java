@@ -0,0 +1,74 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A simple moving average over a stream of values. Keeps the last period values
+ * in a ring buffer, so each new value costs O(1). Uses the same arithmetic as
+ * {@link MovingAverage#compute}, so a value fed through here matches the batch
+ * result exactly.
+ */
+public class RollingAverage implements Smoother {
+
+    /**
+     * @param period The window length, > 0
+     */
+    public RollingAverage(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.window = new double[period];
+    }
+
+    @Override
+    public double add(final double value) {
+        window[next] = value;
+        sum += value;
+        count++;
+        next = next + 1 == period ? 0 : next + 1;
+
+        // We can't compute moving averages for days that are too early.
+        if (count < period)
+            return Double.NaN;
+
+        final double avg = sum / period;
+
+        // Now remove the oldest value so we're ready for the next one
+        sum -= window[next];
+        return avg;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    /**
+     * @return the window length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    @Override
+    public void reset() {
+        sum = 0.0;
+        count = 0;
+        next = 0;
+    }
+
+    /*
+     * Fields
+     */
+    private final int period;
+    private final double[] window;
+    private int next = 0;
+    private long count = 0;
+
+    /*
+     * Sum of the newest period - 1 values once the window is full.
+     */
+    private double sum = 0.0;
+
+}
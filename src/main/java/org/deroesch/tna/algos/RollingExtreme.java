@@ -0,0 +1,144 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The highest or lowest of the last period values, as for a Donchian channel.
+ * Fed whole bars, the plain forms take the close; {@link #highs} and
+ * {@link #lows} take each bar's high or low instead.
+ * Keeps a monotonic deque: the candidates still in the window, in arrival
+ * order, each better than everything after it. A new value knocks out the
+ * candidates it beats, and the head drops off once it leaves the window, so
+ * each value is pushed and popped at most once: O(1) amortized whatever the
+ * period. The deque is a pair of ring buffers sized to the period.
+ */
+public class RollingExtreme implements Smoother {
+
+    /**
+     * @param period
+     * @return a smoother giving the rolling maximum
+     */
+    @NonNull
+    public static RollingExtreme max(@Positive final int period) {
+        return new RollingExtreme(period, true, false);
+    }
+
+    /**
+     * @param period
+     * @return a smoother giving the rolling minimum
+     */
+    @NonNull
+    public static RollingExtreme min(@Positive final int period) {
+        return new RollingExtreme(period, false, false);
+    }
+
+    /**
+     * @param period
+     * @return a smoother giving the rolling highest high, the top of a Donchian
+     *         channel
+     */
+    @NonNull
+    public static RollingExtreme highs(@Positive final int period) {
+        return new RollingExtreme(period, true, true);
+    }
+
+    /**
+     * @param period
+     * @return a smoother giving the rolling lowest low, the bottom of a Donchian
+     *         channel
+     */
+    @NonNull
+    public static RollingExtreme lows(@Positive final int period) {
+        return new RollingExtreme(period, false, true);
+    }
+
+    private RollingExtreme(final int period, final boolean highest, final boolean range) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.highest = highest;
+        this.range = range;
+        this.values = new double[period];
+        this.positions = new long[period];
+    }
+
+    @Override
+    public double add(final double value) {
+        final long position = count++;
+
+        // Drop the candidates this one beats or ties, newest first
+        while (size > 0) {
+            final double last = values[slot(size - 1)];
+            if (highest ? last > value : last < value)
+                break;
+            size--;
+        }
+
+        // Drop the head if it has left the window
+        if (size > 0 && positions[head] <= position - period) {
+            head = head + 1 == period ? 0 : head + 1;
+            size--;
+        }
+
+        final int tail = slot(size++);
+        values[tail] = value;
+        positions[tail] = position;
+
+        return count < period ? Double.NaN : values[head];
+    }
+
+    @Override
+    public double addBar(final double high, final double low, final double close, final double volume) {
+        return add(!range ? close : highest ? high : low);
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        head = 0;
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * @return the window length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return true for the maximum, false for the minimum
+     */
+    public boolean isMax() {
+        return highest;
+    }
+
+    /*
+     * Ring index of the i-th candidate from the head.
+     */
+    private int slot(final int i) {
+        final int s = head + i;
+        return s >= period ? s - period : s;
+    }
+
+    /*
+     * Fields. Candidate i, from the head, is values[slot(i)], which arrived at
+     * positions[slot(i)].
+     */
+    private final int period;
+    private final boolean highest;
+    private final boolean range;
+    private final double[] values;
+    private final long[] positions;
+    private int head = 0;
+    private int size = 0;
+    private long count = 0;
+
+}
@@ -0,0 +1,149 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Rolling statistics over whole columns: Bollinger bands, Donchian channels and
+ * rolling highs and lows. Each is one O(n) pass of a {@link RollingVariance} or
+ * {@link RollingExtreme}, so the window length doesn't matter. Single-column
+ * statistics are also indicator types (STDDEV, ZSCORE, BB_UPPER, BB_LOWER, MAX,
+ * MIN, and DONCHIAN_UPPER and DONCHIAN_LOWER for the channel), which
+ * {@link IndicatorUpdater} keeps current bar by bar; this class computes the
+ * multi-column ones in one call and works on columns other than the adjusted
+ * close.
+ */
+public class RollingStats {
+
+    /**
+     * Bollinger bands of a series' adjusted closes.
+     *
+     * @param series
+     * @param period Window length, > 0
+     * @param k      Band width in standard deviations, usually 2
+     * @return the middle band (the window mean), upper and lower bands, one
+     *         value per bar
+     */
+    @NonNull
+    public static double[][] bollinger(@NonNull final DaySeries series, @Positive final int period, final double k) {
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[][] out = new double[3][n];
+        bollinger(s.getAdjCloseColumn(), 0, n, period, k, out);
+        return out;
+    }
+
+    /**
+     * Donchian channel: the highest high and lowest low of each window. Highs and
+     * lows are scaled to adjusted prices as in
+     * {@link MovingAverage#computeBars}, so a split doesn't move the channel.
+     *
+     * @param series
+     * @param period Window length, > 0
+     * @return the upper and lower channel, one value per bar
+     */
+    @NonNull
+    public static double[][] donchian(@NonNull final DaySeries series, @Positive final int period) {
+        final DaySeries s = series.snapshot();
+        final int n = s.size();
+        final double[] rawHighs = s.getHighColumn();
+        final double[] rawLows = s.getLowColumn();
+        final double[] closes = s.getCloseColumn();
+        final double[] adjCloses = s.getAdjCloseColumn();
+        final double[] highs = new double[n];
+        final double[] lows = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double factor = MovingAverage.adjustment(closes[i], adjCloses[i]);
+            highs[i] = rawHighs[i] * factor;
+            lows[i] = rawLows[i] * factor;
+        }
+
+        final double[][] out = new double[2][n];
+        max(highs, 0, n, period, out[0]);
+        min(lows, 0, n, period, out[1]);
+        return out;
+    }
+
+    /**
+     * Bollinger bands of values[from, to) in one pass.
+     *
+     * @param values
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @param period Window length, > 0
+     * @param k      Band width in standard deviations
+     * @param out    Three arrays, at least to - from long: middle, upper, lower.
+     *               NaN until the first window fills.
+     */
+    public static void bollinger(@NonNull final double[] values, final int from, final int to,
+            @Positive final int period, final double k, @NonNull final double[][] out) {
+        Preconditions.checkArgument(Double.isFinite(k), "Bad band width %s", k);
+        checkColumns(values, from, to, out, 3);
+
+        final RollingVariance variance = RollingVariance.stdDev(period);
+        for (int i = 0; i < to - from; i++) {
+            final double sd = variance.add(values[from + i]);
+            if (Double.isNaN(sd)) {
+                out[0][i] = out[1][i] = out[2][i] = Double.NaN;
+                continue;
+            }
+            final double mean = variance.getMean();
+            out[0][i] = mean;
+            out[1][i] = mean + k * sd;
+            out[2][i] = mean - k * sd;
+        }
+    }
+
+    /**
+     * Rolling maximum of values[from, to).
+     *
+     * @param values
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @param period Window length, > 0
+     * @param out    At least to - from long. NaN until the first window fills.
+     */
+    public static void max(@NonNull final double[] values, final int from, final int to, @Positive final int period,
+            @NonNull final double[] out) {
+        run(RollingExtreme.max(period), values, from, to, out);
+    }
+
+    /**
+     * Rolling minimum of values[from, to).
+     *
+     * @param values
+     * @param from   First index, inclusive
+     * @param to     Last index, exclusive
+     * @param period Window length, > 0
+     * @param out    At least to - from long. NaN until the first window fills.
+     */
+    public static void min(@NonNull final double[] values, final int from, final int to, @Positive final int period,
+            @NonNull final double[] out) {
+        run(RollingExtreme.min(period), values, from, to, out);
+    }
+
+    private static void run(final Smoother smoother, final double[] values, final int from, final int to,
+            final double[] out) {
+        Preconditions.checkNotNull(out);
+        checkColumns(values, from, to, new double[][] { out }, 1);
+        for (int i = 0; i < to - from; i++)
+            out[i] = smoother.add(values[from + i]);
+    }
+
+    private static void checkColumns(final double[] values, final int from, final int to, final double[][] out,
+            final int columns) {
+        Preconditions.checkNotNull(values);
+        Preconditions.checkNotNull(out);
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        Preconditions.checkArgument(out.length >= columns);
+        for (int c = 0; c < columns; c++)
+            Preconditions.checkArgument(out[c].length >= to - from, "Output too short");
+    }
+
+    private RollingStats() {
+    }
+
+}
@@ -0,0 +1,160 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Mean and standard deviation of the last period values, kept with Welford's
+ * running update, so each value costs O(1) whatever the period. What add()
+ * returns depends on how it was made: the standard deviation, the z-score of
+ * the newest value, or a Bollinger band at mean + k standard deviations.
+ * <p>
+ * The deviation is the population one, dividing by period, as Bollinger bands
+ * use. Sliding the window subtracts as well as adds, so rounding slowly builds
+ * up; each time the ring buffer wraps, the mean and sum of squares are
+ * recomputed exactly from the window. That's O(period) once per period values,
+ * so still O(1) each.
+ */
+public class RollingVariance implements Smoother {
+
+    /**
+     * @param period
+     * @return a smoother giving the standard deviation
+     */
+    @NonNull
+    public static RollingVariance stdDev(@Positive final int period) {
+        return new RollingVariance(period, Output.STDDEV, 0.0);
+    }
+
+    /**
+     * @param period
+     * @return a smoother giving (value - mean) / standard deviation, NaN when the
+     *         window is flat
+     */
+    @NonNull
+    public static RollingVariance zScore(@Positive final int period) {
+        return new RollingVariance(period, Output.ZSCORE, 0.0);
+    }
+
+    /**
+     * @param period
+     * @param k      Standard deviations from the mean: 2 for the usual upper
+     *               Bollinger band, -2 for the lower
+     * @return a smoother giving mean + k * standard deviation
+     */
+    @NonNull
+    public static RollingVariance band(@Positive final int period, final double k) {
+        Preconditions.checkArgument(Double.isFinite(k), "Bad band width %s", k);
+        return new RollingVariance(period, Output.BAND, k);
+    }
+
+    private RollingVariance(final int period, final Output output, final double k) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.output = output;
+        this.k = k;
+        this.window = new double[period];
+    }
+
+    @Override
+    public double add(final double value) {
+        if (count < period) {
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        } else {
+            final double old = window[next];
+            final double newMean = mean + (value - old) / period;
+            m2 += (value - old) * (value - newMean + old - mean);
+            mean = newMean;
+        }
+        window[next] = value;
+        if (++next == period) {
+            next = 0;
+            if (count == period)
+                recompute();
+        }
+
+        if (count < period)
+            return Double.NaN;
+        switch (output) {
+        case STDDEV:
+            return getStdDev();
+        case ZSCORE:
+            final double sd = getStdDev();
+            return sd > 0 ? (value - mean) / sd : Double.NaN;
+        default:
+            return mean + k * getStdDev();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+        count = 0;
+        mean = 0.0;
+        m2 = 0.0;
+    }
+
+    /**
+     * @return the window length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return the mean of the values in the window, which is all of them until
+     *         it fills
+     */
+    public double getMean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return the population standard deviation of the values in the window
+     */
+    public double getStdDev() {
+        return count > 0 ? Math.sqrt(Math.max(0.0, m2) / count) : Double.NaN;
+    }
+
+    /*
+     * Start the mean and sum of squares afresh from a full window.
+     */
+    private void recompute() {
+        double sum = 0.0;
+        for (final double x : window)
+            sum += x;
+        mean = sum / period;
+
+        double squares = 0.0;
+        for (final double x : window)
+            squares += (x - mean) * (x - mean);
+        m2 = squares;
+    }
+
+    private enum Output {
+        STDDEV, ZSCORE, BAND
+    }
+
+    /*
+     * Fields. m2 is the sum of squared differences from the mean.
+     */
+    private final int period;
+    private final Output output;
+    private final double k;
+    private final double[] window;
+    private int next = 0;
+    private int count = 0;
+    private double mean = 0.0;
+    private double m2 = 0.0;
+
+}
@@ -0,0 +1,45 @@
+package org.deroesch.tna.algos;
+
+/**
+ * A moving average or other rolling statistic fed one value at a time.
+ * Implementations keep a fixed amount of primitive state, so add() never
+ * allocates and a whole family of them can share a single pass over a column
+ * (see
+ * {@link MovingAverage#compute(double[], int, int, Smoother[], double[][])}).
+ */
+public interface Smoother {
+
+    /**
+     * Take the next value.
+     *
+     * @param value
+     * @return the current value, or NaN until enough values have been seen
+     */
+    double add(double value);
+
+    /**
+     * Take the next whole bar. Most smoothers only want a price and take the
+     * close; those that use the range or volume, such as ATR or VWAP, override
+     * this, and treat add(value) as a bar that traded only at value.
+     *
+     * @param high
+     * @param low
+     * @param close
+     * @param volume
+     * @return the current value, or NaN until enough bars have been seen
+     */
+    default double addBar(final double high, final double low, final double close, final double volume) {
+        return add(close);
+    }
+
+    /**
+     * @return true once add() returns real values
+     */
+    boolean isReady();
+
+    /**
+     * Forget everything.
+     */
+    void reset();
+
+}
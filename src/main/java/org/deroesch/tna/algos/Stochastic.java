@@ -0,0 +1,79 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The stochastic oscillator: where the close sits in the range of the last
+ * period bars, %K = 100 * (close - lowest low) / (highest high - lowest low).
+ * %D is a simple moving average of %K. The highs and lows are tracked with
+ * {@link RollingExtreme}, so a bar costs O(1) whatever the period. A range of
+ * zero, where every bar traded at one price, reads 50.
+ */
+public class Stochastic implements Smoother {
+
+    /**
+     * @param period Bars in the range, usually 14
+     * @return a smoother giving %K
+     */
+    @NonNull
+    public static Stochastic k(@Positive final int period) {
+        return new Stochastic(period, null);
+    }
+
+    /**
+     * @param period  Bars in the range, usually 14
+     * @param dPeriod %K values averaged, usually 3
+     * @return a smoother giving %D
+     */
+    @NonNull
+    public static Stochastic d(@Positive final int period, @Positive final int dPeriod) {
+        return new Stochastic(period, new RollingAverage(dPeriod));
+    }
+
+    private Stochastic(final int period, final RollingAverage d) {
+        Preconditions.checkArgument(period > 0);
+        this.highs = RollingExtreme.max(period);
+        this.lows = RollingExtreme.min(period);
+        this.d = d;
+    }
+
+    @Override
+    public double add(final double value) {
+        return addBar(value, value, value, 0.0);
+    }
+
+    @Override
+    public double addBar(final double high, final double low, final double close, final double volume) {
+        final double highest = highs.add(high);
+        final double lowest = lows.add(low);
+        if (Double.isNaN(highest))
+            return Double.NaN;
+
+        final double k = highest > lowest ? 100.0 * (close - lowest) / (highest - lowest) : 50.0;
+        return null == d ? k : d.add(k);
+    }
+
+    @Override
+    public boolean isReady() {
+        return null == d ? highs.isReady() : d.isReady();
+    }
+
+    @Override
+    public void reset() {
+        highs.reset();
+        lows.reset();
+        if (null != d)
+            d.reset();
+    }
+
+    /*
+     * Fields. d is null for %K.
+     */
+    private final RollingExtreme highs;
+    private final RollingExtreme lows;
+    private final RollingAverage d;
+
+}
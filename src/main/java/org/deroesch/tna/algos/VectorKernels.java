@@ -0,0 +1,87 @@
+package org.deroesch.tna.algos;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD bodies of {@link PriceKernel#VECTOR}, on the incubating Vector API.
+ * This is the only class that touches jdk.incubator.vector, so nothing else
+ * fails to load when the JVM runs without --add-modules jdk.incubator.vector.
+ * <p>
+ * Each kernel does, lane by lane, exactly the arithmetic the scalar kernel does
+ * in the same order, so the results are identical bit for bit. The tail that
+ * doesn't fill a vector runs the scalar loop. Arguments are already checked.
+ */
+final class VectorKernels {
+
+    /**
+     * @return doubles per vector on this machine
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    static void returns(final double[] values, final int from, final int n, final double[] out) {
+        if (n == 0)
+            return;
+        out[0] = Double.NaN;
+
+        int i = 1;
+        for (final int bound = 1 + SPECIES.loopBound(n - 1); i < bound; i += SPECIES.length()) {
+            final DoubleVector x = DoubleVector.fromArray(SPECIES, values, from + i);
+            final DoubleVector prev = DoubleVector.fromArray(SPECIES, values, from + i - 1);
+            x.div(prev).sub(1.0).intoArray(out, i);
+        }
+        for (; i < n; i++)
+            out[i] = values[from + i] / values[from + i - 1] - 1.0;
+    }
+
+    static void range(final double[] highs, final double[] lows, final int from, final int n, final double[] out) {
+        int i = 0;
+        for (final int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            final DoubleVector h = DoubleVector.fromArray(SPECIES, highs, from + i);
+            h.sub(DoubleVector.fromArray(SPECIES, lows, from + i)).intoArray(out, i);
+        }
+        for (; i < n; i++)
+            out[i] = highs[from + i] - lows[from + i];
+    }
+
+    static void typicalPrice(final double[] highs, final double[] lows, final double[] closes, final int from,
+            final int n, final double[] out) {
+        int i = 0;
+        for (final int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            final DoubleVector h = DoubleVector.fromArray(SPECIES, highs, from + i);
+            final DoubleVector l = DoubleVector.fromArray(SPECIES, lows, from + i);
+            final DoubleVector c = DoubleVector.fromArray(SPECIES, closes, from + i);
+            h.add(l).add(c).div(3.0).intoArray(out, i);
+        }
+        for (; i < n; i++)
+            out[i] = (highs[from + i] + lows[from + i] + closes[from + i]) / 3.0;
+    }
+
+    static void windowSums(final double[] hi, final double[] lo, final int n, final int period, final double[] out) {
+        final int first = Math.min(period - 1, n);
+        for (int i = 0; i < first; i++)
+            out[i] = Double.NaN;
+
+        int i = first;
+        for (final int bound = first + SPECIES.loopBound(n - first); i < bound; i += SPECIES.length()) {
+            final DoubleVector h = DoubleVector.fromArray(SPECIES, hi, i + 1)
+                    .sub(DoubleVector.fromArray(SPECIES, hi, i + 1 - period));
+            final DoubleVector l = DoubleVector.fromArray(SPECIES, lo, i + 1)
+                    .sub(DoubleVector.fromArray(SPECIES, lo, i + 1 - period));
+            h.add(l).intoArray(out, i);
+        }
+        for (; i < n; i++)
+            out[i] = (hi[i + 1] - hi[i + 1 - period]) + (lo[i + 1] - lo[i + 1 - period]);
+    }
+
+    private VectorKernels() {
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+}
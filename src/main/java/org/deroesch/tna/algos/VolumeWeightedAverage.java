@@ -0,0 +1,102 @@
+package org.deroesch.tna.algos;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Volume-weighted average price over the last period bars: the sum of typical
+ * price (high + low + close) / 3 times volume, over the sum of volume. Daily
+ * bars have no session to anchor a VWAP to, so the window rolls. A window with
+ * no volume reads NaN.
+ * <p>
+ * Both sums slide, adding the newest bar and dropping the oldest, and are
+ * recomputed from the window each time the ring buffer wraps so rounding can't
+ * build up.
+ */
+public class VolumeWeightedAverage implements Smoother {
+
+    /**
+     * @param period Bars in the window, > 0
+     */
+    public VolumeWeightedAverage(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.values = new double[period];
+        this.volumes = new double[period];
+    }
+
+    @Override
+    public double add(final double value) {
+        return addBar(value, value, value, 0.0);
+    }
+
+    @Override
+    public double addBar(final double high, final double low, final double close, final double volume) {
+        final double value = (high + low + close) / 3.0 * volume;
+        if (count < period) {
+            count++;
+        } else {
+            valueSum -= values[next];
+            volumeSum -= volumes[next];
+        }
+        valueSum += value;
+        volumeSum += volume;
+        values[next] = value;
+        volumes[next] = volume;
+        if (++next == period) {
+            next = 0;
+            recompute();
+        }
+
+        if (count < period)
+            return Double.NaN;
+        return volumeSum > 0 ? valueSum / volumeSum : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+        count = 0;
+        valueSum = 0.0;
+        volumeSum = 0.0;
+    }
+
+    /**
+     * @return the window length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /*
+     * Start both sums afresh from a full window.
+     */
+    private void recompute() {
+        double v = 0.0;
+        double w = 0.0;
+        for (int i = 0; i < period; i++) {
+            v += values[i];
+            w += volumes[i];
+        }
+        valueSum = v;
+        volumeSum = w;
+    }
+
+    /*
+     * Fields. values[i] is a bar's typical price times its volume.
+     */
+    private final int period;
+    private final double[] values;
+    private final double[] volumes;
+    private int next = 0;
+    private int count = 0;
+    private double valueSum = 0.0;
+    private double volumeSum = 0.0;
+
+}
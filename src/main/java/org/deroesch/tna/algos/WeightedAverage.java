@@ -0,0 +1,92 @@
+package org.deroesch.tna.algos;
+
+import java.util.Arrays;
+
+import org.checkerframework.checker.index.qual.Positive;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Linearly weighted moving average: the newest value has weight period, the
+ * oldest weight 1. Keeps the plain and weighted sums of a ring buffer, so each
+ * value costs O(1): when the window slides every weight drops by one, which is
+ * the same as subtracting the plain sum. Both sums are recomputed from the
+ * window each time the ring buffer wraps so rounding can't build up.
+ */
+public class WeightedAverage implements Smoother {
+
+    /**
+     * @param period The window length, > 0
+     */
+    public WeightedAverage(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        this.period = period;
+        this.window = new double[period];
+        this.divisor = period * (period + 1.0) / 2.0;
+    }
+
+    @Override
+    public double add(final double value) {
+        if (count < period) {
+            count++;
+            weighted += count * value;
+        } else
+            weighted += period * value - sum;
+
+        sum += value - window[next];
+        window[next] = value;
+        if (++next == period) {
+            next = 0;
+            recompute();
+        }
+
+        return count < period ? Double.NaN : weighted / divisor;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(window, 0.0);
+        sum = 0.0;
+        weighted = 0.0;
+        count = 0;
+        next = 0;
+    }
+
+    /**
+     * @return the window length
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /*
+     * The window is full and next is 0, so window[i] has weight i + 1.
+     */
+    private void recompute() {
+        double s = 0.0;
+        double w = 0.0;
+        for (int i = 0; i < period; i++) {
+            s += window[i];
+            w += (i + 1) * window[i];
+        }
+        sum = s;
+        weighted = w;
+    }
+
+    /*
+     * Fields. Unfilled window slots hold 0, so sum needs no special case.
+     */
+    private final int period;
+    private final double[] window;
+    private final double divisor;
+    private int next = 0;
+    private int count = 0;
+    private double sum = 0.0;
+    private double weighted = 0.0;
+
+}
@@ -0,0 +1,210 @@
+package org.deroesch.tna.db;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Rolls trade ticks up into OHLCV bars of a fixed {@link BarInterval}, and
+ * appends each bar to a series as it closes. The bars are ordinary series bars,
+ * readable as {@link org.deroesch.tna.models.Day}s; the adjusted close is the
+ * close, since nothing gets adjusted intraday.
+ * <p>
+ * A bar closes when a tick arrives for a later bar, or when {@link #advance} or
+ * {@link #flush} says its time is up. An interval without trades gets no bar.
+ * Ticks for a bar that has already closed, or that the series already has, are
+ * late: they're counted and dropped.
+ * <p>
+ * Listeners on the series see each bar as it's appended, so a
+ * {@link org.deroesch.tna.algos.MovingAverageUpdater} attached to it keeps the
+ * moving averages current bar by bar.
+ * <p>
+ * A tick only updates a few primitive fields; nothing is allocated until a bar
+ * closes. Use one aggregator per feed thread. Readers of the series carry on
+ * undisturbed while it appends.
+ */
+public class BarAggregator implements TickListener {
+
+    /**
+     * Aggregate into a security's series in {@link DayDB}, creating it if needed.
+     *
+     * @param symbol   The security
+     * @param interval The bar length
+     */
+    public BarAggregator(@NonNull final String symbol, @NonNull final BarInterval interval) {
+        this(DayDB.getRegistry().getOrCreate(symbol), interval);
+    }
+
+    /**
+     * @param series   Where to append the bars
+     * @param interval The bar length
+     */
+    public BarAggregator(@NonNull final DaySeries series, @NonNull final BarInterval interval) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(interval);
+        this.series = series;
+        this.interval = interval;
+        this.millis = interval.getSeconds() * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Add a trade to its bar, closing the previous bar if this one is later.
+     *
+     * @param time  Milliseconds since the epoch, UTC
+     * @param price
+     * @param size
+     */
+    @Override
+    public void onTick(final long time, final double price, final long size) {
+        ticks++;
+
+        // The common case: another trade in the open bar
+        if (time >= barStart && time < barEnd) {
+            if (price > high)
+                high = price;
+            if (price < low)
+                low = price;
+            close = price;
+            volume += size;
+            return;
+        }
+
+        if (time < barStart) {
+            lateTicks++;
+            return;
+        }
+
+        closeBar();
+        final long start = interval.start(Math.floorDiv(time, MILLIS_PER_SECOND));
+        final int n = series.size();
+        if (n > 0 && start <= series.getTime(n - 1)) {
+            lateTicks++;
+            return;
+        }
+
+        barStart = start * MILLIS_PER_SECOND;
+        barEnd = barStart + millis;
+        open = high = low = close = price;
+        volume = size;
+    }
+
+    /**
+     * Close the open bar if the clock has passed its end, e.g. on a timer when
+     * trading is quiet.
+     *
+     * @param time Milliseconds since the epoch, UTC
+     */
+    public void advance(final long time) {
+        if (time >= barEnd)
+            closeBar();
+    }
+
+    /**
+     * Close the open bar now, at the end of a session or a replay. Later ticks for
+     * the same bar are late.
+     */
+    public void flush() {
+        closeBar();
+    }
+
+    /**
+     * @return true if some ticks are waiting for their bar to close
+     */
+    public boolean hasOpenBar() {
+        return barEnd > barStart;
+    }
+
+    /**
+     * @return where the bars go
+     */
+    @NonNull
+    public DaySeries getSeries() {
+        return series;
+    }
+
+    /**
+     * @return the bar length
+     */
+    @NonNull
+    public BarInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return every tick seen, including late ones
+     */
+    public long getTickCount() {
+        return ticks;
+    }
+
+    /**
+     * @return ticks dropped for arriving after their bar
+     */
+    public long getLateTicks() {
+        return lateTicks;
+    }
+
+    /**
+     * @return bars appended to the series
+     */
+    public long getBarCount() {
+        return bars;
+    }
+
+    /*
+     * Append the open bar, if there is one. Checked under the writers' lock, in
+     * case another writer has put a bar at or after it in the meantime.
+     */
+    private void closeBar() {
+        if (barEnd <= barStart)
+            return;
+        barEnd = barStart;
+
+        final long time = barStart / MILLIS_PER_SECOND;
+        synchronized (series) {
+            final int n = series.size();
+            if (0 == n || time > series.getTime(n - 1)) {
+                series.add(time, open, high, low, close, close, volume);
+                bars++;
+                return;
+            }
+        }
+        logger.warn(String.format("Dropped the %s bar at %s: the series already has a bar there or later",
+                interval.getLabel(), DaySeries.toDate(time)));
+    }
+
+    /*
+     * Fields
+     */
+    private final DaySeries series;
+    private final BarInterval interval;
+    private final long millis;
+
+    /*
+     * The open bar covers [barStart, barEnd) in epoch milliseconds. Closing it
+     * empties the range but keeps the start, so ticks before it are late. Before
+     * the first tick the range is empty too, so every tick starts a bar.
+     */
+    private long barStart = Long.MIN_VALUE;
+    private long barEnd = Long.MIN_VALUE;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+
+    private long ticks = 0;
+    private long lateTicks = 0;
+    private long bars = 0;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BarAggregator.class);
+
+    private static final long MILLIS_PER_SECOND = 1000;
+
+}
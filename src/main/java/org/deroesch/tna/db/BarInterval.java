@@ -0,0 +1,72 @@
+package org.deroesch.tna.db;
+
+import java.util.Locale;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How much time one bar built by a {@link BarAggregator} covers. Bars start on
+ * multiples of the interval since the epoch, in UTC, so a daily bar's time is
+ * midnight, just as the daily data files have it.
+ */
+public enum BarInterval {
+
+    ONE_MINUTE("1m", 60),
+    FIVE_MINUTES("5m", 5 * 60),
+    ONE_HOUR("1h", 60 * 60),
+    ONE_DAY("1d", 24 * 60 * 60);
+
+    BarInterval(final String label, final long seconds) {
+        this.label = label;
+        this.seconds = seconds;
+    }
+
+    /**
+     * @param text A label such as 5m or 1d, or the enum name
+     * @return the interval
+     * @throws IllegalArgumentException if there's no such interval
+     */
+    @NonNull
+    public static BarInterval parse(@NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        final String s = text.trim();
+        for (final BarInterval interval : values())
+            if (interval.label.equalsIgnoreCase(s) || interval.name().equalsIgnoreCase(s))
+                return interval;
+        throw new IllegalArgumentException(String.format("No bar interval %s", text.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * @return the length in seconds
+     */
+    public long getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * @return the short label, e.g. 5m
+     */
+    @NonNull
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * The start of the bar that holds a moment.
+     *
+     * @param time Seconds since the epoch, as {@link org.deroesch.tna.models.DaySeries#toTime} encodes
+     * @return the bar's time, in the same encoding
+     */
+    public long start(final long time) {
+        return Math.floorDiv(time, seconds) * seconds;
+    }
+
+    /*
+     * Fields
+     */
+    private final String label;
+    private final long seconds;
+
+}
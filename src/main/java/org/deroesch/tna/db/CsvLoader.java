@@ -0,0 +1,402 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Loads end-of-day CSV files, the way most vendors ship them, without going
+ * through a spreadsheet.
+ * <p>
+ * Expects the same columns as the xlsx loaders: date, open, high, low, close,
+ * adjusted close and volume, with an optional header line. Dates are ISO
+ * (2021-01-04, optionally followed by a time) or compact (20210104). Fields may
+ * be quoted; extra fields are ignored. Rows with an empty or "null" field are
+ * skipped, since that's how vendors mark a day with no trading.
+ * <p>
+ * The file is read in blocks and parsed straight from the bytes: no String per
+ * line or field, and dates and numbers are decoded by hand. Rows are appended
+ * in file order, ascending or descending; {@link DaySeries#sortByDate()} puts a
+ * newest-first file right with a single reversal.
+ */
+public class CsvLoader {
+
+    /**
+     * Append every row of the file to the series.
+     *
+     * @param path   The CSV file
+     * @param series Where to put the bars
+     * @return the number of bars added
+     * @throws IOException on a read error or a malformed row
+     */
+    public static int load(@NonNull final Path path, @NonNull final DaySeries series) throws IOException {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(series);
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Parser(series, path.toString()).parse(ch);
+        }
+    }
+
+    /**
+     * Append every row of a CSV stream to the series.
+     *
+     * @param in     Left open
+     * @param series Where to put the bars
+     * @return the number of bars added
+     * @throws IOException on a read error or a malformed row
+     */
+    public static int load(@NonNull final InputStream in, @NonNull final DaySeries series) throws IOException {
+        Preconditions.checkNotNull(in);
+        Preconditions.checkNotNull(series);
+        return new Parser(series, "stream").parse(Channels.newChannel(in));
+    }
+
+    /*
+     * Reads blocks into a byte array and parses the complete lines in each,
+     * carrying a partial last line over to the next block.
+     */
+    private static final class Parser {
+
+        Parser(final DaySeries series, final String source) {
+            this.series = series;
+            this.source = source;
+        }
+
+        int parse(final ReadableByteChannel in) throws IOException {
+            int filled = 0;
+            while (true) {
+                if (filled == buf.length)
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+
+                final int read = in.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (read < 0)
+                    break;
+                filled += read;
+
+                // Parse up to the last newline and keep the rest
+                int end = filled;
+                while (end > 0 && '\n' != buf[end - 1])
+                    end--;
+                if (0 == end)
+                    continue;
+
+                parseLines(end);
+                System.arraycopy(buf, end, buf, 0, filled - end);
+                filled -= end;
+            }
+
+            if (filled > 0)
+                parseLine(0, filled);
+            return added;
+        }
+
+        private void parseLines(final int end) throws IOException {
+            int start = 0;
+            for (int i = 0; i < end; i++)
+                if ('\n' == buf[i]) {
+                    parseLine(start, i);
+                    start = i + 1;
+                }
+        }
+
+        private void parseLine(final int start, int end) throws IOException {
+            line++;
+            if (end > start && '\r' == buf[end - 1])
+                end--;
+            if (end == start)
+                return;
+
+            this.end = end;
+            p = start;
+
+            // The first line may start with a byte order mark, and is a header if it
+            // doesn't then start with a digit
+            if (1 == line) {
+                if (Arrays.equals(buf, start, Math.min(end, start + BOM.length), BOM, 0, BOM.length))
+                    p += BOM.length;
+                if (!isDigit(peekPastQuote()))
+                    return;
+            }
+
+            missing = false;
+            final long time = date();
+            final double open = number();
+            final double high = number();
+            final double low = number();
+            final double close = number();
+            final double adjClose = number();
+            final double volume = number();
+
+            if (missing)
+                return;
+            series.add(time, open, high, low, close, adjClose, (long) volume);
+            added++;
+        }
+
+        /*
+         * Seconds since the epoch, as DaySeries.toTime would encode the date. A
+         * missing date marks the row to be skipped, like a missing number.
+         */
+        private long date() throws IOException {
+            openField();
+            final int year;
+            final int month;
+            final int day;
+
+            final int first = p;
+            final int digits = digits();
+            if (0 == digits && isMissing(first))
+                return 0;
+            if (8 == digits) {
+                year = value(first, 4);
+                month = value(first + 4, 2);
+                day = value(first + 6, 2);
+            } else if (4 == digits && expect('-')) {
+                year = value(first, 4);
+                month = fixed(2);
+                if (!expect('-'))
+                    throw malformed("date");
+                day = fixed(2);
+            } else
+                throw malformed("date");
+
+            if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+                throw malformed("date");
+
+            long seconds = 0;
+            if (p < end && ('T' == buf[p] || ' ' == buf[p])) {
+                p++;
+                final int hour = fixed(2);
+                if (!expect(':'))
+                    throw malformed("time");
+                final int minute = fixed(2);
+                final int second = expect(':') ? fixed(2) : 0;
+                if (hour > 23 || minute > 59 || second > 59)
+                    throw malformed("time");
+                seconds = hour * 3600L + minute * 60L + second;
+            }
+
+            closeField();
+            return epochDay(year, month, day) * SECONDS_PER_DAY + seconds;
+        }
+
+        /*
+         * A decimal number, exact when the digits fit in a double's mantissa and the
+         * scale is a power of ten that is exact too. Anything else goes to
+         * Double.parseDouble.
+         */
+        private double number() throws IOException {
+            openField();
+            final int start = p;
+
+            final boolean negative = p < end && '-' == buf[p];
+            if (p < end && ('-' == buf[p] || '+' == buf[p]))
+                p++;
+
+            long mantissa = 0;
+            int significant = 0;
+            int scale = 0;
+            int digits = 0;
+            for (; p < end && isDigit(buf[p]); p++, digits++)
+                if (significant < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (buf[p] - '0');
+                    significant += 0 == mantissa ? 0 : 1;
+                } else
+                    scale++;
+
+            if (p < end && '.' == buf[p])
+                for (p++; p < end && isDigit(buf[p]); p++, digits++)
+                    if (significant < MAX_DIGITS) {
+                        mantissa = mantissa * 10 + (buf[p] - '0');
+                        significant += 0 == mantissa ? 0 : 1;
+                        scale--;
+                    }
+
+            if (digits > 0 && p < end && ('e' == buf[p] || 'E' == buf[p])) {
+                p++;
+                final boolean negativeExponent = p < end && '-' == buf[p];
+                if (p < end && ('-' == buf[p] || '+' == buf[p]))
+                    p++;
+                final int first = p;
+                final int exponent = digits();
+                if (0 == exponent || exponent > MAX_EXPONENT_DIGITS)
+                    throw malformed("number");
+                scale += negativeExponent ? -value(first, exponent) : value(first, exponent);
+            }
+
+            if (0 == digits) {
+                if (isMissing(start))
+                    return Double.NaN;
+                throw malformed("number");
+            }
+
+            closeField();
+            if (mantissa < MAX_EXACT && -MAX_POW10 <= scale && scale <= MAX_POW10) {
+                final double v = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+                return negative ? -v : v;
+            }
+
+            // Long mantissa or large exponent; let the JDK round it
+            try {
+                return Double.parseDouble(text(start, fieldEnd(start)));
+            } catch (final NumberFormatException e) {
+                throw malformed("number");
+            }
+        }
+
+        /*
+         * An empty or "null" field. Marks the row to be skipped.
+         */
+        private boolean isMissing(final int start) throws IOException {
+            p = start;
+            final int stop = fieldEnd(start);
+            final int length = stop - start;
+            if (0 == length || (4 == length && "null".equalsIgnoreCase(text(start, stop)))) {
+                p = stop;
+                closeField();
+                missing = true;
+                return true;
+            }
+            return false;
+        }
+
+        private void openField() throws IOException {
+            if (p > end)
+                throw malformed("row, too few fields");
+            if (p < end && '"' == buf[p])
+                p++;
+        }
+
+        /*
+         * Past an optional closing quote and the comma, or at the end of the line.
+         */
+        private void closeField() throws IOException {
+            if (p < end && '"' == buf[p])
+                p++;
+            if (p < end && ',' != buf[p])
+                throw malformed("field");
+            p++;
+        }
+
+        private int fieldEnd(final int start) {
+            int i = start;
+            while (i < end && ',' != buf[i] && '"' != buf[i])
+                i++;
+            return i;
+        }
+
+        private byte peekPastQuote() {
+            final int i = p < end && '"' == buf[p] ? p + 1 : p;
+            return i < end ? buf[i] : 0;
+        }
+
+        private int digits() {
+            final int start = p;
+            while (p < end && isDigit(buf[p]))
+                p++;
+            return p - start;
+        }
+
+        private int fixed(final int count) throws IOException {
+            final int start = p;
+            if (count != digits())
+                throw malformed("date");
+            return value(start, count);
+        }
+
+        private int value(final int start, final int count) {
+            int v = 0;
+            for (int i = start; i < start + count; i++)
+                v = v * 10 + (buf[i] - '0');
+            return v;
+        }
+
+        private boolean expect(final char ch) {
+            if (p < end && ch == buf[p]) {
+                p++;
+                return true;
+            }
+            return false;
+        }
+
+        private String text(final int start, final int stop) {
+            return new String(buf, start, stop - start, StandardCharsets.ISO_8859_1);
+        }
+
+        private IOException malformed(final String what) {
+            return new IOException(String.format("%s line %d: bad %s", source, line, what));
+        }
+
+        private final DaySeries series;
+        private final String source;
+
+        private byte[] buf = new byte[BUFFER_SIZE];
+        private int line = 0;
+        private int added = 0;
+
+        // The line being parsed: cursor, end, and whether a field was missing
+        private int p;
+        private int end;
+        private boolean missing;
+    }
+
+    private static boolean isDigit(final byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        if (2 == month)
+            return (0 == year % 4 && 0 != year % 100) || 0 == year % 400 ? 29 : 28;
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /*
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, from Howard
+     * Hinnant's days_from_civil.
+     */
+    private static long epochDay(final int year, final int month, final int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yoe = y - era * 400;
+        final int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+    private static final long SECONDS_PER_DAY = 24L * 60 * 60;
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    /*
+     * Integers below 2^53 and powers of ten up to 10^22 are exact doubles, so one
+     * multiply or divide rounds correctly.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+    private static final int MAX_POW10 = 22;
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_EXPONENT_DIGITS = 4;
+    private static final double[] POW10 = new double[MAX_POW10 + 1];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i <= MAX_POW10; i++)
+            POW10[i] = POW10[i - 1] * 10;
+    }
+
+}
@@ -1,85 +1,284 @@
 package org.deroesch.tna.db;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorEngine;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.db.StoreMetrics.Lookup;
 import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesSlice;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
+
+import io.micrometer.core.instrument.Metrics;
 
 /**
- * A database of market days for ONE security.
+ * A database of market days, one series per security. The methods without a
+ * symbol work on {@link #DEFAULT_SYMBOL}.
  */
 public class DayDB {
 
     /**
      * A linear list of days ordered by date.
-     * 
+     *
      * @return the dayList
      */
     @NonNull
     public static List<Day> getDayList() {
-        return dayList;
+        return getSeries().asList();
     }
 
     /**
      * Get day n, n >= 0
-     * 
+     *
      * @param n
      * @return
      */
     public static Day getDay(@NonNull Integer n) {
         Preconditions.checkNotNull(n);
-        return getDayList().get(n);
+        final Day day;
+        try {
+            day = getSeries().getDay(n);
+        } catch (final IndexOutOfBoundsException e) {
+            Lookup.INDEX.record(false);
+            throw e;
+        }
+        Lookup.INDEX.record(true);
+        return day;
     }
 
     /**
      * An dictionary of days indexed by date.
-     * 
+     *
      * @return the dayMap
      */
     @NonNull
     public static Map<LocalDateTime, Day> getDayMap() {
-        return dayMap;
+        return getSeries().asMap();
     }
 
     /**
      * Get the day at date
-     * 
+     *
      * @param date
      * @return
      */
     public static Day getDay(@NonNull LocalDateTime date) {
+        return getDay(DEFAULT_SYMBOL, date);
+    }
+
+    /**
+     * Get the day at date for a symbol
+     *
+     * @param symbol
+     * @param date
+     * @return the day, or null if the symbol or date isn't there
+     */
+    public static Day getDay(@NonNull final String symbol, @NonNull final LocalDateTime date) {
+        Preconditions.checkNotNull(date);
+        final DaySeries series = getSeries(symbol);
+        final int i = null == series ? -1 : series.indexOf(date);
+        Lookup.DATE.record(i >= 0);
+        return i < 0 ? null : series.getDay(i);
+    }
+
+    /**
+     * The days between two dates, both inclusive.
+     *
+     * @param from
+     * @param to
+     * @return a zero-copy view onto the default symbol's series
+     */
+    @NonNull
+    public static SeriesSlice getRange(@NonNull final LocalDateTime from, @NonNull final LocalDateTime to) {
+        final SeriesSlice slice = getSeries().slice(from, to);
+        Lookup.RANGE.record(!slice.isEmpty());
+        return slice;
+    }
+
+    /**
+     * The days between two dates for a symbol, both inclusive. Indicators can run
+     * on the result without copying.
+     *
+     * @param symbol
+     * @param from
+     * @param to
+     * @return a zero-copy view, or null if the symbol isn't loaded
+     */
+    public static SeriesSlice getRange(@NonNull final String symbol, @NonNull final LocalDateTime from,
+            @NonNull final LocalDateTime to) {
+        final DaySeries series = getSeries(symbol);
+        final SeriesSlice slice = null == series ? null : series.slice(from, to);
+        Lookup.RANGE.record(null != slice && !slice.isEmpty());
+        return slice;
+    }
+
+    /**
+     * The last day on or before a date, so a weekend or holiday gives the trading
+     * day before it.
+     *
+     * @param symbol
+     * @param date
+     * @return the day, or null if the symbol isn't loaded or has nothing that early
+     */
+    public static Day getFloorDay(@NonNull final String symbol, @NonNull final LocalDateTime date) {
+        Preconditions.checkNotNull(date);
+        final DaySeries series = getSeries(symbol);
+        final int i = null == series ? -1 : series.floorIndex(date);
+        Lookup.FLOOR.record(i >= 0);
+        return i < 0 ? null : series.getDay(i);
+    }
+
+    /**
+     * The first day on or after a date.
+     *
+     * @param symbol
+     * @param date
+     * @return the day, or null if the symbol isn't loaded or has nothing that late
+     */
+    public static Day getCeilingDay(@NonNull final String symbol, @NonNull final LocalDateTime date) {
+        Preconditions.checkNotNull(date);
+        final DaySeries series = getSeries(symbol);
+        final int i = null == series ? -1 : series.ceilingIndex(date);
+        Lookup.CEILING.record(i >= 0);
+        return i < 0 ? null : series.getDay(i);
+    }
+
+    /**
+     * The column store behind the list and map views. Indicators should scan this
+     * directly.
+     *
+     * @return the default symbol's series
+     */
+    @NonNull
+    public static DaySeries getSeries() {
+        return registry.getOrCreate(DEFAULT_SYMBOL);
+    }
+
+    /**
+     * @param symbol
+     * @return the symbol's series, or null if it isn't loaded
+     */
+    public static DaySeries getSeries(@NonNull final String symbol) {
+        return registry.get(symbol);
+    }
+
+    /**
+     * An indicator column for a symbol. Cached, and recomputed only after the
+     * symbol's data changes.
+     *
+     * @param symbol
+     * @param spec
+     * @return the column, aligned with the series and read only, or null if the
+     *         symbol isn't loaded
+     */
+    public static double[] getIndicator(@NonNull final String symbol, @NonNull final IndicatorSpec spec) {
+        return registry.getIndicator(symbol, spec);
+    }
+
+    /**
+     * Compute moving averages over a symbol's series and store them with it, as
+     * {@link MovingAverage#computeAll(DaySeries, int...)} does, timing the work.
+     *
+     * @param symbol
+     * @param periods The moving average values to find (i.e., 5, 10, 20, 50, 100)
+     * @return false if the symbol isn't loaded
+     */
+    public static boolean computeMovingAverages(@NonNull final String symbol, @Positive final int... periods) {
+        final DaySeries series = registry.get(symbol);
+        if (null == series)
+            return false;
+
+        final long start = System.nanoTime();
+        MovingAverage.computeAll(series, periods);
+        StoreMetrics.recordIndicator(IndicatorType.SMA, System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Compute indicators for every loaded security on an engine, timing the run.
+     *
+     * @param engine
+     * @param specs  What to compute
+     * @return results by symbol (sorted), then by spec (in the order given)
+     */
+    @NonNull
+    public static Map<String, Map<IndicatorSpec, double[]>> computeIndicators(@NonNull final IndicatorEngine engine,
+            @NonNull final Collection<IndicatorSpec> specs) {
+        Preconditions.checkNotNull(engine);
+        final long start = System.nanoTime();
+        final Map<String, Map<IndicatorSpec, double[]>> results = engine.compute(registry.getAll(), specs);
+        StoreMetrics.recordEngine(System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * @return every loaded security
+     */
+    @NonNull
+    public static SeriesRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Append a new bar to the end of a security's series. Listeners on the series,
+     * such as a {@link org.deroesch.tna.algos.MovingAverageUpdater}, see it
+     * straight away. Readers on other threads carry on undisturbed; see
+     * {@link DaySeries} for how.
+     *
+     * @param symbol   The security
+     * @param date     Must be later than the series' last date
+     * @param open
+     * @param high
+     * @param low
+     * @param close
+     * @param adjClose
+     * @param volume
+     * @return the new bar's index
+     */
+    public static int append(@NonNull final String symbol, @NonNull final LocalDateTime date, final double open,
+            final double high, final double low, final double close, final double adjClose, final long volume) {
         Preconditions.checkNotNull(date);
-        return getDayMap().get(date);
+        final DaySeries series = registry.getOrCreate(symbol);
+        final long time = DaySeries.toTime(date);
+
+        // Check and append under the writers' lock, or two appenders could both pass
+        synchronized (series) {
+            final int size = series.size();
+            Preconditions.checkArgument(0 == size || time > series.getTime(size - 1),
+                    "%s is not after the last bar of %s", date, symbol);
+            return series.add(time, open, high, low, close, adjClose, volume);
+        }
     }
 
     /**
-     * Empty the dayList to allow reloading.
+     * Empty the database to allow reloading.
      */
     public static void reset() {
-        dayList.clear();
+        registry.clear();
     }
 
     /**
@@ -91,12 +290,45 @@ public class DayDB {
      */
     public static void initialize(@NonNull final ApplicationContext context, @NonNull final String location)
             throws IOException {
+        initialize(context, location, LoadMode.DOM);
+    }
+
+    /**
+     * Figure out the correct pathname for the input file, then load it.
+     *
+     * @param context  We need the context to figure out where to look for files.
+     * @param location The target file path (relative).
+     * @param mode     Which reader to use
+     * @throws IOException
+     */
+    public static void initialize(@NonNull final ApplicationContext context, @NonNull final String location,
+            @NonNull final LoadMode mode) throws IOException {
+        initialize(context, DEFAULT_SYMBOL, location, mode);
+    }
+
+    /**
+     * Figure out the correct pathname for a security's input file, then load it.
+     * Callers racing to initialize the same database load it once.
+     *
+     * @param context  We need the context to figure out where to look for files.
+     * @param symbol   The security
+     * @param location The target file path (relative).
+     * @param mode     Which reader to use
+     * @throws IOException
+     */
+    public static synchronized void initialize(@NonNull final ApplicationContext context,
+            @NonNull final String symbol, @NonNull final String location, @NonNull final LoadMode mode)
+            throws IOException {
         Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(symbol);
         Preconditions.checkNotNull(location);
+        Preconditions.checkNotNull(mode);
 
-        // Only only once
-        if (dayList.size() > 0)
+        // Only once. Synchronized, so the check and the load are one step
+        final DaySeries existing = registry.get(symbol);
+        if (null != existing && !existing.isEmpty())
             return;
+        final long start = System.nanoTime();
 
         // Find the path
         Path path;
@@ -108,85 +340,203 @@ public class DayDB {
         } else
             path = Paths.get(uri);
 
+        // Use the snapshot if the spreadsheet hasn't changed since it was written
+        final Path snapshot = snapshotPath(context, symbol, path);
+        if (null != snapshot && loadFromSnapshot(symbol, path, snapshot)) {
+            StoreMetrics.recordInitialize(SNAPSHOT, System.nanoTime() - start);
+            if (VERBOSE)
+                logger.info(String.format("Loaded %s records from %s.", registry.get(symbol).size(), snapshot));
+            return;
+        }
+
         // Load and log
-        loadFromSpreadsheet(path);
+        final DaySeries series = registry.load(symbol, path, mode);
         if (VERBOSE)
-            logger.info(String.format("Loaded %s records.", dayList.size()));
+            logger.info(String.format("Loaded %s records.", series.size()));
 
+        if (null != snapshot)
+            saveSnapshot(symbol, path, snapshot);
+        StoreMetrics.recordInitialize("file", System.nanoTime() - start);
     }
 
     /**
-     * Load the Day data from a disk file in xlsx format. I use Apache POI.
+     * Load every data file in a directory, one symbol per file, several at a time.
+     * See {@link UniverseLoader}. A file that fails doesn't stop the others.
      *
-     * @param path The target file path (relative).
-     * @throws IOException
+     * @param directory
+     * @return a result per file, by file name
+     * @throws IOException if the directory can't be listed
      */
-    public static void loadFromSpreadsheet(@NonNull final Path path) throws IOException {
-        Preconditions.checkNotNull(path);
-
-        // Loop through each row in the spreadsheet
-        try (XSSFWorkbook workbook = new XSSFWorkbook(new FileInputStream(path.toFile()))) {
-            final XSSFSheet sheet = workbook.getSheetAt(0);
-            final Iterator<Row> ri = sheet.iterator();
-
-            // Skip header row, or fail if emtpy
-            if (ri.hasNext())
-                ri.next();
-            else
-                return;
+    @NonNull
+    public static List<LoadResult> loadUniverse(@NonNull final Path directory) throws IOException {
+        try (UniverseLoader loader = new UniverseLoader(registry)) {
+            return loader.load(directory);
+        }
+    }
 
-            // Load row cells into a Day object and save it.
-            while (ri.hasNext()) {
-                final Row row = ri.next();
-                final Iterator<Cell> ci = row.cellIterator();
-                Cell c;
+    /**
+     * Make the directory named by {@link #UNIVERSE_PROPERTY}, a resource location
+     * such as classpath:data or file:/srv/tna, available. Blank does nothing. The
+     * directory has to be on disk, not inside a packaged jar.
+     * <p>
+     * By default ({@link #UNIVERSE_LAZY_PROPERTY}) symbols are only registered here
+     * and each loads on first use; the comma separated symbols in
+     * {@link #UNIVERSE_WARM_PROPERTY} are loaded in the background straight away.
+     * Otherwise every file is loaded before returning.
+     *
+     * @param context
+     * @return the symbols registered, or loaded, sorted
+     * @throws IOException if the directory can't be found or listed
+     */
+    @NonNull
+    public static Set<String> initializeUniverse(@NonNull final ApplicationContext context) throws IOException {
+        Preconditions.checkNotNull(context);
+        final Environment env = context.getEnvironment();
+        final String location = env.getProperty(UNIVERSE_PROPERTY);
+        if (null == location || location.isBlank())
+            return Set.of();
+
+        final Path directory;
+        try {
+            directory = Paths.get(context.getResource(location.trim()).getURI());
+        } catch (final FileSystemNotFoundException e) {
+            throw new IOException(String.format("%s isn't a directory on disk", location), e);
+        }
 
-                // The day's calendar date
-                c = ci.next();
-                final LocalDateTime date = c.getLocalDateTimeCellValue();
+        try (UniverseLoader loader = new UniverseLoader(registry)) {
+            if (!env.getProperty(UNIVERSE_LAZY_PROPERTY, Boolean.class, true)) {
+                final Set<String> loaded = new TreeSet<>();
+                for (final LoadResult result : loader.load(directory))
+                    if (result.isLoaded())
+                        loaded.add(result.getSymbol());
+                return Collections.unmodifiableSet(loaded);
+            }
 
-                // The day's opening price
-                c = ci.next();
-                final Double open = c.getNumericCellValue();
+            final Set<String> symbols = loader.register(directory);
+            final Set<String> hot = new LinkedHashSet<>();
+            for (final String symbol : env.getProperty(UNIVERSE_WARM_PROPERTY, "").split(","))
+                if (!symbol.isBlank())
+                    hot.add(SeriesRegistry.normalize(symbol));
+            if (!hot.isEmpty())
+                loader.warm(hot);
+            return symbols;
+        }
+    }
 
-                // The day's high price
-                c = ci.next();
-                final Double high = c.getNumericCellValue();
+    /**
+     * Replace the database with the contents of a snapshot.
+     *
+     * @param source   The spreadsheet the snapshot was taken from
+     * @param snapshot The snapshot file
+     * @return true if the snapshot was current and loaded
+     */
+    public static boolean loadFromSnapshot(@NonNull final Path source, @NonNull final Path snapshot) {
+        return loadFromSnapshot(DEFAULT_SYMBOL, source, snapshot);
+    }
 
-                // The day's low price
-                c = ci.next();
-                final Double low = c.getNumericCellValue();
+    /**
+     * Replace a security's series with the contents of a snapshot.
+     *
+     * @param symbol   The security
+     * @param source   The spreadsheet the snapshot was taken from
+     * @param snapshot The snapshot file
+     * @return true if the snapshot was current and loaded
+     */
+    public static boolean loadFromSnapshot(@NonNull final String symbol, @NonNull final Path source,
+            @NonNull final Path snapshot) {
+        Preconditions.checkNotNull(symbol);
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(snapshot);
+
+        try {
+            final long start = System.nanoTime();
+            final DaySeries loaded = SnapshotFile.read(source, snapshot);
+            if (null == loaded)
+                return false;
+            StoreMetrics.recordLoad(SNAPSHOT, snapshot, loaded.size(), System.nanoTime() - start);
+            registry.put(symbol, loaded);
+            return true;
+        } catch (final IOException e) {
+            logger.warn(String.format("Ignoring unreadable snapshot %s", snapshot), e);
+            return false;
+        }
+    }
 
-                // The day's closing price
-                c = ci.next();
-                final Double close = c.getNumericCellValue();
+    /**
+     * Write the database to a snapshot. Failure only costs the next start a
+     * spreadsheet parse, so it is logged rather than thrown.
+     *
+     * @param source   The spreadsheet the data came from
+     * @param snapshot The snapshot file
+     */
+    public static void saveSnapshot(@NonNull final Path source, @NonNull final Path snapshot) {
+        saveSnapshot(DEFAULT_SYMBOL, source, snapshot);
+    }
 
-                // The day's adjusted closing price
-                c = ci.next();
-                final Double adjClose = c.getNumericCellValue();
+    /**
+     * Write a security's series to a snapshot. Failure is logged rather than
+     * thrown.
+     *
+     * @param symbol   The security
+     * @param source   The spreadsheet the data came from
+     * @param snapshot The snapshot file
+     */
+    public static void saveSnapshot(@NonNull final String symbol, @NonNull final Path source,
+            @NonNull final Path snapshot) {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(snapshot);
 
-                // The day's volume
-                c = ci.next();
-                final Long volume = (long) c.getNumericCellValue();
+        final DaySeries series = registry.get(symbol);
+        if (null == series)
+            return;
 
-                // Create the day
-                final Day day = new Day(date, open, high, low, close, adjClose, volume);
+        try {
+            SnapshotFile.write(series, source, snapshot);
+        } catch (final IOException e) {
+            logger.warn(String.format("Couldn't write snapshot %s", snapshot), e);
+        }
+    }
 
-                // Save to ordered list
-                dayList.add(day);
+    /*
+     * Snapshots go in the directory named by SNAPSHOT_DIR_PROPERTY. Blank turns them
+     * off.
+     */
+    private static Path snapshotPath(final ApplicationContext context, final String symbol, final Path source) {
+        final String dir = context.getEnvironment().getProperty(SNAPSHOT_DIR_PROPERTY);
+        if (null == dir || dir.isBlank())
+            return null;
+        final String name = String.format("%s-%s.snap", SeriesRegistry.normalize(symbol), source.getFileName());
+        return Paths.get(dir).resolve(name);
+    }
 
-                // Save to map
-                dayMap.put(date, day);
+    /**
+     * Load the Day data from a disk file, xlsx or CSV, with the chosen reader.
+     *
+     * @param path The target file path (relative).
+     * @param mode Which reader to use
+     * @throws IOException
+     */
+    public static void loadFromSpreadsheet(@NonNull final Path path, @NonNull final LoadMode mode)
+            throws IOException {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(mode);
 
-                if (VERBOSE)
-                    logger.info(String.format("Added %s", day.toString()));
-            }
+        final DaySeries series = getSeries();
+        StoreMetrics.load(mode, path, series);
 
-            // dayList.add assembles these days in the wrong order. The data file is date
-            // descending order. We want the other direction, with earliest date first..
-            Lists.reverse(dayList);
+        // The data file is date descending order. We want the other direction, with
+        // earliest date first.
+        series.sortByDate();
+    }
 
-        }
+    /**
+     * Load the Day data from a disk file in xlsx format. I use Apache POI.
+     *
+     * @param path The target file path (relative).
+     * @throws IOException
+     */
+    public static void loadFromSpreadsheet(@NonNull final Path path) throws IOException {
+        loadFromSpreadsheet(path, LoadMode.DOM);
     }
 
     /*
@@ -195,14 +545,13 @@ public class DayDB {
     private static final boolean VERBOSE = false;
 
     /*
-     * Data stored as a linear list.
+     * Data stored as one column series per security. The list and map are views
+     * onto the default security's series.
      */
-    private static final List<Day> dayList = new ArrayList<>();
-
-    /*
-     * Data stored as a map indexed by date.
-     */
-    private static final Map<LocalDateTime, Day> dayMap = new HashMap<>();
+    private static final SeriesRegistry registry = new SeriesRegistry();
+    static {
+        StoreMetrics.bind(Metrics.globalRegistry, registry);
+    }
 
     /*************************************************************
      * Miscellaneous
@@ -211,4 +560,16 @@ public class DayDB {
 
     public static final String DB_FILE = "data/tna.xlsx";
 
+    public static final String DEFAULT_SYMBOL = "TNA";
+
+    public static final String SNAPSHOT_DIR_PROPERTY = "tna.snapshot.dir";
+
+    public static final String UNIVERSE_PROPERTY = "tna.universe.location";
+
+    public static final String UNIVERSE_LAZY_PROPERTY = "tna.universe.lazy";
+
+    public static final String UNIVERSE_WARM_PROPERTY = "tna.universe.warm";
+
+    private static final String SNAPSHOT = "snapshot";
+
 }
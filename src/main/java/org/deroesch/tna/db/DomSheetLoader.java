@@ -0,0 +1,107 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Loads an xlsx file by opening the whole workbook with XSSFWorkbook. Expects a
+ * header row, then date, open, high, low, close, adjusted close and volume.
+ */
+public class DomSheetLoader {
+
+    /**
+     * Append every row of the first sheet to the series.
+     *
+     * @param path   The xlsx file
+     * @param series Where to put the bars
+     * @return the number of bars added
+     * @throws IOException
+     */
+    public static int load(@NonNull final Path path, @NonNull final DaySeries series) throws IOException {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(series);
+
+        int added = 0;
+
+        // Loop through each row in the spreadsheet
+        try (InputStream in = Files.newInputStream(path); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            final XSSFSheet sheet = workbook.getSheetAt(0);
+            final Iterator<Row> ri = sheet.iterator();
+
+            // Skip header row, or fail if emtpy
+            if (ri.hasNext())
+                ri.next();
+            else
+                return added;
+
+            // Load row cells straight into the columns.
+            while (ri.hasNext()) {
+                final Row row = ri.next();
+                final Iterator<Cell> ci = row.cellIterator();
+                Cell c;
+
+                // The day's calendar date
+                c = ci.next();
+                final LocalDateTime date = c.getLocalDateTimeCellValue();
+
+                // The day's opening price
+                c = ci.next();
+                final double open = c.getNumericCellValue();
+
+                // The day's high price
+                c = ci.next();
+                final double high = c.getNumericCellValue();
+
+                // The day's low price
+                c = ci.next();
+                final double low = c.getNumericCellValue();
+
+                // The day's closing price
+                c = ci.next();
+                final double close = c.getNumericCellValue();
+
+                // The day's adjusted closing price
+                c = ci.next();
+                final double adjClose = c.getNumericCellValue();
+
+                // The day's volume
+                c = ci.next();
+                final long volume = (long) c.getNumericCellValue();
+
+                // Save the bar
+                final int i = series.add(date, open, high, low, close, adjClose, volume);
+                added++;
+
+                if (VERBOSE)
+                    logger.info(String.format("Added %s", series.getDay(i).toString()));
+            }
+        }
+        return added;
+    }
+
+    /*
+     * Print all the Days while loading?
+     */
+    private static final boolean VERBOSE = false;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DomSheetLoader.class);
+
+}
@@ -0,0 +1,208 @@
+package org.deroesch.tna.db;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Computed indicator columns, kept until they're stale or pushed out. Bounded by
+ * total column bytes, least recently used first.
+ * <p>
+ * Each entry remembers the {@link DaySeries#getVersion() data version} it was
+ * computed from, and a lookup only hits if the series is still at that version.
+ * So an append, sort or reload invalidates a symbol's columns by itself; the
+ * stale entry is replaced on the next lookup. {@link SeriesRegistry} also drops a
+ * symbol's entries outright when the symbol is replaced or removed.
+ * <p>
+ * Columns are shared between callers. Don't modify them.
+ */
+public class IndicatorCache {
+
+    /**
+     * @param maximumBytes Upper bound on the bytes held by cached columns
+     */
+    public IndicatorCache(@Positive final long maximumBytes) {
+        Preconditions.checkArgument(maximumBytes > 0);
+        this.maximumBytes = maximumBytes;
+        this.cache = CacheBuilder.newBuilder().maximumWeight(maximumBytes)
+                .weigher((final Key k, final Entry e) -> e.weight()).recordStats().build();
+    }
+
+    /**
+     * The indicator's column for the series, computed if it isn't cached at the
+     * series' current version.
+     *
+     * @param symbol The series' symbol
+     * @param series
+     * @param spec
+     * @return the column, aligned with the series. Read only.
+     */
+    @NonNull
+    public double[] get(@NonNull final String symbol, @NonNull final DaySeries series,
+            @NonNull final IndicatorSpec spec) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(spec);
+        final Key key = new Key(SeriesRegistry.normalize(symbol), spec);
+
+        // Read the version first, so a concurrent append makes this entry stale
+        // rather than wrongly current
+        final long version = series.getVersion();
+        final Entry entry = cache.getIfPresent(key);
+        if (null != entry && entry.version == version) {
+            hits.increment();
+            return entry.column;
+        }
+
+        misses.increment();
+        final long start = System.nanoTime();
+        final double[] column = spec.compute(series);
+        StoreMetrics.recordIndicator(spec.getType(), System.nanoTime() - start);
+        cache.put(key, new Entry(version, column));
+        return column;
+    }
+
+    /**
+     * Drop every entry for a symbol.
+     *
+     * @param symbol
+     */
+    public void invalidate(@NonNull final String symbol) {
+        final String s = SeriesRegistry.normalize(symbol);
+        cache.asMap().keySet().removeIf(k -> k.symbol.equals(s));
+    }
+
+    /**
+     * Drop everything.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups that had to compute, including stale entries
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits / lookups, or 1 if there have been no lookups
+     */
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return 0 == total ? 1.0 : (double) h / total;
+    }
+
+    /**
+     * @return entries pushed out to stay under the byte bound
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * @return the number of cached columns
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return bytes held by cached columns
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (final Entry entry : cache.asMap().values())
+            bytes += entry.weight();
+        return bytes;
+    }
+
+    /**
+     * @return the byte bound
+     */
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    /*
+     * Symbol (normalized) and indicator
+     */
+    private static final class Key {
+
+        Key(final String symbol, final IndicatorSpec spec) {
+            this.symbol = symbol;
+            this.spec = spec;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(symbol, spec);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return symbol.equals(other.symbol) && spec.equals(other.spec);
+        }
+
+        final String symbol;
+        final IndicatorSpec spec;
+    }
+
+    /*
+     * A column and the data version it was computed from
+     */
+    private static final class Entry {
+
+        Entry(final long version, final double[] column) {
+            this.version = version;
+            this.column = column;
+        }
+
+        int weight() {
+            return (int) Math.min(Integer.MAX_VALUE, (long) column.length * Double.BYTES + ENTRY_BYTES);
+        }
+
+        final long version;
+        final double[] column;
+    }
+
+    /*
+     * Fields
+     */
+    private final long maximumBytes;
+    private final Cache<Key, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /*************************************************************
+     * Miscellaneous
+     */
+
+    /*
+     * Rough cost of an entry besides its column: key, entry and array headers plus
+     * the cache's own node.
+     */
+    private static final int ENTRY_BYTES = 128;
+
+}
@@ -0,0 +1,77 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How DayDB reads a data file: an xlsx workbook or a CSV export.
+ */
+public enum LoadMode {
+
+    /**
+     * Open the whole workbook with XSSFWorkbook. Simple, but holds the sheet's DOM
+     * in memory while loading.
+     */
+    DOM {
+        @Override
+        public int load(final Path path, final DaySeries series) throws IOException {
+            return DomSheetLoader.load(path, series);
+        }
+    },
+
+    /**
+     * Parse the sheet with SAX through {@link StreamingSheetLoader}. Memory stays
+     * bounded by the loaded series.
+     */
+    STREAMING {
+        @Override
+        public int load(final Path path, final DaySeries series) throws IOException {
+            return StreamingSheetLoader.load(path, series);
+        }
+    },
+
+    /**
+     * Parse a CSV file with {@link CsvLoader}, straight from the bytes.
+     */
+    CSV {
+        @Override
+        public int load(final Path path, final DaySeries series) throws IOException {
+            return CsvLoader.load(path, series);
+        }
+    };
+
+    /**
+     * The mode for a file, by extension: the streaming reader for xlsx, since
+     * several workbooks may be open at once, and CSV for csv.
+     *
+     * @param path
+     * @return the mode, or null if the file isn't a data file
+     */
+    public static LoadMode forPath(@NonNull final Path path) {
+        Preconditions.checkNotNull(path);
+        final Path name = path.getFileName();
+        final String s = null == name ? "" : name.toString().toLowerCase(Locale.ROOT);
+        if (s.endsWith(".xlsx"))
+            return STREAMING;
+        if (s.endsWith(".csv"))
+            return CSV;
+        return null;
+    }
+
+    /**
+     * Append every row of the file to the series, in file order.
+     *
+     * @param path   The file
+     * @param series Where to put the bars
+     * @return the number of bars added
+     * @throws IOException
+     */
+    public abstract int load(Path path, DaySeries series) throws IOException;
+
+}
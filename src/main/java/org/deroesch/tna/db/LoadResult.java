@@ -0,0 +1,95 @@
+package org.deroesch.tna.db;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * What happened to one file in a {@link UniverseLoader} run: how many bars it
+ * gave and how long it took, or why it failed.
+ */
+public class LoadResult {
+
+    /**
+     * @param symbol  The symbol the file was loaded under
+     * @param path    The file
+     * @param bars    Bars loaded, 0 on failure
+     * @param elapsed Time spent reading and parsing
+     * @param error   Why it failed, or null
+     */
+    public LoadResult(@NonNull final String symbol, @NonNull final Path path, final int bars,
+            @NonNull final Duration elapsed, final Exception error) {
+        Preconditions.checkNotNull(symbol);
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(elapsed);
+        this.symbol = symbol;
+        this.path = path;
+        this.bars = bars;
+        this.elapsed = elapsed;
+        this.error = error;
+    }
+
+    /**
+     * @return the symbol
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return bars loaded
+     */
+    public int getBars() {
+        return bars;
+    }
+
+    /**
+     * @return time spent reading and parsing
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return why the file failed, or null
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return true if the symbol was loaded
+     */
+    public boolean isLoaded() {
+        return null == error;
+    }
+
+    @Override
+    public String toString() {
+        if (isLoaded())
+            return String.format("%s: %d bars from %s in %d ms", symbol, bars, path.getFileName(),
+                    elapsed.toMillis());
+        return String.format("%s: %s failed after %d ms: %s", symbol, path.getFileName(), elapsed.toMillis(),
+                error.getMessage());
+    }
+
+    /*
+     * Fields
+     */
+    private final String symbol;
+    private final Path path;
+    private final int bars;
+    private final Duration elapsed;
+    private final Exception error;
+
+}
@@ -0,0 +1,361 @@
+package org.deroesch.tna.db;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesSlice;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A compact binary form of a series, for shipping bars to other Java services
+ * without formatting or parsing text.
+ * <p>
+ * Layout, little-endian: a 32 byte header (magic, version, flags, bar count, raw
+ * body size, body size on the wire, CRC32 of the raw body) followed by the body.
+ * The raw body is columnar: opens, highs, lows, closes, adjusted closes as
+ * 8-byte doubles, then volumes as 8-byte longs, then the times. The first time
+ * is 8 bytes; each later one is the zigzag varint of its difference from the
+ * one before, which for daily bars is 3 bytes instead of 8. With
+ * {@link #FLAG_DEFLATE} the body is deflated.
+ * <p>
+ * Unlike {@link SnapshotFile}, this isn't tied to a source file, and a bad stream
+ * is an error rather than a cache miss. The header is checked before anything is
+ * sized from it: the raw body size must fit the bar count, a deflated body must
+ * be big enough to inflate to it, and the body is read in growing chunks, so a
+ * forged header can't make the reader allocate much more than it was sent.
+ */
+public class SeriesCodec {
+
+    /**
+     * Write a whole series.
+     *
+     * @param series
+     * @param out      Left open
+     * @param compress Deflate the body
+     * @return the bytes written
+     * @throws IOException
+     */
+    public static long write(@NonNull final DaySeries series, @NonNull final WritableByteChannel out,
+            final boolean compress) throws IOException {
+        Preconditions.checkNotNull(series);
+        return write(series.slice(0, series.size()), out, compress);
+    }
+
+    /**
+     * Write part of a series.
+     *
+     * @param slice
+     * @param out      Left open
+     * @param compress Deflate the body
+     * @return the bytes written
+     * @throws IOException
+     */
+    public static long write(@NonNull final SeriesSlice slice, @NonNull final WritableByteChannel out,
+            final boolean compress) throws IOException {
+        Preconditions.checkNotNull(slice);
+        Preconditions.checkNotNull(out);
+
+        final ByteBuffer raw = encode(slice);
+        final int rawBytes = raw.remaining();
+        final CRC32 crc = new CRC32();
+        crc.update(raw.duplicate());
+        final ByteBuffer body = compress ? deflate(raw) : raw;
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(compress ? FLAG_DEFLATE : 0).putInt(slice.size())
+                .putInt(rawBytes).putInt(body.remaining()).putInt((int) crc.getValue()).putInt(0).flip();
+
+        final long length = HEADER_BYTES + body.remaining();
+        writeFully(out, header, body);
+        return length;
+    }
+
+    /**
+     * Write a series to a file, replacing it.
+     *
+     * @param series
+     * @param file
+     * @param compress Deflate the body
+     * @return the bytes written
+     * @throws IOException
+     */
+    public static long write(@NonNull final DaySeries series, @NonNull final Path file, final boolean compress)
+            throws IOException {
+        Preconditions.checkNotNull(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return write(series, ch, compress);
+        }
+    }
+
+    /**
+     * Read one series. Reads exactly the encoded bytes, so several series can
+     * follow each other on one channel.
+     *
+     * @param in Left open
+     * @return the series
+     * @throws IOException on a truncated or corrupt stream, or one from another
+     *                     format version
+     */
+    @NonNull
+    public static DaySeries read(@NonNull final ReadableByteChannel in) throws IOException {
+        Preconditions.checkNotNull(in);
+
+        final ByteBuffer header = readFully(in, HEADER_BYTES);
+        if (MAGIC != header.getInt(0))
+            throw new IOException("Not a series stream");
+        if (VERSION != header.getInt(4))
+            throw new IOException(String.format("Unsupported series format version %d", header.getInt(4)));
+
+        final int flags = header.getInt(8);
+        final int n = header.getInt(12);
+        final int rawBytes = header.getInt(16);
+        final int bodyBytes = header.getInt(20);
+        final boolean deflated = 0 != (flags & FLAG_DEFLATE);
+        if ((flags & ~FLAG_DEFLATE) != 0 || n < 0 || rawBytes < minRawBytes(n) || rawBytes > maxRawBytes(n)
+                || bodyBytes < 0
+                || (deflated ? rawBytes > (long) bodyBytes * MAX_DEFLATE_RATIO : bodyBytes != rawBytes))
+            throw new IOException("Corrupt series header");
+
+        final ByteBuffer body = readFully(in, bodyBytes);
+        final ByteBuffer raw = deflated ? inflate(body, rawBytes) : body;
+
+        final CRC32 crc = new CRC32();
+        crc.update(raw.duplicate());
+        if ((int) crc.getValue() != header.getInt(24))
+            throw new IOException("Series checksum mismatch");
+
+        return decode(raw, n);
+    }
+
+    /**
+     * Read a series from a file.
+     *
+     * @param file
+     * @return the series
+     * @throws IOException
+     */
+    @NonNull
+    public static DaySeries read(@NonNull final Path file) throws IOException {
+        Preconditions.checkNotNull(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(ch);
+        }
+    }
+
+    /*************************************************************
+     * Internals
+     */
+
+    private static ByteBuffer encode(final SeriesSlice slice) {
+        final DaySeries series = slice.getSeries();
+        final int from = slice.getFrom();
+        final int n = slice.size();
+
+        final long max = maxRawBytes(n);
+        Preconditions.checkArgument(max < Integer.MAX_VALUE, "Series too large to encode");
+        final ByteBuffer buf = ByteBuffer.allocate((int) max).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (final double[] column : priceColumns(series)) {
+            buf.asDoubleBuffer().put(column, from, n);
+            buf.position(buf.position() + n * Double.BYTES);
+        }
+        buf.asLongBuffer().put(series.getVolumeColumn(), from, n);
+        buf.position(buf.position() + n * Long.BYTES);
+
+        final long[] times = series.getTimeColumn();
+        if (n > 0)
+            buf.putLong(times[from]);
+        for (int i = from + 1; i < from + n; i++)
+            putVarint(buf, zigzag(times[i] - times[i - 1]));
+        return buf.flip();
+    }
+
+    private static DaySeries decode(final ByteBuffer raw, final int n) throws IOException {
+        final double[][] prices = new double[PRICE_COLUMNS][n];
+        final long[] volumes = new long[n];
+        final long[] times = new long[n];
+
+        for (final double[] column : prices) {
+            raw.asDoubleBuffer().get(column);
+            raw.position(raw.position() + n * Double.BYTES);
+        }
+        raw.asLongBuffer().get(volumes);
+        raw.position(raw.position() + n * Long.BYTES);
+
+        if (n > 0)
+            times[0] = raw.getLong();
+        for (int i = 1; i < n; i++)
+            times[i] = times[i - 1] + unzigzag(getVarint(raw));
+        if (raw.hasRemaining())
+            throw new IOException("Corrupt series body");
+
+        return DaySeries.wrap(n, times, prices[0], prices[1], prices[2], prices[3], prices[4], volumes);
+    }
+
+    /*
+     * Price columns in stream order.
+     */
+    private static double[][] priceColumns(final DaySeries series) {
+        return new double[][] { series.getOpenColumn(), series.getHighColumn(), series.getLowColumn(),
+                series.getCloseColumn(), series.getAdjCloseColumn() };
+    }
+
+    /*
+     * Raw body size bounds for n bars: every later time takes 1 to 10 bytes. The
+     * upper one is also capped below Integer.MAX_VALUE, as encode() requires.
+     */
+    private static long minRawBytes(final int n) {
+        return 0 == n ? 0 : (long) n * (FIXED_BYTES_PER_BAR + 1) + Long.BYTES - 1;
+    }
+
+    private static long maxRawBytes(final int n) {
+        final long max = 0 == n ? 0 : (long) n * FIXED_BYTES_PER_BAR + Long.BYTES + (n - 1L) * MAX_VARINT_BYTES;
+        return Math.min(max, Integer.MAX_VALUE - 1L);
+    }
+
+    /*
+     * Small differences of either sign become small unsigned values.
+     */
+    private static long zigzag(final long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(final long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void putVarint(final ByteBuffer buf, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private static long getVarint(final ByteBuffer buf) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            if (!buf.hasRemaining())
+                throw new IOException("Corrupt series body");
+            final byte b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+        throw new IOException("Corrupt series body");
+    }
+
+    private static ByteBuffer deflate(final ByteBuffer raw) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteBuffer out = ByteBuffer.allocate(Math.max(MIN_DEFLATE_BUFFER, raw.remaining() / 2));
+            while (!deflater.finished()) {
+                if (!out.hasRemaining())
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                deflater.deflate(out);
+            }
+            return out.flip();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(final ByteBuffer body, final int rawBytes) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            // One spare byte, so a body that inflates to too much is caught
+            final ByteBuffer raw = ByteBuffer.allocate(rawBytes + 1).order(ByteOrder.LITTLE_ENDIAN);
+            while (raw.hasRemaining() && !inflater.finished()) {
+                if (0 == inflater.inflate(raw) && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+            }
+            if (raw.position() != rawBytes || !inflater.finished())
+                throw new IOException("Corrupt series body");
+            return raw.flip();
+        } catch (final DataFormatException e) {
+            throw new IOException("Corrupt series body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeFully(final WritableByteChannel out, final ByteBuffer... buffers) throws IOException {
+        if (out instanceof GatheringByteChannel) {
+            final GatheringByteChannel gather = (GatheringByteChannel) out;
+            while (buffers[buffers.length - 1].hasRemaining())
+                gather.write(buffers);
+        } else {
+            for (final ByteBuffer buf : buffers)
+                while (buf.hasRemaining())
+                    out.write(buf);
+        }
+    }
+
+    /*
+     * Starts small and doubles, so a length from a forged header fails at the
+     * end of the stream before it's all allocated.
+     */
+    private static ByteBuffer readFully(final ReadableByteChannel in, final int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Math.min(length, READ_CHUNK)).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+            while (buf.hasRemaining())
+                if (in.read(buf) < 0)
+                    throw new EOFException("Truncated series stream");
+            if (buf.capacity() == length)
+                return buf.flip();
+            final int capacity = (int) Math.min(length, 2L * buf.capacity());
+            buf = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN).put(buf.flip());
+        }
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+
+    /**
+     * Header flag: the body is deflated.
+     */
+    public static final int FLAG_DEFLATE = 1;
+
+    /*
+     * "TNAW"
+     */
+    private static final int MAGIC = 0x544E4157;
+
+    /*
+     * Bump whenever the layout changes.
+     */
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int PRICE_COLUMNS = 5;
+    private static final int FIXED_BYTES_PER_BAR = (PRICE_COLUMNS + 1) * Long.BYTES;
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final int MIN_DEFLATE_BUFFER = 64;
+    private static final int READ_CHUNK = 64 * 1024;
+
+    /*
+     * Deflate can't do better than about 1032 to 1.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+}
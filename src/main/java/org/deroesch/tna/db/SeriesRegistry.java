@@ -0,0 +1,393 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.models.DaySeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Day series for many securities, keyed by ticker symbol. Symbols are case
+ * insensitive. Safe to load and query from several threads at once: a load
+ * builds its series off to the side and publishes it in one step, so readers see
+ * either the old series or the complete new one.
+ * <p>
+ * A symbol can also be {@link #register registered} with just the file it comes
+ * from. Its series is then loaded on first access. Concurrent first accesses
+ * share one load, and a failed load isn't remembered, so the next access tries
+ * again.
+ */
+public class SeriesRegistry {
+
+    /**
+     * A registry with the default indicator cache bound.
+     */
+    public SeriesRegistry() {
+        this(DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param cacheBytes Bound on bytes held by cached indicator columns
+     */
+    public SeriesRegistry(final long cacheBytes) {
+        indicators = new IndicatorCache(cacheBytes);
+    }
+
+    /**
+     * @param symbol
+     * @return the symbol's series, loading it first if it's registered but not
+     *         loaded, or null if there's no such symbol
+     * @throws UncheckedIOException if a registered file can't be loaded
+     */
+    public DaySeries get(@NonNull final String symbol) {
+        final String key = normalize(symbol);
+        final DaySeries days = series.get(key);
+        return null != days || !sources.containsKey(key) ? days : loadRegistered(key);
+    }
+
+    /**
+     * @param symbol
+     * @return the symbol's series, creating an empty one if needed
+     */
+    @NonNull
+    public DaySeries getOrCreate(@NonNull final String symbol) {
+        final DaySeries days = get(symbol);
+        return null != days ? days : series.computeIfAbsent(normalize(symbol), s -> new DaySeries());
+    }
+
+    /**
+     * Say where a symbol's data is without loading it. The first
+     * {@link #get(String)} loads it. A series already loaded for the symbol stays
+     * until it's unloaded.
+     *
+     * @param symbol
+     * @param path   The xlsx or CSV file
+     * @param mode   Which reader to use
+     */
+    public void register(@NonNull final String symbol, @NonNull final Path path, @NonNull final LoadMode mode) {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(mode);
+        sources.put(normalize(symbol), new Source(path, mode));
+    }
+
+    /**
+     * Drop a registered symbol's series to free its memory. It's loaded again on
+     * next access. Symbols that aren't registered are left alone.
+     *
+     * @param symbol
+     * @return true if a series was dropped
+     */
+    public boolean unload(@NonNull final String symbol) {
+        final String key = normalize(symbol);
+        if (!sources.containsKey(key) || null == series.remove(key))
+            return false;
+        indicators.invalidate(key);
+        return true;
+    }
+
+    /**
+     * @param symbol
+     * @return true if the symbol's series is in memory
+     */
+    public boolean isLoaded(@NonNull final String symbol) {
+        return series.containsKey(normalize(symbol));
+    }
+
+    /**
+     * Load registered symbols in the background, so the first request for them
+     * doesn't wait. Each load shares any first access that arrives meanwhile.
+     * Failures are logged.
+     *
+     * @param symbols
+     * @param executor Runs the loads
+     * @return completes when every load has finished, failed or not
+     */
+    @NonNull
+    public CompletableFuture<Void> warm(@NonNull final Collection<String> symbols, @NonNull final Executor executor) {
+        Preconditions.checkNotNull(symbols);
+        Preconditions.checkNotNull(executor);
+
+        final List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (final String symbol : symbols)
+            loads.add(CompletableFuture.runAsync(() -> {
+                try {
+                    if (null == get(symbol))
+                        logger.warn(String.format("Can't warm %s: not registered", symbol));
+                } catch (final RuntimeException e) {
+                    logger.warn(String.format("Can't warm %s", symbol), e);
+                }
+            }, executor));
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Register a series, replacing any previous one for the symbol.
+     *
+     * @param symbol
+     * @param days
+     */
+    public void put(@NonNull final String symbol, @NonNull final DaySeries days) {
+        Preconditions.checkNotNull(days);
+        final String key = normalize(symbol);
+        series.put(key, days);
+        indicators.invalidate(key);
+    }
+
+    /**
+     * @param symbol
+     * @return the removed series, or null
+     */
+    public DaySeries remove(@NonNull final String symbol) {
+        final String key = normalize(symbol);
+        sources.remove(key);
+        final DaySeries removed = series.remove(key);
+        indicators.invalidate(key);
+        return removed;
+    }
+
+    /**
+     * @param symbol
+     * @return true if the symbol has a series, loaded or not
+     */
+    public boolean contains(@NonNull final String symbol) {
+        final String key = normalize(symbol);
+        return series.containsKey(key) || sources.containsKey(key);
+    }
+
+    /**
+     * @return every symbol, loaded or not, sorted. A copy.
+     */
+    @NonNull
+    public Set<String> getSymbols() {
+        final Set<String> symbols = new TreeSet<>(series.keySet());
+        symbols.addAll(sources.keySet());
+        return Collections.unmodifiableSet(symbols);
+    }
+
+    /**
+     * @return every loaded series by symbol, sorted. A point-in-time copy, safe to
+     *         hand to other threads. Doesn't load registered symbols.
+     */
+    @NonNull
+    public Map<String, DaySeries> getAll() {
+        return Collections.unmodifiableMap(new TreeMap<>(series));
+    }
+
+    /**
+     * @return the number of symbols, loaded or not
+     */
+    public int size() {
+        return getSymbols().size();
+    }
+
+    /**
+     * Drop every series and registration.
+     */
+    public void clear() {
+        sources.clear();
+        series.clear();
+        indicators.invalidateAll();
+    }
+
+    /**
+     * Load a data file into a new series, sort it by date and register it under
+     * symbol. Different symbols can be loaded concurrently.
+     *
+     * @param symbol
+     * @param path   The xlsx or CSV file
+     * @param mode   Which reader to use
+     * @return the loaded series
+     * @throws IOException
+     */
+    @NonNull
+    public DaySeries load(@NonNull final String symbol, @NonNull final Path path, @NonNull final LoadMode mode)
+            throws IOException {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(mode);
+        final String key = normalize(symbol);
+
+        final DaySeries days = read(path, mode);
+        series.put(key, days);
+        indicators.invalidate(key);
+        return days;
+    }
+
+    /**
+     * An indicator column for a symbol, from the cache if the symbol's data hasn't
+     * changed since it was last computed.
+     *
+     * @param symbol
+     * @param spec
+     * @return the column, read only, or null if the symbol isn't loaded
+     */
+    public double[] getIndicator(@NonNull final String symbol, @NonNull final IndicatorSpec spec) {
+        final DaySeries days = get(symbol);
+        return null == days ? null : indicators.get(symbol, days, spec);
+    }
+
+    /**
+     * @return the cache behind getIndicator()
+     */
+    @NonNull
+    public IndicatorCache getIndicatorCache() {
+        return indicators;
+    }
+
+    /**
+     * @param symbol
+     * @return estimated heap bytes held by the symbol's series, 0 if not loaded
+     */
+    public long estimateBytes(@NonNull final String symbol) {
+        final DaySeries days = get(symbol);
+        return null == days ? 0 : days.estimateBytes();
+    }
+
+    /**
+     * @return estimated heap bytes held by all series
+     */
+    public long estimateBytes() {
+        long total = 0;
+        for (final DaySeries days : series.values())
+            total += days.estimateBytes();
+        return total;
+    }
+
+    /**
+     * @return estimated heap bytes per symbol, sorted by symbol
+     */
+    @NonNull
+    public Map<String, Long> getMemoryReport() {
+        final Map<String, Long> report = new TreeMap<>();
+        series.forEach((symbol, days) -> report.put(symbol, days.estimateBytes()));
+        return report;
+    }
+
+    /**
+     * Canonical form of a ticker symbol.
+     *
+     * @param symbol
+     * @return the symbol, trimmed and upper case
+     */
+    @NonNull
+    public static String normalize(@NonNull final String symbol) {
+        Preconditions.checkNotNull(symbol);
+        final String s = symbol.trim().toUpperCase(Locale.ROOT);
+        Preconditions.checkArgument(!s.isEmpty(), "Empty symbol");
+        return s;
+    }
+
+    /*
+     * Loads the registered file for key, or waits for a load already under way.
+     */
+    private DaySeries loadRegistered(final String key) {
+        final CompletableFuture<DaySeries> mine = new CompletableFuture<>();
+        final CompletableFuture<DaySeries> pending = loading.putIfAbsent(key, mine);
+        if (null != pending)
+            return await(pending);
+
+        try {
+            // Someone may have finished loading between our look and now
+            DaySeries days = series.get(key);
+            final Source source = sources.get(key);
+            if (null == days && null != source) {
+                final long start = System.nanoTime();
+                days = read(source.path, source.mode);
+                logger.info(String.format("Loaded %s: %d bars from %s in %d ms", key, days.size(),
+                        source.path.getFileName(), (System.nanoTime() - start) / 1_000_000));
+
+                // Unless the symbol was removed or re-registered meanwhile
+                if (source == sources.get(key)) {
+                    series.put(key, days);
+                    indicators.invalidate(key);
+                }
+            }
+            mine.complete(days);
+            return days;
+        } catch (final IOException e) {
+            mine.completeExceptionally(e);
+            throw new UncheckedIOException(e);
+        } catch (final RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private static DaySeries read(final Path path, final LoadMode mode) throws IOException {
+        final DaySeries days = new DaySeries();
+        StoreMetrics.load(mode, path, days);
+        days.sortByDate();
+        return days;
+    }
+
+    private static DaySeries await(final CompletableFuture<DaySeries> load) {
+        try {
+            return load.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw new UncheckedIOException((IOException) cause);
+            Throwables.throwIfUnchecked(cause);
+            throw e;
+        }
+    }
+
+    /*
+     * Where a registered symbol's data comes from
+     */
+    private static final class Source {
+
+        Source(final Path path, final LoadMode mode) {
+            this.path = path;
+            this.mode = mode;
+        }
+
+        final Path path;
+        final LoadMode mode;
+    }
+
+    /*
+     * Series by normalized symbol.
+     */
+    private final Map<String, DaySeries> series = new ConcurrentHashMap<>();
+
+    /*
+     * Files for lazily loaded symbols, and the loads under way.
+     */
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<DaySeries>> loading = new ConcurrentHashMap<>();
+
+    /*
+     * Computed indicator columns, dropped per symbol as series are replaced.
+     */
+    private final IndicatorCache indicators;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SeriesRegistry.class);
+
+    public static final long DEFAULT_CACHE_BYTES = 256L << 20;
+
+}
@@ -0,0 +1,168 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A binary copy of a loaded series, so later starts can skip the spreadsheet.
+ * <p>
+ * Layout, little-endian: a 32 byte header (magic, version, source size, source
+ * modification time, bar count, CRC32 of the body) followed by the columns one
+ * after another: times, opens, highs, lows, closes, adjusted closes, volumes.
+ * Every value is 8 bytes wide. The source size and modification time are
+ * checked on read, so editing the spreadsheet invalidates the snapshot.
+ */
+public class SnapshotFile {
+
+    /**
+     * Write the series to a snapshot of source. The file is written beside the
+     * target and then moved into place, so readers never see half a snapshot.
+     *
+     * @param series   The loaded data
+     * @param source   The spreadsheet it came from
+     * @param snapshot Where to write
+     * @throws IOException
+     */
+    public static void write(@NonNull final DaySeries series, @NonNull final Path source,
+            @NonNull final Path snapshot) throws IOException {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(snapshot);
+
+        final int n = series.size();
+        final long length = HEADER_BYTES + (long) n * BYTES_PER_BAR;
+        Preconditions.checkArgument(length <= Integer.MAX_VALUE, "Series too large for a snapshot");
+        final Path dir = snapshot.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path tmp = Files.createTempFile(dir, snapshot.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+
+                final ByteBuffer body = buf.slice(HEADER_BYTES, (int) (length - HEADER_BYTES))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                body.asLongBuffer().put(series.getTimeColumn(), 0, n);
+                body.position(body.position() + n * Long.BYTES);
+                for (final double[] column : priceColumns(series)) {
+                    body.asDoubleBuffer().put(column, 0, n);
+                    body.position(body.position() + n * Double.BYTES);
+                }
+                body.asLongBuffer().put(series.getVolumeColumn(), 0, n);
+
+                buf.putInt(0, MAGIC);
+                buf.putInt(4, VERSION);
+                buf.putLong(8, Files.size(source));
+                buf.putLong(16, Files.getLastModifiedTime(source).toMillis());
+                buf.putInt(24, n);
+                buf.putInt(28, checksum(buf, length));
+                buf.force();
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Map a snapshot and copy its columns into a new series.
+     *
+     * @param source   The spreadsheet the snapshot should have come from
+     * @param snapshot The snapshot file
+     * @return the series, or null if the snapshot is missing, stale, from another
+     *         format version or corrupt
+     * @throws IOException
+     */
+    public static DaySeries read(@NonNull final Path source, @NonNull final Path snapshot) throws IOException {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkNotNull(snapshot);
+
+        if (!Files.isRegularFile(snapshot))
+            return null;
+
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            final long length = ch.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE)
+                return null;
+
+            final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (MAGIC != buf.getInt(0) || VERSION != buf.getInt(4))
+                return null;
+            if (Files.size(source) != buf.getLong(8)
+                    || Files.getLastModifiedTime(source).toMillis() != buf.getLong(16))
+                return null;
+
+            final int n = buf.getInt(24);
+            if (n < 0 || length != HEADER_BYTES + (long) n * BYTES_PER_BAR)
+                return null;
+            if (checksum(buf, length) != buf.getInt(28))
+                return null;
+
+            final long[] times = new long[n];
+            final double[][] prices = new double[PRICE_COLUMNS][n];
+            final long[] volumes = new long[n];
+
+            final ByteBuffer body = buf.slice(HEADER_BYTES, (int) (length - HEADER_BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            body.asLongBuffer().get(times);
+            body.position(body.position() + n * Long.BYTES);
+            for (final double[] column : prices) {
+                body.asDoubleBuffer().get(column);
+                body.position(body.position() + n * Double.BYTES);
+            }
+            body.asLongBuffer().get(volumes);
+
+            return DaySeries.wrap(n, times, prices[0], prices[1], prices[2], prices[3], prices[4], volumes);
+        }
+    }
+
+    /*
+     * Price columns in file order.
+     */
+    private static double[][] priceColumns(final DaySeries series) {
+        return new double[][] { series.getOpenColumn(), series.getHighColumn(), series.getLowColumn(),
+                series.getCloseColumn(), series.getAdjCloseColumn() };
+    }
+
+    private static int checksum(final ByteBuffer buf, final long length) {
+        final CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_BYTES, (int) (length - HEADER_BYTES)));
+        return (int) crc.getValue();
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+
+    /*
+     * "TNAS"
+     */
+    private static final int MAGIC = 0x544E4153;
+
+    /*
+     * Bump whenever the layout changes. Older snapshots are then ignored and
+     * rewritten.
+     */
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int PRICE_COLUMNS = 5;
+    private static final int BYTES_PER_BAR = 7 * Long.BYTES;
+
+}
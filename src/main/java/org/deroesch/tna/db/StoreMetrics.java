@@ -0,0 +1,235 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for the store: loads, lookups, indicator computations and
+ * heap. They're registered with {@link Metrics#globalRegistry}, which Spring Boot
+ * links to its own registry, so they show up under /actuator/metrics/tna.*.
+ * Outside Spring they're kept but go nowhere.
+ * <p>
+ * Cheap enough to leave on. Loads and indicator computations take milliseconds
+ * and are timed. Lookups take nanoseconds, so they're only counted, in
+ * LongAdders that are read when the metrics are scraped. The series gauges walk
+ * the loaded series on each scrape, not on each change.
+ */
+public final class StoreMetrics {
+
+    /**
+     * The single-day and range queries DayDB answers, counted by kind.
+     */
+    public enum Lookup {
+        INDEX, DATE, FLOOR, CEILING, RANGE;
+
+        /**
+         * Count one lookup.
+         *
+         * @param found false if nothing matched
+         */
+        public void record(final boolean found) {
+            count.increment();
+            if (!found)
+                misses.increment();
+        }
+
+        /**
+         * @return lookups so far
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return lookups that found nothing
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * Read a data file into a series, timing it and counting the bars and bytes.
+     *
+     * @param mode
+     * @param path
+     * @param series Where the bars go
+     * @return the number of bars added
+     * @throws IOException from the loader, after counting the failure
+     */
+    public static int load(@NonNull final LoadMode mode, @NonNull final Path path, @NonNull final DaySeries series)
+            throws IOException {
+        Preconditions.checkNotNull(mode);
+        final long start = System.nanoTime();
+        final int bars;
+        try {
+            bars = mode.load(path, series);
+        } catch (final IOException | RuntimeException e) {
+            loadTimer(tag(mode), FAILURE).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        recordLoad(tag(mode), path, bars, System.nanoTime() - start);
+        return bars;
+    }
+
+    /**
+     * Record a load that didn't go through {@link #load}, such as a snapshot.
+     *
+     * @param source What read it, e.g. snapshot
+     * @param path   The file read
+     * @param bars   Bars loaded
+     * @param nanos  Time taken
+     */
+    public static void recordLoad(@NonNull final String source, @NonNull final Path path, final int bars,
+            final long nanos) {
+        loadTimer(source, SUCCESS).record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder(LOAD_BARS).description("Bars read from data files").baseUnit("bars").tag(SOURCE, source)
+                .register(Metrics.globalRegistry).increment(bars);
+        Counter.builder(LOAD_BYTES).description("Bytes of data files read").baseUnit("bytes").tag(SOURCE, source)
+                .register(Metrics.globalRegistry).increment(sizeOf(path));
+        if (nanos > 0)
+            DistributionSummary.builder(LOAD_RATE).description("Bars per second, per load").baseUnit("bars/s")
+                    .tag(SOURCE, source).register(Metrics.globalRegistry).record(bars * 1e9 / nanos);
+    }
+
+    /**
+     * Record one indicator computation.
+     *
+     * @param type
+     * @param nanos Time taken
+     */
+    public static void recordIndicator(@NonNull final IndicatorType type, final long nanos) {
+        Timer.builder(INDICATOR_COMPUTE).description("Indicator column computations")
+                .tag("type", type.name().toLowerCase(Locale.ROOT)).register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record one {@link org.deroesch.tna.algos.IndicatorEngine} run over a
+     * universe. The engine doesn't time itself; {@link DayDB#computeIndicators}
+     * does.
+     *
+     * @param nanos Time taken
+     */
+    public static void recordEngine(final long nanos) {
+        Timer.builder(INDICATOR_ENGINE).description("Indicator engine runs over a universe")
+                .register(Metrics.globalRegistry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a DayDB initialization that loaded something.
+     *
+     * @param source Where the bars came from: file or snapshot
+     * @param nanos  Time taken, including finding the file and any snapshot
+     */
+    public static void recordInitialize(@NonNull final String source, final long nanos) {
+        Timer.builder(INITIALIZE).description("DayDB.initialize, when it loads").tag(SOURCE, source)
+                .register(Metrics.globalRegistry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Register the lookup counters, and gauges over a registry's series and its
+     * indicator cache. Meters hold the registry weakly.
+     *
+     * @param meters   Where to register
+     * @param registry The store to watch
+     */
+    static void bind(@NonNull final MeterRegistry meters, @NonNull final SeriesRegistry registry) {
+        for (final Lookup lookup : Lookup.values()) {
+            final String kind = lookup.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder(LOOKUPS, lookup, Lookup::getCount).description("DayDB lookups")
+                    .tag("kind", kind).register(meters);
+            FunctionCounter.builder(LOOKUP_MISSES, lookup, Lookup::getMisses)
+                    .description("DayDB lookups that found nothing").tag("kind", kind).register(meters);
+        }
+
+        Gauge.builder(SYMBOLS, registry, SeriesRegistry::size).description("Symbols loaded or registered")
+                .register(meters);
+        Gauge.builder(SERIES, registry, r -> r.getAll().size()).description("Series in memory").register(meters);
+        Gauge.builder(SERIES_BARS, registry, r -> r.getAll().values().stream().mapToLong(DaySeries::size).sum())
+                .description("Bars in memory").baseUnit("bars").register(meters);
+        Gauge.builder(SERIES_HEAP, registry,
+                r -> r.getAll().values().stream().mapToLong(DaySeries::estimateBytes).sum())
+                .description("Estimated heap held by the series and their stored indicators").baseUnit("bytes")
+                .register(meters);
+
+        final IndicatorCache cache = registry.getIndicatorCache();
+        FunctionCounter.builder(INDICATOR_CACHE, cache, IndicatorCache::getHitCount)
+                .description("Indicator cache lookups").tag("result", "hit").register(meters);
+        FunctionCounter.builder(INDICATOR_CACHE, cache, IndicatorCache::getMissCount)
+                .description("Indicator cache lookups").tag("result", "miss").register(meters);
+        FunctionCounter.builder(INDICATOR_CACHE_EVICTIONS, cache, IndicatorCache::getEvictionCount)
+                .description("Indicator columns evicted").register(meters);
+        Gauge.builder(INDICATOR_CACHE_HEAP, cache, IndicatorCache::estimateBytes)
+                .description("Heap held by cached indicator columns").baseUnit("bytes").register(meters);
+    }
+
+    private static Timer loadTimer(final String source, final String result) {
+        return Timer.builder(LOADS).description("Data file loads").tag(SOURCE, source).tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+
+    private static String tag(final LoadMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * Bytes read from the file; 0 if its size can't be had.
+     */
+    private static long sizeOf(final Path path) {
+        try {
+            return Files.size(path);
+        } catch (final IOException e) {
+            return 0;
+        }
+    }
+
+    private StoreMetrics() {
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    public static final String LOADS = "tna.load";
+    public static final String LOAD_BARS = "tna.load.bars";
+    public static final String LOAD_BYTES = "tna.load.bytes";
+    public static final String LOAD_RATE = "tna.load.rate";
+    public static final String INITIALIZE = "tna.initialize";
+    public static final String LOOKUPS = "tna.lookups";
+    public static final String LOOKUP_MISSES = "tna.lookups.misses";
+    public static final String SYMBOLS = "tna.symbols";
+    public static final String SERIES = "tna.series";
+    public static final String SERIES_BARS = "tna.series.bars";
+    public static final String SERIES_HEAP = "tna.series.heap";
+    public static final String INDICATOR_COMPUTE = "tna.indicator.compute";
+    public static final String INDICATOR_ENGINE = "tna.indicator.engine";
+    public static final String INDICATOR_CACHE = "tna.indicator.cache";
+    public static final String INDICATOR_CACHE_EVICTIONS = "tna.indicator.cache.evictions";
+    public static final String INDICATOR_CACHE_HEAP = "tna.indicator.cache.heap";
+
+    private static final String SOURCE = "source";
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+}
@@ -0,0 +1,203 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Loads an xlsx file with POI's event model. The first sheet is parsed with SAX
+ * and each row goes straight into the series, so memory use is bounded by the
+ * series itself rather than by the workbook's DOM.
+ * <p>
+ * Expects the same layout as {@link DayDB#loadFromSpreadsheet(Path)}: a header
+ * row, then date, open, high, low, close, adjusted close and volume.
+ */
+public class StreamingSheetLoader {
+
+    /**
+     * Append every row of the first sheet to the series.
+     *
+     * @param path   The xlsx file
+     * @param series Where to put the bars
+     * @return the number of bars added
+     * @throws IOException
+     */
+    public static int load(@NonNull final Path path, @NonNull final DaySeries series) throws IOException {
+        Preconditions.checkNotNull(path);
+        Preconditions.checkNotNull(series);
+
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            final XSSFReader reader = new XSSFReader(pkg);
+            final boolean date1904 = isDate1904(reader);
+
+            try (InputStream sheet = reader.getSheetsData().next()) {
+                final RowHandler handler = new RowHandler(series, date1904);
+                parse(sheet, handler);
+                return handler.added;
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(String.format("Can't read %s", path), e);
+        }
+    }
+
+    /*
+     * Workbooks saved with the 1904 date system count serial dates from a different
+     * epoch.
+     */
+    private static boolean isDate1904(final XSSFReader reader)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        final boolean[] date1904 = { false };
+        try (InputStream workbook = reader.getWorkbookData()) {
+            parse(workbook, new DefaultHandler() {
+                @Override
+                public void startElement(final String uri, final String localName, final String qName,
+                        final Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        final String v = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(v) || "true".equals(v);
+                    }
+                }
+            });
+        }
+        return date1904[0];
+    }
+
+    private static void parse(final InputStream in, final DefaultHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        final XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(handler);
+        parser.parse(new InputSource(in));
+    }
+
+    /*
+     * Collects the cells of one row at a time and appends complete rows to the
+     * series.
+     */
+    private static class RowHandler extends DefaultHandler {
+
+        RowHandler(final DaySeries series, final boolean date1904) {
+            this.series = series;
+            this.date1904 = date1904;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName,
+                final Attributes attributes) {
+            switch (localName) {
+            case "row":
+                rowNumber++;
+                cells = 0;
+                column = -1;
+                break;
+            case "c":
+                column = columnOf(attributes.getValue("r"), column + 1);
+                final String type = attributes.getValue("t");
+                numeric = null == type || "n".equals(type);
+                break;
+            case "v":
+                text.setLength(0);
+                inValue = true;
+                break;
+            default:
+                break;
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) {
+            if (inValue)
+                text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            switch (localName) {
+            case "v":
+                inValue = false;
+                if (numeric && column >= 0 && column < COLUMNS) {
+                    values[column] = Double.parseDouble(text.toString());
+                    cells |= 1 << column;
+                }
+                break;
+            case "row":
+                endRow();
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void endRow() throws SAXException {
+            // Skip the header row and rows with no values at all
+            if (1 == rowNumber || 0 == cells)
+                return;
+
+            if (ALL_CELLS != cells)
+                throw new SAXException(String.format("Row %d doesn't have %d numeric cells", rowNumber, COLUMNS));
+
+            final LocalDateTime date = DateUtil.getLocalDateTime(values[0], date1904);
+            series.add(date, values[1], values[2], values[3], values[4], values[5], (long) values[6]);
+            added++;
+        }
+
+        /*
+         * Column index from a cell reference like "C12", or the fallback when the
+         * reference is missing.
+         */
+        private static int columnOf(final String ref, final int fallback) {
+            if (null == ref)
+                return fallback;
+
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                final char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z')
+                    break;
+                col = col * 26 + (ch - 'A' + 1);
+            }
+            return col - 1;
+        }
+
+        private final DaySeries series;
+        private final boolean date1904;
+
+        private final StringBuilder text = new StringBuilder(32);
+        private final double[] values = new double[COLUMNS];
+        private int rowNumber = 0;
+        private int column = -1;
+        private int cells = 0;
+        private boolean numeric = false;
+        private boolean inValue = false;
+        private int added = 0;
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+
+    /*
+     * Date, open, high, low, close, adjusted close, volume
+     */
+    private static final int COLUMNS = 7;
+    private static final int ALL_CELLS = (1 << COLUMNS) - 1;
+
+}
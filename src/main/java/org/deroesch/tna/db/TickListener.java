@@ -0,0 +1,19 @@
+package org.deroesch.tna.db;
+
+/**
+ * Receives trades, one at a time, in time order. Implementations such as
+ * {@link BarAggregator} are called for every tick, so they shouldn't allocate.
+ */
+@FunctionalInterface
+public interface TickListener {
+
+    /**
+     * A trade.
+     *
+     * @param time  Milliseconds since the epoch, UTC
+     * @param price
+     * @param size  Shares or contracts traded
+     */
+    void onTick(long time, double price, long size);
+
+}
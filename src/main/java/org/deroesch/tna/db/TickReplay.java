@@ -0,0 +1,108 @@
+package org.deroesch.tna.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Replays recorded trades from a CSV file into a {@link TickListener}, to test
+ * aggregation without a live feed.
+ * <p>
+ * One trade per line: time, price, size. The time is either milliseconds since
+ * the epoch or an ISO date-time such as 2021-01-04T09:30:00.250, read as UTC. An
+ * optional header line and blank lines are skipped. Trades are delivered as
+ * fast as they can be read, in file order.
+ */
+public class TickReplay {
+
+    /**
+     * Feed every trade in the file to the listener. The listener isn't told the
+     * replay has ended; flush an aggregator afterwards to close its last bar.
+     *
+     * @param path     The tick file
+     * @param listener
+     * @return the number of ticks delivered
+     * @throws IOException on a read error or a malformed line
+     */
+    public static long replay(@NonNull final Path path, @NonNull final TickListener listener) throws IOException {
+        Preconditions.checkNotNull(path);
+        try (InputStream in = Files.newInputStream(path)) {
+            return replay(in, listener, path.toString());
+        }
+    }
+
+    /**
+     * Feed every trade in the stream to the listener.
+     *
+     * @param in       Left open
+     * @param listener
+     * @return the number of ticks delivered
+     * @throws IOException on a read error or a malformed line
+     */
+    public static long replay(@NonNull final InputStream in, @NonNull final TickListener listener)
+            throws IOException {
+        return replay(in, listener, "stream");
+    }
+
+    private static long replay(final InputStream in, final TickListener listener, final String source)
+            throws IOException {
+        Preconditions.checkNotNull(in);
+        Preconditions.checkNotNull(listener);
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long ticks = 0;
+        int line = 0;
+        for (String text = reader.readLine(); null != text; text = reader.readLine()) {
+            line++;
+            if (text.isBlank() || (1 == line && !Character.isDigit(text.charAt(0))))
+                continue;
+
+            final int first = text.indexOf(',');
+            final int second = first < 0 ? -1 : text.indexOf(',', first + 1);
+            if (second < 0)
+                throw malformed(source, line, "line, too few fields");
+            final int third = text.indexOf(',', second + 1);
+
+            final long time;
+            final double price;
+            final long size;
+            try {
+                time = parseTime(text.substring(0, first).trim());
+                price = Double.parseDouble(text.substring(first + 1, second).trim());
+                size = Long.parseLong(text.substring(second + 1, third < 0 ? text.length() : third).trim());
+            } catch (final NumberFormatException | DateTimeParseException e) {
+                throw malformed(source, line, "field");
+            }
+
+            listener.onTick(time, price, size);
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /*
+     * Epoch milliseconds, or an ISO date-time in UTC.
+     */
+    private static long parseTime(final String s) {
+        for (int i = 0; i < s.length(); i++)
+            if (!Character.isDigit(s.charAt(i)))
+                return LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
+        return Long.parseLong(s);
+    }
+
+    private static IOException malformed(final String source, final int line, final String what) {
+        return new IOException(String.format("%s line %d: bad %s", source, line, what));
+    }
+
+}
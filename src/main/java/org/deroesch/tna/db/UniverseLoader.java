@@ -0,0 +1,299 @@
+package org.deroesch.tna.db;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads a universe of data files, one symbol per file, on a bounded pool. The
+ * symbol is the file name without its extension, and the reader is chosen by
+ * extension ({@link LoadMode#forPath}).
+ * <p>
+ * Each file is loaded through {@link SeriesRegistry#load}, so a symbol appears
+ * only once its series is complete. A file that fails is reported and skipped;
+ * the rest still load. The biggest files start first, so one large file doesn't
+ * end up running alone at the end.
+ * <p>
+ * Or files can just be {@link #register registered}, to load on first access,
+ * and a hot set {@link #warm warmed} on the pool in the background.
+ */
+public class UniverseLoader implements AutoCloseable {
+
+    /**
+     * Load on a private pool with a thread per core, shut down by close().
+     *
+     * @param registry Where to put the series
+     */
+    public UniverseLoader(@NonNull final SeriesRegistry registry) {
+        this(registry, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Load on a private pool, shut down by close().
+     *
+     * @param registry Where to put the series
+     * @param threads  Files loaded at once
+     */
+    public UniverseLoader(@NonNull final SeriesRegistry registry, @Positive final int threads) {
+        this(registry, newPool(threads), true);
+    }
+
+    /**
+     * Load on the caller's executor. close() leaves it alone.
+     *
+     * @param registry Where to put the series
+     * @param executor
+     */
+    public UniverseLoader(@NonNull final SeriesRegistry registry, @NonNull final ExecutorService executor) {
+        this(registry, executor, false);
+    }
+
+    private UniverseLoader(final SeriesRegistry registry, final ExecutorService executor, final boolean ownsPool) {
+        Preconditions.checkNotNull(registry);
+        Preconditions.checkNotNull(executor);
+        this.registry = registry;
+        this.executor = executor;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Load every data file directly in a directory. Other files are ignored.
+     *
+     * @param directory
+     * @return a result per data file, by file name
+     * @throws IOException if the directory can't be listed
+     */
+    @NonNull
+    public List<LoadResult> load(@NonNull final Path directory) throws IOException {
+        return load(discover(directory));
+    }
+
+    /**
+     * Register every data file directly in a directory, to be loaded when first
+     * used. Nothing is read but the directory. As with loading, the first file
+     * by name wins a symbol.
+     *
+     * @param directory
+     * @return the registered symbols, sorted
+     * @throws IOException if the directory can't be listed
+     */
+    @NonNull
+    public Set<String> register(@NonNull final Path directory) throws IOException {
+        final List<Path> files = discover(directory);
+        files.sort(BY_NAME);
+
+        final Set<String> symbols = new TreeSet<>();
+        for (final Path file : files) {
+            final String symbol = symbolOf(file);
+            if (symbols.add(symbol))
+                registry.register(symbol, file, LoadMode.forPath(file));
+            else
+                logger.warn(String.format("%s: skipping %s, already registered", symbol, file.getFileName()));
+        }
+        logger.info(String.format("Registered %d symbols from %s", symbols.size(), directory));
+        return Collections.unmodifiableSet(symbols);
+    }
+
+    /**
+     * Load registered symbols on the pool in the background. The pool may be
+     * closed straight after; the loads still finish.
+     *
+     * @param symbols
+     * @return completes when every load has finished. Failures are logged, not
+     *         thrown.
+     */
+    @NonNull
+    public CompletableFuture<Void> warm(@NonNull final Collection<String> symbols) {
+        final long start = System.nanoTime();
+        return registry.warm(symbols, executor).whenComplete((v, e) -> logger.info(String.format(
+                "Warmed %d symbols in %d ms", symbols.size(), Duration.ofNanos(System.nanoTime() - start).toMillis())));
+    }
+
+    /**
+     * Load the given files. When two files give the same symbol, the first by file
+     * name wins and the other fails.
+     *
+     * @param files
+     * @return a result per file, by file name
+     * @throws InterruptedIOException if interrupted while waiting. Files already
+     *                                loaded stay loaded.
+     */
+    @NonNull
+    public List<LoadResult> load(@NonNull final Collection<Path> files) throws InterruptedIOException {
+        Preconditions.checkNotNull(files);
+        final long start = System.nanoTime();
+
+        final List<Path> sorted = new ArrayList<>(files);
+        sorted.sort(BY_NAME);
+
+        // Settle symbols and modes up front; only good files get a task
+        final LoadResult[] results = new LoadResult[sorted.size()];
+        final Map<String, Path> owners = new HashMap<>();
+        final List<Integer> tasks = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            final Path file = sorted.get(i);
+            final String symbol = symbolOf(file);
+            if (null == LoadMode.forPath(file)) {
+                results[i] = failed(symbol, file, new IOException("Not a data file"));
+                continue;
+            }
+
+            final Path owner = owners.putIfAbsent(symbol, file);
+            if (null != owner)
+                results[i] = failed(symbol, file,
+                        new IOException(String.format("%s is already loaded from %s", symbol, owner.getFileName())));
+            else
+                tasks.add(i);
+        }
+
+        // Biggest first
+        final long[] sizes = new long[sorted.size()];
+        for (final int i : tasks)
+            sizes[i] = sizeOf(sorted.get(i));
+        tasks.sort(Comparator.comparingLong((final Integer i) -> sizes[i]).reversed());
+
+        final Map<Integer, Future<LoadResult>> futures = new HashMap<>();
+        for (final int i : tasks) {
+            final Path file = sorted.get(i);
+            futures.put(i, executor.submit(() -> loadOne(symbolOf(file), file)));
+        }
+
+        try {
+            for (final Map.Entry<Integer, Future<LoadResult>> e : futures.entrySet())
+                results[e.getKey()] = e.getValue().get();
+        } catch (final InterruptedException e) {
+            futures.values().forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading");
+        } catch (final ExecutionException e) {
+            // loadOne catches exceptions, so this is an Error
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+
+        int loaded = 0;
+        long bars = 0;
+        for (final LoadResult result : results) {
+            if (result.isLoaded()) {
+                loaded++;
+                bars += result.getBars();
+                logger.info(result.toString());
+            } else {
+                logger.warn(result.toString());
+                logger.debug(result.getPath().toString(), result.getError());
+            }
+        }
+        logger.info(String.format("Loaded %d of %d files, %,d bars, in %d ms", loaded, results.length, bars,
+                Duration.ofNanos(System.nanoTime() - start).toMillis()));
+
+        return List.of(results);
+    }
+
+    /**
+     * Shut down the pool if this loader created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            executor.shutdown();
+    }
+
+    /**
+     * The symbol a file is loaded under.
+     *
+     * @param file
+     * @return the file name up to its last dot, normalized
+     */
+    @NonNull
+    public static String symbolOf(@NonNull final Path file) {
+        Preconditions.checkNotNull(file);
+        final String name = String.valueOf(file.getFileName());
+        final int dot = name.lastIndexOf('.');
+        return SeriesRegistry.normalize(dot > 0 ? name.substring(0, dot) : name);
+    }
+
+    /*
+     * Data files directly in the directory, in no particular order.
+     */
+    private static List<Path> discover(final Path directory) throws IOException {
+        Preconditions.checkNotNull(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> Files.isRegularFile(f) && null != LoadMode.forPath(f))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private LoadResult loadOne(final String symbol, final Path file) {
+        final long start = System.nanoTime();
+        try {
+            final DaySeries days = registry.load(symbol, file, LoadMode.forPath(file));
+            return new LoadResult(symbol, file, days.size(), Duration.ofNanos(System.nanoTime() - start), null);
+        } catch (final IOException | RuntimeException e) {
+            return new LoadResult(symbol, file, 0, Duration.ofNanos(System.nanoTime() - start), e);
+        }
+    }
+
+    private static LoadResult failed(final String symbol, final Path file, final Exception error) {
+        return new LoadResult(symbol, file, 0, Duration.ZERO, error);
+    }
+
+    /*
+     * For ordering only; unreadable files sort last and fail when loaded.
+     */
+    private static long sizeOf(final Path file) {
+        try {
+            return Files.size(file);
+        } catch (final IOException e) {
+            return 0;
+        }
+    }
+
+    private static ExecutorService newPool(final int threads) {
+        Preconditions.checkArgument(threads > 0);
+        return Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("tna-loader-%d").setDaemon(true).build());
+    }
+
+    /*
+     * Fields
+     */
+    private final SeriesRegistry registry;
+    private final ExecutorService executor;
+    private final boolean ownsPool;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(UniverseLoader.class);
+
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(f -> String.valueOf(f.getFileName()));
+
+}
@@ -1,8 +1,6 @@
 package org.deroesch.tna.models;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 import org.checkerframework.checker.index.qual.Positive;
@@ -11,7 +9,10 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import com.google.common.base.Preconditions;
 
 /**
- * A day in the market.
+ * A day in the market. A Day is a view onto one bar of a {@link DaySeries}.
+ * Days built with the field constructor hold their own values, and get a
+ * private one-bar series only when they need one: for getSeries() or a moving
+ * average.
  */
 public class Day {
 
@@ -38,13 +39,20 @@ public class Day {
         Preconditions.checkNotNull(adjClose);
         Preconditions.checkNotNull(volume);
 
-        this.date = date;
-        this.high = high;
-        this.low = low;
-        this.open = open;
-        this.close = close;
-        this.adjClose = adjClose;
-        this.volume = volume;
+        this.bar = new Bar(DaySeries.toTime(date), open, high, low, close, adjClose, volume);
+        this.index = 0;
+    }
+
+    /**
+     * View constructor: the day at index in series.
+     *
+     * @param series
+     * @param index
+     */
+    Day(@NonNull final DaySeries series, final int index) {
+        this.bar = null;
+        this.series = series;
+        this.index = index;
     }
 
     /**
@@ -52,7 +60,7 @@ public class Day {
      */
     @NonNull
     public LocalDateTime getDate() {
-        return date;
+        return DaySeries.toDate(time());
     }
 
     /**
@@ -60,7 +68,7 @@ public class Day {
      */
     @NonNull
     public Double getHigh() {
-        return high;
+        return null != bar ? bar.high : series.getHigh(index);
     }
 
     /**
@@ -68,7 +76,7 @@ public class Day {
      */
     @NonNull
     public Double getLow() {
-        return low;
+        return null != bar ? bar.low : series.getLow(index);
     }
 
     /**
@@ -76,7 +84,7 @@ public class Day {
      */
     @NonNull
     public Double getOpen() {
-        return open;
+        return null != bar ? bar.open : series.getOpen(index);
     }
 
     /**
@@ -92,7 +100,7 @@ public class Day {
      */
     @NonNull
     public Double getAdjClose() {
-        return adjClose;
+        return null != bar ? bar.adjClose : series.getAdjClose(index);
     }
 
     /**
@@ -103,20 +111,26 @@ public class Day {
     public Double getMovingAvg(@Positive final Integer period) {
         Preconditions.checkNotNull(period);
         Preconditions.checkArgument(period > 0);
-        return movingAvgs.get(period);
+        final DaySeries s = series;
+        if (null == s)
+            return null;
+        final double value = s.getIndicators().get(IndicatorKey.sma(period), index);
+        return Double.isNaN(value) ? null : value;
     }
 
     /**
      *
      * @param period
-     * @param value
+     * @param value  Not NaN: the store uses NaN for "no value", so it would read
+     *               back as null
      */
     public void setMovingAvg(@Positive final Integer period, @NonNull final Double value) {
         Preconditions.checkNotNull(period);
         Preconditions.checkNotNull(value);
         Preconditions.checkArgument(period > 0);
+        Preconditions.checkArgument(!value.isNaN(), "NaN moving average for period %s", period);
 
-        movingAvgs.put(period, value);
+        series().getIndicators().set(IndicatorKey.sma(period), index, value);
     }
 
     /**
@@ -135,12 +149,41 @@ public class Day {
      */
     @NonNull
     public Long getVolume() {
-        return volume;
+        return null != bar ? bar.volume : series.getVolume(index);
+    }
+
+    /**
+     * @return the series this day is a view onto
+     */
+    @NonNull
+    public DaySeries getSeries() {
+        return series();
+    }
+
+    /**
+     * @return this day's position in its series
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the date, encoded with {@link DaySeries#toTime}
+     */
+    long time() {
+        return null != bar ? bar.time : series.getTime(index);
+    }
+
+    /**
+     * @return the unadjusted close
+     */
+    double close() {
+        return null != bar ? bar.close : series.getClose(index);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(adjClose, close, date, high, low, open, volume);
+        return Objects.hash(getAdjClose(), close(), getDate(), getHigh(), getLow(), getOpen(), getVolume());
     }
 
     @Override
@@ -152,48 +195,84 @@ public class Day {
             return false;
         }
         final Day other = (Day) obj;
-        return Objects.equals(adjClose, other.adjClose) && Objects.equals(close, other.close)
-                && Objects.equals(date, other.date) && Objects.equals(high, other.high)
-                && Objects.equals(low, other.low) && Objects.equals(open, other.open)
-                && Objects.equals(volume, other.volume);
+        return Objects.equals(getAdjClose(), other.getAdjClose())
+                && Objects.equals(close(), other.close())
+                && time() == other.time() && Objects.equals(getHigh(), other.getHigh())
+                && Objects.equals(getLow(), other.getLow()) && Objects.equals(getOpen(), other.getOpen())
+                && getVolume().equals(other.getVolume());
     }
 
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
         builder.append("Day [date=");
-        builder.append(date);
+        builder.append(getDate());
         builder.append(", high=");
-        builder.append(high);
+        builder.append(getHigh());
         builder.append(", low=");
-        builder.append(low);
+        builder.append(getLow());
         builder.append(", open=");
-        builder.append(open);
+        builder.append(getOpen());
         builder.append(", close=");
-        builder.append(close);
+        builder.append(close());
         builder.append(", adjClose=");
-        builder.append(adjClose);
+        builder.append(getAdjClose());
         builder.append(", volume=");
-        builder.append(volume);
+        builder.append(getVolume());
         builder.append("]");
         return builder.toString();
     }
 
     /*
-     * Fields
+     * The detached day's series, made on first use. Its bar is always 0.
      */
-    private LocalDateTime date;
-    private Double high;
-    private Double low;
-    private Double open;
-    private Double close;
-    private Double adjClose;
-    private Long volume;
+    private DaySeries series() {
+        DaySeries s = series;
+        if (null == s) {
+            synchronized (this) {
+                s = series;
+                if (null == s) {
+                    s = new DaySeries(1);
+                    s.add(bar.time, bar.open, bar.high, bar.low, bar.close, bar.adjClose, bar.volume);
+                    series = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /*
+     * A detached day's values.
+     */
+    private static final class Bar {
+
+        Bar(final long time, final double open, final double high, final double low, final double close,
+                final double adjClose, final long volume) {
+            this.time = time;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.adjClose = adjClose;
+            this.volume = volume;
+        }
+
+        final long time;
+        final double open;
+        final double high;
+        final double low;
+        final double close;
+        final double adjClose;
+        final long volume;
+    }
 
     /*
-     * A map of moving averages computer for this Day. Key is the period, value is
-     * the average for that period.
+     * Fields. A view's prices and moving averages live in its series; it only
+     * knows where to look. A detached day has a bar, and a series once it needs
+     * one.
      */
-    private final Map<Integer, Double> movingAvgs = new HashMap<>();
+    private final Bar bar;
+    private volatile DaySeries series;
+    private final int index;
 
 }
@@ -0,0 +1,834 @@
+package org.deroesch.tna.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A column-oriented series of market days. Each field of a bar lives in its own
+ * primitive array, so a bar costs a few dozen bytes and indicator passes scan
+ * contiguous memory. {@link Day} objects are views onto a row of this store.
+ * <p>
+ * One writer, any number of readers. Appends, sorts and clears are serialized on
+ * the series' monitor; readers never lock. The columns, size and sort order are
+ * published together as one immutable state, and the rows it covers never change
+ * afterwards: an append fills the row past the end before publishing the new
+ * size, and sorting or clearing publishes fresh columns. So a read sees a whole
+ * bar, never half of one. To see the same bars across several reads while
+ * another thread appends, take a {@link #snapshot()}.
+ */
+public class DaySeries {
+
+    /**
+     * Empty series with a default initial capacity.
+     */
+    public DaySeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Empty series able to hold capacity bars before growing.
+     *
+     * @param capacity Initial capacity, >= 0
+     */
+    public DaySeries(final int capacity) {
+        this(empty(capacity), false);
+    }
+
+    private DaySeries(final State state, final boolean frozen) {
+        this.state = state;
+        this.frozen = frozen;
+    }
+
+    /**
+     * A series that takes ownership of the given columns. Loaders that fill arrays
+     * in bulk use this to skip the per-bar append path.
+     *
+     * @param size      Number of valid bars at the front of each column
+     * @param times     Dates encoded with {@link #toTime}
+     * @param opens
+     * @param highs
+     * @param lows
+     * @param closes
+     * @param adjCloses
+     * @param volumes
+     * @return the series
+     */
+    @NonNull
+    public static DaySeries wrap(final int size, @NonNull final long[] times, @NonNull final double[] opens,
+            @NonNull final double[] highs, @NonNull final double[] lows, @NonNull final double[] closes,
+            @NonNull final double[] adjCloses, @NonNull final long[] volumes) {
+        Preconditions.checkArgument(size >= 0);
+        Preconditions.checkArgument(times.length >= size && opens.length >= size && highs.length >= size
+                && lows.length >= size && closes.length >= size && adjCloses.length >= size
+                && volumes.length >= size);
+
+        boolean ascending = true;
+        for (int i = 1; i < size && ascending; i++)
+            ascending = times[i] >= times[i - 1];
+        return new DaySeries(new State(times, opens, highs, lows, closes, adjCloses, volumes, size, ascending),
+                false);
+    }
+
+    /**
+     * @return the number of bars in the series
+     */
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * A stamp that changes whenever the bars do: on every append, sort and clear.
+     * Stamps come from one counter shared by all series, so two different series,
+     * or a series and its reloaded replacement, never share one; a snapshot keeps
+     * the stamp of the bars it holds. Caches can key on it.
+     *
+     * @return the data version
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * @return true if there are no bars
+     */
+    public boolean isEmpty() {
+        return 0 == state.size;
+    }
+
+    /**
+     * The bars as they are now, unaffected by later appends, sorts and clears.
+     * Costs no copying: the snapshot shares the columns, reading only the rows
+     * that were published when it was taken. It is read-only, and has its own,
+     * initially empty, indicator store.
+     *
+     * @return the snapshot
+     */
+    @NonNull
+    public DaySeries snapshot() {
+        return frozen ? this : new DaySeries(state, true);
+    }
+
+    /**
+     * @return true if this is a {@link #snapshot()}
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    /**
+     * Append a bar.
+     *
+     * @param date
+     * @param open
+     * @param high
+     * @param low
+     * @param close
+     * @param adjClose
+     * @param volume
+     * @return the index of the new bar
+     */
+    public int add(@NonNull final LocalDateTime date, final double open, final double high, final double low,
+            final double close, final double adjClose, final long volume) {
+        Preconditions.checkNotNull(date);
+        return add(toTime(date), open, high, low, close, adjClose, volume);
+    }
+
+    /**
+     * Append a bar whose date is already encoded with {@link #toTime}. Listeners
+     * are told on this thread, in append order, once readers can see the bar.
+     *
+     * @param time
+     * @param open
+     * @param high
+     * @param low
+     * @param close
+     * @param adjClose
+     * @param volume
+     * @return the index of the new bar
+     */
+    public synchronized int add(final long time, final double open, final double high, final double low,
+            final double close, final double adjClose, final long volume) {
+        checkWritable();
+        State s = state;
+        if (s.size == s.times.length)
+            s = s.grow(s.size + 1);
+
+        // Past the published size, so no reader looks here until the new state is out
+        final int i = s.size;
+        s.times[i] = time;
+        s.opens[i] = open;
+        s.highs[i] = high;
+        s.lows[i] = low;
+        s.closes[i] = close;
+        s.adjCloses[i] = adjClose;
+        s.volumes[i] = volume;
+        state = s.withSize(i + 1, s.ascending && (0 == i || time >= s.times[i - 1]));
+
+        if (!listeners.isEmpty())
+            for (final SeriesListener listener : listeners)
+                listener.onAppend(this, i);
+        return i;
+    }
+
+    /**
+     * Append a copy of the day's values.
+     *
+     * @param day
+     * @return the index of the new bar
+     */
+    public int add(@NonNull final Day day) {
+        Preconditions.checkNotNull(day);
+        return add(day.time(), day.getOpen(), day.getHigh(), day.getLow(), day.close(), day.getAdjClose(),
+                day.getVolume());
+    }
+
+    /**
+     * Remove all bars. The new columns get the old capacity; the old ones are left
+     * to readers still using them.
+     */
+    public synchronized void clear() {
+        checkWritable();
+        state = empty(state.times.length);
+        indicators.clear();
+        fireReset();
+    }
+
+    /**
+     * @param i Bar index
+     * @return the bar's date, encoded with {@link #toTime}
+     */
+    public long getTime(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.times[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the bar's date
+     */
+    @NonNull
+    public LocalDateTime getDate(final int i) {
+        return toDate(getTime(i));
+    }
+
+    /**
+     * @param i Bar index
+     * @return the opening price
+     */
+    public double getOpen(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.opens[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the high price
+     */
+    public double getHigh(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.highs[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the low price
+     */
+    public double getLow(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.lows[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the unadjusted closing price
+     */
+    public double getClose(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.closes[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the adjusted closing price
+     */
+    public double getAdjClose(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.adjCloses[i];
+    }
+
+    /**
+     * @param i Bar index
+     * @return the volume
+     */
+    public long getVolume(final int i) {
+        final State s = state;
+        Preconditions.checkElementIndex(i, s.size);
+        return s.volumes[i];
+    }
+
+    /*************************************************************
+     * Raw columns. These are the live backing arrays, not copies: only the first
+     * size() entries are valid, and an append may replace the array. Don't hold
+     * on to them across appends. Call size() first: a column fetched after it
+     * holds at least that many bars, even while another thread appends.
+     */
+
+    @NonNull
+    public long[] getTimeColumn() {
+        return state.times;
+    }
+
+    @NonNull
+    public double[] getOpenColumn() {
+        return state.opens;
+    }
+
+    @NonNull
+    public double[] getHighColumn() {
+        return state.highs;
+    }
+
+    @NonNull
+    public double[] getLowColumn() {
+        return state.lows;
+    }
+
+    @NonNull
+    public double[] getCloseColumn() {
+        return state.closes;
+    }
+
+    @NonNull
+    public double[] getAdjCloseColumn() {
+        return state.adjCloses;
+    }
+
+    @NonNull
+    public long[] getVolumeColumn() {
+        return state.volumes;
+    }
+
+    /**
+     * Find the bar for a date.
+     *
+     * @param date
+     * @return the bar index, or -1 if there is no bar at that date
+     */
+    public int indexOf(@NonNull final LocalDateTime date) {
+        Preconditions.checkNotNull(date);
+        final long time = toTime(date);
+        final State s = state;
+
+        if (s.ascending) {
+            final int i = Arrays.binarySearch(s.times, 0, s.size, time);
+            return i >= 0 ? i : -1;
+        }
+
+        for (int i = 0; i < s.size; i++)
+            if (s.times[i] == time)
+                return i;
+        return -1;
+    }
+
+    /**
+     * The last bar on or before a date, e.g. the most recent trading day for a
+     * weekend or holiday. Needs an ascending series.
+     *
+     * @param date
+     * @return the bar index, or -1 if every bar is later
+     */
+    public int floorIndex(@NonNull final LocalDateTime date) {
+        return upperBound(state, toTime(date)) - 1;
+    }
+
+    /**
+     * The first bar on or after a date. Needs an ascending series.
+     *
+     * @param date
+     * @return the bar index, or -1 if every bar is earlier
+     */
+    public int ceilingIndex(@NonNull final LocalDateTime date) {
+        final State s = state;
+        final int i = lowerBound(s, toTime(date));
+        return i < s.size ? i : -1;
+    }
+
+    /**
+     * The bars with dates in [from, to], both ends inclusive, found by binary
+     * search. Dates needn't be trading days. Needs an ascending series.
+     *
+     * @param from
+     * @param to
+     * @return a zero-copy view, empty if no bars fall in the range
+     */
+    @NonNull
+    public SeriesSlice slice(@NonNull final LocalDateTime from, @NonNull final LocalDateTime to) {
+        final long start = toTime(from);
+        final long end = toTime(to);
+        Preconditions.checkArgument(start <= end, "%s is after %s", from, to);
+
+        final State s = state;
+        final int i = lowerBound(s, start);
+        return new SeriesSlice(this, i, Math.max(i, upperBound(s, end)));
+    }
+
+    /**
+     * Bars [from, to) by position.
+     *
+     * @param from First bar, inclusive
+     * @param to   Last bar, exclusive
+     * @return a zero-copy view
+     */
+    @NonNull
+    public SeriesSlice slice(final int from, final int to) {
+        return new SeriesSlice(this, from, to);
+    }
+
+    /**
+     * @return true if the bars are in non-decreasing date order
+     */
+    public boolean isAscending() {
+        return state.ascending;
+    }
+
+    /**
+     * Put the bars in ascending date order. Data files usually arrive newest
+     * first, which is just a reversal; anything else gets a full sort. Views
+     * handed out before the sort are invalidated, and stored indicators dropped.
+     */
+    public synchronized void sortByDate() {
+        final State s = state;
+        if (s.ascending)
+            return;
+        checkWritable();
+
+        boolean descending = true;
+        for (int i = 1; i < s.size && descending; i++)
+            descending = s.times[i] <= s.times[i - 1];
+
+        state = descending ? reversed(s) : sorted(s);
+        indicators.clear();
+        fireReset();
+    }
+
+    /**
+     * Be told about appends and resets.
+     *
+     * @param listener
+     */
+    public void addListener(@NonNull final SeriesListener listener) {
+        Preconditions.checkNotNull(listener);
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener
+     * @return true if it was registered
+     */
+    public boolean removeListener(@NonNull final SeriesListener listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * The day at index i. Days hold no state of their own, so this is a fresh
+     * throwaway view each time; compare them with equals(), not ==.
+     *
+     * @param i Bar index
+     * @return the day
+     */
+    @NonNull
+    public Day getDay(final int i) {
+        Preconditions.checkElementIndex(i, state.size);
+        return new Day(this, i);
+    }
+
+    /**
+     * Indicator results aligned with this series, such as the moving averages
+     * {@link Day#getMovingAvg(Integer)} reads. Cleared when the bars are sorted or
+     * cleared.
+     *
+     * @return the store
+     */
+    @NonNull
+    public IndicatorStore getIndicators() {
+        return indicators;
+    }
+
+    /**
+     * A list view of the days in this series. Adding a day to the list appends its
+     * values to the series.
+     *
+     * @return the list view
+     */
+    @NonNull
+    public List<Day> asList() {
+        return listView;
+    }
+
+    /**
+     * A map view of the days in this series, keyed by date. Putting a day under a
+     * date that isn't present yet appends it to the series.
+     *
+     * @return the map view
+     */
+    @NonNull
+    public Map<LocalDateTime, Day> asMap() {
+        return mapView;
+    }
+
+    /**
+     * Rough heap footprint of the columns and stored indicators, in bytes. Counts
+     * allocated capacity, not just size(), since that's what the heap holds.
+     *
+     * @return the estimate
+     */
+    public long estimateBytes() {
+        long bytes = (long) state.times.length * BYTES_PER_BAR;
+        bytes += indicators.estimateBytes();
+        return bytes;
+    }
+
+    /**
+     * Encode a date for the time column: seconds since the epoch, reading the local
+     * date-time as UTC. Seconds rather than days so intraday bars fit too.
+     *
+     * @param date
+     * @return the encoded time
+     */
+    public static long toTime(@NonNull final LocalDateTime date) {
+        Preconditions.checkNotNull(date);
+        return date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Decode a value from the time column.
+     *
+     * @param time
+     * @return the date
+     */
+    @NonNull
+    public static LocalDateTime toDate(final long time) {
+        return LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC);
+    }
+
+    /*************************************************************
+     * Internals
+     */
+
+    private static State empty(final int capacity) {
+        Preconditions.checkArgument(capacity >= 0);
+        return new State(new long[capacity], new double[capacity], new double[capacity], new double[capacity],
+                new double[capacity], new double[capacity], new long[capacity], 0, true);
+    }
+
+    private void checkWritable() {
+        Preconditions.checkState(!frozen, "Snapshots are read-only");
+    }
+
+    /*
+     * Index of the first bar with time >= t, or size if none.
+     */
+    private static int lowerBound(final State s, final long t) {
+        Preconditions.checkState(s.ascending, "Range lookups need a series sorted by date");
+        int lo = 0;
+        int hi = s.size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (s.times[mid] < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /*
+     * Index of the first bar with time > t, or size if none.
+     */
+    private static int upperBound(final State s, final long t) {
+        Preconditions.checkState(s.ascending, "Range lookups need a series sorted by date");
+        int lo = 0;
+        int hi = s.size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (s.times[mid] <= t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /*
+     * A reversed copy, for the usual newest-first file.
+     */
+    private static State reversed(final State s) {
+        final int n = s.size;
+        final State r = empty(s.times.length);
+        for (int i = 0, j = n - 1; i < n; i++, j--) {
+            r.times[i] = s.times[j];
+            r.opens[i] = s.opens[j];
+            r.highs[i] = s.highs[j];
+            r.lows[i] = s.lows[j];
+            r.closes[i] = s.closes[j];
+            r.adjCloses[i] = s.adjCloses[j];
+            r.volumes[i] = s.volumes[j];
+        }
+        return r.withSize(n, true);
+    }
+
+    /*
+     * A copy sorted by date, stable for equal dates.
+     */
+    private static State sorted(final State s) {
+        final int n = s.size;
+        final Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        final long[] t = s.times;
+        Arrays.sort(order, (a, b) -> Long.compare(t[a], t[b]));
+
+        final State r = empty(s.times.length);
+        for (int k = 0; k < n; k++) {
+            final int i = order[k];
+            r.times[k] = s.times[i];
+            r.opens[k] = s.opens[i];
+            r.highs[k] = s.highs[i];
+            r.lows[k] = s.lows[i];
+            r.closes[k] = s.closes[i];
+            r.adjCloses[k] = s.adjCloses[i];
+            r.volumes[k] = s.volumes[i];
+        }
+        return r.withSize(n, true);
+    }
+
+    private void fireReset() {
+        for (final SeriesListener listener : listeners)
+            listener.onReset(this);
+    }
+
+    /*
+     * Everything a reader needs, published as a unit. The arrays are shared
+     * between states: a new state covers more rows of the same arrays, or new
+     * arrays after a grow, sort or clear. Rows below size are never written again.
+     */
+    private static final class State {
+
+        State(final long[] times, final double[] opens, final double[] highs, final double[] lows,
+                final double[] closes, final double[] adjCloses, final long[] volumes, final int size,
+                final boolean ascending) {
+            this.times = times;
+            this.opens = opens;
+            this.highs = highs;
+            this.lows = lows;
+            this.closes = closes;
+            this.adjCloses = adjCloses;
+            this.volumes = volumes;
+            this.size = size;
+            this.ascending = ascending;
+            this.version = VERSIONS.incrementAndGet();
+        }
+
+        /*
+         * Same arrays, more (or fewer) rows.
+         */
+        State withSize(final int size, final boolean ascending) {
+            return new State(times, opens, highs, lows, closes, adjCloses, volumes, size, ascending);
+        }
+
+        /*
+         * Copies with room for at least minCapacity bars. Not published, so the old
+         * arrays stay with the readers that have them.
+         */
+        State grow(final int minCapacity) {
+            final int capacity = Math.max(minCapacity, times.length + (times.length >> 1) + 1);
+            return new State(Arrays.copyOf(times, capacity), Arrays.copyOf(opens, capacity),
+                    Arrays.copyOf(highs, capacity), Arrays.copyOf(lows, capacity), Arrays.copyOf(closes, capacity),
+                    Arrays.copyOf(adjCloses, capacity), Arrays.copyOf(volumes, capacity), size, ascending);
+        }
+
+        final long[] times;
+        final double[] opens;
+        final double[] highs;
+        final double[] lows;
+        final double[] closes;
+        final double[] adjCloses;
+        final long[] volumes;
+
+        /*
+         * Number of valid bars in the columns.
+         */
+        final int size;
+
+        /*
+         * True while every bar is no earlier than the one before it.
+         */
+        final boolean ascending;
+
+        /*
+         * See getVersion().
+         */
+        final long version;
+    }
+
+    /*
+     * List view handed out by asList()
+     */
+    private class DayList extends AbstractList<Day> {
+
+        @Override
+        public Day get(final int index) {
+            return getDay(index);
+        }
+
+        @Override
+        public int size() {
+            return DaySeries.this.size();
+        }
+
+        @Override
+        public boolean add(final Day day) {
+            DaySeries.this.add(day);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            DaySeries.this.clear();
+        }
+    }
+
+    /*
+     * Map view handed out by asMap()
+     */
+    private class DayMap extends AbstractMap<LocalDateTime, Day> {
+
+        @Override
+        public Day get(final Object key) {
+            if (!(key instanceof LocalDateTime))
+                return null;
+            final int i = indexOf((LocalDateTime) key);
+            return i < 0 ? null : getDay(i);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return null != get(key);
+        }
+
+        @Override
+        public Day put(final LocalDateTime key, final Day day) {
+            Preconditions.checkNotNull(key);
+            Preconditions.checkNotNull(day);
+            Preconditions.checkArgument(key.equals(day.getDate()));
+
+            final Day previous = get(key);
+            if (null == previous)
+                DaySeries.this.add(day);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return DaySeries.this.size();
+        }
+
+        @Override
+        public void clear() {
+            DaySeries.this.clear();
+        }
+
+        @Override
+        public Set<Entry<LocalDateTime, Day>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public Iterator<Entry<LocalDateTime, Day>> iterator() {
+                    return new Iterator<>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < DaySeries.this.size();
+                        }
+
+                        @Override
+                        public Entry<LocalDateTime, Day> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            final Day day = getDay(next++);
+                            return new SimpleImmutableEntry<>(day.getDate(), day);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return DaySeries.this.size();
+                }
+            };
+        }
+    }
+
+    /*
+     * The published bars. Replaced, never changed, by the writer; readers take it
+     * once per operation.
+     */
+    private volatile State state;
+
+    /*
+     * True for a snapshot.
+     */
+    private final boolean frozen;
+
+    /*
+     * Indicator columns aligned with the bars.
+     */
+    private final IndicatorStore indicators = new IndicatorStore();
+
+    /*
+     * Told about appends and resets. Copy-on-write since appends iterate it far
+     * more often than it changes.
+     */
+    private final List<SeriesListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final List<Day> listView = new DayList();
+    private final Map<LocalDateTime, Day> mapView = new DayMap();
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /*
+     * Source of data versions for every series.
+     */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /*
+     * One long time, five double prices and one long volume.
+     */
+    private static final int BYTES_PER_BAR = 7 * Long.BYTES;
+
+}
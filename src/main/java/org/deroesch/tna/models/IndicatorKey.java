@@ -0,0 +1,113 @@
+package org.deroesch.tna.models;
+
+import java.util.Arrays;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Names a column in an {@link IndicatorStore}: an indicator's name and
+ * parameters, e.g. SMA(20). Immutable, and usable as a map key. Knows nothing
+ * about computing the indicator; that's org.deroesch.tna.algos.IndicatorSpec,
+ * whose getKey() gives the key for its column.
+ */
+public final class IndicatorKey {
+
+    /**
+     * @param name   The indicator, e.g. "SMA"
+     * @param params
+     */
+    public IndicatorKey(@NonNull final String name, @NonNull final double... params) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(params);
+        Preconditions.checkArgument(!name.isBlank(), "Blank indicator name");
+
+        this.name = name;
+        this.params = params.clone();
+        this.hash = 31 * name.hashCode() + Arrays.hashCode(this.params);
+    }
+
+    /**
+     * @param period
+     * @return the key for a simple moving average
+     */
+    @NonNull
+    public static IndicatorKey sma(@Positive final int period) {
+        Preconditions.checkArgument(period > 0);
+        if (period < SMA_CACHE.length)
+            return SMA_CACHE[period];
+        return new IndicatorKey(SMA, period);
+    }
+
+    /**
+     * @return the name
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a copy of the parameters
+     */
+    @NonNull
+    public double[] getParams() {
+        return params.clone();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IndicatorKey)) {
+            return false;
+        }
+        final IndicatorKey other = (IndicatorKey) obj;
+        return hash == other.hash && name.equals(other.name) && Arrays.equals(params, other.params);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(name);
+        builder.append("(");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0)
+                builder.append(",");
+            final double p = params[i];
+            if (p == Math.rint(p) && Math.abs(p) < 1e15)
+                builder.append((long) p);
+            else
+                builder.append(p);
+        }
+        builder.append(")");
+        return builder.toString();
+    }
+
+    /*
+     * Fields
+     */
+    private final String name;
+    private final double[] params;
+    private final int hash;
+
+    /*
+     * Shared SMA keys for the common periods, so per-day lookups such as
+     * Day.getMovingAvg() don't allocate. Index is the period; 0 is unused.
+     */
+    private static final String SMA = "SMA";
+    private static final IndicatorKey[] SMA_CACHE = new IndicatorKey[256];
+    static {
+        for (int p = 1; p < SMA_CACHE.length; p++)
+            SMA_CACHE[p] = new IndicatorKey(SMA, p);
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.deroesch.tna.models;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Indicator results for one {@link DaySeries}: one double[] per indicator,
+ * aligned with the bars, named by {@link IndicatorKey}. NaN means no value,
+ * whether that's warm-up or a bar the indicator hasn't reached yet. Columns can
+ * be shorter than the series; reading past the end gives NaN too.
+ * <p>
+ * A column costs 8 bytes per bar, against the boxed keys, boxed values and hash
+ * entries of a per-day map, and can be scanned like any other column.
+ */
+public class IndicatorStore {
+
+    /**
+     * @param key
+     * @return the live column, or null if there isn't one. Only valid up to the
+     *         series' size; don't hold on to it across a {@link #set}.
+     */
+    public double[] getColumn(@NonNull final IndicatorKey key) {
+        Preconditions.checkNotNull(key);
+        return columns.get(key);
+    }
+
+    /**
+     * @param key
+     * @param i   Bar index
+     * @return the value, or NaN
+     */
+    public double get(@NonNull final IndicatorKey key, final int i) {
+        final double[] column = getColumn(key);
+        return null == column || i < 0 || i >= column.length ? Double.NaN : column[i];
+    }
+
+    /**
+     * @param key
+     * @return true if there's a column for key
+     */
+    public boolean contains(@NonNull final IndicatorKey key) {
+        Preconditions.checkNotNull(key);
+        return columns.containsKey(key);
+    }
+
+    /**
+     * Store a whole column, replacing any previous one. The store takes ownership
+     * of the array.
+     *
+     * @param key
+     * @param column Aligned with the series, NaN where there's no value
+     */
+    public void put(@NonNull final IndicatorKey key, @NonNull final double[] column) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(column);
+        columns.put(key, column);
+    }
+
+    /**
+     * Store one value, growing the column if needed. New slots are NaN.
+     *
+     * @param key
+     * @param i     Bar index, >= 0
+     * @param value
+     */
+    public void set(@NonNull final IndicatorKey key, final int i, final double value) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkArgument(i >= 0);
+
+        double[] column = columns.get(key);
+        if (null == column || i >= column.length) {
+            final int old = null == column ? 0 : column.length;
+            final int capacity = Math.max(i + 1, old + (old >> 1) + 1);
+            column = null == column ? new double[capacity] : Arrays.copyOf(column, capacity);
+            Arrays.fill(column, old, capacity, Double.NaN);
+            columns.put(key, column);
+        }
+        column[i] = value;
+    }
+
+    /**
+     * @param key
+     * @return the removed column, or null
+     */
+    public double[] remove(@NonNull final IndicatorKey key) {
+        Preconditions.checkNotNull(key);
+        return columns.remove(key);
+    }
+
+    /**
+     * @return the stored indicators
+     */
+    @NonNull
+    public Set<IndicatorKey> getKeys() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * Drop every column.
+     */
+    public void clear() {
+        columns.clear();
+    }
+
+    /**
+     * @return heap bytes held by the columns
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (final double[] column : columns.values())
+            bytes += (long) column.length * Double.BYTES;
+        return bytes;
+    }
+
+    /*
+     * Columns by indicator
+     */
+    private final Map<IndicatorKey, double[]> columns = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,27 @@
+package org.deroesch.tna.models;
+
+/**
+ * Told about changes to a {@link DaySeries}, so derived values can be kept up to
+ * date without rescanning the whole history.
+ */
+public interface SeriesListener {
+
+    /**
+     * A bar was appended. Called on the appending thread, holding the series'
+     * lock, so calls arrive one at a time in append order.
+     *
+     * @param series The series
+     * @param index  The new bar's index, always series.size() - 1
+     */
+    void onAppend(DaySeries series, int index);
+
+    /**
+     * The series was cleared or reordered. Anything derived from it must be
+     * rebuilt from scratch.
+     *
+     * @param series The series
+     */
+    default void onReset(final DaySeries series) {
+    }
+
+}
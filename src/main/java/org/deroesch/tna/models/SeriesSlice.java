@@ -0,0 +1,171 @@
+package org.deroesch.tna.models;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A zero-copy window onto bars [from, to) of a {@link DaySeries}. Indexes passed
+ * to the getters are relative to the window. Indicator kernels that take a
+ * (column, from, to) range can run on the series' columns directly.
+ * <p>
+ * Appends to the series leave a slice valid. Sorting or clearing the series
+ * does not.
+ */
+public class SeriesSlice {
+
+    /**
+     * @param series
+     * @param from   First bar, inclusive
+     * @param to     Last bar, exclusive
+     */
+    public SeriesSlice(@NonNull final DaySeries series, final int from, final int to) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkPositionIndexes(from, to, series.size());
+        this.series = series;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the underlying series
+     */
+    @NonNull
+    public DaySeries getSeries() {
+        return series;
+    }
+
+    /**
+     * @return the first bar's index in the series, inclusive
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the index in the series just past the last bar
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * @return the number of bars in the window
+     */
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * @return true if there are no bars in the window
+     */
+    public boolean isEmpty() {
+        return to == from;
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the bar's date, encoded with {@link DaySeries#toTime}
+     */
+    public long getTime(final int i) {
+        return series.getTime(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the bar's date
+     */
+    @NonNull
+    public LocalDateTime getDate(final int i) {
+        return series.getDate(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the opening price
+     */
+    public double getOpen(final int i) {
+        return series.getOpen(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the high price
+     */
+    public double getHigh(final int i) {
+        return series.getHigh(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the low price
+     */
+    public double getLow(final int i) {
+        return series.getLow(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the unadjusted closing price
+     */
+    public double getClose(final int i) {
+        return series.getClose(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the adjusted closing price
+     */
+    public double getAdjClose(final int i) {
+        return series.getAdjClose(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the volume
+     */
+    public long getVolume(final int i) {
+        return series.getVolume(index(i));
+    }
+
+    /**
+     * @param i Index within the window
+     * @return the day
+     */
+    @NonNull
+    public Day getDay(final int i) {
+        return series.getDay(index(i));
+    }
+
+    /**
+     * @return the window's days as a read-only list view
+     */
+    @NonNull
+    public List<Day> asList() {
+        return Collections.unmodifiableList(series.asList().subList(from, to));
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty())
+            return "SeriesSlice []";
+        return String.format("SeriesSlice [%s .. %s, %s bars]", getDate(0), getDate(size() - 1), size());
+    }
+
+    private int index(final int i) {
+        Preconditions.checkElementIndex(i, to - from);
+        return from + i;
+    }
+
+    /*
+     * Fields
+     */
+    private final DaySeries series;
+    private final int from;
+    private final int to;
+
+}
@@ -0,0 +1,72 @@
+package org.deroesch.tna.signals;
+
+/**
+ * How a {@link Condition} compares its two sides. The plain comparisons look at
+ * the current bar; the crossings also look at the bar before, and hold only on
+ * the bar where the order changes. Anything involving NaN, such as an indicator
+ * still warming up, is false.
+ */
+public enum Comparison {
+
+    ABOVE(">"),
+
+    BELOW("<"),
+
+    AT_LEAST(">="),
+
+    AT_MOST("<="),
+
+    /**
+     * Left was at or below right on the previous bar, and is above it now.
+     */
+    CROSSES_ABOVE("crosses above"),
+
+    /**
+     * Left was at or above right on the previous bar, and is below it now.
+     */
+    CROSSES_BELOW("crosses below");
+
+    Comparison(final String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @param prevLeft  Left side at the previous bar, NaN at the first
+     * @param prevRight Right side at the previous bar, NaN at the first
+     * @param left      Left side at this bar
+     * @param right     Right side at this bar
+     * @return true if the condition holds at this bar
+     */
+    public boolean test(final double prevLeft, final double prevRight, final double left, final double right) {
+        // A switch rather than per-constant bodies: the evaluator calls this for
+        // every condition on every bar, and a switch inlines where a virtual call
+        // over six implementations can't
+        switch (this) {
+        case ABOVE:
+            return left > right;
+        case BELOW:
+            return left < right;
+        case AT_LEAST:
+            return left >= right;
+        case AT_MOST:
+            return left <= right;
+        case CROSSES_ABOVE:
+            return prevLeft <= prevRight && left > right;
+        default:
+            return prevLeft >= prevRight && left < right;
+        }
+    }
+
+    /**
+     * @return the text form, e.g. &gt;= or crosses above
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /*
+     * Fields
+     */
+    private final String symbol;
+
+}
@@ -0,0 +1,120 @@
+package org.deroesch.tna.signals;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * One comparison between two operands, e.g. SMA(50) crosses above SMA(200) or
+ * CLOSE &gt; BB_UPPER(20,2). Immutable, and usable as a map key, so a
+ * {@link RuleSet} can evaluate a condition once however many rules share it.
+ * The text form, as produced by toString(), can be read back with
+ * {@link #parse(String)}.
+ */
+public final class Condition {
+
+    /**
+     * @param left
+     * @param comparison
+     * @param right
+     */
+    public Condition(@NonNull final Operand left, @NonNull final Comparison comparison,
+            @NonNull final Operand right) {
+        Preconditions.checkNotNull(left);
+        Preconditions.checkNotNull(comparison);
+        Preconditions.checkNotNull(right);
+        Preconditions.checkArgument(!(left.isConstant() && right.isConstant()), "Nothing to compare in %s %s %s",
+                left, comparison.getSymbol(), right);
+
+        this.left = left;
+        this.comparison = comparison;
+        this.right = right;
+    }
+
+    /**
+     * Read the text form: an operand, one of &gt; &lt; &gt;= &lt;= "crosses above"
+     * "crosses below", and another operand. Case insensitive.
+     *
+     * @param text
+     * @return the condition
+     */
+    @NonNull
+    public static Condition parse(@NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        final Matcher m = SYNTAX.matcher(text.trim());
+        Preconditions.checkArgument(m.matches(), "Can't parse condition %s", text);
+
+        final String symbol = m.group(2).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        for (final Comparison comparison : Comparison.values())
+            if (comparison.getSymbol().equals(symbol))
+                return new Condition(Operand.parse(m.group(1)), comparison, Operand.parse(m.group(3)));
+        throw new IllegalArgumentException(String.format("Can't parse condition %s", text));
+    }
+
+    /**
+     * @return the left side
+     */
+    @NonNull
+    public Operand getLeft() {
+        return left;
+    }
+
+    /**
+     * @return how the sides are compared
+     */
+    @NonNull
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    /**
+     * @return the right side
+     */
+    @NonNull
+    public Operand getRight() {
+        return right;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(left, comparison, right);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Condition)) {
+            return false;
+        }
+        final Condition other = (Condition) obj;
+        return comparison == other.comparison && left.equals(other.left) && right.equals(other.right);
+    }
+
+    @Override
+    public String toString() {
+        return left + " " + comparison.getSymbol() + " " + right;
+    }
+
+    /*
+     * Fields
+     */
+    private final Operand left;
+    private final Comparison comparison;
+    private final Operand right;
+
+    /*
+     * LEFT op RIGHT. Operands hold no comparison characters, so the first one
+     * found is the operator.
+     */
+    private static final Pattern SYNTAX = Pattern.compile(
+            "([^<>]+?)\\s*(>=|<=|>|<|\\bcrosses\\s+above\\b|\\bcrosses\\s+below\\b)\\s*([^<>]+)",
+            Pattern.CASE_INSENSITIVE);
+
+}
@@ -0,0 +1,178 @@
+package org.deroesch.tna.signals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.algos.Smoother;
+import org.deroesch.tna.models.DaySeries;
+
+/**
+ * One series' state under a {@link RuleSet}: the indicators' smoothers, the
+ * previous and current bar's slot values, and which rules held at the previous
+ * bar. Not thread safe.
+ */
+final class Evaluator {
+
+    /**
+     * @param set
+     */
+    Evaluator(final RuleSet set) {
+        this.set = set;
+        this.smoothers = new Smoother[set.specSlots.length];
+        for (int k = 0; k < smoothers.length; k++)
+            smoothers[k] = set.getSpecs().get(k).newSmoother();
+        this.previous = set.initial.clone();
+        this.current = set.initial.clone();
+        this.met = new boolean[set.comparisons.length];
+        this.active = new boolean[set.ruleConditions.length];
+        this.fired = new int[set.ruleConditions.length];
+    }
+
+    /**
+     * Forget every bar.
+     */
+    void reset() {
+        for (final Smoother smoother : smoothers)
+            smoother.reset();
+        System.arraycopy(set.initial, 0, previous, 0, previous.length);
+        System.arraycopy(set.initial, 0, current, 0, current.length);
+        Arrays.fill(active, false);
+    }
+
+    /**
+     * Evaluate bars [from, to) of a series, reading its columns in place.
+     *
+     * @param series
+     * @param from   First bar, inclusive
+     * @param to     Last bar, exclusive
+     * @param symbol Names the security in the events
+     * @param events Gets the events, or null to only warm up
+     */
+    void feed(final DaySeries series, final int from, final int to, final String symbol,
+            final List<SignalEvent> events) {
+        final double[] opens = series.getOpenColumn();
+        final double[] highs = series.getHighColumn();
+        final double[] lows = series.getLowColumn();
+        final double[] closes = series.getCloseColumn();
+        final double[] adjCloses = series.getAdjCloseColumn();
+        final long[] volumes = series.getVolumeColumn();
+        for (int i = from; i < to; i++) {
+            final double close = adjCloses[i];
+            final double factor = MovingAverage.adjustment(closes[i], close);
+            final int count = step(opens[i] * factor, highs[i] * factor, lows[i] * factor, close, volumes[i]);
+            if (null != events)
+                for (int j = 0; j < count; j++)
+                    events.add(event(series, i, symbol, fired[j]));
+        }
+    }
+
+    /**
+     * Evaluate one bar of a series.
+     *
+     * @param series
+     * @param i      The bar
+     * @return how many rules fired; see {@link #getFired(int)}
+     */
+    int step(final DaySeries series, final int i) {
+        final double close = series.getAdjClose(i);
+        final double factor = MovingAverage.adjustment(series.getClose(i), close);
+        return step(series.getOpen(i) * factor, series.getHigh(i) * factor, series.getLow(i) * factor, close,
+                series.getVolume(i));
+    }
+
+    /**
+     * Evaluate the next bar, already adjusted.
+     *
+     * @param open
+     * @param high
+     * @param low
+     * @param close
+     * @param volume
+     * @return how many rules fired; see {@link #getFired(int)}
+     */
+    int step(final double open, final double high, final double low, final double close, final double volume) {
+        // Constants sit in both arrays, so swapping keeps them
+        final double[] last = current;
+        current = previous;
+        previous = last;
+
+        final double[] now = current;
+        now[PriceField.OPEN.ordinal()] = open;
+        now[PriceField.HIGH.ordinal()] = high;
+        now[PriceField.LOW.ordinal()] = low;
+        now[PriceField.CLOSE.ordinal()] = close;
+        now[PriceField.VOLUME.ordinal()] = volume;
+
+        final int[] specSlots = set.specSlots;
+        for (int k = 0; k < smoothers.length; k++)
+            now[specSlots[k]] = smoothers[k].addBar(high, low, close, volume);
+
+        final int[] lefts = set.lefts;
+        final int[] rights = set.rights;
+        final Comparison[] comparisons = set.comparisons;
+        for (int c = 0; c < met.length; c++) {
+            final int l = lefts[c];
+            final int r = rights[c];
+            met[c] = comparisons[c].test(last[l], last[r], now[l], now[r]);
+        }
+
+        // A rule fires when it starts to hold
+        int count = 0;
+        final int[][] ruleConditions = set.ruleConditions;
+        for (int r = 0; r < active.length; r++) {
+            boolean holds = true;
+            for (final int c : ruleConditions[r])
+                if (!met[c]) {
+                    holds = false;
+                    break;
+                }
+            if (holds && !active[r])
+                fired[count++] = r;
+            active[r] = holds;
+        }
+        return count;
+    }
+
+    /**
+     * @param j Less than the last step's count
+     * @return the index of the j'th rule that fired on the last step
+     */
+    int getFired(final int j) {
+        return fired[j];
+    }
+
+    /**
+     * @param r
+     * @return true if rule r held at the last bar
+     */
+    boolean isActive(final int r) {
+        return active[r];
+    }
+
+    /**
+     * @param series
+     * @param i      The bar
+     * @param symbol
+     * @param r      The rule
+     * @return the event for rule r firing on bar i
+     */
+    SignalEvent event(final DaySeries series, final int i, final String symbol, final int r) {
+        return new SignalEvent(symbol, set.getRules().get(r).getName(), i, series.getDate(i),
+                series.getAdjClose(i));
+    }
+
+    /*
+     * Fields. previous and current are the last two bars' slot values; met[c] is
+     * whether condition c held at the last bar, active[r] likewise for rule r.
+     * fired[0, count) are the rules that fired on the last step.
+     */
+    private final RuleSet set;
+    private final Smoother[] smoothers;
+    private double[] previous;
+    private double[] current;
+    private final boolean[] met;
+    private final boolean[] active;
+    private final int[] fired;
+
+}
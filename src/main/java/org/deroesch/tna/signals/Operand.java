@@ -0,0 +1,145 @@
+package org.deroesch.tna.signals;
+
+import java.util.Objects;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorSpec;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * One side of a {@link Condition}: a field of the bar, an indicator, or a
+ * constant. Immutable, and usable as a map key. The text form, as produced by
+ * toString(), can be read back with {@link #parse(String)}.
+ */
+public final class Operand {
+
+    /**
+     * @param field
+     * @return an operand reading that field of each bar
+     */
+    @NonNull
+    public static Operand of(@NonNull final PriceField field) {
+        Preconditions.checkNotNull(field);
+        return new Operand(field, null, Double.NaN);
+    }
+
+    /**
+     * @param spec
+     * @return an operand reading that indicator at each bar
+     */
+    @NonNull
+    public static Operand of(@NonNull final IndicatorSpec spec) {
+        Preconditions.checkNotNull(spec);
+        return new Operand(null, spec, Double.NaN);
+    }
+
+    /**
+     * @param value Any finite number
+     * @return an operand that is always value
+     */
+    @NonNull
+    public static Operand of(final double value) {
+        Preconditions.checkArgument(Double.isFinite(value), "Bad constant %s", value);
+        return new Operand(null, null, value);
+    }
+
+    /**
+     * Read the text form: a field such as CLOSE, an indicator such as SMA(50), or
+     * a number. Case insensitive.
+     *
+     * @param text
+     * @return the operand
+     */
+    @NonNull
+    public static Operand parse(@NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        final String s = text.trim();
+        Preconditions.checkArgument(!s.isEmpty(), "Missing operand");
+
+        for (final PriceField field : PriceField.values())
+            if (field.name().equalsIgnoreCase(s))
+                return of(field);
+
+        final char c = s.charAt(0);
+        if (Character.isDigit(c) || '-' == c || '+' == c || '.' == c) {
+            try {
+                return of(Double.parseDouble(s));
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Can't parse operand %s", text), e);
+            }
+        }
+        return of(IndicatorSpec.parse(s));
+    }
+
+    /**
+     * @return the bar field, or null if this isn't one
+     */
+    public PriceField getField() {
+        return field;
+    }
+
+    /**
+     * @return the indicator, or null if this isn't one
+     */
+    public IndicatorSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return true if this is a constant
+     */
+    public boolean isConstant() {
+        return null == field && null == spec;
+    }
+
+    /**
+     * @return the constant's value, or NaN if this isn't one
+     */
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, spec, value);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Operand)) {
+            return false;
+        }
+        final Operand other = (Operand) obj;
+        return field == other.field && Objects.equals(spec, other.spec)
+                && Double.compare(value, other.value) == 0;
+    }
+
+    @Override
+    public String toString() {
+        if (null != field)
+            return field.name();
+        if (null != spec)
+            return spec.toString();
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    private Operand(final PriceField field, final IndicatorSpec spec, final double value) {
+        this.field = field;
+        this.spec = spec;
+        this.value = value;
+    }
+
+    /*
+     * Fields. Exactly one of field, spec and a finite value is set.
+     */
+    private final PriceField field;
+    private final IndicatorSpec spec;
+    private final double value;
+
+}
@@ -0,0 +1,13 @@
+package org.deroesch.tna.signals;
+
+/**
+ * A bar's own values, as a rule can compare them. Prices are adjusted the way
+ * {@link org.deroesch.tna.algos.MovingAverage#computeBars} adjusts them, so they
+ * line up with the indicators: the close is the adjusted close, and the open,
+ * high and low are scaled by adjusted close / close. Volume is as traded.
+ */
+public enum PriceField {
+
+    OPEN, HIGH, LOW, CLOSE, VOLUME;
+
+}
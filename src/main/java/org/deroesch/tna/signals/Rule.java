@@ -0,0 +1,123 @@
+package org.deroesch.tna.signals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A named signal: one or more {@link Condition}s that must all hold, e.g.
+ * "golden cross" is SMA(50) crosses above SMA(200). A rule fires on the bar
+ * where its conditions start to hold together, not on every bar they go on
+ * holding, so CLOSE &gt; BB_UPPER(20,2) fires once per excursion above the band.
+ * Immutable.
+ */
+public final class Rule {
+
+    /**
+     * @param name       Names the rule in its events
+     * @param conditions All must hold; duplicates are dropped
+     */
+    public Rule(@NonNull final String name, @NonNull final List<Condition> conditions) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(conditions);
+        Preconditions.checkArgument(!name.isBlank(), "Rule has no name");
+        Preconditions.checkArgument(!conditions.isEmpty(), "Rule %s has no conditions", name);
+
+        this.name = name.trim();
+        this.conditions = List.copyOf(new LinkedHashSet<>(conditions));
+    }
+
+    /**
+     * Read conditions joined by "and", e.g. "CLOSE &gt; BB_UPPER(20,2) and RSI(14)
+     * &lt; 70". Case insensitive.
+     *
+     * @param name Names the rule in its events
+     * @param text
+     * @return the rule
+     */
+    @NonNull
+    public static Rule parse(@NonNull final String name, @NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        final List<Condition> conditions = new ArrayList<>();
+        for (final String part : AND.split(text.trim()))
+            conditions.add(Condition.parse(part));
+        return new Rule(name, conditions);
+    }
+
+    /**
+     * Read a rule named by its own text.
+     *
+     * @param text
+     * @return the rule
+     */
+    @NonNull
+    public static Rule parse(@NonNull final String text) {
+        Preconditions.checkNotNull(text);
+        return parse(text, text);
+    }
+
+    /**
+     * @return the name
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the conditions, in order
+     */
+    @NonNull
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + conditions.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Rule)) {
+            return false;
+        }
+        final Rule other = (Rule) obj;
+        return name.equals(other.name) && conditions.equals(other.conditions);
+    }
+
+    /**
+     * @return the conditions' text form, which {@link #parse(String, String)}
+     *         reads back
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Condition condition : conditions) {
+            if (builder.length() > 0)
+                builder.append(" and ");
+            builder.append(condition);
+        }
+        return builder.toString();
+    }
+
+    /*
+     * Fields
+     */
+    private final String name;
+    private final List<Condition> conditions;
+
+    /*
+     * Splits conditions
+     */
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+
+}
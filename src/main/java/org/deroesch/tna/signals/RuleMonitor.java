@@ -0,0 +1,105 @@
+package org.deroesch.tna.signals;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Evaluates a {@link RuleSet} on each bar appended to one series and tells a
+ * {@link SignalListener} about the rules that fire. An append costs one step of
+ * the set's indicators and conditions, however long the history. Made by
+ * {@link RuleSet#attach}.
+ * <p>
+ * Smoothers remember their whole history, so attaching (and any reset of the
+ * series) replays every bar once, quietly. After that the monitor fires exactly
+ * where {@link RuleSet#scan} of the grown series would.
+ */
+public class RuleMonitor implements SeriesListener {
+
+    /**
+     * @param set
+     * @param symbol   Names the security in the events
+     * @param listener Told about each event
+     */
+    RuleMonitor(@NonNull final RuleSet set, @NonNull final String symbol, @NonNull final SignalListener listener) {
+        Preconditions.checkNotNull(set);
+        Preconditions.checkNotNull(symbol);
+        Preconditions.checkNotNull(listener);
+        this.set = set;
+        this.symbol = symbol;
+        this.listener = listener;
+        this.evaluator = new Evaluator(set);
+    }
+
+    @Override
+    public void onAppend(final DaySeries series, final int index) {
+        final int count = evaluator.step(series, index);
+        for (int j = 0; j < count; j++) {
+            final SignalEvent event = evaluator.event(series, index, symbol, evaluator.getFired(j));
+            try {
+                listener.onSignal(event);
+            } catch (final RuntimeException e) {
+                // The append has happened; a bad listener mustn't undo it
+                logger.warn(String.format("Signal listener failed on %s", event), e);
+            }
+        }
+    }
+
+    @Override
+    public void onReset(final DaySeries series) {
+        prime(series);
+    }
+
+    /**
+     * @param rule A rule's name
+     * @return true if all the rule's conditions held at the newest bar
+     */
+    public boolean isActive(@NonNull final String rule) {
+        Preconditions.checkNotNull(rule);
+        final int r = set.indexOf(rule);
+        Preconditions.checkArgument(r >= 0, "No rule named %s", rule);
+        return evaluator.isActive(r);
+    }
+
+    /**
+     * @return the rules being evaluated
+     */
+    @NonNull
+    public RuleSet getRuleSet() {
+        return set;
+    }
+
+    /**
+     * @return the security named in the events
+     */
+    @NonNull
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /*
+     * Replay the whole series without telling anyone.
+     */
+    void prime(final DaySeries series) {
+        evaluator.reset();
+        evaluator.feed(series, 0, series.size(), symbol, null);
+    }
+
+    /*
+     * Fields
+     */
+    private final RuleSet set;
+    private final String symbol;
+    private final SignalListener listener;
+    private final Evaluator evaluator;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final Logger logger = LoggerFactory.getLogger(RuleMonitor.class);
+
+}
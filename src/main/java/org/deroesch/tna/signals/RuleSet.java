@@ -0,0 +1,206 @@
+package org.deroesch.tna.signals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.models.DaySeries;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A fixed set of {@link Rule}s, compiled for evaluation. Every indicator the
+ * rules read is computed once per bar however many rules read it, and every
+ * distinct condition is tested once however many rules share it, so a bar costs
+ * O(indicators + conditions + rules) whatever the length of the history.
+ * <p>
+ * The same evaluation runs two ways. {@link #scan} makes one pass over a
+ * series and returns every event; {@link #attach} keeps a {@link RuleMonitor}
+ * on a live series that evaluates each appended bar and tells a listener. Both
+ * feed the indicators' streaming forms with adjusted bars, as
+ * {@link org.deroesch.tna.algos.MovingAverage#computeBars} does, so a monitor
+ * fires exactly where a scan of the grown series would.
+ * <p>
+ * Immutable, so one set can scan or watch any number of series at once; the
+ * per-series state lives in each scan or monitor.
+ */
+public class RuleSet {
+
+    /**
+     * @param rules Names must be unique; exact duplicates are dropped
+     */
+    public RuleSet(@NonNull final Collection<Rule> rules) {
+        Preconditions.checkNotNull(rules);
+        this.rules = List.copyOf(new LinkedHashSet<>(rules));
+        Preconditions.checkArgument(!this.rules.isEmpty(), "No rules");
+
+        final Set<String> names = new HashSet<>();
+        for (final Rule rule : this.rules)
+            Preconditions.checkArgument(names.add(rule.getName()), "Two rules named %s", rule.getName());
+
+        // Bar fields take the first slots, then each indicator and constant once
+        final Map<Operand, Integer> slots = new HashMap<>();
+        final Map<IndicatorSpec, Integer> specSlots = new LinkedHashMap<>();
+        final Map<Condition, Integer> conditionIndexes = new LinkedHashMap<>();
+        final List<Double> values = new ArrayList<>();
+        for (final PriceField field : PriceField.values()) {
+            slots.put(Operand.of(field), field.ordinal());
+            values.add(Double.NaN);
+        }
+
+        this.ruleConditions = new int[this.rules.size()][];
+        for (int r = 0; r < this.rules.size(); r++) {
+            final List<Condition> conditions = this.rules.get(r).getConditions();
+            ruleConditions[r] = new int[conditions.size()];
+            for (int c = 0; c < conditions.size(); c++) {
+                final Condition condition = conditions.get(c);
+                for (final Operand operand : List.of(condition.getLeft(), condition.getRight()))
+                    if (!slots.containsKey(operand)) {
+                        final int slot = values.size();
+                        slots.put(operand, slot);
+                        values.add(operand.getValue());
+                        if (null != operand.getSpec())
+                            specSlots.put(operand.getSpec(), slot);
+                    }
+                conditionIndexes.putIfAbsent(condition, conditionIndexes.size());
+                ruleConditions[r][c] = conditionIndexes.get(condition);
+            }
+        }
+
+        this.specs = List.copyOf(specSlots.keySet());
+        this.specSlots = specSlots.values().stream().mapToInt(Integer::intValue).toArray();
+        this.initial = values.stream().mapToDouble(Double::doubleValue).toArray();
+
+        this.conditions = List.copyOf(conditionIndexes.keySet());
+        final int count = this.conditions.size();
+        this.lefts = new int[count];
+        this.rights = new int[count];
+        this.comparisons = new Comparison[count];
+        for (int c = 0; c < count; c++) {
+            final Condition condition = this.conditions.get(c);
+            lefts[c] = slots.get(condition.getLeft());
+            rights[c] = slots.get(condition.getRight());
+            comparisons[c] = condition.getComparison();
+        }
+    }
+
+    /**
+     * Evaluate every rule over a whole series, in one pass.
+     *
+     * @param series Read in place; pass a snapshot if others may append meanwhile
+     * @param symbol Names the security in the events
+     * @return the events, in bar order, then in rule order within a bar
+     */
+    @NonNull
+    public List<SignalEvent> scan(@NonNull final DaySeries series, @NonNull final String symbol) {
+        Preconditions.checkNotNull(series);
+        Preconditions.checkNotNull(symbol);
+
+        final List<SignalEvent> events = new ArrayList<>();
+        new Evaluator(this).feed(series, 0, series.size(), symbol, events);
+        return events;
+    }
+
+    /**
+     * Evaluate every rule over many securities, one series per task on the
+     * common fork-join pool.
+     *
+     * @param universe Series by symbol, read in place
+     * @return the events by symbol (sorted); symbols with none map to an empty
+     *         list
+     */
+    @NonNull
+    public Map<String, List<SignalEvent>> scan(@NonNull final Map<String, DaySeries> universe) {
+        Preconditions.checkNotNull(universe);
+        final Map<String, List<SignalEvent>> events = new ArrayList<>(universe.entrySet()).parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> scan(e.getValue(), e.getKey()), (a, b) -> a,
+                        TreeMap::new));
+        return Collections.unmodifiableMap(events);
+    }
+
+    /**
+     * Start watching a series. The monitor replays the existing bars to warm its
+     * indicators without telling the listener, then tells it about rules firing
+     * on each bar appended from now on.
+     *
+     * @param series   The series to watch
+     * @param symbol   Names the security in the events
+     * @param listener Told about each event
+     * @return the registered monitor; remove it from the series to stop
+     */
+    @NonNull
+    public RuleMonitor attach(@NonNull final DaySeries series, @NonNull final String symbol,
+            @NonNull final SignalListener listener) {
+        Preconditions.checkNotNull(series);
+        final RuleMonitor monitor = new RuleMonitor(this, symbol, listener);
+        // Holding the writers' lock, so no append slips in between
+        synchronized (series) {
+            monitor.prime(series);
+            series.addListener(monitor);
+        }
+        return monitor;
+    }
+
+    /**
+     * @return the rules, in order
+     */
+    @NonNull
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return every indicator the rules read, each once
+     */
+    @NonNull
+    public List<IndicatorSpec> getSpecs() {
+        return specs;
+    }
+
+    /**
+     * @return every distinct condition, each once
+     */
+    @NonNull
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @param name
+     * @return the rule's position in {@link #getRules()}, or -1
+     */
+    int indexOf(final String name) {
+        for (int r = 0; r < rules.size(); r++)
+            if (rules.get(r).getName().equals(name))
+                return r;
+        return -1;
+    }
+
+    /*
+     * Fields. Each bar's values sit in slots: the PriceFields by ordinal, then the
+     * indicators and constants. initial[s] is a constant's value, else NaN.
+     * specs[k] writes slot specSlots[k]. Condition c tests slots lefts[c] and
+     * rights[c]; rule r holds when all of conditions ruleConditions[r] do.
+     */
+    private final List<Rule> rules;
+    private final List<IndicatorSpec> specs;
+    private final List<Condition> conditions;
+    final int[] specSlots;
+    final double[] initial;
+    final int[] lefts;
+    final int[] rights;
+    final Comparison[] comparisons;
+    final int[][] ruleConditions;
+
+}
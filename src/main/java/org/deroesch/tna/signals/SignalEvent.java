@@ -0,0 +1,106 @@
+package org.deroesch.tna.signals;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A rule firing on one bar of one security. Immutable.
+ */
+public final class SignalEvent {
+
+    /**
+     * @param symbol
+     * @param rule   The rule's name
+     * @param index  The bar's index in its series
+     * @param date   The bar's date
+     * @param close  The bar's adjusted close
+     */
+    public SignalEvent(@NonNull final String symbol, @NonNull final String rule, final int index,
+            @NonNull final LocalDateTime date, final double close) {
+        Preconditions.checkNotNull(symbol);
+        Preconditions.checkNotNull(rule);
+        Preconditions.checkNotNull(date);
+        Preconditions.checkArgument(index >= 0);
+
+        this.symbol = symbol;
+        this.rule = rule;
+        this.index = index;
+        this.date = date;
+        this.close = close;
+    }
+
+    /**
+     * @return the security
+     */
+    @NonNull
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the rule's name
+     */
+    @NonNull
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * @return the bar's index in its series
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the bar's date
+     */
+    @NonNull
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    /**
+     * @return the bar's adjusted close
+     */
+    public double getClose() {
+        return close;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, rule, index, date, close);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SignalEvent)) {
+            return false;
+        }
+        final SignalEvent other = (SignalEvent) obj;
+        return index == other.index && Double.compare(close, other.close) == 0 && symbol.equals(other.symbol)
+                && rule.equals(other.rule) && date.equals(other.date);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s on %s at %.2f", symbol, rule, date.toLocalDate(), close);
+    }
+
+    /*
+     * Fields
+     */
+    private final String symbol;
+    private final String rule;
+    private final int index;
+    private final LocalDateTime date;
+    private final double close;
+
+}
@@ -0,0 +1,17 @@
+package org.deroesch.tna.signals;
+
+/**
+ * Told when a {@link RuleMonitor}'s rules fire on an appended bar.
+ */
+@FunctionalInterface
+public interface SignalListener {
+
+    /**
+     * A rule fired. Called on the appending thread, holding the series' lock, so
+     * this should hand slow work off rather than do it.
+     *
+     * @param event
+     */
+    void onSignal(SignalEvent event);
+
+}
@@ -0,0 +1,289 @@
+package org.deroesch.tna.web;
+
+import java.nio.channels.Channels;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.db.DayDB;
+import org.deroesch.tna.db.SeriesCodec;
+import org.deroesch.tna.db.SeriesRegistry;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesSlice;
+import org.deroesch.tna.signals.Rule;
+import org.deroesch.tna.signals.RuleSet;
+import org.deroesch.tna.signals.SignalEvent;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bars, indicators and signals over HTTP.
+ *
+ * <pre>
+ * GET /api/symbols
+ * GET /api/bars/{symbol}?from=2021-01-04&amp;to=2021-01-08&amp;format=csv
+ * GET /api/indicators/{symbol}?spec=SMA(20)&amp;spec=EMA(12)&amp;from=...
+ * GET /api/export/{symbol}?from=...&amp;compress=true
+ * GET /api/signals/{symbol}?rule=SMA(50) crosses above SMA(200)&amp;rule=...&amp;from=...
+ * </pre>
+ *
+ * Dates are ISO days, both inclusive, and either can be left out. The format is
+ * json (the default) or csv; export is always the {@link SeriesCodec} binary
+ * form. Rows are streamed from the series as they're written. Each response
+ * carries an ETag built from the series' data version, so a poller sending
+ * If-None-Match gets a 304 until the data changes. Versions restart with the
+ * process, so tags also carry a per-process boot id; a tag from before a
+ * restart never matches.
+ */
+@RestController
+@RequestMapping("/api")
+public class SeriesController {
+
+    /**
+     * @param mapper Supplies the JSON factory
+     */
+    public SeriesController(final ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @return every registered symbol, sorted, whether or not its series has
+     *         been loaded yet
+     */
+    @GetMapping("/symbols")
+    public Set<String> getSymbols() {
+        return DayDB.getRegistry().getSymbols();
+    }
+
+    /**
+     * @param symbol
+     * @param from    First day, inclusive
+     * @param to      Last day, inclusive
+     * @param format  json or csv
+     * @param request
+     * @return the bars, or null after a 304
+     */
+    @GetMapping("/bars/{symbol}")
+    public ResponseEntity<StreamingResponseBody> getBars(@PathVariable final String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate to,
+            @RequestParam(defaultValue = JSON) final String format, final WebRequest request) {
+        final boolean csv = isCsv(format);
+        final DaySeries series = findSeries(symbol);
+        final long version = series.getVersion();
+
+        final String etag = etag(symbol, version, from, to, csv ? CSV : JSON, List.of());
+        if (request.checkNotModified(etag))
+            return null;
+
+        final SeriesSlice slice = slice(series, from, to);
+        final StreamingResponseBody body = csv ? out -> SeriesWriter.writeBarsCsv(slice, out)
+                : out -> SeriesWriter.writeBarsJson(slice, mapper.getFactory(), out);
+        return ResponseEntity.ok().eTag(etag).contentType(csv ? CSV_TYPE : MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * @param symbol
+     * @param specs   One or more, e.g. SMA(20)
+     * @param from    First day, inclusive
+     * @param to      Last day, inclusive
+     * @param format  json or csv
+     * @param request
+     * @return the indicator values, or null after a 304
+     */
+    @GetMapping("/indicators/{symbol}")
+    public ResponseEntity<StreamingResponseBody> getIndicators(@PathVariable final String symbol,
+            @RequestParam("spec") final List<String> specs,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate to,
+            @RequestParam(defaultValue = JSON) final String format, final WebRequest request) {
+        final boolean csv = isCsv(format);
+        final List<IndicatorSpec> wanted = new ArrayList<>();
+        for (final String text : new LinkedHashSet<>(specs))
+            wanted.add(IndicatorSpec.parse(text));
+        if (wanted.isEmpty())
+            throw new IllegalArgumentException("No indicators requested");
+
+        final DaySeries series = findSeries(symbol);
+        final long version = series.getVersion();
+
+        final String etag = etag(symbol, version, from, to, csv ? CSV : JSON, wanted);
+        if (request.checkNotModified(etag))
+            return null;
+
+        // Whole-series columns come from the cache; only the slice is written
+        final List<double[]> columns = new ArrayList<>();
+        for (final IndicatorSpec spec : wanted)
+            columns.add(DayDB.getRegistry().getIndicatorCache().get(symbol, series, spec));
+
+        final SeriesSlice slice = slice(series, from, to);
+        final StreamingResponseBody body = csv ? out -> SeriesWriter.writeIndicatorsCsv(slice, wanted, columns, out)
+                : out -> SeriesWriter.writeIndicatorsJson(slice, wanted, columns, mapper.getFactory(), out);
+        return ResponseEntity.ok().eTag(etag).contentType(csv ? CSV_TYPE : MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Bars in the {@link SeriesCodec} binary form, for other services to load with
+     * {@link SeriesCodec#read}.
+     *
+     * @param symbol
+     * @param from     First day, inclusive
+     * @param to       Last day, inclusive
+     * @param compress Deflate the body
+     * @param request
+     * @return the encoded bars, or null after a 304
+     */
+    @GetMapping("/export/{symbol}")
+    public ResponseEntity<StreamingResponseBody> getExport(@PathVariable final String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate to,
+            @RequestParam(defaultValue = "false") final boolean compress, final WebRequest request) {
+        final DaySeries series = findSeries(symbol);
+        final long version = series.getVersion();
+
+        final String etag = etag(symbol, version, from, to, compress ? DEFLATED : BINARY, List.of());
+        if (request.checkNotModified(etag))
+            return null;
+
+        // The channel wraps the container's stream, which the container closes
+        final SeriesSlice slice = slice(series, from, to);
+        final StreamingResponseBody body = out -> SeriesCodec.write(slice, Channels.newChannel(out), compress);
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    /**
+     * Where rules fire. The rules run over the whole series, so indicators are
+     * warm by the first day asked for, and only events in the range are returned.
+     *
+     * @param symbol
+     * @param rules   One or more, e.g. CLOSE &gt; BB_UPPER(20,2) and RSI(14) &lt; 70,
+     *                each named by its text
+     * @param from    First day, inclusive
+     * @param to      Last day, inclusive
+     * @param request
+     * @return the events in date order, or null after a 304
+     */
+    @GetMapping("/signals/{symbol}")
+    public ResponseEntity<List<SignalEvent>> getSignals(@PathVariable final String symbol,
+            @RequestParam("rule") final List<String> rules,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) final LocalDate to,
+            final WebRequest request) {
+        final List<Rule> wanted = new ArrayList<>();
+        for (final String text : new LinkedHashSet<>(rules))
+            wanted.add(Rule.parse(text));
+        if (wanted.isEmpty())
+            throw new IllegalArgumentException("No rules requested");
+        final RuleSet set = new RuleSet(wanted);
+
+        final DaySeries series = findSeries(symbol);
+        final long version = series.getVersion();
+
+        final String etag = etag(symbol, version, from, to, JSON, wanted);
+        if (request.checkNotModified(etag))
+            return null;
+
+        final SeriesSlice slice = slice(series, from, to);
+        final List<SignalEvent> events = new ArrayList<>();
+        for (final SignalEvent event : set.scan(series, SeriesRegistry.normalize(symbol)))
+            if (event.getIndex() >= slice.getFrom() && event.getIndex() < slice.getTo())
+                events.add(event);
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(events);
+    }
+
+    /**
+     * Bad dates, specs and formats are the caller's fault.
+     *
+     * @param e
+     * @return 400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(final IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+
+    /*
+     * A snapshot, so the ETag's version and the bars streamed out match even if an
+     * append lands mid-response.
+     */
+    private static DaySeries findSeries(final String symbol) {
+        final DaySeries series = DayDB.getSeries(symbol);
+        if (null == series)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown symbol " + symbol);
+        return series.snapshot();
+    }
+
+    private static SeriesSlice slice(final DaySeries series, final LocalDate from, final LocalDate to) {
+        final int size = series.size();
+        if (null == from && null == to)
+            return series.slice(0, size);
+
+        final LocalDateTime start = null == from ? LocalDateTime.MIN : from.atStartOfDay();
+        final LocalDateTime end = null == to ? LocalDateTime.MAX : to.atTime(LocalTime.MAX);
+        return series.slice(start, end);
+    }
+
+    private static boolean isCsv(final String format) {
+        switch (format.toLowerCase(Locale.ROOT)) {
+        case CSV:
+            return true;
+        case JSON:
+            return false;
+        default:
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    /*
+     * Changes whenever the series does or the process restarts, and differs
+     * between queries.
+     */
+    private static String etag(final String symbol, final long version, final LocalDate from, final LocalDate to,
+            final String format, final List<?> query) {
+        final int hash = Objects.hash(from, to, format, query);
+        return String.format("\"%s-%08x-%x-%08x\"", SeriesRegistry.normalize(symbol), BOOT_ID, version, hash);
+    }
+
+    /*
+     * Fields
+     */
+    private final ObjectMapper mapper;
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final String CSV = "csv";
+    private static final String JSON = "json";
+    private static final String BINARY = "binary";
+    private static final String DEFLATED = "binary+deflate";
+    private static final MediaType CSV_TYPE = new MediaType("text", "csv");
+
+    /*
+     * Series versions count from 0 in every process, so this keeps a tag issued
+     * before a restart from matching different data after it.
+     */
+    static final int BOOT_ID = ThreadLocalRandom.current().nextInt();
+
+}
@@ -0,0 +1,177 @@
+package org.deroesch.tna.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.SeriesSlice;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes bars and indicator columns straight from the series to a response
+ * stream, one row at a time, with nothing built up in between. NaN, meaning no
+ * value, is written as an empty CSV field or a JSON null.
+ */
+class SeriesWriter {
+
+    /**
+     * date,open,high,low,close,adjClose,volume
+     *
+     * @param slice
+     * @param out
+     * @throws IOException
+     */
+    static void writeBarsCsv(final SeriesSlice slice, final OutputStream out) throws IOException {
+        final Writer w = writer(out);
+        w.write("date,open,high,low,close,adjClose,volume\n");
+
+        final DaySeries series = slice.getSeries();
+        for (int i = slice.getFrom(); i < slice.getTo(); i++) {
+            w.write(DaySeries.toDate(series.getTime(i)).toString());
+            csv(w, series.getOpen(i));
+            csv(w, series.getHigh(i));
+            csv(w, series.getLow(i));
+            csv(w, series.getClose(i));
+            csv(w, series.getAdjClose(i));
+            w.write(',');
+            w.write(Long.toString(series.getVolume(i)));
+            w.write('\n');
+        }
+        w.flush();
+    }
+
+    /**
+     * An array of {"date", "open", "high", "low", "close", "adjClose", "volume"}
+     * objects.
+     *
+     * @param slice
+     * @param json
+     * @param out
+     * @throws IOException
+     */
+    static void writeBarsJson(final SeriesSlice slice, final JsonFactory json, final OutputStream out)
+            throws IOException {
+        try (JsonGenerator g = generator(json, out)) {
+            g.writeStartArray();
+
+            final DaySeries series = slice.getSeries();
+            for (int i = slice.getFrom(); i < slice.getTo(); i++) {
+                g.writeStartObject();
+                g.writeStringField("date", DaySeries.toDate(series.getTime(i)).toString());
+                json(g, "open", series.getOpen(i));
+                json(g, "high", series.getHigh(i));
+                json(g, "low", series.getLow(i));
+                json(g, "close", series.getClose(i));
+                json(g, "adjClose", series.getAdjClose(i));
+                g.writeNumberField("volume", series.getVolume(i));
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+
+    /**
+     * date, then one column per spec, headed by the spec's text form.
+     *
+     * @param slice
+     * @param specs
+     * @param columns Aligned with the whole series, one per spec
+     * @param out
+     * @throws IOException
+     */
+    static void writeIndicatorsCsv(final SeriesSlice slice, final List<IndicatorSpec> specs,
+            final List<double[]> columns, final OutputStream out) throws IOException {
+        final Writer w = writer(out);
+        w.write("date");
+        for (final IndicatorSpec spec : specs) {
+            w.write(',');
+            final String name = spec.toString();
+            w.write(name.indexOf(',') < 0 ? name : '"' + name + '"');
+        }
+        w.write('\n');
+
+        final DaySeries series = slice.getSeries();
+        for (int i = slice.getFrom(); i < slice.getTo(); i++) {
+            w.write(DaySeries.toDate(series.getTime(i)).toString());
+            for (final double[] column : columns)
+                csv(w, i < column.length ? column[i] : Double.NaN);
+            w.write('\n');
+        }
+        w.flush();
+    }
+
+    /**
+     * An array of objects with a "date" field and one field per spec, named by
+     * the spec's text form.
+     *
+     * @param slice
+     * @param specs
+     * @param columns Aligned with the whole series, one per spec
+     * @param json
+     * @param out
+     * @throws IOException
+     */
+    static void writeIndicatorsJson(final SeriesSlice slice, final List<IndicatorSpec> specs,
+            final List<double[]> columns, final JsonFactory json, final OutputStream out) throws IOException {
+        final String[] names = new String[specs.size()];
+        for (int k = 0; k < names.length; k++)
+            names[k] = specs.get(k).toString();
+
+        try (JsonGenerator g = generator(json, out)) {
+            g.writeStartArray();
+
+            final DaySeries series = slice.getSeries();
+            for (int i = slice.getFrom(); i < slice.getTo(); i++) {
+                g.writeStartObject();
+                g.writeStringField("date", DaySeries.toDate(series.getTime(i)).toString());
+                for (int k = 0; k < names.length; k++) {
+                    final double[] column = columns.get(k);
+                    json(g, names[k], i < column.length ? column[i] : Double.NaN);
+                }
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+
+    private static Writer writer(final OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /*
+     * Leaves the response stream open; the container owns it.
+     */
+    private static JsonGenerator generator(final JsonFactory json, final OutputStream out) throws IOException {
+        final JsonGenerator g = json.createGenerator(out, JsonEncoding.UTF8);
+        g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return g;
+    }
+
+    private static void csv(final Writer w, final double value) throws IOException {
+        w.write(',');
+        if (!Double.isNaN(value))
+            w.write(Double.toString(value));
+    }
+
+    private static void json(final JsonGenerator g, final String name, final double value) throws IOException {
+        if (Double.isNaN(value))
+            g.writeNullField(name);
+        else
+            g.writeNumberField(name, value);
+    }
+
+    /*************************************************************
+     * Miscellaneous
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+}
@@ -0,0 +1,143 @@
+package org.deroesch.tna.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.deroesch.tna.models.DaySeries;
+
+/**
+ * Shared data and checks for the algos tests. The data is a seeded random walk
+ * from 100, floored at 1, so a seed always gives the same numbers and a shorter
+ * series is a prefix of a longer one.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param n
+     * @param seed
+     * @return n closes
+     */
+    static double[] randomPrices(final int n, final long seed) {
+        final Random random = new Random(seed);
+        final double[] values = new double[n];
+        double price = START;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(FLOOR, price + random.nextGaussian());
+            values[i] = price;
+        }
+        return values;
+    }
+
+    /**
+     * Daily bars around the walk: each high and low a random distance from the
+     * close, opens and adjusted closes equal to it, volumes from 1000 to 1999.
+     *
+     * @param n
+     * @param seed
+     * @return n bars from 2000-01-01
+     */
+    static DaySeries randomSeries(final int n, final long seed) {
+        final Random random = new Random(seed);
+        final DaySeries series = new DaySeries(n);
+        final LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        double price = START;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(FLOOR, price + random.nextGaussian());
+            final double high = price + Math.abs(random.nextGaussian());
+            final double low = price - Math.abs(random.nextGaussian());
+            series.add(start.plusDays(i), price, high, low, price, price, 1000L + random.nextInt(1000));
+        }
+        return series;
+    }
+
+    /**
+     * @param smoother
+     * @param values
+     * @return the smoother's output for each value
+     */
+    static double[] run(final Smoother smoother, final double[] values) {
+        final double[] out = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            out[i] = smoother.add(values[i]);
+        return out;
+    }
+
+    /**
+     * @param smoother
+     * @param series   Bars with adjusted closes equal to raw ones
+     * @return the smoother's output for each bar
+     */
+    static double[] runBars(final Smoother smoother, final DaySeries series) {
+        final double[] out = new double[series.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = smoother.addBar(series.getHigh(i), series.getLow(i), series.getClose(i), series.getVolume(i));
+        return out;
+    }
+
+    /**
+     * Textbook EMA that skips leading NaNs and seeds with the mean of the first
+     * period real values.
+     *
+     * @param values
+     * @param period
+     * @param alpha
+     * @return the average, NaN until it's seeded
+     */
+    static double[] ema(final double[] values, final int period, final double alpha) {
+        final double[] out = new double[values.length];
+        Arrays.fill(out, Double.NaN);
+        int start = 0;
+        while (Double.isNaN(values[start]))
+            start++;
+
+        double seed = 0;
+        for (int i = start; i < start + period; i++)
+            seed += values[i];
+        double avg = seed / period;
+        out[start + period - 1] = avg;
+        for (int i = start + period; i < values.length; i++) {
+            avg = alpha * values[i] + (1 - alpha) * avg;
+            out[i] = avg;
+        }
+        return out;
+    }
+
+    /**
+     * NaN where expected is NaN, else within 1e-12 relative.
+     *
+     * @param expected
+     * @param actual
+     */
+    static void assertClose(final double[] expected, final double[] actual) {
+        assertClose(expected, actual, 1e-12);
+    }
+
+    /**
+     * NaN where expected is NaN, else within tolerance, relative to values
+     * bigger than 1.
+     *
+     * @param expected
+     * @param actual
+     * @param tolerance
+     */
+    static void assertClose(final double[] expected, final double[] actual, final double tolerance) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            if (Double.isNaN(expected[i]))
+                assertTrue(Double.isNaN(actual[i]), "index " + i);
+            else
+                assertEquals(expected[i], actual[i], tolerance * Math.max(1, Math.abs(expected[i])), "index " + i);
+        }
+    }
+
+    private static final double START = 100.0;
+    private static final double FLOOR = 1.0;
+
+}
@@ -0,0 +1,57 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.randomSeries;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+class IndicatorEngineTest {
+
+    private static final List<IndicatorSpec> SPECS = List.of(IndicatorSpec.sma(5), IndicatorSpec.sma(20),
+            IndicatorSpec.sma(50), IndicatorSpec.of(IndicatorType.EMA, 12), IndicatorSpec.of(IndicatorType.HMA, 16),
+            IndicatorSpec.of(IndicatorType.TEMA, 5));
+
+    @Test
+    void testSingleSeriesKeepsOrder() {
+        final DaySeries series = randomSeries(100, 1);
+        final Map<IndicatorSpec, double[]> result = IndicatorEngine.compute(series, SPECS);
+
+        assertEquals(SPECS, new ArrayList<>(result.keySet()));
+        for (final IndicatorSpec spec : SPECS)
+            assertArrayEquals(spec.compute(series), result.get(spec));
+    }
+
+    @Test
+    void testUniverseMatchesSequential() {
+        final Map<String, DaySeries> universe = new HashMap<>();
+        for (int s = 0; s < 37; s++)
+            universe.put("S" + s, randomSeries(200 + s, s));
+
+        final Map<String, Map<IndicatorSpec, double[]>> result;
+        try (IndicatorEngine engine = new IndicatorEngine(4)) {
+            assertEquals(4, engine.getParallelism());
+            result = engine.compute(universe, SPECS);
+        }
+
+        assertEquals(universe.keySet(), result.keySet());
+        universe.forEach((symbol, series) -> {
+            for (final IndicatorSpec spec : SPECS)
+                assertArrayEquals(spec.compute(series), result.get(symbol).get(spec));
+        });
+    }
+
+    @Test
+    void testEmptyUniverse() {
+        try (IndicatorEngine engine = new IndicatorEngine()) {
+            assertTrue(engine.compute(Map.of(), SPECS).isEmpty());
+        }
+    }
+}
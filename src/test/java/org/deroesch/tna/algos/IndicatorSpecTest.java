@@ -0,0 +1,99 @@
+package org.deroesch.tna.algos;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.IndicatorKey;
+import org.deroesch.tna.models.SeriesSlice;
+import org.junit.jupiter.api.Test;
+
+class IndicatorSpecTest {
+
+    @Test
+    void testEqualsAndHashCode() {
+        assertEquals(IndicatorSpec.sma(20), IndicatorSpec.sma(20));
+        assertEquals(IndicatorSpec.sma(20).hashCode(), IndicatorSpec.sma(20).hashCode());
+        assertNotEquals(IndicatorSpec.sma(20), IndicatorSpec.sma(50));
+        assertNotEquals(IndicatorSpec.sma(20), new Object());
+    }
+
+    @Test
+    void testKey() {
+        for (final int p : new int[] { 1, 20, 255, 256, 1000 })
+            assertEquals(IndicatorKey.sma(p), IndicatorSpec.sma(p).getKey());
+        // The cached specs share the cached keys
+        assertSame(IndicatorKey.sma(20), IndicatorSpec.sma(20).getKey());
+        final IndicatorSpec band = IndicatorSpec.parse("BB_UPPER(20,2.5)");
+        assertEquals(new IndicatorKey("BB_UPPER", 20, 2.5), band.getKey());
+        assertEquals(band.toString(), band.getKey().toString());
+        assertNotEquals(IndicatorSpec.of(IndicatorType.EMA, 20).getKey(), IndicatorKey.sma(20));
+    }
+
+    @Test
+    void testToStringAndParse() {
+        assertEquals("SMA(20)", IndicatorSpec.sma(20).toString());
+        assertEquals(IndicatorSpec.sma(20), IndicatorSpec.parse("sma( 20 )"));
+        assertEquals(IndicatorSpec.sma(5), IndicatorSpec.parse(IndicatorSpec.sma(5).toString()));
+        assertEquals(IndicatorSpec.of(IndicatorType.WILDER, 14), IndicatorSpec.parse("Wilder(14)"));
+        assertEquals("HMA(9)", IndicatorSpec.of(IndicatorType.HMA, 9).toString());
+    }
+
+    @Test
+    void testBadSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("SMA"));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("NOPE(3)"));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("SMA(1,2)"));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.sma(0));
+        // Out of range parameters fail at parse, not at compute
+        for (final String text : new String[] { "SMA(0)", "SMA(2.5)", "EMA(-3)", "STOCH_D(14,0)",
+                "MACD(26,12,9)", "MACD_HIST(12,12,9)", "BB_UPPER(0,2)", "BB_LOWER(20,NaN)" })
+            assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse(text), text);
+        assertThrows(IllegalArgumentException.class, () -> new IndicatorSpec(IndicatorType.WMA, 1e10));
+        assertEquals(IndicatorType.MAX_PERIOD, (int) IndicatorSpec.sma(IndicatorType.MAX_PERIOD).getParams()[0]);
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.sma(IndicatorType.MAX_PERIOD + 1));
+        assertEquals("BB_LOWER(20,2.5)", IndicatorSpec.parse("BB_LOWER(20,2.5)").toString());
+    }
+
+    @Test
+    void testParamsAreCopied() {
+        final double[] params = { 3 };
+        final IndicatorSpec spec = new IndicatorSpec(IndicatorType.SMA, params);
+        params[0] = 4;
+        spec.getParams()[0] = 5;
+        assertEquals(IndicatorSpec.sma(3), spec);
+    }
+
+    @Test
+    void testCompute() {
+        final DaySeries series = new DaySeries();
+        for (int i = 1; i <= 5; i++)
+            series.add(LocalDateTime.of(2021, 1, i, 0, 0), 0, 0, 0, 0, i * 10.0, 0);
+
+        assertArrayEquals(MovingAverage.compute(series, 3)[0], IndicatorSpec.sma(3).compute(series));
+    }
+
+    @Test
+    void testComputeSlice() {
+        final DaySeries series = new DaySeries();
+        for (int i = 1; i <= 10; i++)
+            series.add(LocalDateTime.of(2021, 1, i, 0, 0), 0, 0, 0, 0, i * 10.0, 0);
+
+        // Warm-up restarts at the slice, and the slice matches a copy of its bars
+        final SeriesSlice slice = series.slice(LocalDateTime.of(2021, 1, 4, 0, 0), LocalDateTime.of(2021, 1, 8, 0, 0));
+        final DaySeries copy = new DaySeries();
+        for (final Day day : slice.asList())
+            copy.add(day);
+
+        final double[] column = IndicatorSpec.sma(3).compute(slice);
+        assertArrayEquals(IndicatorSpec.sma(3).compute(copy), column);
+        assertArrayEquals(MovingAverage.compute(slice, 3)[0], column);
+        assertEquals(50.0, column[2]);
+    }
+}
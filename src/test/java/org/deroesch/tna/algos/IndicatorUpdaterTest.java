@@ -0,0 +1,78 @@
+package org.deroesch.tna.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndicatorUpdaterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    private static final List<IndicatorSpec> SPECS = List.of(IndicatorSpec.sma(5),
+            IndicatorSpec.of(IndicatorType.EMA, 5), IndicatorSpec.of(IndicatorType.WILDER, 5),
+            IndicatorSpec.of(IndicatorType.WMA, 5), IndicatorSpec.of(IndicatorType.DEMA, 5),
+            IndicatorSpec.of(IndicatorType.TEMA, 5), IndicatorSpec.of(IndicatorType.HMA, 9));
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        series = new DaySeries();
+        for (int i = 0; i < 30; i++)
+            append(i);
+    }
+
+    @Test
+    void testAppendsMatchFullRecompute() {
+        final IndicatorUpdater updater = IndicatorUpdater.attach(series, SPECS);
+
+        for (int i = 30; i < 60; i++) {
+            append(i);
+            final Map<IndicatorSpec, double[]> expected = IndicatorEngine.compute(series, SPECS);
+            for (final IndicatorSpec spec : SPECS)
+                assertEquals(expected.get(spec)[i], updater.getLatest(spec), 1e-9, spec.toString());
+        }
+
+        // The whole history is in the series' store too
+        final Map<IndicatorSpec, double[]> expected = IndicatorEngine.compute(series, SPECS);
+        for (final IndicatorSpec spec : SPECS)
+            for (int i = 0; i < 60; i++)
+                assertEquals(expected.get(spec)[i], series.getIndicators().get(spec.getKey(), i), 1e-9,
+                        spec.toString());
+    }
+
+    @Test
+    void testWarmUpAndReset() {
+        final DaySeries empty = new DaySeries();
+        final IndicatorUpdater updater = IndicatorUpdater.attach(empty, SPECS);
+        assertTrue(Double.isNaN(updater.getLatest(IndicatorSpec.sma(5))));
+
+        for (int i = 0; i < 5; i++)
+            empty.add(START.plusDays(i), 0, 0, 0, 0, 10.0, 0);
+        assertEquals(10.0, updater.getLatest(IndicatorSpec.sma(5)));
+        assertTrue(Double.isNaN(updater.getLatest(IndicatorSpec.of(IndicatorType.TEMA, 5))));
+
+        empty.clear();
+        assertTrue(Double.isNaN(updater.getLatest(IndicatorSpec.sma(5))));
+    }
+
+    @Test
+    void testUnknownSpec() {
+        final IndicatorUpdater updater = new IndicatorUpdater(SPECS);
+        assertEquals(SPECS, updater.getSpecs());
+        assertThrows(IllegalArgumentException.class, () -> updater.getLatest(IndicatorSpec.sma(99)));
+    }
+
+    private void append(final int i) {
+        final double close = 100 + 10 * Math.sin(i / 3.0);
+        series.add(START.plusDays(i), close, close, close, close, close, 1000L);
+    }
+}
@@ -1,5 +1,6 @@
 package org.deroesch.tna.algos;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -11,6 +12,7 @@ import java.util.List;
 
 import org.deroesch.tna.db.DayDB;
 import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -182,6 +184,58 @@ class MovingAverageTest {
         assertEquals(101.8333, DayDB.getDay(3).getMovingAvg(3), 0.001);
     }
 
+    @Test
+    void testComputeManyMatchesSeparatePasses() {
+        addTestDaysToDatabase(30);
+        DaySeries series = DayDB.getSeries();
+
+        double[][] together = MovingAverage.compute(series, 3, 5, 10);
+        assertEquals(3, together.length);
+        assertArrayEquals(MovingAverage.compute(series, 3)[0], together[0]);
+        assertArrayEquals(MovingAverage.compute(series, 5)[0], together[1]);
+        assertArrayEquals(MovingAverage.compute(series, 10)[0], together[2]);
+    }
+
+    @Test
+    void testComputeLeavesWarmUpAsNaN() {
+        addTestDaysToDatabase(6);
+
+        double[] avg = MovingAverage.compute(DayDB.getSeries(), 3)[0];
+        assertTrue(Double.isNaN(avg[0]));
+        assertTrue(Double.isNaN(avg[1]));
+        assertEquals(20.0, avg[2], 0.001);
+        assertEquals(50.0, avg[5], 0.001);
+
+        // Nothing is attached to the days
+        assertNull(DayDB.getDay(5).getMovingAvg(3));
+    }
+
+    @Test
+    void testComputeAllSeveralPeriods() {
+        addTestDaysToDatabase(5);
+
+        MovingAverage.computeAll(DayDB.getSeries(), 3, 5);
+        assertNull(DayDB.getDay(1).getMovingAvg(3));
+        assertEquals(40.0, DayDB.getDay(4).getMovingAvg(3), 0.001);
+        assertEquals(30.0, DayDB.getDay(4).getMovingAvg(5), 0.001);
+    }
+
+    @Test
+    void testKernelOnSubrange() {
+        double[] values = { 1, 2, 3, 4, 5, 6 };
+        double[][] out = new double[1][3];
+
+        MovingAverage.compute(values, 2, 5, new int[] { 2 }, out);
+        assertTrue(Double.isNaN(out[0][0]));
+        assertEquals(3.5, out[0][1], 0.001);
+        assertEquals(4.5, out[0][2], 0.001);
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> MovingAverage.compute(values, 2, 7, new int[] { 2 }, out));
+        assertThrows(IllegalArgumentException.class,
+                () -> MovingAverage.compute(values, 0, 6, new int[] { 2 }, out));
+    }
+
     private void addTestDaysToDatabase(int numDays) {
         for (int i = 1; i <= numDays; i++) {
             LocalDateTime date = LocalDateTime.of(2021, 1, i, 0, 0);
@@ -0,0 +1,110 @@
+package org.deroesch.tna.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.db.DayDB;
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.models.IndicatorKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MovingAverageUpdaterTest {
+
+    private static final String SYMBOL = "UPDT";
+    private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        series = DayDB.getRegistry().getOrCreate(SYMBOL);
+        for (int i = 0; i < 10; i++)
+            append(i);
+    }
+
+    @AfterEach
+    void afterEach() {
+        DayDB.getRegistry().remove(SYMBOL);
+    }
+
+    @Test
+    void testAppendsMatchFullRecompute() {
+        MovingAverage.computeAll(series, 3, 5);
+        MovingAverageUpdater.attach(series, 3, 5);
+
+        for (int i = 10; i < 20; i++)
+            append(i);
+
+        final double[][] expected = MovingAverage.compute(series, 3, 5);
+        for (int i = 10; i < 20; i++) {
+            assertEquals(expected[0][i], series.getDay(i).getMovingAvg(3), 1e-9);
+            assertEquals(expected[1][i], series.getDay(i).getMovingAvg(5), 1e-9);
+        }
+    }
+
+    @Test
+    void testShortHistory() {
+        final DaySeries fresh = DayDB.getRegistry().getOrCreate("UPDT2");
+        try {
+            MovingAverageUpdater.attach(fresh, 3);
+            DayDB.append("UPDT2", START, 1, 1, 1, 10, 10, 1);
+            DayDB.append("UPDT2", START.plusDays(1), 1, 1, 1, 20, 20, 1);
+            assertNull(fresh.getDay(1).getMovingAvg(3));
+
+            DayDB.append("UPDT2", START.plusDays(2), 1, 1, 1, 30, 30, 1);
+            assertEquals(20.0, fresh.getDay(2).getMovingAvg(3), 0.001);
+        } finally {
+            DayDB.getRegistry().remove("UPDT2");
+        }
+    }
+
+    @Test
+    void testResetReprimes() {
+        final MovingAverageUpdater updater = MovingAverageUpdater.attach(series, 2);
+        series.clear();
+        append(0);
+        append(1);
+        assertEquals(1.5, series.getDay(1).getMovingAvg(2), 0.001);
+
+        series.removeListener(updater);
+        append(2);
+        assertNull(series.getDay(2).getMovingAvg(2));
+    }
+
+    @Test
+    void testSortRebuildsColumns() {
+        // Newest first, as the data files come, then sorted
+        final DaySeries reversed = new DaySeries();
+        for (int i = 19; i >= 0; i--)
+            reversed.add(START.plusDays(i), 1, 1, 1, i * i, i * i, 1L);
+        MovingAverage.computeAll(reversed, 3, 5);
+        MovingAverageUpdater.attach(reversed, 3, 5);
+        reversed.sortByDate();
+
+        for (int i = 20; i < 25; i++)
+            reversed.add(START.plusDays(i), 1, 1, 1, i * i, i * i, 1L);
+
+        final double[][] expected = MovingAverage.compute(reversed, 3, 5);
+        for (int i = 0; i < reversed.size(); i++) {
+            assertEquals(expected[0][i], reversed.getIndicators().get(IndicatorKey.sma(3), i), 1e-9);
+            assertEquals(expected[1][i], reversed.getIndicators().get(IndicatorKey.sma(5), i), 1e-9);
+        }
+    }
+
+    @Test
+    void testAppendOutOfOrder() {
+        assertThrows(IllegalArgumentException.class, () -> DayDB.append(SYMBOL, START, 1, 1, 1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> DayDB.append(SYMBOL, START.plusDays(9), 1, 1, 1, 1, 1, 1));
+    }
+
+    private void append(final int i) {
+        final double close = i + 1.0;
+        DayDB.append(SYMBOL, START.plusDays(i), close, close, close, close, close, 100L);
+    }
+}
@@ -0,0 +1,250 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.assertClose;
+import static org.deroesch.tna.algos.Fixtures.ema;
+import static org.deroesch.tna.algos.Fixtures.randomSeries;
+import static org.deroesch.tna.algos.Fixtures.runBars;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RSI, MACD, stochastics, ATR, OBV and VWAP, each checked against a direct
+ * textbook computation, then fused and incremental against batch.
+ */
+class OscillatorTest {
+
+    private static final int N = 2000;
+    private static final long SEED = 3;
+    private static final DaySeries SERIES = randomSeries(N, SEED);
+    private static final double[] HIGHS = Arrays.copyOf(SERIES.getHighColumn(), N);
+    private static final double[] LOWS = Arrays.copyOf(SERIES.getLowColumn(), N);
+    private static final double[] CLOSES = Arrays.copyOf(SERIES.getCloseColumn(), N);
+    private static final double[] VOLUMES = Arrays.stream(SERIES.getVolumeColumn(), 0, N).asDoubleStream().toArray();
+
+    @Test
+    void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RelativeStrength(0));
+        assertThrows(IllegalArgumentException.class, () -> Macd.line(26, 12, 9));
+        assertThrows(IllegalArgumentException.class, () -> Stochastic.d(14, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AverageTrueRange(0));
+        assertThrows(IllegalArgumentException.class, () -> new VolumeWeightedAverage(0));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("MACD(12,26.5,9)"));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("OBV(1)"));
+    }
+
+    @Test
+    void testRsi() {
+        final RelativeStrength rsi = new RelativeStrength(2);
+        assertTrue(Double.isNaN(rsi.add(10)));
+        assertTrue(Double.isNaN(rsi.add(11)));
+        assertFalse(rsi.isReady());
+        assertEquals(100.0 * 0.5 / (0.5 + 1.0), rsi.add(9)); // gains 1, 0; losses 0, 2
+        assertTrue(rsi.isReady());
+
+        final RelativeStrength flat = new RelativeStrength(1);
+        flat.add(5);
+        assertEquals(50.0, flat.add(5));
+        assertEquals(100.0, flat.add(6));
+
+        assertClose(rsi(CLOSES, 14), runBars(new RelativeStrength(14), SERIES));
+    }
+
+    @Test
+    void testMacd() {
+        final double[] fast = ema(CLOSES, 12, 2.0 / 13);
+        final double[] slow = ema(CLOSES, 26, 2.0 / 27);
+        final double[] line = new double[N];
+        for (int i = 0; i < N; i++)
+            line[i] = fast[i] - slow[i];
+        final double[] signal = ema(line, 9, 2.0 / 10);
+        final double[] histogram = new double[N];
+        for (int i = 0; i < N; i++)
+            histogram[i] = line[i] - signal[i];
+
+        assertClose(line, runBars(Macd.line(12, 26, 9), SERIES));
+        assertClose(signal, runBars(Macd.signal(12, 26, 9), SERIES));
+        assertClose(histogram, runBars(Macd.histogram(12, 26, 9), SERIES));
+        assertTrue(Double.isNaN(runBars(Macd.signal(12, 26, 9), SERIES)[32]));
+        assertFalse(Double.isNaN(runBars(Macd.signal(12, 26, 9), SERIES)[33]));
+    }
+
+    @Test
+    void testStochastic() {
+        final double[] k = new double[N];
+        for (int i = 0; i < N; i++) {
+            if (i < 13) {
+                k[i] = Double.NaN;
+                continue;
+            }
+            double hh = HIGHS[i];
+            double ll = LOWS[i];
+            for (int j = i - 13; j < i; j++) {
+                hh = Math.max(hh, HIGHS[j]);
+                ll = Math.min(ll, LOWS[j]);
+            }
+            k[i] = 100 * (CLOSES[i] - ll) / (hh - ll);
+        }
+        assertClose(k, runBars(Stochastic.k(14), SERIES));
+
+        final double[] d = new double[N];
+        for (int i = 0; i < N; i++)
+            d[i] = i < 15 ? Double.NaN : (k[i] + k[i - 1] + k[i - 2]) / 3;
+        assertClose(d, runBars(Stochastic.d(14, 3), SERIES));
+
+        // A single price throughout has no range
+        assertEquals(50.0, Stochastic.k(1).add(7));
+    }
+
+    @Test
+    void testAtr() {
+        final double[] tr = new double[N];
+        for (int i = 0; i < N; i++) {
+            tr[i] = HIGHS[i] - LOWS[i];
+            if (i > 0)
+                tr[i] = Math.max(tr[i],
+                        Math.max(Math.abs(HIGHS[i] - CLOSES[i - 1]), Math.abs(LOWS[i] - CLOSES[i - 1])));
+        }
+        assertClose(wilder(tr, 14), runBars(new AverageTrueRange(14), SERIES));
+
+        // A gap counts, though the bar itself is narrow
+        final AverageTrueRange atr = new AverageTrueRange(1);
+        assertEquals(1.0, atr.addBar(11, 10, 10.5, 0));
+        assertEquals(5.0, atr.addBar(15.5, 15, 15, 0));
+    }
+
+    @Test
+    void testObvAndVwap() {
+        final OnBalanceVolume obv = new OnBalanceVolume();
+        assertFalse(obv.isReady());
+        assertEquals(0.0, obv.addBar(1, 1, 10, 100));
+        assertEquals(50.0, obv.addBar(1, 1, 11, 50));
+        assertEquals(50.0, obv.addBar(1, 1, 11, 70));
+        assertEquals(20.0, obv.addBar(1, 1, 9, 30));
+        assertTrue(obv.isReady());
+
+        final double[] vwap = new double[N];
+        for (int i = 0; i < N; i++) {
+            if (i < 19) {
+                vwap[i] = Double.NaN;
+                continue;
+            }
+            double pv = 0;
+            double v = 0;
+            for (int j = i - 19; j <= i; j++) {
+                pv += (HIGHS[j] + LOWS[j] + CLOSES[j]) / 3 * VOLUMES[j];
+                v += VOLUMES[j];
+            }
+            vwap[i] = pv / v;
+        }
+        assertClose(vwap, runBars(new VolumeWeightedAverage(20), SERIES));
+
+        // No volume, no average
+        final VolumeWeightedAverage quiet = new VolumeWeightedAverage(1);
+        assertTrue(Double.isNaN(quiet.add(5)));
+    }
+
+    @Test
+    void testFusedMatchesSeparate() {
+        final DaySeries series = randomSeries(N, SEED);
+        final List<IndicatorSpec> specs = List.of(IndicatorSpec.sma(20), IndicatorSpec.of(IndicatorType.RSI, 14),
+                IndicatorSpec.parse("MACD(12,26,9)"), IndicatorSpec.parse("MACD_HIST(12,26,9)"),
+                IndicatorSpec.parse("STOCH_D(14,3)"), IndicatorSpec.of(IndicatorType.ATR, 14),
+                IndicatorSpec.parse("OBV()"), IndicatorSpec.of(IndicatorType.VWAP, 20),
+                IndicatorSpec.of(IndicatorType.EMA, 10));
+
+        final Map<IndicatorSpec, double[]> fused = IndicatorEngine.compute(series, specs);
+        for (final IndicatorSpec spec : specs)
+            assertArrayEquals(spec.compute(series), fused.get(spec), spec.toString());
+
+        assertClose(rsi(CLOSES, 14), fused.get(specs.get(1)));
+        assertTrue(IndicatorType.ATR.readsBars());
+        assertFalse(IndicatorType.RSI.readsBars());
+    }
+
+    @Test
+    void testIncrementalMatchesBatch() {
+        final List<IndicatorSpec> specs = List.of(IndicatorSpec.of(IndicatorType.RSI, 14),
+                IndicatorSpec.parse("STOCH_K(14)"), IndicatorSpec.of(IndicatorType.ATR, 14),
+                IndicatorSpec.parse("OBV()"), IndicatorSpec.of(IndicatorType.VWAP, 20));
+
+        final DaySeries series = randomSeries(100, SEED);
+        final IndicatorUpdater updater = IndicatorUpdater.attach(series, specs);
+        final DaySeries all = randomSeries(N, SEED);
+        for (int i = 100; i < N; i++)
+            series.add(all.getTime(i), all.getOpen(i), all.getHigh(i), all.getLow(i), all.getClose(i),
+                    all.getAdjClose(i), all.getVolume(i));
+
+        for (final IndicatorSpec spec : specs) {
+            final double[] batch = spec.compute(series);
+            for (int i = 0; i < N; i++)
+                assertEquals(batch[i], series.getIndicators().get(spec.getKey(), i), spec + " at " + i);
+            assertEquals(batch[N - 1], updater.getLatest(spec));
+        }
+    }
+
+    @Test
+    void testAdjustedBars() {
+        // The same bars with every adjusted close halved: ranges halve too
+        final DaySeries raw = new DaySeries();
+        final DaySeries halved = new DaySeries();
+        for (int i = 0; i < 50; i++) {
+            final LocalDateTime date = LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i);
+            raw.add(date, CLOSES[i], HIGHS[i], LOWS[i], CLOSES[i], CLOSES[i], 100L);
+            halved.add(date, CLOSES[i], HIGHS[i], LOWS[i], CLOSES[i], CLOSES[i] / 2, 100L);
+        }
+        final IndicatorSpec atr = IndicatorSpec.of(IndicatorType.ATR, 5);
+        final double[] full = atr.compute(raw);
+        final double[] half = atr.compute(halved);
+        for (int i = 4; i < 50; i++)
+            assertEquals(full[i] / 2, half[i], 1e-12);
+
+        assertEquals(1.0, MovingAverage.adjustment(0.0, 5.0));
+        assertEquals(0.5, MovingAverage.adjustment(4.0, 2.0));
+    }
+
+    /*
+     * Textbook Wilder RSI: seed with the mean gain and loss, then (prev * (p - 1)
+     * + x) / p.
+     */
+    private static double[] rsi(final double[] closes, final int period) {
+        final double[] gains = new double[closes.length - 1];
+        final double[] losses = new double[closes.length - 1];
+        for (int i = 1; i < closes.length; i++) {
+            gains[i - 1] = Math.max(0, closes[i] - closes[i - 1]);
+            losses[i - 1] = Math.max(0, closes[i - 1] - closes[i]);
+        }
+        final double[] g = wilder(gains, period);
+        final double[] l = wilder(losses, period);
+        final double[] out = new double[closes.length];
+        out[0] = Double.NaN;
+        for (int i = 1; i < closes.length; i++)
+            out[i] = 100 - 100 / (1 + g[i - 1] / l[i - 1]);
+        return out;
+    }
+
+    private static double[] wilder(final double[] values, final int period) {
+        final double[] out = new double[values.length];
+        double avg = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i < period) {
+                avg += values[i] / period;
+                out[i] = i == period - 1 ? avg : Double.NaN;
+            } else {
+                avg = (avg * (period - 1) + values[i]) / period;
+                out[i] = avg;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,93 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.randomPrices;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+class PrefixSumTest {
+
+    @Test
+    void testSmall() {
+        final double[] values = { 1, 2, 3, 4, 5 };
+        final PrefixSum prefix = PrefixSum.build(values, 0, 5);
+
+        assertEquals(5, prefix.size());
+        assertEquals(15.0, prefix.sum(0, 5));
+        assertEquals(9.0, prefix.sum(1, 4));
+        assertEquals(0.0, prefix.sum(2, 2));
+        assertEquals(4.5, prefix.mean(3, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> prefix.sum(0, 6));
+        assertThrows(IllegalArgumentException.class, () -> prefix.mean(2, 2));
+    }
+
+    @Test
+    void testSubrange() {
+        final double[] values = { 100, 1, 2, 3, 100 };
+        final PrefixSum prefix = PrefixSum.build(values, 1, 4);
+        assertEquals(3, prefix.size());
+        assertEquals(6.0, prefix.sum(0, 3));
+    }
+
+    @Test
+    void testMovingAverageMatchesKernel() {
+        final double[] values = randomPrices(5000, 3);
+        final double[][] expected = new double[1][values.length];
+        MovingAverage.compute(values, 0, values.length, new int[] { 20 }, expected);
+
+        final double[] out = new double[values.length];
+        PrefixSum.build(values, 0, values.length).movingAverage(20, out);
+        for (int i = 0; i < values.length; i++) {
+            if (i < 19)
+                assertTrue(Double.isNaN(out[i]));
+            else
+                assertEquals(expected[0][i], out[i], 1e-9);
+        }
+    }
+
+    /**
+     * Past the parallel threshold, across many chunks, with awkward magnitudes.
+     * Every window mean must sit within a few ulps of the exact answer.
+     */
+    @Test
+    void testErrorIsBoundedOnLongSeries() {
+        final int n = 1 << 20;
+        final double[] values = randomPrices(n, 11);
+        values[12345] = 1e12;
+        final PrefixSum prefix = PrefixSum.build(values, 0, n);
+
+        final Random random = new Random(5);
+        for (int q = 0; q < 200; q++) {
+            final int from = random.nextInt(n - 1000);
+            final int to = from + 1 + random.nextInt(1000);
+
+            BigDecimal exact = BigDecimal.ZERO;
+            for (int i = from; i < to; i++)
+                exact = exact.add(new BigDecimal(values[i]));
+            final double mean = exact.divide(BigDecimal.valueOf(to - from), MathContext.DECIMAL128).doubleValue();
+
+            assertEquals(mean, prefix.mean(from, to), 8 * Math.ulp(mean));
+        }
+    }
+
+    @Test
+    void testComputeParallelMatchesSequential() {
+        final DaySeries series = new DaySeries();
+        final double[] values = randomPrices(3000, 9);
+        for (int i = 0; i < values.length; i++)
+            series.add(i * 86400L, values[i], values[i], values[i], values[i], values[i], 1);
+
+        final double[][] sequential = MovingAverage.compute(series, 5, 50);
+        final double[][] parallel = MovingAverage.computeParallel(series, 5, 50);
+        for (int k = 0; k < 2; k++)
+            for (int i = 0; i < values.length; i++)
+                assertEquals(sequential[k][i], parallel[k][i], 1e-9);
+    }
+}
@@ -0,0 +1,179 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.randomPrices;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+class PriceKernelTest {
+
+    /*
+     * Lengths around the vector widths, so every kernel runs with and without a
+     * scalar tail, and with nothing but a tail.
+     */
+    private static final int[] SIZES = { 0, 1, 2, 3, 7, 8, 9, 15, 16, 17, 63, 64, 65, 1000, 4099 };
+
+    @Test
+    void testSmall() {
+        final double[] highs = { 11, 12, 13 };
+        final double[] lows = { 9, 10, 10 };
+        final double[] closes = { 10, 11, 12.5 };
+        final double[] out = new double[3];
+
+        for (final PriceKernel kernel : available()) {
+            kernel.returns(closes, 0, 3, out);
+            assertArrayEquals(new double[] { Double.NaN, 11.0 / 10 - 1, 12.5 / 11 - 1 }, out);
+            kernel.range(highs, lows, 0, 3, out);
+            assertArrayEquals(new double[] { 2, 2, 3 }, out);
+            kernel.typicalPrice(highs, lows, closes, 0, 3, out);
+            assertArrayEquals(new double[] { 10, 11, 35.5 / 3 }, out);
+
+            final double[][] sums = new double[2][3];
+            kernel.windowSums(closes, 0, 3, new int[] { 1, 2 }, sums);
+            assertArrayEquals(closes, sums[0]);
+            assertArrayEquals(new double[] { Double.NaN, 21, 23.5 }, sums[1]);
+
+            kernel.range(highs, lows, 1, 3, out);
+            assertEquals(2.0, out[0]);
+            assertEquals(3.0, out[1]);
+        }
+    }
+
+    @Test
+    void testVectorMatchesScalar() {
+        assumeTrue(PriceKernel.VECTOR.isAvailable(), "Run with --add-modules jdk.incubator.vector");
+        for (final int size : SIZES) {
+            final double[] highs = randomPrices(size + 3, 3L * size);
+            final double[] lows = randomPrices(size + 3, 3L * size + 1);
+            final double[] closes = randomPrices(size + 3, 3L * size + 2);
+
+            // Start one in, so the loads are unaligned
+            for (final int from : new int[] { 0, 1 }) {
+                final int to = from + size;
+                final double[] scalar = new double[size];
+                final double[] vector = new double[size];
+
+                PriceKernel.SCALAR.returns(closes, from, to, scalar);
+                PriceKernel.VECTOR.returns(closes, from, to, vector);
+                assertArrayEquals(scalar, vector, "returns of " + size);
+
+                PriceKernel.SCALAR.range(highs, lows, from, to, scalar);
+                PriceKernel.VECTOR.range(highs, lows, from, to, vector);
+                assertArrayEquals(scalar, vector, "ranges of " + size);
+
+                PriceKernel.SCALAR.typicalPrice(highs, lows, closes, from, to, scalar);
+                PriceKernel.VECTOR.typicalPrice(highs, lows, closes, from, to, vector);
+                assertArrayEquals(scalar, vector, "typical prices of " + size);
+
+                final int[] periods = { 1, 2, 5, 8, 20, 200, size + 1 };
+                final double[][] scalarSums = new double[periods.length][size];
+                final double[][] vectorSums = new double[periods.length][size];
+                PriceKernel.SCALAR.windowSums(closes, from, to, periods, scalarSums);
+                PriceKernel.VECTOR.windowSums(closes, from, to, periods, vectorSums);
+                for (int k = 0; k < periods.length; k++)
+                    assertArrayEquals(scalarSums[k], vectorSums[k], "sums of " + size + " by " + periods[k]);
+            }
+        }
+    }
+
+    @Test
+    void testWindowSumsMatchMovingAverages() {
+        final double[] values = randomPrices(5000, 5);
+        final int[] periods = { 3, 50, 1000 };
+        final double[][] sums = new double[periods.length][values.length];
+        final double[][] averages = new double[periods.length][values.length];
+        PriceKernel.best().windowSums(values, 0, values.length, periods, sums);
+        MovingAverage.compute(values, 0, values.length, periods, averages);
+
+        for (int k = 0; k < periods.length; k++)
+            for (int i = 0; i < values.length; i++) {
+                if (Double.isNaN(averages[k][i]))
+                    assertTrue(Double.isNaN(sums[k][i]));
+                else
+                    assertEquals(averages[k][i], sums[k][i] / periods[k], 1e-9);
+            }
+    }
+
+    @Test
+    void testSeries() {
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < 20; i++)
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), 0, 10 + i, 8 + i, 9 + i, 1 + i, 1L);
+
+        for (final PriceKernel kernel : available()) {
+            final double[] returns = kernel.returns(series);
+            assertEquals(20, returns.length);
+            assertTrue(Double.isNaN(returns[0]));
+            assertEquals(1.0, returns[1]);
+            assertEquals(0.5, returns[2]);
+
+            // Adjusted by (1 + i) / (9 + i): ranges shrink with it, and the
+            // typical price lands on the adjusted close
+            final double[] ranges = kernel.range(series);
+            for (int i = 0; i < 20; i++)
+                assertEquals(2.0 * (1 + i) / (9 + i), ranges[i], 1e-12);
+
+            final double[] typical = kernel.typicalPrice(series);
+            for (int i = 0; i < 20; i++)
+                assertEquals(1.0 + i, typical[i], 1e-12);
+
+            final double[][] sums = kernel.windowSums(series, 4);
+            assertEquals(1.0 + 2 + 3 + 4, sums[0][3]);
+            assertEquals(17.0 + 18 + 19 + 20, sums[0][19]);
+        }
+    }
+
+    @Test
+    void testSeriesAcrossSplit() {
+        // A 2:1 split after bar 4: raw prices halve, adjusted ones stay flat
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < 10; i++) {
+            final double scale = i < 5 ? 2.0 : 1.0;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), 0, 22 * scale, 18 * scale, 20 * scale, 20, 1L);
+        }
+
+        for (final PriceKernel kernel : available()) {
+            for (final double r : kernel.range(series))
+                assertEquals(4.0, r);
+            for (final double t : kernel.typicalPrice(series))
+                assertEquals(20.0, t);
+        }
+    }
+
+    @Test
+    void testBest() {
+        assertTrue(PriceKernel.best().isAvailable());
+        assertTrue(PriceKernel.SCALAR.isAvailable());
+        if (PriceKernel.VECTOR.isAvailable())
+            assertEquals(PriceKernel.VECTOR, PriceKernel.best());
+
+        final double[] values = { 1, 2, 3, 4 };
+        final double[] sums = new double[4];
+        PrefixSum.build(values, 0, 4).windowSums(2, sums);
+        assertArrayEquals(new double[] { Double.NaN, 3, 5, 7 }, sums);
+    }
+
+    @Test
+    void testBadArguments() {
+        final double[] values = new double[4];
+        final PriceKernel kernel = PriceKernel.best();
+        assertThrows(IndexOutOfBoundsException.class, () -> kernel.returns(values, 0, 5, new double[5]));
+        assertThrows(IllegalArgumentException.class, () -> kernel.range(values, values, 0, 4, new double[3]));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> kernel.typicalPrice(values, values, new double[3], 0, 4, values));
+        assertThrows(IllegalArgumentException.class,
+                () -> kernel.windowSums(values, 0, 4, new int[] { 0 }, new double[1][4]));
+        assertThrows(NullPointerException.class, () -> kernel.returns(null, 0, 0, values));
+    }
+
+    private static PriceKernel[] available() {
+        return PriceKernel.VECTOR.isAvailable() ? PriceKernel.values() : new PriceKernel[] { PriceKernel.SCALAR };
+    }
+}
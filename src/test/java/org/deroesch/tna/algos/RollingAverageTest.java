@@ -0,0 +1,65 @@
+package org.deroesch.tna.algos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RollingAverageTest {
+
+    @Test
+    void testBadPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingAverage(0));
+    }
+
+    @Test
+    void testWarmUp() {
+        final RollingAverage avg = new RollingAverage(3);
+
+        assertTrue(Double.isNaN(avg.add(10.0)));
+        assertTrue(Double.isNaN(avg.add(20.0)));
+        assertFalse(avg.isReady());
+        assertEquals(20.0, avg.add(30.0), 0.001);
+        assertTrue(avg.isReady());
+        assertEquals(30.0, avg.add(40.0), 0.001);
+        assertEquals(3, avg.getPeriod());
+    }
+
+    @Test
+    void testPeriodOne() {
+        final RollingAverage avg = new RollingAverage(1);
+        assertEquals(5.0, avg.add(5.0));
+        assertEquals(7.0, avg.add(7.0));
+    }
+
+    @Test
+    void testMatchesBatchExactly() {
+        final Random random = new Random(7);
+        final double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = 100 + random.nextGaussian();
+
+        final double[][] batch = new double[1][values.length];
+        MovingAverage.compute(values, 0, values.length, new int[] { 20 }, batch);
+
+        final RollingAverage avg = new RollingAverage(20);
+        for (int i = 0; i < values.length; i++)
+            assertEquals(batch[0][i], avg.add(values[i]));
+    }
+
+    @Test
+    void testReset() {
+        final RollingAverage avg = new RollingAverage(2);
+        avg.add(1.0);
+        avg.add(2.0);
+        avg.reset();
+
+        assertFalse(avg.isReady());
+        assertTrue(Double.isNaN(avg.add(10.0)));
+        assertEquals(15.0, avg.add(20.0), 0.001);
+    }
+}
@@ -0,0 +1,228 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.assertClose;
+import static org.deroesch.tna.algos.Fixtures.randomPrices;
+import static org.deroesch.tna.algos.Fixtures.randomSeries;
+import static org.deroesch.tna.algos.Fixtures.run;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rolling deviations, bands and extremes, each checked against a direct
+ * O(n * period) computation.
+ */
+class RollingStatsTest {
+
+    private static final double[] VALUES = randomPrices(3000, 7);
+
+    @Test
+    void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> RollingVariance.stdDev(0));
+        assertThrows(IllegalArgumentException.class, () -> RollingVariance.band(5, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> RollingExtreme.max(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> RollingStats.bollinger(VALUES, 0, 10, 5, 2, new double[2][10]));
+        assertThrows(IllegalArgumentException.class, () -> RollingStats.max(VALUES, 0, 10, 5, new double[9]));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorSpec.parse("BB_UPPER(20)"));
+    }
+
+    @Test
+    void testStdDev() {
+        final RollingVariance sd = RollingVariance.stdDev(3);
+        assertTrue(Double.isNaN(sd.add(1)));
+        assertTrue(Double.isNaN(sd.add(2)));
+        assertFalse(sd.isReady());
+        assertEquals(Math.sqrt(2.0 / 3), sd.add(3), 1e-15);
+        assertEquals(2.0, sd.getMean());
+        assertEquals(Math.sqrt(2.0 / 3), sd.add(4), 1e-15);
+        assertEquals(0.0, RollingVariance.stdDev(1).add(5));
+
+        for (final int period : new int[] { 1, 2, 20, 250 }) {
+            assertClose(naive(VALUES, period, Stat.STDDEV, 0), run(RollingVariance.stdDev(period), VALUES), 1e-9);
+            // Dividing by a deviation near zero magnifies rounding
+            assertClose(naive(VALUES, period, Stat.ZSCORE, 0), run(RollingVariance.zScore(period), VALUES), 1e-6);
+            assertClose(naive(VALUES, period, Stat.BAND, 2), run(RollingVariance.band(period, 2), VALUES), 1e-9);
+            assertClose(naive(VALUES, period, Stat.BAND, -1.5), run(RollingVariance.band(period, -1.5), VALUES), 1e-9);
+        }
+    }
+
+    @Test
+    void testFlatAndLarge() {
+        // A flat window has no z-score
+        final RollingVariance z = RollingVariance.zScore(2);
+        z.add(7);
+        assertTrue(Double.isNaN(z.add(7)));
+
+        // Large prices with small moves: the naive sum of squares would cancel
+        final double[] large = new double[10_000];
+        for (int i = 0; i < large.length; i++)
+            large[i] = 1e9 + VALUES[i % VALUES.length];
+        final RollingVariance sd = RollingVariance.stdDev(50);
+        final double[] expected = naive(large, 50, Stat.STDDEV, 0);
+        for (int i = 0; i < large.length; i++) {
+            final double got = sd.add(large[i]);
+            if (i >= 49)
+                assertEquals(expected[i], got, 1e-6 * expected[i]);
+        }
+    }
+
+    @Test
+    void testExtremes() {
+        final RollingExtreme max = RollingExtreme.max(3);
+        assertTrue(max.isMax());
+        assertTrue(Double.isNaN(max.add(5)));
+        assertTrue(Double.isNaN(max.add(1)));
+        assertEquals(5.0, max.add(2));
+        assertEquals(2.0, max.add(1));
+        assertEquals(3.0, max.add(3));
+        max.reset();
+        assertTrue(Double.isNaN(max.add(9)));
+
+        for (final int period : new int[] { 1, 2, 3, 20, 250, 5000 }) {
+            assertArrayEquals(naiveExtreme(VALUES, period, true), run(RollingExtreme.max(period), VALUES));
+            assertArrayEquals(naiveExtreme(VALUES, period, false), run(RollingExtreme.min(period), VALUES));
+        }
+
+        // A falling column fills the deque to the whole period
+        final double[] falling = new double[100];
+        for (int i = 0; i < falling.length; i++)
+            falling[i] = -i;
+        final double[] out = new double[falling.length];
+        RollingStats.max(falling, 0, falling.length, 10, out);
+        assertArrayEquals(naiveExtreme(falling, 10, true), out);
+        RollingStats.min(falling, 0, falling.length, 10, out);
+        assertArrayEquals(naiveExtreme(falling, 10, false), out);
+    }
+
+    @Test
+    void testSeries() {
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < VALUES.length; i++)
+            series.add(LocalDateTime.of(2000, 1, 1, 0, 0).plusDays(i), 0, VALUES[i] + 1, VALUES[i] - 1, 0,
+                    VALUES[i], 1L);
+
+        final double[][] bands = RollingStats.bollinger(series, 20, 2);
+        assertClose(naive(VALUES, 20, Stat.BAND, 2), bands[1]);
+        assertClose(naive(VALUES, 20, Stat.BAND, -2), bands[2]);
+        assertClose(IndicatorSpec.sma(20).compute(series), bands[0]);
+        assertArrayEquals(IndicatorSpec.parse("BB_UPPER(20,2)").compute(series), bands[1]);
+        assertArrayEquals(IndicatorSpec.parse("bb_lower(20, 2)").compute(series), bands[2]);
+
+        final double[][] channel = RollingStats.donchian(series, 55);
+        final double[] highs = naiveExtreme(VALUES, 55, true);
+        for (int i = 0; i < VALUES.length; i++)
+            assertEquals(highs[i] + 1, channel[0][i]);
+        assertArrayEquals(naiveExtreme(VALUES, 55, false), IndicatorSpec.of(IndicatorType.MIN, 55).compute(series));
+        assertEquals(channel[1][100] + 1, IndicatorSpec.of(IndicatorType.MIN, 55).compute(series)[100]);
+    }
+
+    @Test
+    void testDonchianAdjusted() {
+        // A 2:1 split halfway: raw prices halve, adjusted ones don't move
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < 10; i++) {
+            final double raw = i < 5 ? 20 : 10;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), raw, raw + raw / 10, raw - raw / 10, raw, 10,
+                    100L);
+        }
+        final double[][] channel = RollingStats.donchian(series, 3);
+        for (int i = 2; i < 10; i++) {
+            assertEquals(11.0, channel[0][i], "high at " + i);
+            assertEquals(9.0, channel[1][i], "low at " + i);
+        }
+        assertArrayEquals(channel[0], IndicatorSpec.parse("DONCHIAN_UPPER(3)").compute(series));
+        assertArrayEquals(channel[1], IndicatorSpec.parse("DONCHIAN_LOWER(3)").compute(series));
+    }
+
+    @Test
+    void testDonchianIncremental() {
+        final DaySeries all = randomSeries(500, 29);
+        final List<IndicatorSpec> specs = List.of(IndicatorSpec.of(IndicatorType.DONCHIAN_UPPER, 20),
+                IndicatorSpec.of(IndicatorType.DONCHIAN_LOWER, 20));
+        assertTrue(IndicatorType.DONCHIAN_UPPER.readsBars());
+
+        final DaySeries series = new DaySeries();
+        IndicatorUpdater.attach(series, specs);
+        for (int i = 0; i < all.size(); i++)
+            series.add(all.getDay(i));
+
+        final double[][] channel = RollingStats.donchian(all, 20);
+        for (int k = 0; k < specs.size(); k++) {
+            final IndicatorSpec spec = specs.get(k);
+            for (int i = 0; i < all.size(); i++)
+                assertEquals(channel[k][i], series.getIndicators().get(spec.getKey(), i), spec + " at " + i);
+        }
+    }
+
+    @Test
+    void testIncrementalMatchesBatch() {
+        final List<IndicatorSpec> specs = List.of(IndicatorSpec.of(IndicatorType.STDDEV, 20),
+                IndicatorSpec.of(IndicatorType.ZSCORE, 20), IndicatorSpec.parse("BB_UPPER(20,2)"),
+                IndicatorSpec.of(IndicatorType.MAX, 10), IndicatorSpec.of(IndicatorType.MIN, 10));
+
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < 100; i++)
+            series.add(LocalDateTime.of(2000, 1, 1, 0, 0).plusDays(i), 0, 0, 0, 0, VALUES[i], 1L);
+        final IndicatorUpdater updater = IndicatorUpdater.attach(series, specs);
+        for (int i = 100; i < 500; i++)
+            series.add(LocalDateTime.of(2000, 1, 1, 0, 0).plusDays(i), 0, 0, 0, 0, VALUES[i], 1L);
+
+        for (final IndicatorSpec spec : specs) {
+            final double[] batch = spec.compute(series);
+            for (int i = 0; i < batch.length; i++)
+                assertEquals(batch[i], series.getIndicators().get(spec.getKey(), i), spec + " at " + i);
+            assertEquals(batch[499], updater.getLatest(spec));
+        }
+    }
+
+    private enum Stat {
+        STDDEV, ZSCORE, BAND
+    }
+
+    /*
+     * Two passes over every window.
+     */
+    private static double[] naive(final double[] values, final int period, final Stat stat, final double k) {
+        final double[] out = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (i + 1 < period) {
+                out[i] = Double.NaN;
+                continue;
+            }
+            double sum = 0;
+            for (int j = i + 1 - period; j <= i; j++)
+                sum += values[j];
+            final double mean = sum / period;
+            double squares = 0;
+            for (int j = i + 1 - period; j <= i; j++)
+                squares += (values[j] - mean) * (values[j] - mean);
+            final double sd = Math.sqrt(squares / period);
+            out[i] = Stat.STDDEV == stat ? sd : Stat.ZSCORE == stat ? (values[i] - mean) / sd : mean + k * sd;
+        }
+        return out;
+    }
+
+    private static double[] naiveExtreme(final double[] values, final int period, final boolean max) {
+        final double[] out = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (i + 1 < period) {
+                out[i] = Double.NaN;
+                continue;
+            }
+            double best = values[i];
+            for (int j = i + 1 - period; j < i; j++)
+                best = max ? Math.max(best, values[j]) : Math.min(best, values[j]);
+            out[i] = best;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,159 @@
+package org.deroesch.tna.algos;
+
+import static org.deroesch.tna.algos.Fixtures.assertClose;
+import static org.deroesch.tna.algos.Fixtures.ema;
+import static org.deroesch.tna.algos.Fixtures.randomPrices;
+import static org.deroesch.tna.algos.Fixtures.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The moving average family, each checked against a direct textbook
+ * computation.
+ */
+class SmootherTest {
+
+    private static final double[] VALUES = randomPrices(3000, 17);
+
+    @Test
+    void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> ExponentialAverage.ema(0));
+        assertThrows(IllegalArgumentException.class, () -> new ExponentialAverage(5, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedAverage(0));
+        assertThrows(IllegalArgumentException.class, () -> new MultiExponentialAverage(5, 4));
+        assertThrows(IllegalArgumentException.class, () -> new HullAverage(0));
+    }
+
+    @Test
+    void testEmaSeedsWithSimpleMean() {
+        final ExponentialAverage ema = ExponentialAverage.ema(3);
+        assertEquals(0.5, ema.getAlpha());
+
+        assertTrue(Double.isNaN(ema.add(1)));
+        assertTrue(Double.isNaN(ema.add(2)));
+        assertFalse(ema.isReady());
+        assertEquals(2.0, ema.add(3));
+        assertTrue(ema.isReady());
+        assertEquals(3.0, ema.add(4));
+        assertEquals(4.0, ema.add(5));
+    }
+
+    @Test
+    void testEmaAndWilder() {
+        assertClose(ema(VALUES, 10, 2.0 / 11), run(ExponentialAverage.ema(10), VALUES));
+        assertClose(ema(VALUES, 14, 1.0 / 14), run(ExponentialAverage.wilder(14), VALUES));
+    }
+
+    @Test
+    void testWma() {
+        final WeightedAverage wma = new WeightedAverage(3);
+        wma.add(1);
+        wma.add(2);
+        assertEquals((1 + 4 + 9) / 6.0, wma.add(3));
+        assertEquals((2 + 6 + 12) / 6.0, wma.add(4));
+
+        assertClose(wma(VALUES, 20), run(new WeightedAverage(20), VALUES));
+    }
+
+    @Test
+    void testWmaDoesNotDrift() {
+        // A long stretch of huge values, then small ones: sums only ever slid
+        // would keep the huge values' rounding error for good
+        final Random random = new Random(23);
+        final double[] values = new double[200_000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (i < values.length / 2 ? 1e9 : 1.0) * (1 + random.nextDouble());
+
+        final double[] expected = wma(values, 10);
+        final WeightedAverage wma = new WeightedAverage(10);
+        for (int i = 0; i < values.length; i++) {
+            final double got = wma.add(values[i]);
+            if (i >= values.length / 2 + 10)
+                assertEquals(expected[i], got, 1e-12 * expected[i], "index " + i);
+        }
+    }
+
+    @Test
+    void testDemaAndTema() {
+        final double alpha = 2.0 / 11;
+        final double[] e1 = ema(VALUES, 10, alpha);
+        final double[] e2 = ema(e1, 10, alpha);
+        final double[] e3 = ema(e2, 10, alpha);
+
+        final double[] dema = new double[VALUES.length];
+        final double[] tema = new double[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            dema[i] = 2 * e1[i] - e2[i];
+            tema[i] = 3 * e1[i] - 3 * e2[i] + e3[i];
+        }
+
+        final double[] got = run(MultiExponentialAverage.dema(10), VALUES);
+        assertClose(dema, got);
+        assertTrue(Double.isNaN(got[17]));
+        assertFalse(Double.isNaN(got[18]));
+        assertClose(tema, run(MultiExponentialAverage.tema(10), VALUES));
+    }
+
+    @Test
+    void testHull() {
+        final double[] half = wma(VALUES, 8);
+        final double[] full = wma(VALUES, 16);
+        final double[] diff = new double[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++)
+            diff[i] = 2 * half[i] - full[i];
+
+        final double[] got = run(new HullAverage(16), VALUES);
+        assertClose(wma(diff, 4), got);
+        assertTrue(Double.isNaN(got[17]));
+        assertFalse(Double.isNaN(got[18]));
+    }
+
+    @Test
+    void testReset() {
+        final Smoother[] all = { new RollingAverage(5), ExponentialAverage.ema(5), new WeightedAverage(5),
+                MultiExponentialAverage.tema(5), new HullAverage(9) };
+        for (final Smoother s : all) {
+            final double[] first = run(s, VALUES);
+            s.reset();
+            assertFalse(s.isReady());
+            assertClose(first, run(s, VALUES));
+        }
+    }
+
+    @Test
+    void testFusedPassMatchesSeparateRuns() {
+        final Smoother[] fused = { new RollingAverage(5), ExponentialAverage.ema(12), new WeightedAverage(9),
+                MultiExponentialAverage.dema(7), new HullAverage(20) };
+        final Smoother[] separate = { new RollingAverage(5), ExponentialAverage.ema(12), new WeightedAverage(9),
+                MultiExponentialAverage.dema(7), new HullAverage(20) };
+
+        final double[][] out = new double[fused.length][VALUES.length];
+        MovingAverage.compute(VALUES, 0, VALUES.length, fused, out);
+        for (int k = 0; k < fused.length; k++)
+            assertClose(run(separate[k], VALUES), out[k]);
+    }
+
+    /*
+     * WMA summed directly over each window. NaN in, NaN out.
+     */
+    private static double[] wma(final double[] values, final int period) {
+        final double[] out = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (i + 1 < period) {
+                out[i] = Double.NaN;
+                continue;
+            }
+            double sum = 0;
+            for (int j = 0; j < period; j++)
+                sum += (period - j) * values[i - j];
+            out[i] = sum / (period * (period + 1) / 2.0);
+        }
+        return out;
+    }
+}
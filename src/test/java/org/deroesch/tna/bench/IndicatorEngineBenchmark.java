@@ -0,0 +1,76 @@
+package org.deroesch.tna.bench;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.algos.IndicatorEngine;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The standard five moving averages over a universe of symbols, by pool size. A
+ * parallelism of 0 means one worker per core.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="IndicatorEngineBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class IndicatorEngineBenchmark {
+
+    @Param({ "1", "2", "4", "8", "0" })
+    public int parallelism;
+
+    @Param({ "1000" })
+    public int symbols;
+
+    @Param({ "5000" })
+    public int bars;
+
+    private Map<String, DaySeries> universe;
+    private IndicatorEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        universe = new HashMap<>();
+        final DaySeries series = SyntheticData.series(bars);
+        for (int s = 0; s < symbols; s++)
+            universe.put("S" + s, series);
+
+        engine = new IndicatorEngine(0 == parallelism ? Runtime.getRuntime().availableProcessors() : parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Map<String, Map<IndicatorSpec, double[]>> universe() {
+        return engine.compute(universe, SPECS);
+    }
+
+    private static final List<IndicatorSpec> SPECS = List.of(IndicatorSpec.sma(5), IndicatorSpec.sma(10),
+            IndicatorSpec.sma(20), IndicatorSpec.sma(50), IndicatorSpec.sma(100));
+
+}
@@ -0,0 +1,83 @@
+package org.deroesch.tna.bench;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.db.DayDB;
+import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random single-day lookups through DayDB, by date and by position.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="LookupBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class LookupBenchmark {
+
+    @Param({ "10000", "1000000", "10000000" })
+    public int bars;
+
+    private LocalDateTime[] dates;
+    private int[] indexes;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void load() {
+        final DaySeries series = SyntheticData.series(bars);
+        DayDB.reset();
+        DayDB.getRegistry().put(DayDB.DEFAULT_SYMBOL, series);
+
+        final Random random = new Random(1);
+        dates = new LocalDateTime[QUERIES];
+        indexes = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            indexes[q] = random.nextInt(bars);
+            dates[q] = series.getDate(indexes[q]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void unload() {
+        DayDB.reset();
+    }
+
+    @Benchmark
+    public Day byDate() {
+        next = (next + 1) & (QUERIES - 1);
+        return DayDB.getDay(dates[next]);
+    }
+
+    @Benchmark
+    public Day byIndex() {
+        next = (next + 1) & (QUERIES - 1);
+        return DayDB.getDay(indexes[next]);
+    }
+
+    /*
+     * Power of two, so the rotation is a mask
+     */
+    private static final int QUERIES = 4096;
+
+}
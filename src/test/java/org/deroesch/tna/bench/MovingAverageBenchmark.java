@@ -0,0 +1,164 @@
+package org.deroesch.tna.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.algos.IndicatorEngine;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Moving average and oscillator computation. The dense kernels run over 10K, 1M
+ * and 10M bars; computeAll, which also stores its columns in the series, runs
+ * at 1M.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="MovingAverageBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class MovingAverageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Dense {
+
+        @Param({ "10000", "1000000", "10000000" })
+        public int bars;
+
+        DaySeries series;
+
+        @Setup(Level.Trial)
+        public void makeSeries() {
+            series = SyntheticData.series(bars);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Attached {
+
+        @Param({ "1000000" })
+        public int attachedBars;
+
+        DaySeries series;
+
+        @Setup(Level.Iteration)
+        public void makeSeries() {
+            // Fresh each iteration so attached averages don't pile up
+            series = SyntheticData.series(attachedBars);
+        }
+    }
+
+    /**
+     * What TnaApplication.main used to do.
+     */
+    @Benchmark
+    public DaySeries fiveSequentialComputeAll(final Attached state) {
+        for (final int period : PERIODS)
+            MovingAverage.computeAll(state.series, period);
+        return state.series;
+    }
+
+    /**
+     * One dense pass for one period.
+     */
+    @Benchmark
+    public double[][] singlePeriod(final Dense state) {
+        return MovingAverage.compute(state.series, 20);
+    }
+
+    /**
+     * Five dense passes, nothing attached to the days.
+     */
+    @Benchmark
+    public double[][] fiveSequentialDense(final Dense state) {
+        final double[][] out = new double[PERIODS.length][];
+        for (int k = 0; k < PERIODS.length; k++)
+            out[k] = MovingAverage.compute(state.series, PERIODS[k])[0];
+        return out;
+    }
+
+    /**
+     * One dense pass for all five periods.
+     */
+    @Benchmark
+    public double[][] singlePass(final Dense state) {
+        return MovingAverage.compute(state.series, PERIODS);
+    }
+
+    /**
+     * All five periods from one parallel prefix sum.
+     */
+    @Benchmark
+    public double[][] prefixSum(final Dense state) {
+        return MovingAverage.computeParallel(state.series, PERIODS);
+    }
+
+    /**
+     * EMA, WMA, DEMA, TEMA and Hull, one pass each.
+     */
+    @Benchmark
+    public double[][] familySeparate(final Dense state) {
+        final double[][] out = new double[FAMILY.size()][];
+        for (int k = 0; k < out.length; k++)
+            out[k] = FAMILY.get(k).compute(state.series);
+        return out;
+    }
+
+    /**
+     * The same five sharing one pass.
+     */
+    @Benchmark
+    public Map<IndicatorSpec, double[]> familyFused(final Dense state) {
+        return IndicatorEngine.compute(state.series, FAMILY);
+    }
+
+    /**
+     * RSI, MACD, stochastic, ATR, OBV and VWAP, one pass each.
+     */
+    @Benchmark
+    public double[][] oscillatorsSeparate(final Dense state) {
+        final double[][] out = new double[OSCILLATORS.size()][];
+        for (int k = 0; k < out.length; k++)
+            out[k] = OSCILLATORS.get(k).compute(state.series);
+        return out;
+    }
+
+    /**
+     * The same six sharing one pass over whole bars.
+     */
+    @Benchmark
+    public Map<IndicatorSpec, double[]> oscillatorsFused(final Dense state) {
+        return IndicatorEngine.compute(state.series, OSCILLATORS);
+    }
+
+    private static final List<IndicatorSpec> OSCILLATORS = List.of(IndicatorSpec.of(IndicatorType.RSI, 14),
+            IndicatorSpec.parse("MACD(12,26,9)"), IndicatorSpec.parse("STOCH_D(14,3)"),
+            IndicatorSpec.of(IndicatorType.ATR, 14), IndicatorSpec.parse("OBV()"),
+            IndicatorSpec.of(IndicatorType.VWAP, 20));
+
+    private static final List<IndicatorSpec> FAMILY = List.of(IndicatorSpec.of(IndicatorType.EMA, 20),
+            IndicatorSpec.of(IndicatorType.WMA, 20), IndicatorSpec.of(IndicatorType.DEMA, 20),
+            IndicatorSpec.of(IndicatorType.TEMA, 20), IndicatorSpec.of(IndicatorType.HMA, 20));
+
+    private static final int[] PERIODS = { 5, 10, 20, 50, 100 };
+
+}
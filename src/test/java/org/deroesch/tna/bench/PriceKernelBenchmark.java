@@ -0,0 +1,90 @@
+package org.deroesch.tna.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.algos.PriceKernel;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scalar vs SIMD price kernels over 10K and 1M bars. Output arrays are allocated
+ * once, so the numbers are the arithmetic and memory traffic alone, except for
+ * windowSums, which builds its prefix sums each time.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="PriceKernelBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class PriceKernelBenchmark {
+
+    @Param({ "SCALAR", "VECTOR" })
+    public PriceKernel kernel;
+
+    @Param({ "10000", "1000000" })
+    public int bars;
+
+    double[] highs;
+    double[] lows;
+    double[] closes;
+    double[] out;
+    double[][] sums;
+
+    @Setup(Level.Trial)
+    public void makeColumns() {
+        if (!kernel.isAvailable())
+            throw new IllegalStateException(kernel + " isn't available in this JVM");
+        final DaySeries series = SyntheticData.series(bars);
+        highs = series.getHighColumn();
+        lows = series.getLowColumn();
+        closes = series.getCloseColumn();
+        out = new double[bars];
+        sums = new double[PERIODS.length][bars];
+    }
+
+    @Benchmark
+    public double[] returns() {
+        kernel.returns(closes, 0, bars, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] range() {
+        kernel.range(highs, lows, 0, bars, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] typicalPrice() {
+        kernel.typicalPrice(highs, lows, closes, 0, bars, out);
+        return out;
+    }
+
+    /**
+     * Sums for five periods from one prefix build.
+     */
+    @Benchmark
+    public double[][] windowSums() {
+        kernel.windowSums(closes, 0, bars, PERIODS, sums);
+        return sums;
+    }
+
+    private static final int[] PERIODS = { 5, 10, 20, 50, 100 };
+
+}
@@ -0,0 +1,74 @@
+package org.deroesch.tna.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.algos.RollingStats;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rolling statistics over 1M bars, at a short and a long window. Each is one
+ * O(n) pass, so the window length should barely show.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="RollingStatsBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RollingStatsBenchmark {
+
+    @Param({ "20", "250" })
+    public int period;
+
+    @Param({ "1000000" })
+    public int bars;
+
+    DaySeries series;
+    IndicatorSpec zScore;
+
+    @Setup(Level.Trial)
+    public void makeSeries() {
+        series = SyntheticData.series(bars);
+        zScore = IndicatorSpec.of(IndicatorType.ZSCORE, period);
+    }
+
+    /**
+     * Middle, upper and lower bands in one pass.
+     */
+    @Benchmark
+    public double[][] bollinger() {
+        return RollingStats.bollinger(series, period, 2);
+    }
+
+    /**
+     * Highest high and lowest low, one deque pass each.
+     */
+    @Benchmark
+    public double[][] donchian() {
+        return RollingStats.donchian(series, period);
+    }
+
+    @Benchmark
+    public double[] zScore() {
+        return zScore.compute(series);
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.deroesch.tna.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.models.DaySeries;
+import org.deroesch.tna.signals.Rule;
+import org.deroesch.tna.signals.RuleMonitor;
+import org.deroesch.tna.signals.RuleSet;
+import org.deroesch.tna.signals.SignalEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A rule set over a universe of symbols: a full scan of every series, and the
+ * cost of one appended bar on a live monitor. The rules are moving average
+ * crossings filtered by RSI, drawn from a small pool of indicators the way real
+ * rule sets share them.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="SignalBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class SignalBenchmark {
+
+    @Param({ "10", "1000" })
+    public int rules;
+
+    @Param({ "100" })
+    public int symbols;
+
+    @Param({ "2500" })
+    public int bars;
+
+    private Map<String, DaySeries> universe;
+    private RuleSet set;
+    private DaySeries live;
+    private RuleMonitor monitor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        universe = new HashMap<>();
+        final DaySeries series = SyntheticData.series(bars);
+        for (int s = 0; s < symbols; s++)
+            universe.put("S" + s, series);
+
+        final List<Rule> list = new ArrayList<>();
+        for (int r = 0; r < rules; r++) {
+            final int fast = 5 + r % 20;
+            final int slow = 30 + r / 20 % 50;
+            final String direction = r % 2 == 0 ? "above" : "below";
+            final String rsi = r % 2 == 0 ? "RSI(14) < 70" : "RSI(14) > 30";
+            list.add(Rule.parse("R" + r,
+                    String.format("EMA(%d) crosses %s SMA(%d) and %s", fast, direction, slow, rsi)));
+        }
+        set = new RuleSet(list);
+
+        live = SyntheticData.series(bars);
+        monitor = set.attach(live, "LIVE", e -> {
+        });
+    }
+
+    @Benchmark
+    public Map<String, List<SignalEvent>> scan() {
+        return set.scan(universe);
+    }
+
+    /*
+     * The last bar again: the indicators step forward just as for a new one.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RuleMonitor append() {
+        monitor.onAppend(live, live.size() - 1);
+        return monitor;
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.deroesch.tna.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.db.CsvLoader;
+import org.deroesch.tna.db.DomSheetLoader;
+import org.deroesch.tna.db.StreamingSheetLoader;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DOM versus streaming xlsx loading, and the same rows as CSV through
+ * {@link CsvLoader}. Each benchmark calls its loader directly into a fresh
+ * series, without DayDB's sorting, metrics or publishing, so the three compare
+ * like for like. Load time comes from JMH; bars per second is rows divided by
+ * it. Peak heap per iteration is printed from the JVM's memory pools.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="SpreadsheetLoadBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class SpreadsheetLoadBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int rows;
+
+    private Path file;
+    private Path csvFile;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("tna-bench", ".xlsx");
+        SyntheticData.writeSpreadsheet(file, rows);
+        csvFile = Files.createTempFile("tna-bench", ".csv");
+        SyntheticData.writeCsv(csvFile, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeaks() {
+        System.gc();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeaks() {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (MemoryType.HEAP == pool.getType())
+                peak += pool.getPeakUsage().getUsed();
+        System.out.printf("  peak heap: %,d KB%n", peak / 1024);
+    }
+
+    @Benchmark
+    public int dom() throws IOException {
+        final DaySeries series = new DaySeries();
+        return DomSheetLoader.load(file, series);
+    }
+
+    @Benchmark
+    public int streaming() throws IOException {
+        final DaySeries series = new DaySeries();
+        return StreamingSheetLoader.load(file, series);
+    }
+
+    @Benchmark
+    public int csv() throws IOException {
+        final DaySeries series = new DaySeries();
+        return CsvLoader.load(csvFile, series);
+    }
+
+}
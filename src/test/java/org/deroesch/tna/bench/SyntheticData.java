@@ -0,0 +1,107 @@
+package org.deroesch.tna.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.deroesch.tna.models.DaySeries;
+
+/**
+ * Generated price data for benchmarks. A seeded random walk, so every run sees
+ * the same numbers.
+ */
+public class SyntheticData {
+
+    /**
+     * Write an xlsx file in the layout DayDB expects, newest day first.
+     *
+     * @param path Where to write
+     * @param rows Number of days
+     * @throws IOException
+     */
+    public static void writeSpreadsheet(final Path path, final int rows) throws IOException {
+        final Random random = new Random(SEED);
+        final LocalDateTime start = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100); OutputStream out = Files.newOutputStream(path)) {
+            final Sheet sheet = workbook.createSheet();
+            final Row header = sheet.createRow(0);
+            final String[] names = { "Date", "Open", "High", "Low", "Close", "AdjClose", "Vol" };
+            for (int c = 0; c < names.length; c++)
+                header.createCell(c).setCellValue(names[c]);
+
+            double price = 100.0;
+            for (int r = 1; r <= rows; r++) {
+                price = Math.max(1.0, price + random.nextGaussian());
+                final Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(start.plusDays(rows - r));
+                row.createCell(1).setCellValue(price - 0.5);
+                row.createCell(2).setCellValue(price + 1.0);
+                row.createCell(3).setCellValue(price - 1.0);
+                row.createCell(4).setCellValue(price);
+                row.createCell(5).setCellValue(price);
+                row.createCell(6).setCellValue(1_000_000 + random.nextInt(1_000_000));
+            }
+
+            workbook.write(out);
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Write the same data as {@link #writeSpreadsheet} as CSV, newest day first,
+     * the way vendors ship it: prices to six decimals.
+     *
+     * @param path Where to write
+     * @param rows Number of days
+     * @throws IOException
+     */
+    public static void writeCsv(final Path path, final int rows) throws IOException {
+        final Random random = new Random(SEED);
+        final LocalDate start = LocalDate.of(1970, 1, 1);
+
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("Date,Open,High,Low,Close,Adj Close,Volume\n");
+
+            double price = 100.0;
+            for (int r = 1; r <= rows; r++) {
+                price = Math.max(1.0, price + random.nextGaussian());
+                final int volume = 1_000_000 + random.nextInt(1_000_000);
+                out.write(String.format(Locale.ROOT, "%s,%.6f,%.6f,%.6f,%.6f,%.6f,%d%n", start.plusDays(rows - r), price - 0.5,
+                        price + 1.0, price - 1.0, price, price, volume));
+            }
+        }
+    }
+
+    /**
+     * A series of n days starting in 1970.
+     *
+     * @param n Number of days
+     * @return the series
+     */
+    public static DaySeries series(final int n) {
+        final Random random = new Random(SEED);
+        final DaySeries series = new DaySeries(n);
+        final long day = 24L * 60 * 60;
+
+        double price = 100.0;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(1.0, price + random.nextGaussian());
+            series.add(i * day, price - 0.5, price + 1.0, price - 1.0, price, price,
+                    1_000_000 + random.nextInt(1_000_000));
+        }
+        return series;
+    }
+
+    private static final long SEED = 42L;
+
+}
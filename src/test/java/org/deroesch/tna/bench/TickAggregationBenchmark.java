@@ -0,0 +1,76 @@
+package org.deroesch.tna.bench;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.deroesch.tna.db.BarAggregator;
+import org.deroesch.tna.db.BarInterval;
+import org.deroesch.tna.models.DaySeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A million trades, about ten a second, rolled into bars. The allocation rate
+ * per operation should come from the closed bars alone.
+ *
+ * <pre>
+ * mvn -Pbench test -Djmh.args="TickAggregationBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickAggregationBenchmark {
+
+    @Param({ "ONE_MINUTE", "ONE_DAY" })
+    public BarInterval interval;
+
+    private long[] times;
+    private double[] prices;
+    private long[] sizes;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        final Random random = new Random(1);
+        times = new long[TICKS];
+        prices = new double[TICKS];
+        sizes = new long[TICKS];
+
+        long time = LocalDateTime.of(2021, 1, 4, 9, 30).toInstant(ZoneOffset.UTC).toEpochMilli();
+        double price = 100;
+        for (int i = 0; i < TICKS; i++) {
+            time += random.nextInt(200);
+            price = Math.max(1, price + random.nextGaussian() * 0.01);
+            times[i] = time;
+            prices[i] = price;
+            sizes[i] = 1 + random.nextInt(500);
+        }
+    }
+
+    @Benchmark
+    public DaySeries aggregate() {
+        final BarAggregator aggregator = new BarAggregator(new DaySeries(), interval);
+        for (int i = 0; i < TICKS; i++)
+            aggregator.onTick(times[i], prices[i], sizes[i]);
+        aggregator.flush();
+        return aggregator.getSeries();
+    }
+
+    private static final int TICKS = 1_000_000;
+
+}
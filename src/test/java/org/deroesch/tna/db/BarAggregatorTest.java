@@ -0,0 +1,155 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.algos.MovingAverageUpdater;
+import org.deroesch.tna.models.Day;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BarAggregatorTest {
+
+    private static final LocalDateTime OPEN = LocalDateTime.of(2021, 1, 4, 9, 30);
+
+    DaySeries series;
+    BarAggregator aggregator;
+
+    @BeforeEach
+    void beforeEach() {
+        series = new DaySeries();
+        aggregator = new BarAggregator(series, BarInterval.ONE_MINUTE);
+    }
+
+    @Test
+    void testMinuteBars() {
+        tick(0, 10.0, 100);
+        tick(15_000, 12.0, 50);
+        tick(30_000, 9.5, 25);
+        tick(59_999, 11.0, 10);
+        assertTrue(aggregator.hasOpenBar());
+        assertTrue(series.isEmpty());
+
+        // The next minute closes the first; 09:32 has no trades, so no bar
+        tick(60_000, 11.5, 5);
+        assertEquals(1, series.size());
+        tick(180_500, 13.0, 7);
+        aggregator.flush();
+        assertFalse(aggregator.hasOpenBar());
+
+        assertEquals(3, series.size());
+        final Day first = series.getDay(0);
+        assertEquals(OPEN, first.getDate());
+        assertEquals(10.0, first.getOpen());
+        assertEquals(12.0, first.getHigh());
+        assertEquals(9.5, first.getLow());
+        assertEquals(11.0, series.getClose(0));
+        assertEquals(11.0, first.getAdjClose());
+        assertEquals(185L, first.getVolume());
+
+        assertEquals(OPEN.plusMinutes(1), series.getDate(1));
+        assertEquals(5L, series.getVolume(1));
+        assertEquals(OPEN.plusMinutes(3), series.getDate(2));
+        assertEquals(13.0, series.getOpen(2));
+
+        assertEquals(6, aggregator.getTickCount());
+        assertEquals(3, aggregator.getBarCount());
+        assertEquals(0, aggregator.getLateTicks());
+    }
+
+    @Test
+    void testLateTicks() {
+        tick(60_000, 10.0, 1);
+        tick(1_000, 99.0, 1);
+        tick(120_000, 11.0, 1);
+
+        // The 09:31 bar has closed, so a straggler for it is dropped too
+        tick(61_000, 99.0, 1);
+        aggregator.flush();
+        tick(121_000, 99.0, 1);
+
+        assertEquals(2, series.size());
+        assertEquals(10.0, series.getHigh(0));
+        assertEquals(11.0, series.getHigh(1));
+        assertEquals(3, aggregator.getLateTicks());
+
+        // Nor does a bar go in at or before one the series already has
+        final BarAggregator other = new BarAggregator(series, BarInterval.ONE_MINUTE);
+        other.onTick(millis(OPEN.plusMinutes(2)), 1.0, 1);
+        other.flush();
+        assertEquals(1, other.getLateTicks());
+        assertEquals(0, other.getBarCount());
+    }
+
+    @Test
+    void testAdvance() {
+        tick(0, 10.0, 1);
+        aggregator.advance(millis(OPEN) + 59_999);
+        assertTrue(series.isEmpty());
+
+        aggregator.advance(millis(OPEN) + 60_000);
+        assertEquals(1, series.size());
+        assertFalse(aggregator.hasOpenBar());
+    }
+
+    @Test
+    void testDailyBarsKeepMovingAveragesCurrent() {
+        final String symbol = "AGGR";
+        try {
+            final DaySeries history = DayDB.getRegistry().getOrCreate(symbol);
+            for (int i = 0; i < 5; i++)
+                history.add(LocalDateTime.of(2020, 12, 29, 0, 0).plusDays(i), 1, 1, 1, i, i, 1L);
+            MovingAverage.computeAll(history, 3);
+            MovingAverageUpdater.attach(history, 3);
+
+            // Two sessions of ticks; each day's bar closes when the next day's first trade arrives
+            final BarAggregator daily = new BarAggregator(symbol, BarInterval.ONE_DAY);
+            daily.onTick(millis(LocalDateTime.of(2021, 1, 2, 15, 0)), 2.0, 1);
+            daily.onTick(millis(LocalDateTime.of(2021, 1, 4, 14, 30)), 5.0, 10);
+            daily.onTick(millis(LocalDateTime.of(2021, 1, 4, 20, 59)), 6.0, 10);
+            assertEquals(5, history.size());
+            daily.onTick(millis(LocalDateTime.of(2021, 1, 5, 14, 30)), 9.0, 10);
+
+            // The bar for the 2nd was dropped: the history already has it
+            assertEquals(1, daily.getLateTicks());
+            assertEquals(6, history.size());
+            assertEquals(LocalDateTime.of(2021, 1, 4, 0, 0), history.getDate(5));
+            assertEquals(6.0, history.getClose(5));
+            assertEquals(20L, history.getVolume(5));
+            assertEquals((3.0 + 4.0 + 6.0) / 3, history.getDay(5).getMovingAvg(3), 1e-9);
+
+            daily.flush();
+            assertEquals((4.0 + 6.0 + 9.0) / 3, history.getDay(6).getMovingAvg(3), 1e-9);
+        } finally {
+            DayDB.getRegistry().remove(symbol);
+        }
+    }
+
+    @Test
+    void testInterval() {
+        assertEquals(BarInterval.FIVE_MINUTES, BarInterval.parse("5m"));
+        assertEquals(BarInterval.ONE_HOUR, BarInterval.parse(" 1H "));
+        assertEquals(BarInterval.ONE_DAY, BarInterval.parse("one_day"));
+        assertThrows(IllegalArgumentException.class, () -> BarInterval.parse("2m"));
+
+        final long t = DaySeries.toTime(LocalDateTime.of(2021, 1, 4, 9, 33, 20));
+        assertEquals(DaySeries.toTime(LocalDateTime.of(2021, 1, 4, 9, 30)), BarInterval.FIVE_MINUTES.start(t));
+        assertEquals(DaySeries.toTime(LocalDateTime.of(2021, 1, 4, 0, 0)), BarInterval.ONE_DAY.start(t));
+        assertEquals(-60, BarInterval.ONE_MINUTE.start(-1));
+    }
+
+    private void tick(final long offset, final double price, final long size) {
+        aggregator.onTick(millis(OPEN) + offset, price, size);
+    }
+
+    private static long millis(final LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
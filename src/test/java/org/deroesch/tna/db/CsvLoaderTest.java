@@ -0,0 +1,120 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CsvLoaderTest {
+
+    private static final int EXPECTED_RECORD_COUNT = 198;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testMatchesSpreadsheet() throws IOException, URISyntaxException {
+        final Path xlsx = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+        final DaySeries expected = new DaySeries();
+        StreamingSheetLoader.load(xlsx, expected);
+
+        // Same rows, same newest-first order, as a vendor CSV
+        final StringBuilder csv = new StringBuilder("Date,Open,High,Low,Close,Adj Close,Volume\n");
+        for (int i = 0; i < expected.size(); i++)
+            csv.append(String.format("%s,%s,%s,%s,%s,%s,%d\n", expected.getDate(i).toLocalDate(),
+                    expected.getOpen(i), expected.getHigh(i), expected.getLow(i), expected.getClose(i),
+                    expected.getAdjClose(i), expected.getVolume(i)));
+        final Path path = tmp.resolve("tna.csv");
+        Files.writeString(path, csv);
+
+        final DaySeries series = new DaySeries();
+        assertEquals(EXPECTED_RECORD_COUNT, CsvLoader.load(path, series));
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.getDay(i), series.getDay(i));
+
+        final DaySeries loaded = DayDB.getRegistry().load("CSVT", path, LoadMode.CSV);
+        assertTrue(loaded.isAscending());
+        assertEquals(LocalDateTime.of(2020, 4, 1, 0, 0), loaded.getDate(0));
+        DayDB.getRegistry().remove("CSVT");
+    }
+
+    @Test
+    void testFormats() throws IOException {
+        final String csv = "\uFEFF\"Date\",\"Open\",\"High\",\"Low\",\"Close\",\"Adj Close\",\"Volume\"\r\n"
+                + "\"2021-01-04\",\"10.5\",\"12\",\"9.25\",\"11\",\"10.75\",\"500\"\r\n"
+                + "20210105,1.05e1,+12.0,9.250,11,10.75,1.5E3,extra\r\n"
+                + "\r\n"
+                + "2021-01-06,null,null,null,null,null,null\r\n"
+                + ",1,2,3,4,5,6\r\n"
+                + "NULL,1,2,3,4,5,6\r\n"
+                + "\"\",1,2,3,4,5,6\r\n"
+                + "2021-01-07T09:30:15,-0.5,0,0.001,123456789.123456789,1,0\r\n"
+                + "2021-01-08 16:00,1,2,3,4,5,6";
+
+        final DaySeries series = new DaySeries();
+        assertEquals(4, CsvLoader.load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), series));
+
+        assertEquals(LocalDateTime.of(2021, 1, 4, 0, 0), series.getDate(0));
+        assertEquals(10.5, series.getOpen(0));
+        assertEquals(9.25, series.getLow(0));
+        assertEquals(500L, series.getVolume(0));
+
+        assertEquals(LocalDateTime.of(2021, 1, 5, 0, 0), series.getDate(1));
+        assertEquals(10.5, series.getOpen(1));
+        assertEquals(12.0, series.getHigh(1));
+        assertEquals(1500L, series.getVolume(1));
+
+        assertEquals(LocalDateTime.of(2021, 1, 7, 9, 30, 15), series.getDate(2));
+        assertEquals(-0.5, series.getOpen(2));
+        assertEquals(0.001, series.getLow(2));
+        assertEquals(123456789.123456789, series.getClose(2));
+
+        assertEquals(LocalDateTime.of(2021, 1, 8, 16, 0), series.getDate(3));
+        assertEquals(6L, series.getVolume(3));
+    }
+
+    @Test
+    void testNumbersMatchTheJdk() throws IOException {
+        // Enough rows to span several read blocks
+        final Random random = new Random(7);
+        final double[] expected = new double[20_000];
+        final StringBuilder csv = new StringBuilder();
+        LocalDateTime date = LocalDateTime.of(1900, 1, 1, 0, 0);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = Math.scalb(random.nextDouble(), random.nextInt(80) - 40);
+            csv.append(date.toLocalDate()).append(',').append(expected[i]).append(",1,1,1,1,1\n");
+            date = date.plusDays(1);
+        }
+
+        final DaySeries series = new DaySeries();
+        CsvLoader.load(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.US_ASCII)), series);
+        assertEquals(expected.length, series.size());
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], series.getOpen(i));
+        assertEquals(date.minusDays(1), series.getDate(expected.length - 1));
+    }
+
+    @Test
+    void testRejectsMalformedRows() {
+        for (final String row : new String[] { "2021-01-04,1,2,3", "2021-13-01,1,2,3,4,5,6", "2021-02-29,1,2,3,4,5,6",
+                "2021-01-04,1,2,x,4,5,6", "2021-01-04,1,2,3e,4,5,6", "01/04/2021,1,2,3,4,5,6" }) {
+            final String csv = "2021-01-01,1,1,1,1,1,1\n" + row + "\n";
+            final IOException e = assertThrows(IOException.class, () -> CsvLoader
+                    .load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)), new DaySeries()));
+            assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+        }
+    }
+}
@@ -2,15 +2,30 @@ package org.deroesch.tna.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.deroesch.tna.models.DaySeries;
+
+import org.deroesch.tna.models.SeriesSlice;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
 
 @SpringBootTest
 class DayDBTest {
@@ -45,6 +60,89 @@ class DayDBTest {
         assertNotNull(DayDB.getDay(LocalDateTime.of(2021, 1, 12, 0, 0)));
     }
 
+    @Test
+    void testGetRange() {
+        final SeriesSlice all = DayDB.getRange(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2100, 1, 1, 0, 0));
+        assertEquals(EXPECTED_RECORD_COUNT, all.size());
+
+        // Saturday to Sunday around a full trading week
+        final SeriesSlice week = DayDB.getRange(DayDB.DEFAULT_SYMBOL, LocalDateTime.of(2021, 1, 2, 0, 0),
+                LocalDateTime.of(2021, 1, 10, 0, 0));
+        assertEquals(5, week.size());
+        assertEquals(LocalDateTime.of(2021, 1, 4, 0, 0), week.getDate(0));
+        assertEquals(LocalDateTime.of(2021, 1, 8, 0, 0), week.getDate(4));
+        assertNull(DayDB.getRange("NOPE", LocalDateTime.of(2021, 1, 9, 0, 0), LocalDateTime.of(2021, 1, 15, 0, 0)));
+    }
+
+    @Test
+    void testFloorAndCeilingDay() {
+        final LocalDateTime saturday = LocalDateTime.of(2021, 1, 9, 0, 0);
+        assertEquals(LocalDateTime.of(2021, 1, 8, 0, 0), DayDB.getFloorDay(DayDB.DEFAULT_SYMBOL, saturday).getDate());
+        assertEquals(LocalDateTime.of(2021, 1, 11, 0, 0), DayDB.getCeilingDay(DayDB.DEFAULT_SYMBOL, saturday).getDate());
+        assertNull(DayDB.getFloorDay(DayDB.DEFAULT_SYMBOL, LocalDateTime.of(2000, 1, 1, 0, 0)));
+        assertNull(DayDB.getCeilingDay("NOPE", saturday));
+    }
+
+    @Test
+    void testConcurrentAppends() throws Exception {
+        // Appenders race for the same dates; each date must go in exactly once
+        final int threads = 4;
+        final int days = 2_000;
+        final LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Integer>> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                appenders.add(pool.submit(() -> {
+                    int appended = 0;
+                    for (int i = 0; i < days; i++)
+                        try {
+                            DayDB.append("RACE", start.plusDays(i), i, i, i, i, i, i);
+                            appended++;
+                        } catch (final IllegalArgumentException e) {
+                            // Another thread got there first
+                        }
+                    return appended;
+                }));
+
+            int appended = 0;
+            for (final Future<Integer> f : appenders)
+                appended += f.get();
+            assertEquals(days, appended);
+
+            final DaySeries series = DayDB.getSeries("RACE");
+            assertEquals(days, series.size());
+            for (int i = 1; i < days; i++)
+                assertTrue(series.getTime(i) > series.getTime(i - 1));
+        } finally {
+            pool.shutdown();
+            DayDB.getRegistry().remove("RACE");
+        }
+    }
+
+    @Test
+    void testSnapshots(@TempDir final Path dir) throws IOException {
+        // Off by default
+        assertTrue(ctx.getEnvironment().getProperty(DayDB.SNAPSHOT_DIR_PROPERTY, "").isBlank());
+
+        final StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(new MockEnvironment().withProperty(DayDB.SNAPSHOT_DIR_PROPERTY, dir.toString()));
+        try {
+            DayDB.initialize(context, "SNAPT", DayDB.DB_FILE, LoadMode.DOM);
+            final Path snapshot = dir.resolve("SNAPT-tna.xlsx.snap");
+            assertTrue(Files.exists(snapshot));
+
+            // The second start reads the snapshot
+            final long written = Files.getLastModifiedTime(snapshot).toMillis();
+            DayDB.getRegistry().remove("SNAPT");
+            DayDB.initialize(context, "SNAPT", DayDB.DB_FILE, LoadMode.DOM);
+            assertEquals(EXPECTED_RECORD_COUNT, DayDB.getSeries("SNAPT").size());
+            assertEquals(written, Files.getLastModifiedTime(snapshot).toMillis());
+        } finally {
+            DayDB.getRegistry().remove("SNAPT");
+        }
+    }
+
     @Test
     void testReset() throws IOException {
         DayDB.reset();
@@ -0,0 +1,117 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndicatorCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    IndicatorCache cache;
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        cache = new IndicatorCache(1 << 20);
+        series = series(100);
+    }
+
+    @Test
+    void testHitAndMiss() {
+        final double[] first = cache.get("tna", series, IndicatorSpec.sma(5));
+        final double[] second = cache.get("TNA", series, IndicatorSpec.sma(5));
+
+        assertSame(first, second);
+        assertArrayEquals(IndicatorSpec.sma(5).compute(series), first);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+        assertEquals(1, cache.size());
+
+        cache.get("TNA", series, IndicatorSpec.of(IndicatorType.EMA, 5));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testAppendMakesStale() {
+        final double[] before = cache.get("TNA", series, IndicatorSpec.sma(5));
+        series.add(START.plusDays(100), 0, 0, 0, 0, 500.0, 0);
+
+        final double[] after = cache.get("TNA", series, IndicatorSpec.sma(5));
+        assertNotSame(before, after);
+        assertEquals(101, after.length);
+        assertEquals(2, cache.getMissCount());
+
+        // Replaced, not added
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testReplacementSeriesIsStale() {
+        final double[] before = cache.get("TNA", series, IndicatorSpec.sma(5));
+        assertNotSame(before, cache.get("TNA", series(100), IndicatorSpec.sma(5)));
+    }
+
+    @Test
+    void testInvalidate() {
+        cache.get("A", series, IndicatorSpec.sma(5));
+        cache.get("A", series, IndicatorSpec.sma(10));
+        cache.get("B", series, IndicatorSpec.sma(5));
+
+        cache.invalidate("a");
+        assertEquals(1, cache.size());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEvictsByWeight() {
+        // About 80KB a column; room for a dozen or so
+        final DaySeries big = series(10_000);
+        for (int p = 1; p <= 40; p++)
+            cache.get("BIG", big, IndicatorSpec.sma(p));
+
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.estimateBytes() <= cache.getMaximumBytes());
+        assertTrue(cache.size() < 40);
+        assertThrows(IllegalArgumentException.class, () -> new IndicatorCache(0));
+    }
+
+    @Test
+    void testRegistryInvalidatesOnReplace() {
+        final SeriesRegistry registry = new SeriesRegistry(1 << 20);
+        assertNull(registry.getIndicator("X", IndicatorSpec.sma(5)));
+
+        registry.put("X", series);
+        registry.getIndicator("X", IndicatorSpec.sma(5));
+        assertEquals(1, registry.getIndicatorCache().size());
+
+        registry.put("X", series(50));
+        assertEquals(0, registry.getIndicatorCache().size());
+        assertEquals(50, registry.getIndicator("X", IndicatorSpec.sma(5)).length);
+
+        registry.clear();
+        assertEquals(0, registry.getIndicatorCache().size());
+    }
+
+    private static DaySeries series(final int n) {
+        final DaySeries s = new DaySeries(n);
+        for (int i = 0; i < n; i++)
+            s.add(START.plusDays(i), 0, 0, 0, 0, 100 + i % 7, 0);
+        return s;
+    }
+}
@@ -0,0 +1,167 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeriesCodecTest {
+
+    @TempDir
+    Path tmp;
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        // Weekdays only, so the time deltas vary
+        series = new DaySeries();
+        LocalDateTime date = LocalDateTime.of(2021, 1, 4, 0, 0);
+        for (int i = 0; i < 300; i++) {
+            final double close = 10.0 + (i % 17) * 0.25;
+            series.add(date, close - 1, close + 1, close - 2, close, close - 0.5, 1000L * i);
+            date = date.plusDays(date.getDayOfWeek().getValue() == 5 ? 3 : 1);
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        for (final boolean compress : new boolean[] { false, true }) {
+            final byte[] bytes = encode(series, compress);
+            assertSameBars(series, SeriesCodec.read(channel(bytes)));
+        }
+    }
+
+    @Test
+    void testCompact() throws IOException {
+        // Times take 3 bytes a bar, not 8, and deflate helps on repetitive data
+        final byte[] raw = encode(series, false);
+        assertEquals(32 + 300 * 48 + 8 + 299 * 3, raw.length);
+        assertTrue(encode(series, true).length < raw.length / 2);
+    }
+
+    @Test
+    void testSlice() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SeriesCodec.write(series.slice(100, 110), Channels.newChannel(out), false);
+
+        final DaySeries read = SeriesCodec.read(channel(out.toByteArray()));
+        assertEquals(10, read.size());
+        for (int i = 0; i < 10; i++)
+            assertEquals(series.getDay(100 + i), read.getDay(i));
+    }
+
+    @Test
+    void testEmptyAndDescending() throws IOException {
+        assertEquals(0, SeriesCodec.read(channel(encode(new DaySeries(), true))).size());
+
+        // Negative deltas survive the zigzag encoding
+        final DaySeries down = new DaySeries();
+        down.add(LocalDateTime.of(2021, 1, 8, 0, 0), 1, 1, 1, 1, 1, 1L);
+        down.add(LocalDateTime.of(2021, 1, 7, 0, 0), 2, 2, 2, 2, 2, 2L);
+        down.add(LocalDateTime.of(1969, 7, 20, 20, 17), 3, 3, 3, 3, 3, 3L);
+        final DaySeries read = SeriesCodec.read(channel(encode(down, false)));
+        assertSameBars(down, read);
+        assertFalse(read.isAscending());
+    }
+
+    @Test
+    void testSeveralOnOneChannel() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SeriesCodec.write(series, Channels.newChannel(out), true);
+        SeriesCodec.write(series.slice(0, 5), Channels.newChannel(out), false);
+
+        final ReadableByteChannel in = channel(out.toByteArray());
+        assertEquals(300, SeriesCodec.read(in).size());
+        assertEquals(5, SeriesCodec.read(in).size());
+    }
+
+    @Test
+    void testFile() throws IOException {
+        final Path file = tmp.resolve("tna.bin");
+        SeriesCodec.write(series, file, true);
+        assertSameBars(series, SeriesCodec.read(file));
+    }
+
+    @Test
+    void testBadStreams() throws IOException {
+        for (final boolean compress : new boolean[] { false, true }) {
+            final byte[] bytes = encode(series, compress);
+
+            assertThrows(EOFException.class, () -> SeriesCodec.read(channel(Arrays.copyOf(bytes, bytes.length - 1))));
+
+            final byte[] corrupt = bytes.clone();
+            corrupt[100] ^= 1;
+            assertThrows(IOException.class, () -> SeriesCodec.read(channel(corrupt)));
+
+            final byte[] foreign = bytes.clone();
+            foreign[0] = 'X';
+            assertThrows(IOException.class, () -> SeriesCodec.read(channel(foreign)));
+        }
+    }
+
+    @Test
+    void testForgedSizes() throws IOException {
+        for (final boolean compress : new boolean[] { false, true }) {
+            final byte[] bytes = encode(series, compress);
+
+            // Raw size at the int limit: rejected, not an overflow
+            final byte[] huge = bytes.clone();
+            header(huge).putInt(16, Integer.MAX_VALUE);
+            assertThrows(IOException.class, () -> SeriesCodec.read(channel(huge)));
+
+            // Raw size too big for the bar count
+            final byte[] oversized = bytes.clone();
+            header(oversized).putInt(16, 300 * 100);
+            assertThrows(IOException.class, () -> SeriesCodec.read(channel(oversized)));
+
+            // A consistent 1.4 GB claim with only the real body behind it runs
+            // out of stream before it's allocated
+            final byte[] forged = bytes.clone();
+            final int n = 30_000_000;
+            final int raw = n * 49 + 7;
+            header(forged).putInt(12, n).putInt(16, raw).putInt(20, compress ? raw / 1032 + 1 : raw);
+            assertThrows(EOFException.class, () -> SeriesCodec.read(channel(forged)));
+        }
+    }
+
+    private static byte[] encode(final DaySeries series, final boolean compress) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long written = SeriesCodec.write(series, Channels.newChannel(out), compress);
+        assertEquals(written, out.size());
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer header(final byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ReadableByteChannel channel(final byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+
+    private static void assertSameBars(final DaySeries expected, final DaySeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getDay(i), actual.getDay(i));
+            assertEquals(expected.getVolume(i), actual.getVolume(i));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeriesRegistryTest {
+
+    private static final int EXPECTED_RECORD_COUNT = 198;
+
+    SeriesRegistry registry;
+
+    @BeforeEach
+    void beforeEach() {
+        registry = new SeriesRegistry();
+    }
+
+    @Test
+    void testPutAndGet() {
+        final DaySeries series = new DaySeries();
+        registry.put("tna", series);
+
+        assertSame(series, registry.get("TNA"));
+        assertSame(series, registry.get(" Tna "));
+        assertTrue(registry.contains("tna"));
+        assertNull(registry.get("SPY"));
+        assertEquals(Set.of("TNA"), registry.getSymbols());
+    }
+
+    @Test
+    void testGetOrCreate() {
+        final DaySeries series = registry.getOrCreate("SPY");
+        assertSame(series, registry.getOrCreate("spy"));
+        assertEquals(1, registry.size());
+
+        assertSame(series, registry.remove("SPY"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testBadSymbol() {
+        assertThrows(NullPointerException.class, () -> registry.get(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("  "));
+    }
+
+    @Test
+    void testMemoryReport() {
+        final DaySeries a = new DaySeries(10);
+        final DaySeries b = new DaySeries(100);
+        a.add(LocalDateTime.of(2021, 1, 1, 0, 0), 1, 1, 1, 1, 1, 1);
+        registry.put("A", a);
+        registry.put("B", b);
+
+        assertEquals(a.estimateBytes(), registry.estimateBytes("A"));
+        assertEquals(0, registry.estimateBytes("C"));
+        assertTrue(registry.estimateBytes("B") > registry.estimateBytes("A"));
+        assertEquals(a.estimateBytes() + b.estimateBytes(), registry.estimateBytes());
+        assertEquals(List.of("A", "B"), new ArrayList<>(registry.getMemoryReport().keySet()));
+    }
+
+    @Test
+    void testConcurrentLoads() throws Exception {
+        final Path path = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+        final String[] symbols = { "A", "B", "C", "D", "E", "F" };
+
+        final ExecutorService pool = Executors.newFixedThreadPool(symbols.length);
+        try {
+            final List<Future<DaySeries>> futures = new ArrayList<>();
+            for (final String symbol : symbols)
+                futures.add(pool.submit(() -> registry.load(symbol, path, LoadMode.STREAMING)));
+            for (final Future<DaySeries> f : futures)
+                assertEquals(EXPECTED_RECORD_COUNT, f.get().size());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(symbols.length, registry.size());
+        for (final String symbol : symbols) {
+            assertTrue(registry.get(symbol).isAscending());
+            assertEquals(registry.get("A").getDay(10), registry.get(symbol).getDay(10));
+        }
+    }
+
+    @Test
+    void testLazyLoad() throws Exception {
+        final Path path = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+        registry.register("lazy", path, LoadMode.STREAMING);
+
+        assertTrue(registry.contains("LAZY"));
+        assertFalse(registry.isLoaded("LAZY"));
+        assertEquals(Set.of("LAZY"), registry.getSymbols());
+        assertTrue(registry.getAll().isEmpty());
+
+        // Concurrent first accesses share one load, so all see the same series
+        final int threads = 8;
+        final CountDownLatch go = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<DaySeries>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    return registry.get("LAZY");
+                }));
+            go.countDown();
+            for (final Future<DaySeries> f : futures)
+                assertSame(futures.get(0).get(), f.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(EXPECTED_RECORD_COUNT, registry.get("lazy").size());
+        assertTrue(registry.isLoaded("LAZY"));
+
+        // Unloaded series come back on the next access
+        final DaySeries first = registry.get("LAZY");
+        assertTrue(registry.unload("LAZY"));
+        assertFalse(registry.isLoaded("LAZY"));
+        assertNotSame(first, registry.get("LAZY"));
+        assertFalse(registry.unload("NOPE"));
+    }
+
+    @Test
+    void testFailedLazyLoadIsRetried(@TempDir final Path tmp) throws Exception {
+        final Path path = tmp.resolve("bad.csv");
+        Files.writeString(path, "2021-01-04,oops\n");
+        registry.register("BAD", path, LoadMode.CSV);
+
+        assertThrows(UncheckedIOException.class, () -> registry.get("BAD"));
+        assertFalse(registry.isLoaded("BAD"));
+
+        Files.writeString(path, "2021-01-04,1,1,1,1,1,1\n");
+        assertEquals(1, registry.get("BAD").size());
+    }
+
+    @Test
+    void testWarm(@TempDir final Path tmp) throws Exception {
+        final Path path = tmp.resolve("a.csv");
+        Files.writeString(path, "2021-01-04,1,1,1,1,1,1\n");
+        registry.register("A", path, LoadMode.CSV);
+        registry.register("B", tmp.resolve("missing.csv"), LoadMode.CSV);
+
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            registry.warm(List.of("A", "B", "NOPE"), pool).get();
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(registry.isLoaded("A"));
+        assertFalse(registry.isLoaded("B"));
+    }
+
+    @Test
+    void testDayDBBySymbol() throws Exception {
+        final Path path = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+        DayDB.getRegistry().load("XYZ", path, LoadMode.DOM);
+
+        assertEquals(EXPECTED_RECORD_COUNT, DayDB.getSeries("xyz").size());
+        assertFalse(null == DayDB.getDay("XYZ", LocalDateTime.of(2021, 1, 12, 0, 0)));
+        assertNull(DayDB.getDay("NOPE", LocalDateTime.of(2021, 1, 12, 0, 0)));
+        DayDB.getRegistry().remove("XYZ");
+    }
+}
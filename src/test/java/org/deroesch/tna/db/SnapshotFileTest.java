@@ -0,0 +1,107 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path tmp;
+
+    Path source;
+    Path snapshot;
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        source = tmp.resolve("source.xlsx");
+        Files.write(source, new byte[] { 1, 2, 3 });
+        snapshot = tmp.resolve("snapshots").resolve("source.xlsx.snap");
+
+        series = new DaySeries();
+        for (int i = 0; i < 50; i++) {
+            final double close = 10.0 + i;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), close - 1, close + 1, close - 2, close,
+                    close - 0.5, 1000L + i);
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        SnapshotFile.write(series, source, snapshot);
+        final DaySeries read = SnapshotFile.read(source, snapshot);
+
+        assertNotNull(read);
+        assertEquals(series.size(), read.size());
+        assertTrue(read.isAscending());
+        for (int i = 0; i < series.size(); i++)
+            assertEquals(series.getDay(i), read.getDay(i));
+        assertEquals(1049L, read.getVolume(49));
+    }
+
+    @Test
+    void testEmptySeries() throws IOException {
+        SnapshotFile.write(new DaySeries(), source, snapshot);
+        assertEquals(0, SnapshotFile.read(source, snapshot).size());
+    }
+
+    @Test
+    void testMissing() throws IOException {
+        assertNull(SnapshotFile.read(source, snapshot));
+    }
+
+    @Test
+    void testStaleWhenSourceChanges() throws IOException {
+        SnapshotFile.write(series, source, snapshot);
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+        assertNull(SnapshotFile.read(source, snapshot));
+    }
+
+    @Test
+    void testCorrupt() throws IOException {
+        SnapshotFile.write(series, source, snapshot);
+
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] { 9 }), 100);
+        }
+        assertNull(SnapshotFile.read(source, snapshot));
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        SnapshotFile.write(series, source, snapshot);
+
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 8);
+        }
+        assertNull(SnapshotFile.read(source, snapshot));
+    }
+
+    @Test
+    void testDayDBUsesSnapshot() throws IOException {
+        SnapshotFile.write(series, source, snapshot);
+
+        DayDB.reset();
+        assertTrue(DayDB.loadFromSnapshot(source, snapshot));
+        assertEquals(50, DayDB.getSeries().size());
+        assertNotNull(DayDB.getDay(LocalDateTime.of(2021, 1, 10, 0, 0)));
+        DayDB.reset();
+    }
+}
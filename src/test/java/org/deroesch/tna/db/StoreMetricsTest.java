@@ -0,0 +1,141 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.deroesch.tna.algos.IndicatorEngine;
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.MovingAverage;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StoreMetricsTest {
+
+    private static final String SYMBOL = "METR";
+
+    @TempDir
+    Path tmp;
+
+    SimpleMeterRegistry meters;
+
+    @BeforeEach
+    void beforeEach() {
+        // Meters already on the global registry are copied to an added one
+        meters = new SimpleMeterRegistry();
+        Metrics.addRegistry(meters);
+    }
+
+    @AfterEach
+    void afterEach() {
+        Metrics.removeRegistry(meters);
+        meters.close();
+        DayDB.getRegistry().remove(SYMBOL);
+    }
+
+    @Test
+    void testLoads() throws IOException {
+        final Path csv = tmp.resolve("metr.csv");
+        Files.writeString(csv, "2021-01-05,2,2,2,2,2,20\n2021-01-04,1,1,1,1,1,10\n");
+        final long bars = (long) count(StoreMetrics.LOAD_BARS, "source", "csv");
+        final long bytes = (long) count(StoreMetrics.LOAD_BYTES, "source", "csv");
+        final long loads = timerCount(StoreMetrics.LOADS, "success");
+
+        DayDB.getRegistry().load(SYMBOL, csv, LoadMode.CSV);
+        assertEquals(loads + 1, timerCount(StoreMetrics.LOADS, "success"));
+        assertEquals(bars + 2, (long) count(StoreMetrics.LOAD_BARS, "source", "csv"));
+        assertEquals(bytes + Files.size(csv), (long) count(StoreMetrics.LOAD_BYTES, "source", "csv"));
+        assertTrue(meters.get(StoreMetrics.LOAD_RATE).tag("source", "csv").summary().max() > 0);
+
+        // A failure is timed too, under its own tag
+        Files.writeString(csv, "2021-01-04,oops\n");
+        final long failures = timerCount(StoreMetrics.LOADS, "failure");
+        DayDB.getRegistry().register(SYMBOL + "2", csv, LoadMode.CSV);
+        assertThrows(UncheckedIOException.class, () -> DayDB.getRegistry().get(SYMBOL + "2"));
+        DayDB.getRegistry().remove(SYMBOL + "2");
+        assertEquals(failures + 1, timerCount(StoreMetrics.LOADS, "failure"));
+    }
+
+    @Test
+    void testLookups() {
+        final DaySeries series = DayDB.getRegistry().getOrCreate(SYMBOL);
+        series.add(LocalDateTime.of(2021, 1, 4, 0, 0), 1, 1, 1, 1, 1, 1L);
+        final double dates = count(StoreMetrics.LOOKUPS, "kind", "date");
+        final double misses = count(StoreMetrics.LOOKUP_MISSES, "kind", "date");
+
+        DayDB.getDay(SYMBOL, LocalDateTime.of(2021, 1, 4, 0, 0));
+        DayDB.getDay(SYMBOL, LocalDateTime.of(2021, 1, 5, 0, 0));
+        DayDB.getDay("NOPE", LocalDateTime.of(2021, 1, 4, 0, 0));
+        assertEquals(dates + 3, count(StoreMetrics.LOOKUPS, "kind", "date"));
+        assertEquals(misses + 2, count(StoreMetrics.LOOKUP_MISSES, "kind", "date"));
+
+        // An index out of range is a miss, not a hit
+        final double indexes = count(StoreMetrics.LOOKUPS, "kind", "index");
+        final double indexMisses = count(StoreMetrics.LOOKUP_MISSES, "kind", "index");
+        assertThrows(IndexOutOfBoundsException.class, () -> DayDB.getDay(Integer.MAX_VALUE));
+        assertEquals(indexes + 1, count(StoreMetrics.LOOKUPS, "kind", "index"));
+        assertEquals(indexMisses + 1, count(StoreMetrics.LOOKUP_MISSES, "kind", "index"));
+
+        final double floors = count(StoreMetrics.LOOKUPS, "kind", "floor");
+        DayDB.getFloorDay(SYMBOL, LocalDateTime.of(2021, 1, 9, 0, 0));
+        assertEquals(floors + 1, count(StoreMetrics.LOOKUPS, "kind", "floor"));
+
+        // Gauges read the registry when asked
+        assertTrue(meters.get(StoreMetrics.SERIES_BARS).gauge().value() >= 1);
+        assertTrue(meters.get(StoreMetrics.SERIES_HEAP).gauge().value() > 0);
+        assertTrue(meters.get(StoreMetrics.SYMBOLS).gauge().value() >= 1);
+    }
+
+    @Test
+    void testIndicators() {
+        final DaySeries series = DayDB.getRegistry().getOrCreate(SYMBOL);
+        for (int i = 0; i < 10; i++)
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), i, i, i, i, i, 1L);
+        final double hits = count(StoreMetrics.INDICATOR_CACHE, "result", "hit");
+        final double misses = count(StoreMetrics.INDICATOR_CACHE, "result", "miss");
+        final long smas = meters.find(StoreMetrics.INDICATOR_COMPUTE).tag("type", "sma").timers().stream()
+                .mapToLong(t -> t.count()).sum();
+
+        DayDB.getIndicator(SYMBOL, IndicatorSpec.sma(3));
+        DayDB.getIndicator(SYMBOL, IndicatorSpec.sma(3));
+        DayDB.computeMovingAverages(SYMBOL, 2, 4);
+
+        assertEquals(hits + 1, count(StoreMetrics.INDICATOR_CACHE, "result", "hit"));
+        assertEquals(misses + 1, count(StoreMetrics.INDICATOR_CACHE, "result", "miss"));
+        assertEquals(smas + 2, meters.get(StoreMetrics.INDICATOR_COMPUTE).tag("type", "sma").timer().count());
+
+        // The kernels don't time themselves; plain calls go unrecorded
+        MovingAverage.computeAll(series, 2, 4);
+        assertEquals(smas + 2, meters.get(StoreMetrics.INDICATOR_COMPUTE).tag("type", "sma").timer().count());
+
+        final long runs = meters.find(StoreMetrics.INDICATOR_ENGINE).timers().stream().mapToLong(t -> t.count())
+                .sum();
+        try (IndicatorEngine engine = new IndicatorEngine(1)) {
+            assertTrue(DayDB.computeIndicators(engine, List.of(IndicatorSpec.sma(2))).containsKey(SYMBOL));
+        }
+        assertEquals(runs + 1, meters.get(StoreMetrics.INDICATOR_ENGINE).timer().count());
+    }
+
+    private double count(final String name, final String key, final String value) {
+        return meters.find(name).tag(key, value).functionCounters().stream().mapToDouble(c -> c.count()).sum()
+                + meters.find(name).tag(key, value).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private long timerCount(final String name, final String result) {
+        return meters.find(name).tag("source", "csv").tag("result", result).timers().stream()
+                .mapToLong(t -> t.count()).sum();
+    }
+}
@@ -0,0 +1,96 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamingSheetLoaderTest {
+
+    private static final int EXPECTED_RECORD_COUNT = 198;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testMatchesDomLoader() throws IOException, URISyntaxException {
+        final Path path = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+
+        DayDB.reset();
+        DayDB.loadFromSpreadsheet(path, LoadMode.DOM);
+        final DaySeries dom = DayDB.getSeries();
+
+        final DaySeries streamed = new DaySeries();
+        assertEquals(EXPECTED_RECORD_COUNT, StreamingSheetLoader.load(path, streamed));
+        streamed.sortByDate();
+
+        assertEquals(dom.size(), streamed.size());
+        for (int i = 0; i < dom.size(); i++)
+            assertEquals(dom.getDay(i), streamed.getDay(i));
+    }
+
+    @Test
+    void testStreamingModeThroughDayDB() throws IOException, URISyntaxException {
+        final Path path = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+
+        DayDB.reset();
+        DayDB.loadFromSpreadsheet(path, LoadMode.STREAMING);
+        assertEquals(EXPECTED_RECORD_COUNT, DayDB.getSeries().size());
+        assertEquals(true, DayDB.getSeries().isAscending());
+    }
+
+    @Test
+    void testSkipsHeaderAndBlankRows() throws IOException {
+        final Path path = tmp.resolve("blank.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(path)) {
+            final Sheet sheet = workbook.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("Date");
+            fillRow(sheet.createRow(1), LocalDateTime.of(2021, 1, 4, 0, 0));
+            sheet.createRow(2);
+            fillRow(sheet.createRow(3), LocalDateTime.of(2021, 1, 5, 0, 0));
+            workbook.write(out);
+        }
+
+        final DaySeries series = new DaySeries();
+        assertEquals(2, StreamingSheetLoader.load(path, series));
+        assertEquals(LocalDateTime.of(2021, 1, 5, 0, 0), series.getDate(1));
+        assertEquals(12.0, series.getHigh(1));
+        assertEquals(500L, series.getVolume(1));
+    }
+
+    @Test
+    void testRejectsShortRow() throws IOException {
+        final Path path = tmp.resolve("short.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(path)) {
+            final Sheet sheet = workbook.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("Date");
+            sheet.createRow(1).createCell(0).setCellValue(LocalDateTime.of(2021, 1, 4, 0, 0));
+            workbook.write(out);
+        }
+
+        assertThrows(IOException.class, () -> StreamingSheetLoader.load(path, new DaySeries()));
+    }
+
+    private static void fillRow(final Row row, final LocalDateTime date) {
+        row.createCell(0).setCellValue(date);
+        row.createCell(1).setCellValue(10.0);
+        row.createCell(2).setCellValue(12.0);
+        row.createCell(3).setCellValue(9.0);
+        row.createCell(4).setCellValue(11.0);
+        row.createCell(5).setCellValue(11.0);
+        row.createCell(6).setCellValue(500);
+    }
+}
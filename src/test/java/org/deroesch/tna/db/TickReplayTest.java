@@ -0,0 +1,58 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TickReplayTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testReplayIntoBars() throws IOException {
+        final long open = LocalDateTime.of(2021, 1, 4, 9, 30).toInstant(ZoneOffset.UTC).toEpochMilli();
+        final Path path = tmp.resolve("ticks.csv");
+        Files.writeString(path, "time,price,size\n"
+                + "2021-01-04T09:30:00.250,10.0,100\n"
+                + (open + 120_000) + ",10.5,20,NYSE\n"
+                + "\n"
+                + "2021-01-04T09:34:59.999, 11.0 , 30\n"
+                + "2021-01-04T09:35:00,12.0,40\n");
+
+        final DaySeries series = new DaySeries();
+        final BarAggregator aggregator = new BarAggregator(series, BarInterval.FIVE_MINUTES);
+        assertEquals(4, TickReplay.replay(path, aggregator));
+        aggregator.flush();
+
+        assertEquals(2, series.size());
+        assertEquals(LocalDateTime.of(2021, 1, 4, 9, 30), series.getDate(0));
+        assertEquals(11.0, series.getHigh(0));
+        assertEquals(150L, series.getVolume(0));
+        assertEquals(LocalDateTime.of(2021, 1, 4, 9, 35), series.getDate(1));
+        assertEquals(40L, series.getVolume(1));
+    }
+
+    @Test
+    void testRejectsMalformedLines() {
+        for (final String line : new String[] { "1000,10.0", "1000,x,1", "2021-01-04,10.0,1", "1000,10.0,1.5" }) {
+            final String csv = "1000,10.0,1\n" + line + "\n";
+            final IOException e = assertThrows(IOException.class, () -> TickReplay
+                    .replay(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)), (t, p, s) -> {
+                    }));
+            assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.deroesch.tna.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+class UniverseLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    SeriesRegistry registry;
+
+    @BeforeEach
+    void beforeEach() throws IOException, URISyntaxException {
+        registry = new SeriesRegistry();
+
+        final Path xlsx = Paths.get(getClass().getClassLoader().getResource(DayDB.DB_FILE).toURI());
+        Files.copy(xlsx, dir.resolve("tna.xlsx"));
+        Files.writeString(dir.resolve("spy.csv"), "Date,Open,High,Low,Close,Adj Close,Volume\n"
+                + "2021-01-05,2,2,2,2,2,20\n2021-01-04,1,1,1,1,1,10\n");
+        Files.writeString(dir.resolve("iwm.csv"), "2021-01-04,1,1,1,1,1,10\n");
+        Files.writeString(dir.resolve("bad.csv"), "2021-01-04,1,1,1,1,1,10\n2021-01-05,oops\n");
+        Files.writeString(dir.resolve("notes.txt"), "not data");
+    }
+
+    @Test
+    void testLoadDirectory() throws IOException {
+        // A failed reload leaves the old series in place
+        final DaySeries old = new DaySeries();
+        registry.put("BAD", old);
+
+        final List<LoadResult> results;
+        try (UniverseLoader loader = new UniverseLoader(registry, 2)) {
+            results = loader.load(dir);
+        }
+
+        assertEquals(4, results.size());
+        assertEquals("BAD", results.get(0).getSymbol());
+        assertFalse(results.get(0).isLoaded());
+        assertTrue(results.get(0).getError().getMessage().contains("line 2"));
+        assertEquals(0, results.get(0).getBars());
+
+        for (final LoadResult result : results.subList(1, 4)) {
+            assertTrue(result.isLoaded(), result.toString());
+            assertFalse(result.getElapsed().isNegative());
+        }
+        assertEquals(198, results.get(3).getBars());
+        assertEquals("TNA", results.get(3).getSymbol());
+
+        assertEquals(Set.of("BAD", "IWM", "SPY", "TNA"), registry.getSymbols());
+        assertSame(old, registry.get("BAD"));
+        assertTrue(registry.get("SPY").isAscending());
+        assertEquals(2, registry.get("SPY").size());
+    }
+
+    @Test
+    void testDuplicatesAndNonDataFiles() throws IOException {
+        Files.writeString(dir.resolve("tna.csv"), "2021-01-04,1,1,1,1,1,10\n");
+
+        final List<LoadResult> results;
+        try (UniverseLoader loader = new UniverseLoader(registry, 2)) {
+            results = loader.load(List.of(dir.resolve("tna.xlsx"), dir.resolve("tna.csv"), dir.resolve("notes.txt")));
+        }
+
+        // By file name: notes.txt, tna.csv, tna.xlsx
+        assertFalse(results.get(0).isLoaded());
+        assertTrue(results.get(1).isLoaded());
+        assertFalse(results.get(2).isLoaded());
+        assertTrue(results.get(2).getError().getMessage().contains("tna.csv"));
+        assertEquals(1, registry.get("TNA").size());
+    }
+
+    @Test
+    void testSymbolAndMode() {
+        assertEquals("BRK.B", UniverseLoader.symbolOf(Paths.get("data", "brk.b.csv")));
+        assertEquals(LoadMode.CSV, LoadMode.forPath(Paths.get("BRK.B.CSV")));
+        assertEquals(LoadMode.STREAMING, LoadMode.forPath(Paths.get("tna.xlsx")));
+        assertNull(LoadMode.forPath(Paths.get("tna.zip")));
+    }
+
+    @Test
+    void testRegister() throws IOException {
+        Files.writeString(dir.resolve("tna.csv"), "2021-01-04,1,1,1,1,1,10\n");
+
+        try (UniverseLoader loader = new UniverseLoader(registry, 1)) {
+            assertEquals(Set.of("BAD", "IWM", "SPY", "TNA"), loader.register(dir));
+            assertTrue(registry.getAll().isEmpty());
+
+            loader.warm(List.of("SPY")).join();
+        }
+        assertTrue(registry.isLoaded("SPY"));
+        assertFalse(registry.isLoaded("IWM"));
+
+        // The first file by name wins
+        assertEquals(1, registry.get("TNA").size());
+    }
+
+    @Test
+    void testInitializeUniverse() throws IOException {
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            assertTrue(DayDB.initializeUniverse(context).isEmpty());
+
+            // Lazy by default: registered, with the hot set loading in the background
+            final Map<String, Object> properties = new HashMap<>();
+            properties.put(DayDB.UNIVERSE_PROPERTY, dir.toUri().toString());
+            properties.put(DayDB.UNIVERSE_WARM_PROPERTY, "iwm, nope");
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+
+            assertEquals(Set.of("BAD", "IWM", "SPY", "TNA"), DayDB.initializeUniverse(context));
+            assertTrue(DayDB.getRegistry().contains("SPY"));
+            assertEquals(2, DayDB.getSeries("spy").size());
+            assertEquals(1, DayDB.getSeries("iwm").size());
+            DayDB.reset();
+
+            properties.put(DayDB.UNIVERSE_LAZY_PROPERTY, "false");
+            assertEquals(Set.of("IWM", "SPY", "TNA"), DayDB.initializeUniverse(context));
+            assertTrue(DayDB.getRegistry().isLoaded("TNA"));
+        } finally {
+            DayDB.reset();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.deroesch.tna.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DaySeriesTest {
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        series = new DaySeries(2);
+    }
+
+    @Test
+    void testAddAndGet() {
+        final LocalDateTime date = LocalDateTime.of(2021, 1, 4, 0, 0);
+        final int i = series.add(date, 1.0, 2.0, 0.5, 1.5, 1.4, 100L);
+
+        assertEquals(0, i);
+        assertEquals(1, series.size());
+        assertEquals(date, series.getDate(0));
+        assertEquals(1.0, series.getOpen(0));
+        assertEquals(2.0, series.getHigh(0));
+        assertEquals(0.5, series.getLow(0));
+        assertEquals(1.5, series.getClose(0));
+        assertEquals(1.4, series.getAdjClose(0));
+        assertEquals(100L, series.getVolume(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getOpen(1));
+    }
+
+    @Test
+    void testGrow() {
+        addDays(1000, false);
+        assertEquals(1000, series.size());
+        assertEquals(1000.0, series.getAdjClose(999));
+    }
+
+    @Test
+    void testDayView() {
+        addDays(3, false);
+        final Day day = series.getDay(1);
+
+        // Throwaway views: equal, but not the same object
+        assertEquals(day, series.getDay(1));
+        assertEquals(2.0, day.getClose());
+        assertEquals(series, day.getSeries());
+        assertEquals(1, day.getIndex());
+    }
+
+    @Test
+    void testSortDescending() {
+        addDays(5, true);
+        assertFalse(series.isAscending());
+
+        series.sortByDate();
+        assertTrue(series.isAscending());
+        for (int i = 0; i < 5; i++)
+            assertEquals(i + 1.0, series.getAdjClose(i));
+    }
+
+    @Test
+    void testSortShuffled() {
+        series.add(LocalDateTime.of(2021, 1, 2, 0, 0), 2, 2, 2, 2, 2, 2);
+        series.add(LocalDateTime.of(2021, 1, 3, 0, 0), 3, 3, 3, 3, 3, 3);
+        series.add(LocalDateTime.of(2021, 1, 1, 0, 0), 1, 1, 1, 1, 1, 1);
+
+        series.sortByDate();
+        assertEquals(1.0, series.getAdjClose(0));
+        assertEquals(2.0, series.getAdjClose(1));
+        assertEquals(3.0, series.getAdjClose(2));
+    }
+
+    @Test
+    void testIndexOf() {
+        addDays(10, false);
+        assertEquals(4, series.indexOf(LocalDateTime.of(2021, 1, 5, 0, 0)));
+        assertEquals(-1, series.indexOf(LocalDateTime.of(2022, 1, 5, 0, 0)));
+
+        series.clear();
+        addDays(10, true);
+        assertEquals(5, series.indexOf(LocalDateTime.of(2021, 1, 5, 0, 0)));
+    }
+
+    @Test
+    void testFloorAndCeiling() {
+        // Every other day: Jan 1, 3, 5, ...
+        for (int i = 0; i < 10; i++)
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(2 * i), i, i, i, i, i, 1L);
+
+        assertEquals(2, series.floorIndex(LocalDateTime.of(2021, 1, 5, 0, 0)));
+        assertEquals(2, series.ceilingIndex(LocalDateTime.of(2021, 1, 5, 0, 0)));
+        assertEquals(2, series.floorIndex(LocalDateTime.of(2021, 1, 6, 0, 0)));
+        assertEquals(3, series.ceilingIndex(LocalDateTime.of(2021, 1, 6, 0, 0)));
+        assertEquals(-1, series.floorIndex(LocalDateTime.of(2020, 12, 31, 0, 0)));
+        assertEquals(0, series.ceilingIndex(LocalDateTime.of(2020, 12, 31, 0, 0)));
+        assertEquals(9, series.floorIndex(LocalDateTime.of(2021, 2, 1, 0, 0)));
+        assertEquals(-1, series.ceilingIndex(LocalDateTime.of(2021, 2, 1, 0, 0)));
+    }
+
+    @Test
+    void testSliceByDate() {
+        addDays(10, false);
+
+        final SeriesSlice slice = series.slice(LocalDateTime.of(2021, 1, 3, 0, 0), LocalDateTime.of(2021, 1, 6, 0, 0));
+        assertEquals(2, slice.getFrom());
+        assertEquals(6, slice.getTo());
+        assertEquals(3.0, slice.getAdjClose(0));
+
+        assertTrue(series.slice(LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 2, 1, 0, 0)).isEmpty());
+        assertEquals(10, series.slice(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 1, 0, 0)).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> series.slice(LocalDateTime.of(2021, 1, 6, 0, 0), LocalDateTime.of(2021, 1, 3, 0, 0)));
+    }
+
+    @Test
+    void testRangeLookupNeedsSortedSeries() {
+        addDays(10, true);
+        assertThrows(IllegalStateException.class, () -> series.floorIndex(LocalDateTime.of(2021, 1, 5, 0, 0)));
+
+        series.sortByDate();
+        assertEquals(4, series.floorIndex(LocalDateTime.of(2021, 1, 5, 0, 0)));
+    }
+
+    @Test
+    void testIndicatorsFollowDays() {
+        addDays(5, false);
+        series.getDay(3).setMovingAvg(2, 3.5);
+
+        assertEquals(3.5, series.getDay(3).getMovingAvg(2));
+        assertNull(series.getDay(2).getMovingAvg(2));
+        assertTrue(series.estimateBytes() > 5 * 7 * Long.BYTES);
+
+        // Sorting moves the bars, so stored indicators no longer line up
+        series.add(LocalDateTime.of(2020, 1, 1, 0, 0), 0, 0, 0, 0, 0, 0L);
+        series.sortByDate();
+        assertFalse(series.getDay(4).hasMovingAvg(2));
+        assertTrue(series.getIndicators().getKeys().isEmpty());
+    }
+
+    @Test
+    void testVersion() {
+        final long empty = series.getVersion();
+        addDays(2, true);
+        final long two = series.getVersion();
+        assertTrue(two > empty);
+
+        series.sortByDate();
+        assertTrue(series.getVersion() > two);
+
+        // Already sorted: nothing changes
+        final long sorted = series.getVersion();
+        series.sortByDate();
+        assertEquals(sorted, series.getVersion());
+
+        series.clear();
+        assertTrue(series.getVersion() > sorted);
+        assertTrue(new DaySeries().getVersion() > series.getVersion());
+    }
+
+    @Test
+    void testListAndMapViews() {
+        final LocalDateTime date = LocalDateTime.of(2021, 1, 1, 0, 0);
+        final Day day = new Day(date, 2.0, 0.5, 1.0, 1.5, 1.4, 100L);
+
+        series.asList().add(day);
+        assertEquals(day, series.asList().get(0));
+        assertEquals(day, series.asMap().get(date));
+        assertNull(series.asMap().get(date.plusDays(1)));
+
+        // Putting a date that's already there doesn't append
+        series.asMap().put(date, day);
+        assertEquals(1, series.size());
+        assertEquals(1, series.asMap().entrySet().size());
+
+        series.asList().clear();
+        assertTrue(series.isEmpty());
+    }
+
+    @Test
+    void testSnapshot() {
+        addDays(3, true);
+        final DaySeries snapshot = series.snapshot();
+        assertTrue(snapshot.isSnapshot());
+        assertFalse(series.isSnapshot());
+        assertSame(snapshot, snapshot.snapshot());
+        assertEquals(series.getVersion(), snapshot.getVersion());
+
+        // The series moves on; the snapshot doesn't
+        series.sortByDate();
+        series.add(LocalDateTime.of(2021, 2, 1, 0, 0), 9, 9, 9, 9, 9, 9L);
+        assertEquals(3, snapshot.size());
+        assertFalse(snapshot.isAscending());
+        assertEquals(3.0, snapshot.getClose(0));
+        assertEquals(1.0, series.getClose(0));
+
+        series.clear();
+        assertEquals(3, snapshot.size());
+        assertEquals(1.0, snapshot.getClose(2));
+
+        assertThrows(IllegalStateException.class, () -> snapshot.add(LocalDateTime.now(), 1, 1, 1, 1, 1, 1L));
+        assertThrows(IllegalStateException.class, () -> snapshot.sortByDate());
+        assertThrows(IllegalStateException.class, () -> snapshot.clear());
+    }
+
+    @Test
+    void testReadersDuringAppends() throws Exception {
+        // Every field of bar i is derived from i, so a torn bar shows up as a mismatch
+        final int bars = 200_000;
+        final int readers = 8;
+        final DaySeries shared = new DaySeries(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(readers);
+
+        final ExecutorService pool = Executors.newFixedThreadPool(readers);
+        final List<Future<Long>> checks = new ArrayList<>();
+        for (int r = 0; r < readers; r++)
+            checks.add(pool.submit(() -> {
+                started.countDown();
+                long checked = 0;
+                do {
+                    // Column reads: size first, then the column
+                    final int n = shared.size();
+                    final double[] closes = shared.getCloseColumn();
+                    if (n > 0)
+                        assertEquals(n - 1, closes[n - 1]);
+
+                    // Snapshot reads: every bar whole, the size fixed
+                    final DaySeries snapshot = shared.snapshot();
+                    final int size = snapshot.size();
+                    for (int i = Math.max(0, size - 64); i < size; i++) {
+                        checkBar(snapshot, i);
+                        checked++;
+                    }
+                    assertEquals(size, snapshot.size());
+                    if (size > 0) {
+                        assertTrue(snapshot.isAscending());
+                        assertEquals(size - 1, snapshot.floorIndex(LocalDateTime.of(2100, 1, 1, 0, 0)));
+                    }
+                } while (!done.get());
+                return checked;
+            }));
+
+        started.await();
+        for (int i = 0; i < bars; i++)
+            shared.add(i * 60L, i, i + 1, i - 1, i, i + 0.5, i);
+        done.set(true);
+
+        for (final Future<Long> check : checks)
+            assertTrue(check.get() > 0);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(bars, shared.size());
+        for (int i = 0; i < bars; i++)
+            checkBar(shared, i);
+    }
+
+    @Test
+    void testTimeRoundTrip() {
+        final LocalDateTime date = LocalDateTime.of(2021, 1, 12, 9, 30);
+        assertEquals(date, DaySeries.toDate(DaySeries.toTime(date)));
+    }
+
+    private static void checkBar(final DaySeries s, final int i) {
+        assertEquals(i * 60L, s.getTime(i));
+        assertEquals(i, s.getOpen(i));
+        assertEquals(i + 1, s.getHigh(i));
+        assertEquals(i - 1, s.getLow(i));
+        assertEquals(i, s.getClose(i));
+        assertEquals(i + 0.5, s.getAdjClose(i));
+        assertEquals(i, s.getVolume(i));
+    }
+
+    private void addDays(final int n, final boolean descending) {
+        for (int k = 0; k < n; k++) {
+            final int i = descending ? n - 1 - k : k;
+            final double close = i + 1.0;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), close, close, close, close, close, 1000L);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.deroesch.tna.models;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -76,6 +77,9 @@ class DayTest {
         day.setMovingAvg(15, 15.0);
         assertEquals(15, day.getMovingAvg(15));
         assertThrows(IllegalArgumentException.class, () -> day.setMovingAvg(0, 15.0));
+        // NaN is how the store marks a missing value, so it can't be stored
+        assertThrows(IllegalArgumentException.class, () -> day.setMovingAvg(15, Double.NaN));
+        assertEquals(15, day.getMovingAvg(15));
     }
 
     @Test
@@ -85,6 +89,20 @@ class DayTest {
         assertThrows(IllegalArgumentException.class, () -> day.hasMovingAvg(0));
     }
 
+    @Test
+    void testDetachedSeries() {
+        // Made on first use, then kept, and holding the moving averages
+        final Day fresh = new Day(now, 2.0, 3.0, 4.0, 5.0, 6.0, 7L);
+        assertFalse(fresh.hasMovingAvg(10));
+        final DaySeries series = fresh.getSeries();
+        assertSame(series, fresh.getSeries());
+        assertEquals(1, series.size());
+        assertEquals(fresh, series.getDay(0));
+
+        assertSame(day.getSeries(), day.getSeries());
+        assertEquals(10.0, day.getSeries().getDay(0).getMovingAvg(10));
+    }
+
     @Test
     void testGetVolume() {
         assertEquals(7L, day.getVolume());
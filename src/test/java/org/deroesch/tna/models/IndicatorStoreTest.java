@@ -0,0 +1,93 @@
+package org.deroesch.tna.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndicatorStoreTest {
+
+    IndicatorStore store;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new IndicatorStore();
+    }
+
+    @Test
+    void testEmpty() {
+        assertNull(store.getColumn(IndicatorKey.sma(5)));
+        assertTrue(Double.isNaN(store.get(IndicatorKey.sma(5), 0)));
+        assertFalse(store.contains(IndicatorKey.sma(5)));
+        assertEquals(0, store.estimateBytes());
+    }
+
+    @Test
+    void testPutAndGet() {
+        final double[] column = { Double.NaN, 1.0, 2.0 };
+        store.put(IndicatorKey.sma(2), column);
+
+        assertSame(column, store.getColumn(IndicatorKey.sma(2)));
+        assertEquals(2.0, store.get(IndicatorKey.sma(2), 2));
+        assertTrue(Double.isNaN(store.get(IndicatorKey.sma(2), 0)));
+        assertTrue(Double.isNaN(store.get(IndicatorKey.sma(2), 3)));
+        assertTrue(Double.isNaN(store.get(IndicatorKey.sma(2), -1)));
+        assertEquals(3 * Double.BYTES, store.estimateBytes());
+    }
+
+    @Test
+    void testSetGrowsWithNaN() {
+        final IndicatorKey ema = new IndicatorKey("EMA", 3);
+        store.set(ema, 4, 7.0);
+        assertEquals(7.0, store.get(ema, 4));
+        assertTrue(Double.isNaN(store.get(ema, 3)));
+
+        store.put(IndicatorKey.sma(3), new double[] { 1.0 });
+        store.set(IndicatorKey.sma(3), 100, 2.0);
+        assertEquals(1.0, store.get(IndicatorKey.sma(3), 0));
+        assertTrue(Double.isNaN(store.get(IndicatorKey.sma(3), 50)));
+        assertEquals(2.0, store.get(IndicatorKey.sma(3), 100));
+
+        assertThrows(IllegalArgumentException.class, () -> store.set(ema, -1, 0.0));
+    }
+
+    @Test
+    void testKeys() {
+        assertEquals(new IndicatorKey("SMA", 20), IndicatorKey.sma(20));
+        assertSame(IndicatorKey.sma(20), IndicatorKey.sma(20));
+        assertEquals(IndicatorKey.sma(1000), IndicatorKey.sma(1000));
+        assertNotEquals(IndicatorKey.sma(20), new IndicatorKey("EMA", 20));
+        assertEquals("BB_UPPER(20,2.5)", new IndicatorKey("BB_UPPER", 20, 2.5).toString());
+        assertEquals("OBV()", new IndicatorKey("OBV").toString());
+
+        // The key copies its parameters
+        final double[] params = { 20 };
+        final IndicatorKey key = new IndicatorKey("SMA", params);
+        params[0] = 30;
+        assertEquals(IndicatorKey.sma(20), key);
+
+        assertThrows(IllegalArgumentException.class, () -> new IndicatorKey(" ", 20));
+        assertThrows(IllegalArgumentException.class, () -> IndicatorKey.sma(0));
+    }
+
+    @Test
+    void testRemoveAndClear() {
+        store.set(IndicatorKey.sma(3), 0, 1.0);
+        store.set(IndicatorKey.sma(4), 0, 1.0);
+        assertEquals(Set.of(IndicatorKey.sma(3), IndicatorKey.sma(4)), store.getKeys());
+
+        assertEquals(1, store.remove(IndicatorKey.sma(3)).length);
+        assertEquals(Set.of(IndicatorKey.sma(4)), store.getKeys());
+
+        store.clear();
+        assertTrue(store.getKeys().isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package org.deroesch.tna.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SeriesSliceTest {
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        series = new DaySeries();
+        for (int i = 0; i < 10; i++) {
+            final double price = i + 1.0;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), price, price + 1, price - 1, price, price,
+                    100L * i);
+        }
+    }
+
+    @Test
+    void testGettersAreRelative() {
+        final SeriesSlice slice = series.slice(3, 7);
+
+        assertEquals(4, slice.size());
+        assertSame(series, slice.getSeries());
+        assertEquals(LocalDateTime.of(2021, 1, 4, 0, 0), slice.getDate(0));
+        assertEquals(series.getTime(3), slice.getTime(0));
+        assertEquals(4.0, slice.getOpen(0));
+        assertEquals(5.0, slice.getHigh(0));
+        assertEquals(3.0, slice.getLow(0));
+        assertEquals(4.0, slice.getClose(0));
+        assertEquals(7.0, slice.getAdjClose(3));
+        assertEquals(600L, slice.getVolume(3));
+        assertEquals(series.getDay(5), slice.getDay(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getAdjClose(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getAdjClose(-1));
+    }
+
+    @Test
+    void testBounds() {
+        assertThrows(IndexOutOfBoundsException.class, () -> series.slice(5, 11));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.slice(6, 5));
+        assertEquals(0, series.slice(5, 5).size());
+    }
+
+    @Test
+    void testListView() {
+        final List<Day> days = series.slice(2, 5).asList();
+
+        assertEquals(3, days.size());
+        assertEquals(series.getDay(2), days.get(0));
+        assertThrows(UnsupportedOperationException.class, () -> days.add(series.getDay(0)));
+    }
+
+    @Test
+    void testSurvivesAppend() {
+        final SeriesSlice slice = series.slice(8, 10);
+        for (int i = 0; i < 500; i++)
+            series.add(LocalDateTime.of(2022, 1, 1, 0, 0).plusDays(i), 0, 0, 0, 0, 0, 0L);
+
+        assertEquals(2, slice.size());
+        assertEquals(10.0, slice.getAdjClose(1));
+    }
+}
@@ -0,0 +1,240 @@
+package org.deroesch.tna.signals;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.deroesch.tna.algos.IndicatorSpec;
+import org.deroesch.tna.algos.IndicatorType;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rule parsing, then scans checked against conditions tested directly on batch
+ * indicator columns, then monitors against scans.
+ */
+class RuleSetTest {
+
+    private static final int N = 1500;
+
+    @Test
+    void testParse() {
+        final Rule rule = Rule.parse("breakout", "close > bb_upper(20, 2) AND RSI(14)<70");
+        assertEquals("breakout", rule.getName());
+        assertEquals(2, rule.getConditions().size());
+        assertEquals("CLOSE > BB_UPPER(20,2) and RSI(14) < 70", rule.toString());
+        assertEquals(rule, Rule.parse("breakout", rule.toString()));
+
+        final Condition cross = Condition.parse("SMA(50)  Crosses  Above SMA(200)");
+        assertEquals(Comparison.CROSSES_ABOVE, cross.getComparison());
+        assertEquals(IndicatorSpec.sma(200), cross.getRight().getSpec());
+        assertEquals(cross, Condition.parse(cross.toString()));
+
+        final Condition level = Condition.parse("RSI(14) <= -2.5");
+        assertEquals(Comparison.AT_MOST, level.getComparison());
+        assertTrue(level.getRight().isConstant());
+        assertEquals(-2.5, level.getRight().getValue());
+        assertNull(level.getLeft().getField());
+        assertEquals(PriceField.VOLUME, Operand.parse(" volume ").getField());
+        assertEquals("30", Operand.of(30).toString());
+
+        assertEquals("SMA(5) > SMA(10)", Rule.parse("SMA(5) > SMA(10)").getName());
+    }
+
+    @Test
+    void testBadRules() {
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("CLOSE SMA(20)"));
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("CLOSE > "));
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("CLOSE crosses SMA(20)"));
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("1 > 2"));
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("CLOSE > 1e"));
+        assertThrows(IllegalArgumentException.class, () -> Condition.parse("CLOSE > FOO(3)"));
+        assertThrows(IllegalArgumentException.class, () -> Operand.of(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Rule.parse(" ", "CLOSE > 1"));
+        assertThrows(IllegalArgumentException.class, () -> new Rule("x", List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new RuleSet(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RuleSet(List.of(Rule.parse("a", "CLOSE > 1"), Rule.parse("a", "CLOSE > 2"))));
+        assertThrows(IllegalArgumentException.class, () -> Rule.parse("MACD(26,12,9) > 0"));
+    }
+
+    @Test
+    void testComparisons() {
+        assertTrue(Comparison.ABOVE.test(0, 0, 2, 1));
+        assertFalse(Comparison.ABOVE.test(0, 0, 1, 1));
+        assertTrue(Comparison.AT_LEAST.test(0, 0, 1, 1));
+        assertTrue(Comparison.CROSSES_ABOVE.test(1, 1, 2, 1));
+        assertFalse(Comparison.CROSSES_ABOVE.test(2, 1, 3, 1));
+        assertTrue(Comparison.CROSSES_BELOW.test(2, 1, 0, 1));
+        for (final Comparison comparison : Comparison.values()) {
+            assertFalse(comparison.test(Double.NaN, 1, 2, Double.NaN));
+            assertEquals(comparison, Condition.parse("CLOSE " + comparison.getSymbol() + " OPEN").getComparison());
+        }
+        // No previous bar, no crossing
+        assertFalse(Comparison.CROSSES_ABOVE.test(Double.NaN, Double.NaN, 2, 1));
+    }
+
+    @Test
+    void testSharing() {
+        final RuleSet set = new RuleSet(List.of(Rule.parse("a", "EMA(5) crosses above EMA(20)"),
+                Rule.parse("b", "EMA(5) crosses above EMA(20) and RSI(14) < 70"),
+                Rule.parse("c", "CLOSE > EMA(20) and RSI(14) < 70"), Rule.parse("d", "RSI(14) < 70")));
+        assertEquals(List.of(IndicatorSpec.of(IndicatorType.EMA, 5), IndicatorSpec.of(IndicatorType.EMA, 20),
+                IndicatorSpec.of(IndicatorType.RSI, 14)), set.getSpecs());
+        assertEquals(3, set.getConditions().size());
+    }
+
+    @Test
+    void testCrossings() {
+        final DaySeries series = series(N, 1);
+        final RuleSet set = new RuleSet(List.of(Rule.parse("up", "EMA(5) crosses above EMA(20)"),
+                Rule.parse("down", "EMA(5) crosses below EMA(20)")));
+        final List<SignalEvent> events = set.scan(series, "TEST");
+
+        final double[] fast = IndicatorSpec.of(IndicatorType.EMA, 5).compute(series);
+        final double[] slow = IndicatorSpec.of(IndicatorType.EMA, 20).compute(series);
+        final List<SignalEvent> expected = new ArrayList<>();
+        for (int i = 1; i < N; i++) {
+            if (fast[i - 1] <= slow[i - 1] && fast[i] > slow[i])
+                expected.add(event("up", series, i));
+            if (fast[i - 1] >= slow[i - 1] && fast[i] < slow[i])
+                expected.add(event("down", series, i));
+        }
+        assertTrue(expected.size() > 20);
+        assertEquals(expected, events);
+
+        // Up and down alternate
+        for (int j = 1; j < events.size(); j++)
+            assertNotEquals(events.get(j - 1).getRule(), events.get(j).getRule());
+    }
+
+    @Test
+    void testRisingEdge() {
+        final DaySeries series = series(N, 2);
+        final RuleSet set = new RuleSet(List.of(Rule.parse("stretched", "CLOSE > BB_UPPER(20,2) and RSI(14) < 70")));
+        final List<SignalEvent> events = set.scan(series, "TEST");
+
+        final double[] upper = IndicatorSpec.parse("BB_UPPER(20,2)").compute(series);
+        final double[] rsi = IndicatorSpec.parse("RSI(14)").compute(series);
+        final List<SignalEvent> expected = new ArrayList<>();
+        boolean was = false;
+        for (int i = 0; i < N; i++) {
+            final boolean is = series.getAdjClose(i) > upper[i] && rsi[i] < 70;
+            if (is && !was)
+                expected.add(event("stretched", series, i));
+            was = is;
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, events);
+    }
+
+    @Test
+    void testAdjustedBars() {
+        // A 2:1 split halfway: raw prices halve, adjusted ones don't move
+        final DaySeries series = new DaySeries();
+        for (int i = 0; i < 10; i++) {
+            final double raw = i < 5 ? 20 : 10;
+            series.add(LocalDateTime.of(2021, 1, 1, 0, 0).plusDays(i), raw, raw + 2, raw - 2, raw, 10, 100L);
+        }
+        final RuleSet set = new RuleSet(List.of(Rule.parse("gap", "HIGH <= 11"), Rule.parse("flat", "OPEN >= 10")));
+        final List<SignalEvent> events = set.scan(series, "TEST");
+        assertEquals(List.of(event("gap", series, 0), event("flat", series, 0)), events);
+    }
+
+    @Test
+    void testMonitorMatchesScan() {
+        final DaySeries all = series(N, 3);
+        final RuleSet set = new RuleSet(List.of(Rule.parse("golden", "SMA(10) crosses above SMA(40)"),
+                Rule.parse("overbought", "RSI(14) >= 70"), Rule.parse("range", "CLOSE < VWAP(20) and ATR(14) > 1"),
+                Rule.parse("stoch", "STOCH_K(14) crosses below STOCH_D(14,3)")));
+        final List<SignalEvent> expected = set.scan(all, "TEST");
+
+        final int half = N / 2;
+        final DaySeries live = new DaySeries();
+        for (int i = 0; i < half; i++)
+            live.add(all.getDay(i));
+
+        final List<SignalEvent> heard = new ArrayList<>();
+        final RuleMonitor monitor = set.attach(live, "TEST", heard::add);
+        assertTrue(heard.isEmpty());
+
+        for (int i = half; i < N; i++)
+            live.add(all.getDay(i));
+
+        final List<SignalEvent> tail = new ArrayList<>();
+        for (final SignalEvent event : expected)
+            if (event.getIndex() >= half)
+                tail.add(event);
+        assertTrue(tail.size() > 10);
+        assertEquals(tail, heard);
+
+        // The rules held at the last bar as they do in a batch check
+        final double[] rsi = IndicatorSpec.parse("RSI(14)").compute(all);
+        assertEquals(rsi[N - 1] >= 70, monitor.isActive("overbought"));
+        assertThrows(IllegalArgumentException.class, () -> monitor.isActive("nope"));
+
+        // After a reset the monitor starts afresh
+        heard.clear();
+        live.clear();
+        for (int i = 0; i < N; i++)
+            live.add(all.getDay(i));
+        assertEquals(expected, heard);
+
+        assertTrue(live.removeListener(monitor));
+    }
+
+    @Test
+    void testBadListener() {
+        final DaySeries series = series(50, 4);
+        final RuleSet set = new RuleSet(List.of(Rule.parse("any", "CLOSE > 0 and VOLUME > 0")));
+        final DaySeries live = new DaySeries();
+        set.attach(live, "TEST", e -> {
+            throw new IllegalStateException("listener");
+        });
+        for (int i = 0; i < series.size(); i++)
+            live.add(series.getDay(i));
+        assertEquals(series.size(), live.size());
+    }
+
+    @Test
+    void testUniverse() {
+        final RuleSet set = new RuleSet(List.of(Rule.parse("up", "EMA(5) crosses above EMA(20)")));
+        final Map<String, DaySeries> universe = Map.of("B", series(300, 5), "A", series(300, 6), "C",
+                new DaySeries());
+        final Map<String, List<SignalEvent>> events = set.scan(universe);
+        assertEquals(List.of("A", "B", "C"), new ArrayList<>(events.keySet()));
+        assertEquals(set.scan(universe.get("A"), "A"), events.get("A"));
+        assertEquals(set.scan(universe.get("B"), "B"), events.get("B"));
+        assertTrue(events.get("C").isEmpty());
+    }
+
+    private static SignalEvent event(final String rule, final DaySeries series, final int i) {
+        return new SignalEvent("TEST", rule, i, series.getDate(i), series.getAdjClose(i));
+    }
+
+    /*
+     * A random walk with ranges and volumes, and adjusted closes 1% below raw.
+     */
+    private static DaySeries series(final int n, final long seed) {
+        final Random random = new Random(seed);
+        final DaySeries series = new DaySeries(n);
+        final LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        double price = 100.0;
+        for (int i = 0; i < n; i++) {
+            price = Math.max(5.0, price + random.nextGaussian());
+            final double high = price + Math.abs(random.nextGaussian());
+            final double low = price - Math.abs(random.nextGaussian());
+            series.add(start.plusDays(i), price, high, low, price, price * 0.99, 1000L + random.nextInt(1000));
+        }
+        return series;
+    }
+}
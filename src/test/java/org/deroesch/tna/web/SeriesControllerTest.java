@@ -0,0 +1,180 @@
+package org.deroesch.tna.web;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+
+import org.deroesch.tna.db.DayDB;
+import org.deroesch.tna.db.SeriesCodec;
+import org.deroesch.tna.models.DaySeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SeriesControllerTest {
+
+    private static final String SYMBOL = "WEBT";
+
+    @Autowired
+    private MockMvc mvc;
+
+    DaySeries series;
+
+    @BeforeEach
+    void beforeEach() {
+        // Jan 4 (a Monday) through Jan 15, weekdays only
+        series = new DaySeries();
+        for (int d = 4; d <= 15; d++) {
+            final LocalDateTime date = LocalDateTime.of(2021, 1, d, 0, 0);
+            if (date.getDayOfWeek().getValue() <= 5)
+                series.add(date, d, d + 1, d - 1, d, d, 100L * d);
+        }
+        DayDB.getRegistry().put(SYMBOL, series);
+    }
+
+    @AfterEach
+    void afterEach() {
+        DayDB.getRegistry().remove(SYMBOL);
+    }
+
+    @Test
+    void testSymbols() throws Exception {
+        mvc.perform(get("/api/symbols")).andExpect(status().isOk()).andExpect(jsonPath("$[?(@ == 'WEBT')]").exists());
+    }
+
+    @Test
+    void testBarsJson() throws Exception {
+        stream(get("/api/bars/webt").param("from", "2021-01-09").param("to", "2021-01-12"))
+                .andExpect(status().isOk()).andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.length()").value(2)).andExpect(jsonPath("$[0].date").value("2021-01-11T00:00"))
+                .andExpect(jsonPath("$[0].high").value(12.0)).andExpect(jsonPath("$[1].volume").value(1200));
+    }
+
+    @Test
+    void testBarsCsv() throws Exception {
+        final String csv = stream(get("/api/bars/WEBT").param("to", "2021-01-05").param("format", "csv"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        final String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("date,open,high,low,close,adjClose,volume", lines[0]);
+        assertEquals("2021-01-04T00:00,4.0,5.0,3.0,4.0,4.0,400", lines[1]);
+    }
+
+    @Test
+    void testIndicators() throws Exception {
+        stream(get("/api/indicators/WEBT").param("spec", "SMA(3)", "ema(2)")).andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(10)).andExpect(jsonPath("$[0]['SMA(3)']").isEmpty())
+                .andExpect(jsonPath("$[2]['SMA(3)']").value(5.0)).andExpect(jsonPath("$[1]['EMA(2)']").value(4.5));
+
+        final String csv = stream(get("/api/indicators/WEBT").param("spec", "SMA(3)").param("format", "csv")
+                .param("from", "2021-01-05")).andReturn().getResponse().getContentAsString();
+        final String[] lines = csv.split("\n");
+        assertEquals("date,SMA(3)", lines[0]);
+        assertEquals("2021-01-05T00:00,", lines[1]);
+        assertEquals("2021-01-06T00:00,5.0", lines[2]);
+    }
+
+    @Test
+    void testExport() throws Exception {
+        for (final String compress : new String[] { "false", "true" }) {
+            final byte[] bytes = stream(get("/api/export/WEBT").param("from", "2021-01-06").param("compress", compress))
+                    .andExpect(status().isOk()).andExpect(header().exists("ETag")).andReturn().getResponse()
+                    .getContentAsByteArray();
+
+            final DaySeries read = SeriesCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+            assertEquals(8, read.size());
+            assertEquals(series.getDay(2), read.getDay(0));
+            assertEquals(1500L, read.getVolume(7));
+        }
+    }
+
+    @Test
+    void testSignals() throws Exception {
+        mvc.perform(get("/api/signals/webt").param("rule", "CLOSE > SMA(3)", "close >= 12")).andExpect(status().isOk())
+                .andExpect(header().exists("ETag")).andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].rule").value("CLOSE > SMA(3)")).andExpect(jsonPath("$[0].index").value(2))
+                .andExpect(jsonPath("$[1].rule").value("close >= 12")).andExpect(jsonPath("$[1].close").value(12.0))
+                .andExpect(jsonPath("$[1].symbol").value("WEBT"));
+
+        // Warm-up runs from the start of the series whatever the range
+        mvc.perform(get("/api/signals/WEBT").param("rule", "CLOSE > SMA(3)", "CLOSE >= 12").param("from",
+                "2021-01-07")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].index").value(6));
+    }
+
+    @Test
+    void testConditionalGet() throws Exception {
+        final String etag = stream(get("/api/bars/WEBT")).andReturn().getResponse().getHeader("ETag");
+        // Versions restart with the process; the boot id keeps old tags from matching
+        assertTrue(etag.startsWith(String.format("\"WEBT-%08x-", SeriesController.BOOT_ID)), etag);
+
+        mvc.perform(get("/api/bars/WEBT").header("If-None-Match", etag)).andExpect(status().isNotModified());
+
+        // Another query, or new data, gets a new tag
+        final String csvTag = stream(get("/api/bars/WEBT").param("format", "csv")).andReturn().getResponse()
+                .getHeader("ETag");
+        assertNotEquals(etag, csvTag);
+
+        series.add(LocalDateTime.of(2021, 1, 18, 0, 0), 1, 1, 1, 1, 1, 1L);
+        stream(get("/api/bars/WEBT").header("If-None-Match", etag)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(11));
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        mvc.perform(get("/api/bars/NOPE")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/bars/WEBT").param("format", "xml")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/bars/WEBT").param("from", "yesterday")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/indicators/WEBT").param("spec", "FOO(3)")).andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("FOO")));
+        mvc.perform(get("/api/indicators/WEBT")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/signals/WEBT").param("rule", "CLOSE SMA(3)")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/signals/WEBT").param("rule", "CLOSE > MACD(26,12,9)"))
+                .andExpect(status().isBadRequest());
+        // Windows are allocated up front, so huge periods are refused outright
+        mvc.perform(get("/api/indicators/WEBT").param("spec", "WMA(2000000000)")).andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("limit")));
+        mvc.perform(get("/api/signals/WEBT").param("rule", "CLOSE > MAX(2000000000)"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testMetrics() throws Exception {
+        stream(get("/api/indicators/WEBT").param("spec", "SMA(4)")).andExpect(status().isOk());
+        mvc.perform(get("/actuator/metrics/tna.indicator.cache").param("tag", "result:miss"))
+                .andExpect(status().isOk()).andExpect(jsonPath("$.measurements[0].value").value(greaterThan(0.0)));
+        mvc.perform(get("/actuator/metrics/tna.series.heap")).andExpect(status().isOk())
+                .andExpect(jsonPath("$.baseUnit").value("bytes"));
+    }
+
+    /*
+     * Streamed bodies are written asynchronously; wait for them.
+     */
+    private ResultActions stream(final RequestBuilder builder) throws Exception {
+        final MvcResult started = mvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+}